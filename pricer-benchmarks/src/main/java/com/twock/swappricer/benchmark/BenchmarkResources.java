@@ -0,0 +1,74 @@
+package com.twock.swappricer.benchmark;
+
+import java.io.*;
+
+import com.twock.swappricer.CurveContainer;
+import com.twock.swappricer.HolidayCalendarContainer;
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.fpml.FpmlParser;
+import com.twock.swappricer.fpml.factory.*;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Loads the sample trade, curves and calendars shared with the pricer tests, which are on the benchmark classpath in
+ * the pricer test jar.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class BenchmarkResources {
+  public static final String TRADE = "/LCH00000513426.xml";
+  public static final String CALENDARS = "/calendars.tsv";
+  public static final String CURVE_MAPPINGS = "/static/curveMappings.csv";
+  public static final String CURVES = "/DMPAUC_EUR00100a - VM Yield Curve - Zero Rates Day 1.TXT";
+  public static final String HISTORIC_INDEX_RATES = "/static/historicIndexRates.tsv";
+
+  private BenchmarkResources() {
+  }
+
+  public static byte[] read(String resource) {
+    InputStream input = BenchmarkResources.class.getResourceAsStream(resource);
+    if(input == null) {
+      throw new PricerException("Resource " + resource + " not found on the classpath");
+    }
+    try {
+      return IOUtils.toByteArray(input);
+    } catch(IOException e) {
+      throw new PricerException("Failed to read " + resource, e);
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
+  public static Reader reader(byte[] contents) {
+    try {
+      return new InputStreamReader(new ByteArrayInputStream(contents), "UTF8");
+    } catch(UnsupportedEncodingException e) {
+      throw new PricerException("UTF8 not supported", e);
+    }
+  }
+
+  public static HolidayCalendarContainer loadCalendars() {
+    HolidayCalendarContainer allCalendars = new HolidayCalendarContainer();
+    allCalendars.loadFromTsv(new ByteArrayInputStream(read(CALENDARS)));
+    return allCalendars;
+  }
+
+  /**
+   * @return curves and mappings loaded from the sample files, with no historic index rates
+   */
+  public static CurveContainer loadCurves() {
+    return new CurveContainer(reader(read(CURVE_MAPPINGS)), reader(read(CURVES)), new StringReader(""));
+  }
+
+  public static FpmlParser createFpmlParser() {
+    BusinessDayAdjustmentsFactory businessDayAdjustmentsFactory = new BusinessDayAdjustmentsFactory();
+    AdjustableDateFactory adjustableDateFactory = new AdjustableDateFactory(businessDayAdjustmentsFactory);
+    CalculationPeriodFrequencyFactory calculationPeriodFrequencyFactory = new CalculationPeriodFrequencyFactory();
+    OffsetFactory offsetFactory = new OffsetFactory();
+    RelativeDateOffsetFactory relativeDateOffsetFactory = new RelativeDateOffsetFactory(businessDayAdjustmentsFactory);
+    PaymentDatesFactory paymentDatesFactory = new PaymentDatesFactory(businessDayAdjustmentsFactory, offsetFactory);
+    ResetDatesFactory resetDatesFactory = new ResetDatesFactory(businessDayAdjustmentsFactory, relativeDateOffsetFactory);
+    SwapStreamFactory swapStreamFactory = new SwapStreamFactory(businessDayAdjustmentsFactory, adjustableDateFactory, calculationPeriodFrequencyFactory, paymentDatesFactory, resetDatesFactory);
+    return new FpmlParser(swapStreamFactory);
+  }
+}
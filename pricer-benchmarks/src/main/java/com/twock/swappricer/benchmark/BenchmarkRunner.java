@@ -0,0 +1,23 @@
+package com.twock.swappricer.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler attached, so allocation rates (bytes/op) are reported alongside timings.
+ * Equivalent to running the benchmarks jar with <code>-prof gc</code>.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class BenchmarkRunner {
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder()
+      .include(args.length == 0 ? BenchmarkRunner.class.getPackage().getName() + ".*" : args[0])
+      .addProfiler(GCProfiler.class)
+      .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,48 @@
+package com.twock.swappricer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.twock.swappricer.HolidayCalendarContainer;
+import com.twock.swappricer.fpml.SwapStreamDateCalculator;
+import com.twock.swappricer.fpml.model.BusinessDayAdjustments;
+import com.twock.swappricer.fpml.model.CalculationPeriodFrequency;
+import com.twock.swappricer.fpml.model.DateWithDayCount;
+import com.twock.swappricer.fpml.model.enumeration.BusinessDayConventionEnum;
+import com.twock.swappricer.fpml.model.enumeration.DayCountFractionEnum;
+import com.twock.swappricer.fpml.model.enumeration.PeriodEnum;
+import com.twock.swappricer.fpml.model.enumeration.RollConventionEnum;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Day count fractions for a ten year quarterly schedule with a short initial stub, for every supported day count
+ * fraction.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DayCountFractionBenchmark {
+  @Param
+  public DayCountFractionEnum dayCountFraction;
+  private final SwapStreamDateCalculator calculator = new SwapStreamDateCalculator();
+  private CalculationPeriodFrequency calculationPeriodFrequency;
+  private int[] adjustedDates;
+
+  @Setup
+  public void setUp() {
+    HolidayCalendarContainer allCalendars = BenchmarkResources.loadCalendars();
+    calculationPeriodFrequency = new CalculationPeriodFrequency(3, PeriodEnum.M, RollConventionEnum.DAY15);
+    int[] unadjustedDates = calculator.calculateUnadjustedPeriodDayCounts(new DateWithDayCount(2012, 2, 1).getDayCount(), new DateWithDayCount(2012, 3, 15).getDayCount(), SwapStreamDateCalculator.NO_DATE, new DateWithDayCount(2022, 3, 15).getDayCount(), calculationPeriodFrequency);
+    BusinessDayAdjustments adjustments = new BusinessDayAdjustments(BusinessDayConventionEnum.MODFOLLOWING, "GBLO");
+    adjustedDates = calculator.calculateAdjustedPeriodDayCounts(unadjustedDates, adjustments, adjustments, adjustments, allCalendars);
+  }
+
+  @Benchmark
+  public double[] dayCountFractions() {
+    return calculator.getDayCountFractions(adjustedDates, dayCountFraction, calculationPeriodFrequency, Boolean.TRUE, Boolean.FALSE);
+  }
+}
@@ -0,0 +1,51 @@
+package com.twock.swappricer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.twock.swappricer.ValuationCurve;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Discounting a forty year schedule of monthly payment dates off the sample EONIA curve, one date at a time and as a
+ * batch.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiscountFactorBenchmark {
+  private ValuationCurve curve;
+  private int[] dates;
+  private double[] out;
+
+  @Setup
+  public void setUp() {
+    curve = BenchmarkResources.loadCurves().getCurve("EUR_EONIA_EOD");
+    int[] maturityDates = curve.getMaturityDates();
+    int first = maturityDates[0] + 1;
+    int count = Math.min(480, (maturityDates[maturityDates.length - 1] - first) / 30);
+    dates = new int[count];
+    for(int i = 0; i < count; i++) {
+      dates[i] = first + i * 30;
+    }
+    out = new double[count];
+  }
+
+  @Benchmark
+  public double[] getDiscountFactor() {
+    for(int i = 0; i < dates.length; i++) {
+      out[i] = curve.getDiscountFactor(dates[i]);
+    }
+    return out;
+  }
+
+  @Benchmark
+  public double[] discountFactors() {
+    curve.discountFactors(dates, out);
+    return out;
+  }
+}
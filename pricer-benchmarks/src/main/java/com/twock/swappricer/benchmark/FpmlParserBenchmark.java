@@ -0,0 +1,36 @@
+package com.twock.swappricer.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.twock.swappricer.fpml.FpmlParser;
+import com.twock.swappricer.fpml.model.SwapStream;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Parsing the sample FpML trade from memory.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FpmlParserBenchmark {
+  private FpmlParser fpmlParser;
+  private byte[] trade;
+
+  @Setup
+  public void setUp() {
+    fpmlParser = BenchmarkResources.createFpmlParser();
+    trade = BenchmarkResources.read(BenchmarkResources.TRADE);
+  }
+
+  @Benchmark
+  public List<SwapStream> parse() {
+    return fpmlParser.parse(new ByteArrayInputStream(trade));
+  }
+}
@@ -0,0 +1,103 @@
+package com.twock.swappricer.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.twock.swappricer.CurveContainer;
+import com.twock.swappricer.DateUtil;
+import com.twock.swappricer.HolidayCalendarContainer;
+import com.twock.swappricer.PricerException;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Loading the sample curve, holiday calendar and historic index rate files from memory.  The sample index rate file
+ * holds only a handful of fixings, so each of its indexes is given {@link #HISTORY_DAYS} days of fixings, about the
+ * size of a full history.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoaderBenchmark {
+  private static final int HISTORY_DAYS = 3650;
+  private CurveContainer curveContainer;
+  private byte[] curves;
+  private byte[] calendars;
+  private byte[] indexRates;
+
+  @Setup
+  public void setUp() {
+    curveContainer = BenchmarkResources.loadCurves();
+    curves = BenchmarkResources.read(BenchmarkResources.CURVES);
+    calendars = BenchmarkResources.read(BenchmarkResources.CALENDARS);
+    indexRates = createIndexRates(BenchmarkResources.read(BenchmarkResources.HISTORIC_INDEX_RATES));
+  }
+
+  /**
+   * @return a fixing for every day of the {@link #HISTORY_DAYS} up to the first sample fixing, for each index in the
+   *         sample index rate file, grouped by index as in the real file
+   */
+  private static byte[] createIndexRates(byte[] sample) {
+    try {
+      String[] lines = new String(sample, "UTF8").split("\n");
+      Set<String> indexes = new LinkedHashSet<String>();
+      int lastDate = Integer.MAX_VALUE;
+      for(int i = 1; i < lines.length; i++) {
+        String[] fields = lines[i].split("\t");
+        indexes.add(fields[0] + '\t' + fields[1] + '\t' + fields[2] + '\t' + fields[3] + '\t' + fields[7]);
+        String[] date = fields[4].substring(0, 10).split("/");
+        lastDate = Math.min(lastDate, DateUtil.dateToDayCount(Integer.parseInt(date[2]), Integer.parseInt(date[1]), Integer.parseInt(date[0])));
+      }
+      StringBuilder result = new StringBuilder(lines[0]).append('\n');
+      for(String index : indexes) {
+        String[] fields = index.split("\t");
+        for(int day = lastDate - HISTORY_DAYS; day < lastDate; day++) {
+          String date = formatDate(day);
+          result.append(fields[0]).append('\t').append(fields[1]).append('\t').append(fields[2]).append('\t').append(fields[3]).append('\t')
+            .append(date).append('\t').append(date).append('\t').append(1 + (day % 400) / 100.0).append('\t').append(fields[4]).append('\n');
+        }
+      }
+      return result.toString().getBytes("UTF8");
+    } catch(UnsupportedEncodingException e) {
+      throw new PricerException("UTF8 not supported", e);
+    }
+  }
+
+  private static String formatDate(int dayCount) {
+    short[] date = DateUtil.dayCountToDate(dayCount);
+    return String.format("%02d/%02d/%04d 00:00:00", date[2], date[1], date[0]);
+  }
+
+  @Benchmark
+  public CurveContainer loadCurvesFromTsv() {
+    curveContainer.loadCurvesFromTsv(BenchmarkResources.reader(curves));
+    return curveContainer;
+  }
+
+  @Benchmark
+  public HolidayCalendarContainer loadCalendarsFromTsv() {
+    HolidayCalendarContainer allCalendars = new HolidayCalendarContainer();
+    allCalendars.loadFromTsv(BenchmarkResources.reader(calendars));
+    return allCalendars;
+  }
+
+  @Benchmark
+  public HolidayCalendarContainer loadCalendarsFromBytes() {
+    HolidayCalendarContainer allCalendars = new HolidayCalendarContainer();
+    allCalendars.loadFromTsv(new ByteArrayInputStream(calendars));
+    return allCalendars;
+  }
+
+  @Benchmark
+  public CurveContainer loadIndexRatesTsv() {
+    curveContainer.loadIndexRatesTsv(BenchmarkResources.reader(indexRates));
+    return curveContainer;
+  }
+}
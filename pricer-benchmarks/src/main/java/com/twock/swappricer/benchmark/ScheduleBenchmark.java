@@ -0,0 +1,73 @@
+package com.twock.swappricer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.twock.swappricer.HolidayCalendarContainer;
+import com.twock.swappricer.fpml.SwapStreamDateCalculator;
+import com.twock.swappricer.fpml.model.*;
+import com.twock.swappricer.fpml.model.enumeration.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Schedule generation for a ten year stream starting on an IMM date, across frequencies and roll conventions.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScheduleBenchmark {
+  @Param({"1M", "3M", "6M", "1Y"})
+  public String frequency;
+  @Param({"DAY20", "EOM", "IMM"})
+  public String rollConvention;
+  private final SwapStreamDateCalculator calculator = new SwapStreamDateCalculator();
+  private HolidayCalendarContainer allCalendars;
+  private int effectiveDate;
+  private int terminationDate;
+  private CalculationPeriodFrequency calculationPeriodFrequency;
+  private BusinessDayAdjustments adjustments;
+  private PaymentDates paymentDates;
+  private ResetDates resetDates;
+  private int[] unadjustedDates;
+  private int[] adjustedDates;
+
+  @Setup
+  public void setUp() {
+    allCalendars = BenchmarkResources.loadCalendars();
+    RollConventionEnum roll = RollConventionEnum.valueOf(rollConvention);
+    // 20th March 2013 is both the IMM date and the 20th, and the end of month rolls on to 31st March
+    effectiveDate = new DateWithDayCount(2013, 3, roll == RollConventionEnum.EOM ? 31 : 20).getDayCount();
+    terminationDate = new DateWithDayCount(2023, 3, roll == RollConventionEnum.EOM ? 31 : 20).getDayCount();
+    calculationPeriodFrequency = new CalculationPeriodFrequency(Integer.parseInt(frequency.substring(0, 1)), PeriodEnum.valueOf(frequency.substring(1)), roll);
+    adjustments = new BusinessDayAdjustments(BusinessDayConventionEnum.MODFOLLOWING, "EUTA", "GBLO");
+    paymentDates = new PaymentDates(calculationPeriodFrequency.getPeriodMultiplier(), calculationPeriodFrequency.getPeriod(), PayRelativeToEnum.CALCULATION_PERIOD_END_DATE, null, adjustments);
+    RelativeDateOffset fixingOffset = new RelativeDateOffset(-2, PeriodEnum.D, DayTypeEnum.BUSINESS, BusinessDayConventionEnum.NO_ADJUST, new String[]{"EUTA"});
+    resetDates = new ResetDates(ResetRelativeToEnum.CALCULATION_PERIOD_START_DATE, null, fixingOffset, calculationPeriodFrequency.getPeriodMultiplier(), calculationPeriodFrequency.getPeriod(), adjustments);
+    unadjustedDates = unadjusted();
+    adjustedDates = adjusted();
+  }
+
+  @Benchmark
+  public int[] unadjusted() {
+    return calculator.calculateUnadjustedPeriodDayCounts(effectiveDate, SwapStreamDateCalculator.NO_DATE, SwapStreamDateCalculator.NO_DATE, terminationDate, calculationPeriodFrequency);
+  }
+
+  @Benchmark
+  public int[] adjusted() {
+    return calculator.calculateAdjustedPeriodDayCounts(unadjustedDates, adjustments, adjustments, adjustments, allCalendars);
+  }
+
+  @Benchmark
+  public int[] payment() {
+    return calculator.calculatePaymentDayCounts(adjustedDates, paymentDates, allCalendars);
+  }
+
+  @Benchmark
+  public int[] fixing() {
+    return calculator.calculateFixingDayCounts(adjustedDates, resetDates, allCalendars);
+  }
+}
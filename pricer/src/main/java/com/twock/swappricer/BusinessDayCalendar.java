@@ -0,0 +1,299 @@
+package com.twock.swappricer;
+
+import java.util.Arrays;
+
+/**
+ * A compiled, immutable view of one or more holiday calendars as a dense bitset holding one bit per day between
+ * 1st January of <code>firstYear</code> and 31st December of <code>lastYear</code>.  A set bit means the day is a
+ * business day (neither a weekend nor a holiday in any of the source calendars), so business day checks and searches
+ * for the next/previous business day are word operations rather than binary searches.  Dates outside the compiled
+ * range fall back to searching the holiday arrays directly.
+ * <p/>
+ * Alongside the bitset, the number of business days preceding each 64 day word is stored, along with the list of all
+ * business days in the range, so the ordinal of a business day, adding or subtracting N business days and counting
+ * business days between two dates are all constant time.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class BusinessDayCalendar {
+  public static final int DEFAULT_FIRST_YEAR = 1950;
+  public static final int DEFAULT_LAST_YEAR = 2150;
+  private final int firstYear;
+  private final int lastYear;
+  private final int firstDayCount;
+  private final int lastDayCount;
+  private final long[] businessDays;
+  private final int[] wordOrdinals;
+  private final int[] businessDayList;
+  private final int[][] holidayDayCounts;
+
+  /**
+   * Compile the given sorted holiday day counts into a business day bitset over the given year range.
+   *
+   * @param firstYear first year covered by the bitset
+   * @param lastYear last year covered by the bitset, inclusive
+   * @param holidayDayCounts sorted arrays of holiday day counts, one per calendar
+   */
+  public BusinessDayCalendar(int firstYear, int lastYear, int[]... holidayDayCounts) {
+    if(lastYear < firstYear) {
+      throw new PricerException("Invalid business day calendar year range " + firstYear + "-" + lastYear);
+    }
+    this.firstYear = firstYear;
+    this.lastYear = lastYear;
+    this.firstDayCount = DateUtil.dateToDayCount(new short[]{(short)firstYear, 1, 1});
+    this.lastDayCount = DateUtil.dateToDayCount(new short[]{(short)(lastYear + 1), 1, 1}) - 1;
+    this.holidayDayCounts = holidayDayCounts;
+    int days = lastDayCount - firstDayCount + 1;
+    long[] bits = new long[(days + 63) >>> 6];
+    for(int i = 0; i < days; i++) {
+      if(!DateUtil.isWeekend(firstDayCount + i)) {
+        bits[i >>> 6] |= 1L << i;
+      }
+    }
+    for(int[] holidays : holidayDayCounts) {
+      for(int holiday : holidays) {
+        if(holiday >= firstDayCount && holiday <= lastDayCount) {
+          int i = holiday - firstDayCount;
+          bits[i >>> 6] &= ~(1L << i);
+        }
+      }
+    }
+    this.businessDays = bits;
+    this.wordOrdinals = calculateWordOrdinals(bits);
+    this.businessDayList = calculateBusinessDayList(bits, wordOrdinals, firstDayCount);
+  }
+
+  private BusinessDayCalendar(int firstYear, int lastYear, int firstDayCount, int lastDayCount, long[] businessDays, int[][] holidayDayCounts) {
+    this.firstYear = firstYear;
+    this.lastYear = lastYear;
+    this.firstDayCount = firstDayCount;
+    this.lastDayCount = lastDayCount;
+    this.businessDays = businessDays;
+    this.wordOrdinals = calculateWordOrdinals(businessDays);
+    this.businessDayList = calculateBusinessDayList(businessDays, wordOrdinals, firstDayCount);
+    this.holidayDayCounts = holidayDayCounts;
+  }
+
+  private static int[] calculateWordOrdinals(long[] bits) {
+    int[] result = new int[bits.length + 1];
+    for(int i = 0; i < bits.length; i++) {
+      result[i + 1] = result[i] + Long.bitCount(bits[i]);
+    }
+    return result;
+  }
+
+  private static int[] calculateBusinessDayList(long[] bits, int[] wordOrdinals, int firstDayCount) {
+    int[] result = new int[wordOrdinals[bits.length]];
+    int pos = 0;
+    for(int i = 0; i < bits.length; i++) {
+      long word = bits[i];
+      while(word != 0) {
+        result[pos++] = firstDayCount + (i << 6) + Long.numberOfTrailingZeros(word);
+        word &= word - 1;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Combine several compiled calendars into one, where a day is a business day only if it is a business day in every
+   * one of the given calendars.  Where all calendars share a year range the bitsets are simply ANDed together.
+   *
+   * @param calendars calendars to combine, at least one is required
+   * @return a calendar representing the union of holidays in all the given calendars
+   */
+  public static BusinessDayCalendar combine(BusinessDayCalendar... calendars) {
+    if(calendars.length == 0) {
+      throw new PricerException("At least one calendar is required to combine");
+    } else if(calendars.length == 1) {
+      return calendars[0];
+    }
+    BusinessDayCalendar first = calendars[0];
+    int holidayArrayCount = 0;
+    boolean sameRange = true;
+    for(BusinessDayCalendar calendar : calendars) {
+      holidayArrayCount += calendar.holidayDayCounts.length;
+      sameRange &= calendar.firstYear == first.firstYear && calendar.lastYear == first.lastYear;
+    }
+    int[][] holidays = new int[holidayArrayCount][];
+    int pos = 0;
+    for(BusinessDayCalendar calendar : calendars) {
+      System.arraycopy(calendar.holidayDayCounts, 0, holidays, pos, calendar.holidayDayCounts.length);
+      pos += calendar.holidayDayCounts.length;
+    }
+    if(!sameRange) {
+      return new BusinessDayCalendar(first.firstYear, first.lastYear, holidays);
+    }
+    long[] bits = first.businessDays.clone();
+    for(int c = 1; c < calendars.length; c++) {
+      long[] other = calendars[c].businessDays;
+      for(int i = 0; i < bits.length; i++) {
+        bits[i] &= other[i];
+      }
+    }
+    return new BusinessDayCalendar(first.firstYear, first.lastYear, first.firstDayCount, first.lastDayCount, bits, holidays);
+  }
+
+  public int getFirstYear() {
+    return firstYear;
+  }
+
+  public int getLastYear() {
+    return lastYear;
+  }
+
+  /**
+   * @param dayCount numeric date from DateUtil
+   * @return true if the given date is neither a weekend nor a holiday
+   */
+  public boolean isBusinessDay(int dayCount) {
+    if(dayCount < firstDayCount || dayCount > lastDayCount) {
+      return isBusinessDaySlow(dayCount);
+    }
+    int i = dayCount - firstDayCount;
+    return (businessDays[i >>> 6] & (1L << i)) != 0;
+  }
+
+  /**
+   * @param dayCount numeric date from DateUtil
+   * @return the given date if it is a business day, otherwise the first business day after it
+   */
+  public int nextBusinessDay(int dayCount) {
+    if(dayCount >= firstDayCount && dayCount <= lastDayCount) {
+      int i = dayCount - firstDayCount;
+      int wordIndex = i >>> 6;
+      long word = businessDays[wordIndex] & (-1L << i);
+      while(word == 0) {
+        if(++wordIndex == businessDays.length) {
+          return nextBusinessDaySlow(lastDayCount + 1);
+        }
+        word = businessDays[wordIndex];
+      }
+      return firstDayCount + (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+    }
+    return nextBusinessDaySlow(dayCount);
+  }
+
+  /**
+   * @param dayCount numeric date from DateUtil
+   * @return the given date if it is a business day, otherwise the last business day before it
+   */
+  public int previousBusinessDay(int dayCount) {
+    if(dayCount >= firstDayCount && dayCount <= lastDayCount) {
+      int i = dayCount - firstDayCount;
+      int wordIndex = i >>> 6;
+      long word = businessDays[wordIndex] & (-1L >>> (63 - (i & 63)));
+      while(word == 0) {
+        if(--wordIndex < 0) {
+          return previousBusinessDaySlow(firstDayCount - 1);
+        }
+        word = businessDays[wordIndex];
+      }
+      return firstDayCount + (wordIndex << 6) + 63 - Long.numberOfLeadingZeros(word);
+    }
+    return previousBusinessDaySlow(dayCount);
+  }
+
+  /**
+   * Shift the given date by a number of business days.  A positive count moves to the count'th business day strictly
+   * after the date, a negative count to the count'th business day strictly before it.  The date need not be a business
+   * day itself, and a count of zero leaves it unchanged.
+   *
+   * @param dayCount numeric date from DateUtil
+   * @param businessDaysToAdd number of business days to move, can be negative
+   * @return the shifted date
+   */
+  public int addBusinessDays(int dayCount, int businessDaysToAdd) {
+    if(businessDaysToAdd == 0) {
+      return dayCount;
+    }
+    // ordinal of the first business day after the date, or one past the last business day before it
+    int ordinalDate = businessDaysToAdd > 0 ? dayCount + 1 : dayCount;
+    if(ordinalDate >= firstDayCount && ordinalDate <= lastDayCount + 1) {
+      int index = ordinal(ordinalDate) + (businessDaysToAdd > 0 ? businessDaysToAdd - 1 : businessDaysToAdd);
+      if(index >= 0 && index < businessDayList.length) {
+        return businessDayList[index];
+      }
+    }
+    int signum = Integer.signum(businessDaysToAdd);
+    for(int i = Math.abs(businessDaysToAdd); i > 0; i--) {
+      dayCount += signum;
+      while(!isBusinessDay(dayCount)) {
+        dayCount += signum;
+      }
+    }
+    return dayCount;
+  }
+
+  /**
+   * Count the business days from the start date (inclusive) up to the end date (exclusive), as required for BUS/252.
+   *
+   * @param startDayCount first date to count, numeric date from DateUtil
+   * @param endDayCount date after the last date to count, numeric date from DateUtil
+   * @return the number of business days in the period, negative if the end date is before the start date
+   */
+  public int businessDaysBetween(int startDayCount, int endDayCount) {
+    if(endDayCount < startDayCount) {
+      return -businessDaysBetween(endDayCount, startDayCount);
+    }
+    if(startDayCount >= firstDayCount && endDayCount <= lastDayCount + 1) {
+      return ordinal(endDayCount) - ordinal(startDayCount);
+    }
+    int result = 0;
+    for(int day = startDayCount; day < endDayCount; day++) {
+      if(isBusinessDay(day)) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param dayCount numeric date from DateUtil, from the first day of the compiled range to the day after the last
+   * @return the number of business days in the compiled range strictly before the given date
+   */
+  private int ordinal(int dayCount) {
+    int i = dayCount - firstDayCount;
+    int wordIndex = i >>> 6;
+    int result = wordOrdinals[wordIndex];
+    if((i & 63) != 0) {
+      result += Long.bitCount(businessDays[wordIndex] & ((1L << i) - 1));
+    }
+    return result;
+  }
+
+  private boolean isBusinessDaySlow(int dayCount) {
+    if(DateUtil.isWeekend(dayCount)) {
+      return false;
+    }
+    for(int[] holidays : holidayDayCounts) {
+      if(Arrays.binarySearch(holidays, dayCount) >= 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int nextBusinessDaySlow(int dayCount) {
+    while(!isBusinessDaySlow(dayCount)) {
+      dayCount++;
+    }
+    return dayCount;
+  }
+
+  private int previousBusinessDaySlow(int dayCount) {
+    while(!isBusinessDaySlow(dayCount)) {
+      dayCount--;
+    }
+    return dayCount;
+  }
+
+  @Override
+  public String toString() {
+    return "BusinessDayCalendar{" +
+      "firstYear=" + firstYear +
+      ", lastYear=" + lastYear +
+      ", calendarCount=" + holidayDayCounts.length +
+      '}';
+  }
+}
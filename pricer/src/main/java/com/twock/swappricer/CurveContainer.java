@@ -1,7 +1,11 @@
 package com.twock.swappricer;
 
-import java.io.Reader;
+import java.io.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
 
 import au.com.bytecode.opencsv.CSVReader;
 import com.twock.swappricer.fpml.model.DateWithDayCount;
@@ -10,15 +14,16 @@ import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 
 /**
+ * Curve mappings, zero curves and historic index rates, held as an immutable {@link MarketSnapshot} published through
+ * an atomic reference.  Each load reads its file into new maps without holding any lock, then publishes a new
+ * snapshot by compare and set, so reloading never blocks threads pricing against the current snapshot, and a
+ * valuation that takes the snapshot (or its {@link CurveResolver}) once sees consistent market data throughout.
+ *
  * @author Chris Pearson (chris@twock.com)
  */
 public class CurveContainer {
   private static final Logger log = Logger.getLogger(CurveContainer.class);
-  private SortedMap<String, SortedMap<Integer, Double>> historicIndexRates;
-  private Map<String, String> discountCurveMapping;
-  private Map<String, String> forwardCurveMapping;
-  private Map<String, String> lchToFpmlCurveNameMapping;
-  private Map<String, ValuationCurve> curves;
+  private final AtomicReference<MarketSnapshot> snapshot = new AtomicReference<MarketSnapshot>(MarketSnapshot.EMPTY);
 
   public CurveContainer(Reader mappingsCsv, Reader curvesTsv, Reader indexRates) {
     loadMappingsFromCsv(mappingsCsv);
@@ -26,6 +31,19 @@ public class CurveContainer {
     loadIndexRatesTsv(indexRates);
   }
 
+  /**
+   * Load the mappings then the curves and historic index rates, the last two at the same time, see
+   * {@link #loadCurvesAndIndexRates}.
+   */
+  public CurveContainer(File mappingsCsv, File curvesTsv, File indexRates) {
+    try {
+      loadMappingsFromCsv(new InputStreamReader(new FileInputStream(mappingsCsv), "UTF8"));
+    } catch(IOException e) {
+      throw new PricerException("Failed to open " + mappingsCsv, e);
+    }
+    loadCurvesAndIndexRates(curvesTsv, indexRates);
+  }
+
   /**
    * Read a valuation curves mapping CSV from the given input stream, and close the input reader afterwards.
    *
@@ -54,9 +72,10 @@ public class CurveContainer {
           log.debug("Ignoring valuation curve mapping CSV line " + rowNum + " of length " + line.length + " (expected 3)");
         }
       }
-      this.discountCurveMapping = discountCurveMapping;
-      this.forwardCurveMapping = forwardCurveMapping;
-      this.lchToFpmlCurveNameMapping = lchToFpmlCurveNameMapping;
+      MarketSnapshot current;
+      do {
+        current = snapshot.get();
+      } while(!snapshot.compareAndSet(current, current.withMappings(forwardCurveMapping, discountCurveMapping, lchToFpmlCurveNameMapping)));
     } catch(Exception e) {
       throw new PricerException("Failed to read in tab separated holiday calendar file", e);
     } finally {
@@ -65,55 +84,130 @@ public class CurveContainer {
   }
 
   /**
-   * Read a valuation curves mapping CSV from the given input stream, and close the input reader afterwards.
+   * Read zero curves from a TSV with a header row then a row per pillar holding the curve name, close date, maturity
+   * date, accrual factor, zero rate and discount factor, and close the input reader afterwards.  Pillars may be in any
+   * order and are sorted by maturity once each curve is complete.
    *
-   * @param input source of the CSV, will be closed before returning
+   * @param input source of the TSV, will be closed before returning
    */
   public void loadCurvesFromTsv(Reader input) {
-    Map<String, ValuationCurve> curves = new TreeMap<String, ValuationCurve>();
+    loadCurvesFromTsv(TsvReader.read(input));
+  }
+
+  /**
+   * Read zero curves from a memory mapped TSV file, see {@link #loadCurvesFromTsv(Reader)}.
+   *
+   * @param file the TSV file
+   */
+  public void loadCurvesFromTsv(File file) {
+    loadCurvesFromTsv(TsvReader.open(file));
+  }
+
+  /**
+   * Read zero curves as {@link #loadCurvesFromTsv(Reader)}, but replacing only the curves in the TSV and keeping every
+   * other curve already loaded, e.g. for a single curve refreshed intraday.
+   *
+   * @param input source of the TSV, will be closed before returning
+   * @return the names of the curves read
+   */
+  public Set<String> updateCurvesFromTsv(Reader input) {
+    Map<String, ValuationCurve> updated = readCurves(TsvReader.read(input));
+    MarketSnapshot current;
+    MarketSnapshot next;
+    do {
+      current = snapshot.get();
+      Map<String, ValuationCurve> curves = new TreeMap<String, ValuationCurve>(current.getCurves());
+      curves.putAll(updated);
+      next = current.withCurves(curves);
+    } while(!snapshot.compareAndSet(current, next));
+    return updated.keySet();
+  }
+
+  private void loadCurvesFromTsv(TsvReader reader) {
+    Map<String, ValuationCurve> curves = readCurves(reader);
+    MarketSnapshot current;
+    do {
+      current = snapshot.get();
+    } while(!snapshot.compareAndSet(current, current.withCurves(curves)));
+  }
+
+  private static Map<String, ValuationCurve> readCurves(TsvReader reader) {
+    Map<String, PillarBuffer> pillars = new LinkedHashMap<String, PillarBuffer>();
     try {
-      CSVReader reader = new CSVReader(input, '\t');
-      reader.readNext(); // dump header row
-      int rowNum = 1;
-      String[] line;
+      reader.nextLine(); // dump header row
       String currentCurve = null;
-      List<Integer> maturityDates = new ArrayList<Integer>();
-      List<Double> zeroRates = new ArrayList<Double>();
-      List<Double> discountFactors = new ArrayList<Double>();
-      DateWithDayCount closeDate = null;
-      while((line = reader.readNext()) != null) {
-        rowNum++;
-        if(line.length == 6) {
-          String curve = line[0];
-          int maturityDate = DateUtil.dateToDayCount(new short[]{Short.parseShort(line[2].substring(6, 10)), Short.parseShort(line[2].substring(3, 5)), Short.parseShort(line[2].substring(0, 2))});
-          double zeroRate = Double.parseDouble(line[4]);
-          double discountFactor = Double.parseDouble(line[5]);
-
-          if(currentCurve != null && !currentCurve.equals(curve)) {
-            curves.put(currentCurve, new ValuationCurve(currentCurve, closeDate, convertIntegers(maturityDates), convertDoubles(zeroRates), convertDoubles(discountFactors)));
-            maturityDates = new ArrayList<Integer>();
-            zeroRates = new ArrayList<Double>();
-            discountFactors = new ArrayList<Double>();
+      PillarBuffer currentPillars = null;
+      while(reader.nextLine()) {
+        int fields = reader.getFieldCount();
+        if(fields != 6) {
+          log.debug("Ignoring zero curve TSV line " + reader.getLineNumber() + " of length " + fields + " (expected 6)");
+          continue;
+        }
+        reader.nextField();
+        if(!reader.fieldEquals(currentCurve)) {
+          // rows are grouped by curve, so the name and close date only need decoding when it changes
+          currentCurve = reader.getField();
+          currentPillars = pillars.get(currentCurve);
+          reader.nextField();
+          if(currentPillars == null) {
+            currentPillars = new PillarBuffer(reader.getDayMonthYearField());
+            pillars.put(currentCurve, currentPillars);
           }
-          currentCurve = curve;
-          closeDate = new DateWithDayCount(new short[]{Short.parseShort(line[1].substring(6, 10)), Short.parseShort(line[1].substring(3, 5)), Short.parseShort(line[1].substring(0, 2))});
-          int insertPosition = -(Collections.binarySearch(maturityDates, maturityDate) + 1);
-          maturityDates.add(insertPosition, maturityDate);
-          zeroRates.add(insertPosition, zeroRate);
-          discountFactors.add(insertPosition, discountFactor);
         } else {
-          log.debug("Ignoring zero curve TSV line " + rowNum + " of length " + line.length + " (expected 6)");
+          reader.nextField();
         }
+        reader.nextField();
+        int maturityDate = reader.getDayMonthYearField();
+        reader.nextField(); // accrual factor
+        reader.nextField();
+        double zeroRate = reader.getDoubleField();
+        reader.nextField();
+        currentPillars.add(maturityDate, zeroRate, reader.getDoubleField());
       }
-      if(currentCurve != null) {
-        curves.put(currentCurve, new ValuationCurve(currentCurve, closeDate, convertIntegers(maturityDates), convertDoubles(zeroRates), convertDoubles(discountFactors)));
+    } catch(RuntimeException e) {
+      throw new PricerException("Failed to read in tab separated zero curve file", e);
+    }
+    Map<String, ValuationCurve> curves = new TreeMap<String, ValuationCurve>();
+    for(Map.Entry<String, PillarBuffer> entry : pillars.entrySet()) {
+      curves.put(entry.getKey(), entry.getValue().toCurve(entry.getKey()));
+    }
+    return curves;
+  }
+
+  /**
+   * Load zero curves and historic index rates at the same time, reading the index rates on a separate thread while
+   * the curves are read on the calling thread.  The curve mappings must already be loaded, as they are needed to
+   * match the index rates to FpML indexes.
+   *
+   * @param curvesTsv zero curve file, see {@link #loadCurvesFromTsv(Reader)}
+   * @param indexRatesTsv historic index rate file, see {@link #loadIndexRatesTsv(Reader)}
+   */
+  public void loadCurvesAndIndexRates(File curvesTsv, final File indexRatesTsv) {
+    FutureTask<Void> indexRates = new FutureTask<Void>(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        loadIndexRatesTsv(indexRatesTsv);
+        return null;
       }
-    } catch(Exception e) {
-      throw new PricerException("Failed to read in tab separated holiday calendar file", e);
-    } finally {
-      IOUtils.closeQuietly(input);
+    });
+    Thread thread = new Thread(indexRates, "index-rate-loader");
+    thread.setDaemon(true);
+    thread.start();
+    try {
+      loadCurvesFromTsv(curvesTsv);
+    } catch(RuntimeException e) {
+      indexRates.cancel(true);
+      throw e;
+    }
+    try {
+      indexRates.get();
+    } catch(InterruptedException e) {
+      indexRates.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new PricerException("Interrupted while loading " + indexRatesTsv, e);
+    } catch(ExecutionException e) {
+      throw e.getCause() instanceof PricerException ? (PricerException)e.getCause() : new PricerException("Failed to load " + indexRatesTsv, e.getCause());
     }
-    this.curves = curves;
   }
 
   /**
@@ -126,7 +220,7 @@ public class CurveContainer {
    * @return the discount curve name to use
    */
   public String getDiscountCurve(String index, Integer periodMultiplier, PeriodEnum period, String currency) {
-    return getMapping(index, periodMultiplier, period, currency, discountCurveMapping);
+    return snapshot.get().getDiscountCurve(index, periodMultiplier, period, currency);
   }
 
   /**
@@ -139,39 +233,24 @@ public class CurveContainer {
    * @return the discount curve name to use
    */
   public String getForwardCurve(String index, Integer periodMultiplier, PeriodEnum period, String currency) {
-    return getMapping(index, periodMultiplier, period, currency, forwardCurveMapping);
-  }
-
-  private static String getMapping(String index, Integer periodMultiplier, PeriodEnum period, String currency, Map<String, String> mappings) {
-    String mapping = periodMultiplier == null || period == null ? null : mappings.get(index + ' ' + periodMultiplier + period.name());
-    if(mapping == null) {
-      mapping = index == null ? null : mappings.get(index);
-      if(mapping == null) {
-        mapping = mappings.get(currency);
-        if(mapping == null) {
-          throw new MissingMappingException("index=" + index + ", currency=" + currency + ", periodMultiplier=" + periodMultiplier + ", period=" + period);
-        }
-      }
-    }
-    return mapping;
+    return snapshot.get().getForwardCurve(index, periodMultiplier, period, currency);
   }
 
-  private static int[] convertIntegers(List<Integer> integers) {
-    int[] ret = new int[integers.size()];
-    Iterator<Integer> iterator = integers.iterator();
-    for(int i = 0; i < ret.length; i++) {
-      ret[i] = iterator.next();
-    }
-    return ret;
+  /**
+   * @return the market data as of the most recently published load, unchanged by any later load
+   */
+  public MarketSnapshot getSnapshot() {
+    return snapshot.get();
   }
 
-  private static double[] convertDoubles(List<Double> doubles) {
-    double[] ret = new double[doubles.size()];
-    Iterator<Double> iterator = doubles.iterator();
-    for(int i = 0; i < ret.length; i++) {
-      ret[i] = iterator.next();
-    }
-    return ret;
+  /**
+   * Obtain the curve mappings compiled against the loaded curves and historic fixings, compiling them on first use
+   * after each load.  A resolver already handed out keeps resolving against the market data it was compiled from.
+   *
+   * @return the resolver for the current snapshot, see {@link MarketSnapshot#getCurveResolver()}
+   */
+  public CurveResolver getCurveResolver() {
+    return snapshot.get().getCurveResolver();
   }
 
   /**
@@ -181,69 +260,250 @@ public class CurveContainer {
    * @return the curve, otherwise an exception is thrown if it is unknown
    */
   public ValuationCurve getCurve(String curveName) {
-    ValuationCurve valuationCurve = curves.get(curveName);
-    if(valuationCurve == null) {
-      throw new PricerException("No such curve " + curveName + ", available curves are " + curves.keySet());
-    }
-    return valuationCurve;
+    return snapshot.get().getCurve(curveName);
   }
 
+  /**
+   * Read historic index rates from a TSV with a header row then a row per fixing holding the currency, index name,
+   * tenor multiplier, tenor period, fixing date, effective date, rate and regulatory body, and close the input reader
+   * afterwards.  Rates are kept for the LCH indexes with a curve mapping, keyed on the FpML index they map to in the
+   * snapshot the rates are published into, even if a mappings load is published while the file is read.
+   *
+   * @param input source of the TSV, will be closed before returning
+   */
   public void loadIndexRatesTsv(Reader input) {
-    SortedMap<String, SortedMap<Integer, Double>> historicRates = new TreeMap<String, SortedMap<Integer, Double>>();
-    Set<String> unmappedLchIndices = new TreeSet<String>();
+    loadIndexRatesTsv(TsvReader.read(input));
+  }
+
+  /**
+   * Read historic index rates from a memory mapped TSV file, see {@link #loadIndexRatesTsv(Reader)}.
+   *
+   * @param file the TSV file
+   */
+  public void loadIndexRatesTsv(File file) {
+    loadIndexRatesTsv(TsvReader.open(file));
+  }
+
+  private void loadIndexRatesTsv(TsvReader reader) {
+    Map<String, RateBuffer> ratesByLchIndex = readIndexRates(reader);
+    // keyed on FpML index through the mappings of the snapshot being replaced, and keyed again if a mappings load
+    // publishes different ones first
+    Map<String, String> keyedWith = null;
+    Map<String, FixingSeries> fixings = null;
+    MarketSnapshot current;
+    do {
+      current = snapshot.get();
+      if(fixings == null || !keyedWith.equals(current.getLchToFpmlCurveNameMapping())) {
+        keyedWith = current.getLchToFpmlCurveNameMapping();
+        fixings = toFixings(ratesByLchIndex, keyedWith);
+      }
+    } while(!snapshot.compareAndSet(current, current.withHistoricFixings(fixings)));
+  }
+
+  /**
+   * @return the rates of each index in the file, keyed on LCH index in the order first seen
+   */
+  private static Map<String, RateBuffer> readIndexRates(TsvReader reader) {
+    Map<String, RateBuffer> rates = new LinkedHashMap<String, RateBuffer>();
     try {
-      CSVReader reader = new CSVReader(input, '\t');
-      reader.readNext(); // dump header row
-      int rowNum = 1;
-      String[] line;
-      DateWithDayCount closeDate = null;
-      while((line = reader.readNext()) != null) {
-        rowNum++;
-        if(line.length == 8) {
-//          Currency	Indexname	Tenorunit	Tenorperiod	Fixingdate	Effectivedate	Indexrate	regulatoryBody
-//          AUD	LIBOR	1	M	04/10/2010 00:00:00	06/10/2010 00:00:00	4.71250	BBA
-          String currency = line[0];
-          String indexName = line[1];
-          int tenorPeriodMultiplier = Integer.parseInt(line[2]);
-          PeriodEnum tenorPeriod = PeriodEnum.valueOf(line[3]);
-          int fixingDate = DateUtil.dateToDayCount(new short[]{Short.parseShort(line[4].substring(6, 10)), Short.parseShort(line[4].substring(3, 5)), Short.parseShort(line[4].substring(0, 2))});
-          double indexRate = Double.parseDouble(line[6]);
-          String regulatoryBody = line[7];
-          String lchIndexKey = currency + ' ' + indexName + ' ' + regulatoryBody + ' ' + tenorPeriodMultiplier + tenorPeriod.name();
-          String indexKey = unmappedLchIndices.contains(lchIndexKey) ? null : lchToFpmlCurveNameMapping.get(lchIndexKey);
-          if(indexKey == null) {
-            unmappedLchIndices.add(lchIndexKey);
-          } else {
-            SortedMap<Integer, Double> ratesForIndex = historicRates.get(indexKey);
-            if(ratesForIndex == null) {
-              ratesForIndex = new TreeMap<Integer, Double>();
-              historicRates.put(indexKey, ratesForIndex);
-            }
-            ratesForIndex.put(fixingDate, indexRate);
+      reader.nextLine(); // dump header row
+      // Currency	Indexname	Tenorunit	Tenorperiod	Fixingdate	Effectivedate	Indexrate	regulatoryBody
+      // AUD	LIBOR	1	M	04/10/2010 00:00:00	06/10/2010 00:00:00	4.71250	BBA
+      String[] index = new String[8];
+      RateBuffer currentRates = null;
+      while(reader.nextLine()) {
+        int fields = reader.getFieldCount();
+        if(fields != 8) {
+          log.debug("Ignoring index rate TSV line " + reader.getLineNumber() + " of length " + fields + " (expected 8)");
+          continue;
+        }
+        // rows are grouped by index, so the index is only looked up again when one of its fields changes
+        boolean changed = nextIndexField(reader, index, 0) | nextIndexField(reader, index, 1) | nextIndexField(reader, index, 2) | nextIndexField(reader, index, 3);
+        reader.nextField();
+        int fixingDate = reader.getDayMonthYearField();
+        reader.nextField(); // effective date
+        reader.nextField();
+        double indexRate = reader.getDoubleField();
+        changed |= nextIndexField(reader, index, 7);
+        if(changed) {
+          String lchIndexKey = index[0] + ' ' + index[1] + ' ' + index[7] + ' ' + Integer.parseInt(index[2]) + PeriodEnum.valueOf(index[3]).name();
+          currentRates = rates.get(lchIndexKey);
+          if(currentRates == null) {
+            currentRates = new RateBuffer();
+            rates.put(lchIndexKey, currentRates);
           }
-        } else {
-          log.debug("Ignoring index rate TSV line " + rowNum + " of length " + line.length + " (expected 8)");
         }
+        currentRates.add(fixingDate, indexRate);
       }
-      if(!unmappedLchIndices.isEmpty()) {
-        log.debug(unmappedLchIndices.size() + " unmapped LCH indices have historic rates that haven't been loaded: " + unmappedLchIndices);
+    } catch(RuntimeException e) {
+      throw new PricerException("Failed to read in tab separated index rate file", e);
+    }
+    return rates;
+  }
+
+  /**
+   * @param ratesByLchIndex rates keyed on LCH index, see {@link #readIndexRates}
+   * @param lchToFpmlIndex FpML index keyed on LCH index
+   * @return the fixings of each mapped index keyed on the FpML index, those of LCH indexes mapping to the same FpML
+   *         index combined
+   */
+  private static Map<String, FixingSeries> toFixings(Map<String, RateBuffer> ratesByLchIndex, Map<String, String> lchToFpmlIndex) {
+    Map<String, RateBuffer> rates = new HashMap<String, RateBuffer>();
+    Set<String> unmappedLchIndices = new TreeSet<String>();
+    for(Map.Entry<String, RateBuffer> entry : ratesByLchIndex.entrySet()) {
+      String indexKey = lchToFpmlIndex.get(entry.getKey());
+      if(indexKey == null) {
+        unmappedLchIndices.add(entry.getKey());
+      } else {
+        RateBuffer existing = rates.get(indexKey);
+        rates.put(indexKey, existing == null ? entry.getValue() : existing.concat(entry.getValue()));
       }
-    } catch(Exception e) {
-      throw new PricerException("Failed to read in tab separated holiday calendar file", e);
-    } finally {
-      IOUtils.closeQuietly(input);
     }
-    historicIndexRates = historicRates;
+    if(!unmappedLchIndices.isEmpty()) {
+      log.debug(unmappedLchIndices.size() + " unmapped LCH indices have historic rates that haven't been loaded: " + unmappedLchIndices);
+    }
+    Map<String, FixingSeries> fixings = new HashMap<String, FixingSeries>();
+    for(Map.Entry<String, RateBuffer> entry : rates.entrySet()) {
+      fixings.put(entry.getKey(), entry.getValue().toFixingSeries());
+    }
+    return fixings;
+  }
+
+  /**
+   * Move to the next field, holding on to it in index[field] if it differs from the one there.
+   *
+   * @return true if the field changed
+   */
+  private static boolean nextIndexField(TsvReader reader, String[] index, int field) {
+    reader.nextField();
+    if(reader.fieldEquals(index[field])) {
+      return false;
+    }
+    index[field] = reader.getField();
+    return true;
   }
 
+  /**
+   * Find the historic fixings of an index, preferring those loaded for its tenor and falling back to those loaded
+   * without one.
+   *
+   * @param fpmlIndex FpML floating rate index, e.g. EUR-EURIBOR-Reuters
+   * @param periodMultiplier index tenor multiplier, can be null
+   * @param period index tenor period, can be null
+   * @return the fixings, shared and immutable
+   * @throws MissingMappingException if no fixings were loaded for the index
+   */
+  public FixingSeries getHistoricFixings(String fpmlIndex, Integer periodMultiplier, PeriodEnum period) {
+    return snapshot.get().getHistoricFixings(fpmlIndex, periodMultiplier, period);
+  }
+
+  /**
+   * @return a new map of the fixings found by {@link #getHistoricFixings}, rates in percent keyed on fixing date
+   */
   public SortedMap<Integer, Double> getHistoricIndexRates(String fpmlIndex, Integer periodMultiplier, PeriodEnum period) {
-    SortedMap<Integer, Double> historicRates = periodMultiplier == null || period == null ? null : historicIndexRates.get(fpmlIndex + ' ' + periodMultiplier + period.name());
-    if(historicRates == null) {
-      historicRates = fpmlIndex == null ? null : historicIndexRates.get(fpmlIndex);
-      if(historicRates == null) {
-        throw new MissingMappingException("index=" + fpmlIndex + ", periodMultiplier=" + periodMultiplier + ", period=" + period);
+    return getHistoricFixings(fpmlIndex, periodMultiplier, period).toSortedMap();
+  }
+
+  /**
+   * The pillars read for one curve, in file order.
+   */
+  private static class PillarBuffer {
+    private final int closeDate;
+    private int[] maturityDates = new int[64];
+    private double[] zeroRates = new double[64];
+    private double[] discountFactors = new double[64];
+    private int size;
+
+    private PillarBuffer(int closeDate) {
+      this.closeDate = closeDate;
+    }
+
+    public void add(int maturityDate, double zeroRate, double discountFactor) {
+      if(size == maturityDates.length) {
+        maturityDates = Arrays.copyOf(maturityDates, size * 2);
+        zeroRates = Arrays.copyOf(zeroRates, size * 2);
+        discountFactors = Arrays.copyOf(discountFactors, size * 2);
+      }
+      maturityDates[size] = maturityDate;
+      zeroRates[size] = zeroRate;
+      discountFactors[size] = discountFactor;
+      size++;
+    }
+
+    public ValuationCurve toCurve(String curveName) {
+      // sort the pillars by maturity, keeping each pillar's position in the low bits
+      long[] order = new long[size];
+      for(int i = 0; i < size; i++) {
+        order[i] = (long)maturityDates[i] << 32 | i;
+      }
+      Arrays.sort(order);
+      int[] sortedMaturityDates = new int[size];
+      double[] sortedZeroRates = new double[size];
+      double[] sortedDiscountFactors = new double[size];
+      for(int i = 0; i < size; i++) {
+        int from = (int)order[i];
+        sortedMaturityDates[i] = maturityDates[from];
+        sortedZeroRates[i] = zeroRates[from];
+        sortedDiscountFactors[i] = discountFactors[from];
+        if(i > 0 && sortedMaturityDates[i] == sortedMaturityDates[i - 1]) {
+          throw new PricerException("Curve " + curveName + " has more than one pillar maturing on " + Arrays.toString(DateUtil.dayCountToDate(sortedMaturityDates[i])));
+        }
+      }
+      return new ValuationCurve(curveName, new DateWithDayCount(closeDate), sortedMaturityDates, sortedZeroRates, sortedDiscountFactors);
+    }
+  }
+
+  /**
+   * The fixings read for one index, in file order.
+   */
+  private static class RateBuffer {
+    private int[] fixingDates = new int[256];
+    private double[] rates = new double[256];
+    private int size;
+
+    public void add(int fixingDate, double rate) {
+      if(size == fixingDates.length) {
+        fixingDates = Arrays.copyOf(fixingDates, size * 2);
+        rates = Arrays.copyOf(rates, size * 2);
+      }
+      fixingDates[size] = fixingDate;
+      rates[size] = rate;
+      size++;
+    }
+
+    /**
+     * @return a new buffer holding these rates followed by the other's, leaving both unchanged
+     */
+    public RateBuffer concat(RateBuffer other) {
+      RateBuffer result = new RateBuffer();
+      result.fixingDates = Arrays.copyOf(fixingDates, size + other.size);
+      result.rates = Arrays.copyOf(rates, size + other.size);
+      System.arraycopy(other.fixingDates, 0, result.fixingDates, size, other.size);
+      System.arraycopy(other.rates, 0, result.rates, size, other.size);
+      result.size = size + other.size;
+      return result;
+    }
+
+    /**
+     * @return the fixings in date order, where a date appearing more than once keeps its last rate in the file
+     */
+    public FixingSeries toFixingSeries() {
+      long[] order = new long[size];
+      for(int i = 0; i < size; i++) {
+        order[i] = (long)fixingDates[i] << 32 | i;
+      }
+      Arrays.sort(order);
+      int[] sortedFixingDates = new int[size];
+      double[] sortedRates = new double[size];
+      int count = 0;
+      for(int i = 0; i < size; i++) {
+        int from = (int)order[i];
+        if(count == 0 || sortedFixingDates[count - 1] != fixingDates[from]) {
+          sortedFixingDates[count++] = fixingDates[from];
+        }
+        sortedRates[count - 1] = rates[from];
       }
+      return count == size ? new FixingSeries(sortedFixingDates, sortedRates) : new FixingSeries(Arrays.copyOf(sortedFixingDates, count), Arrays.copyOf(sortedRates, count));
     }
-    return historicRates;
   }
 }
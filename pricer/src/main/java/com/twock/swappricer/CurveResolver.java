@@ -0,0 +1,205 @@
+package com.twock.swappricer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.twock.swappricer.fpml.model.SwapStream;
+import com.twock.swappricer.fpml.model.enumeration.PeriodEnum;
+
+/**
+ * The curve mappings of a {@link CurveContainer} compiled against its curves and historic fixings, so a leg's market
+ * data can be found once, when the trade is loaded, rather than by name on every valuation.  Index names and
+ * currencies are given small integer ids, shared by every resolver so a leg compiled against one set of curves keeps
+ * its ids when the curves are reloaded, and the {@link ResolvedCurves} for each combination of index, index tenor and
+ * currency are looked up the first time they are asked for and held from then on.
+ * <p/>
+ * Ids are never reused, so there can be at most {@link #MAX_ID} distinct index names and currencies in the life of
+ * the process, and tenors up to {@link #MAX_TENOR}: each is packed into {@link #FIELD_BITS} bits of the lookup key,
+ * and anything that does not fit is rejected with a {@link PricerException} rather than sharing another's key.
+ * <p/>
+ * The mappings are resolved in the same way as {@link CurveContainer#getForwardCurve} and
+ * {@link CurveContainer#getDiscountCurve}: by index and tenor, then by index alone, then by currency.  Thread safe.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class CurveResolver {
+  /**
+   * Id of a missing index or currency.
+   */
+  public static final int NO_ID = 0;
+  /**
+   * Tenor of an index without one.
+   */
+  public static final int NO_TENOR = 0;
+  /**
+   * Bits of the lookup key given to each of the index id, tenor and currency id.
+   */
+  public static final int FIELD_BITS = 20;
+  /**
+   * Largest index or currency id, after which no more names can be given ids.
+   */
+  public static final int MAX_ID = (1 << FIELD_BITS) - 1;
+  /**
+   * Largest tenor, see {@link #getTenor}.
+   */
+  public static final int MAX_TENOR = (1 << FIELD_BITS) - 1;
+  private static final PeriodEnum[] PERIODS = PeriodEnum.values();
+  private final Map<String, ValuationCurve> forwardCurves = new HashMap<String, ValuationCurve>();
+  private final Map<String, ValuationCurve> discountCurves = new HashMap<String, ValuationCurve>();
+  private final Map<String, String> forwardCurveNames;
+  private final Map<String, String> discountCurveNames;
+  private final Map<String, FixingSeries> historicFixings;
+  private final String availableCurves;
+  private static final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+  private static final ConcurrentMap<Integer, String> names = new ConcurrentHashMap<Integer, String>();
+  private static final AtomicInteger nextId = new AtomicInteger(NO_ID + 1);
+  private final ConcurrentMap<Long, ResolvedCurves> resolved = new ConcurrentHashMap<Long, ResolvedCurves>();
+
+  /**
+   * @param forwardCurveMapping forward curve name keyed on index and tenor, index or currency
+   * @param discountCurveMapping discount curve name keyed on index and tenor, index or currency
+   * @param curves loaded curves keyed on name
+   * @param historicFixings historic fixings keyed on index and tenor or index, can be null if none are loaded
+   */
+  CurveResolver(Map<String, String> forwardCurveMapping, Map<String, String> discountCurveMapping, Map<String, ValuationCurve> curves, Map<String, FixingSeries> historicFixings) {
+    this.forwardCurveNames = new HashMap<String, String>(forwardCurveMapping);
+    this.discountCurveNames = new HashMap<String, String>(discountCurveMapping);
+    for(Map.Entry<String, String> entry : forwardCurveNames.entrySet()) {
+      forwardCurves.put(entry.getKey(), curves.get(entry.getValue()));
+    }
+    for(Map.Entry<String, String> entry : discountCurveNames.entrySet()) {
+      discountCurves.put(entry.getKey(), curves.get(entry.getValue()));
+    }
+    this.historicFixings = historicFixings == null ? new HashMap<String, FixingSeries>() : new HashMap<String, FixingSeries>(historicFixings);
+    this.availableCurves = curves.keySet().toString();
+  }
+
+  /**
+   * @param name index name or currency
+   * @return the id of the given name, the same for every call with an equal name, {@link #NO_ID} if null
+   * @throws PricerException if the name is new and every id up to {@link #MAX_ID} has been given out
+   */
+  public static int getId(String name) {
+    if(name == null) {
+      return NO_ID;
+    }
+    Integer id = ids.get(name);
+    if(id == null) {
+      synchronized(ids) {
+        id = ids.get(name);
+        if(id == null) {
+          if(nextId.get() > MAX_ID) {
+            throw new PricerException("Cannot give " + name + " an id, all " + MAX_ID + " index and currency ids are in use");
+          }
+          id = nextId.getAndIncrement();
+          names.put(id, name);
+          ids.put(name, id);
+        }
+      }
+    }
+    return id;
+  }
+
+  /**
+   * @param periodMultiplier index tenor multiplier, can be null
+   * @param period index tenor period, can be null
+   * @return the tenor as a small integer, {@link #NO_TENOR} if either part is null
+   * @throws PricerException if the multiplier is negative or too large for the tenor to fit in {@link #MAX_TENOR}
+   */
+  public static int getTenor(Integer periodMultiplier, PeriodEnum period) {
+    if(periodMultiplier == null || period == null) {
+      return NO_TENOR;
+    }
+    if(periodMultiplier < 0 || periodMultiplier > (MAX_TENOR - PERIODS.length) / PERIODS.length) {
+      throw new PricerException("Index tenor " + periodMultiplier + period + " is out of range");
+    }
+    return periodMultiplier * PERIODS.length + period.ordinal() + 1;
+  }
+
+  /**
+   * @return the curves for the index, tenor and currency of the given stream
+   */
+  public ResolvedCurves resolve(SwapStream stream) {
+    return resolve(stream.getFloatingRateIndex(), stream.getIndexTenorPeriodMultiplier(), stream.getIndexTenorPeriod(), stream.getNotionalCurrency());
+  }
+
+  /**
+   * @param index FpML index name, can be null, e.g. for a fixed leg
+   * @param periodMultiplier index tenor multiplier, can be null
+   * @param period index tenor period, can be null
+   * @param currency currency of the index
+   * @return the curves for the given index, tenor and currency
+   */
+  public ResolvedCurves resolve(String index, Integer periodMultiplier, PeriodEnum period, String currency) {
+    return resolve(getId(index), getTenor(periodMultiplier, period), getId(currency));
+  }
+
+  /**
+   * @param indexId id of the FpML index name, see {@link #getId}
+   * @param tenor index tenor, see {@link #getTenor}
+   * @param currencyId id of the currency, see {@link #getId}
+   * @return the curves for the given index, tenor and currency
+   * @throws PricerException if an id or the tenor does not fit in its {@link #FIELD_BITS} bits of the lookup key
+   */
+  public ResolvedCurves resolve(int indexId, int tenor, int currencyId) {
+    checkField("index id", indexId, MAX_ID);
+    checkField("tenor", tenor, MAX_TENOR);
+    checkField("currency id", currencyId, MAX_ID);
+    Long key = (long)indexId << 40 | (long)tenor << 20 | currencyId;
+    ResolvedCurves result = resolved.get(key);
+    if(result == null) {
+      result = compile(indexId, tenor, currencyId);
+      ResolvedCurves existing = resolved.putIfAbsent(key, result);
+      if(existing != null) {
+        result = existing;
+      }
+    }
+    return result;
+  }
+
+  private static void checkField(String field, int value, int max) {
+    if(value < 0 || value > max) {
+      throw new PricerException("Cannot resolve curves for " + field + " " + value + ", must be between 0 and " + max);
+    }
+  }
+
+  private ResolvedCurves compile(int indexId, int tenor, int currencyId) {
+    String index = names.get(indexId);
+    String currency = names.get(currencyId);
+    Integer periodMultiplier = tenor == NO_TENOR ? null : (tenor - 1) / PERIODS.length;
+    PeriodEnum period = tenor == NO_TENOR ? null : PERIODS[(tenor - 1) % PERIODS.length];
+    String tenorKey = index == null || tenor == NO_TENOR ? null : index + ' ' + periodMultiplier + period.name();
+    String forwardKey = mappingKey(forwardCurveNames, tenorKey, index, currency);
+    String discountKey = mappingKey(discountCurveNames, tenorKey, index, currency);
+    FixingSeries fixings = tenorKey == null ? null : historicFixings.get(tenorKey);
+    if(fixings == null && index != null) {
+      fixings = historicFixings.get(index);
+    }
+    String description = "index=" + index + ", currency=" + currency + ", periodMultiplier=" + periodMultiplier + ", period=" + period;
+    return new ResolvedCurves(description,
+      forwardKey == null ? null : forwardCurveNames.get(forwardKey), forwardKey == null ? null : forwardCurves.get(forwardKey),
+      discountKey == null ? null : discountCurveNames.get(discountKey), discountKey == null ? null : discountCurves.get(discountKey),
+      fixings, availableCurves);
+  }
+
+  private static String mappingKey(Map<String, String> mappings, String tenorKey, String index, String currency) {
+    if(tenorKey != null && mappings.containsKey(tenorKey)) {
+      return tenorKey;
+    } else if(index != null && mappings.containsKey(index)) {
+      return index;
+    } else if(currency != null && mappings.containsKey(currency)) {
+      return currency;
+    }
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return "CurveResolver{" +
+      "resolved=" + resolved.size() +
+      '}';
+  }
+}
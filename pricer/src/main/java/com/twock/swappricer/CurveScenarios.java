@@ -0,0 +1,113 @@
+package com.twock.swappricer;
+
+import java.util.Arrays;
+
+/**
+ * A set of market scenarios, each a shift to the zero rate of every pillar of some of the curves, e.g. the daily
+ * changes over a historical period.  The shifts of each curve are held in a single <code>double[]</code>, scenario by
+ * scenario, so the shifts of one scenario are adjacent: the shift to pillar <code>p</code> in scenario
+ * <code>s</code> is at <code>s * pillars + p</code>.  Curves without shifts are unchanged in every scenario.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class CurveScenarios {
+  private final int scenarioCount;
+  private String[] curveNames = new String[4];
+  private double[][] shifts = new double[4][];
+  private int size;
+
+  /**
+   * @param scenarioCount number of scenarios
+   */
+  public CurveScenarios(int scenarioCount) {
+    if(scenarioCount < 1) {
+      throw new PricerException("Need at least one scenario, not " + scenarioCount);
+    }
+    this.scenarioCount = scenarioCount;
+  }
+
+  public int getScenarioCount() {
+    return scenarioCount;
+  }
+
+  /**
+   * Set the shifts to a curve in every scenario, replacing any already set.
+   *
+   * @param curveName name of the curve to shift
+   * @param shifts zero rate shift of each pillar in each scenario, scenario by scenario, e.g. 0.0001 for a basis
+   * point, held rather than copied
+   */
+  public void setShifts(String curveName, double[] shifts) {
+    if(shifts.length % scenarioCount != 0) {
+      throw new PricerException("Shifts to " + curveName + " must have the same number of pillars in each of the " + scenarioCount + " scenarios, not " + shifts.length + " in total");
+    }
+    for(int i = 0; i < size; i++) {
+      if(curveNames[i].equals(curveName)) {
+        this.shifts[i] = shifts;
+        return;
+      }
+    }
+    if(size == curveNames.length) {
+      curveNames = Arrays.copyOf(curveNames, size * 2);
+      this.shifts = Arrays.copyOf(this.shifts, size * 2);
+    }
+    curveNames[size] = curveName;
+    this.shifts[size] = shifts;
+    size++;
+  }
+
+  /**
+   * Set the shifts to a curve in every scenario, see {@link #setShifts(String, double[])}.
+   *
+   * @param curveName name of the curve to shift
+   * @param shifts zero rate shift of each pillar, indexed by scenario then pillar
+   */
+  public void setShifts(String curveName, double[][] shifts) {
+    if(shifts.length != scenarioCount) {
+      throw new PricerException("Need shifts to " + curveName + " for " + scenarioCount + " scenarios, not " + shifts.length);
+    }
+    int pillars = shifts[0].length;
+    double[] flattened = new double[scenarioCount * pillars];
+    for(int scenario = 0; scenario < scenarioCount; scenario++) {
+      if(shifts[scenario].length != pillars) {
+        throw new PricerException("Scenario " + scenario + " shifts " + shifts[scenario].length + " pillars of " + curveName + " but scenario 0 shifts " + pillars);
+      }
+      System.arraycopy(shifts[scenario], 0, flattened, scenario * pillars, pillars);
+    }
+    setShifts(curveName, flattened);
+  }
+
+  /**
+   * @param curve curve to find the shifts to
+   * @return the shifts to the curve in every scenario, or null if it is not shifted
+   * @throws PricerException if the shifts are for a different number of pillars than the curve has
+   */
+  public double[] getShifts(ValuationCurve curve) {
+    double[] result = getShifts(curve.getCurveName());
+    if(result != null && result.length != scenarioCount * curve.getZeroRates().length) {
+      throw new PricerException("Curve " + curve.getCurveName() + " has " + curve.getZeroRates().length + " pillars but its scenarios shift " + result.length / scenarioCount);
+    }
+    return result;
+  }
+
+  /**
+   * @param curveName name of the curve
+   * @return the shifts to the named curve in every scenario, or null if it is not shifted
+   */
+  public double[] getShifts(String curveName) {
+    for(int i = 0; i < size; i++) {
+      if(curveNames[i].equals(curveName)) {
+        return shifts[i];
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return "CurveScenarios{" +
+      "scenarioCount=" + scenarioCount +
+      ", curves=" + Arrays.asList(curveNames).subList(0, size) +
+      '}';
+  }
+}
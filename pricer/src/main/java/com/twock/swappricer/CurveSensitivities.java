@@ -0,0 +1,138 @@
+package com.twock.swappricer;
+
+import java.util.Arrays;
+
+/**
+ * Sensitivities of a value to the zero rate of each pillar of the curves it was valued against, held as one
+ * <code>double[]</code> per curve indexed as {@link ValuationCurve#getZeroRates()}.  Curves are matched by name, and
+ * as a valuation touches only a handful of curves they are found by a linear search rather than a map.
+ * <p/>
+ * Sensitivities are held per unit of zero rate, see {@link #getPv01(String)} for the change per basis point, the
+ * discount factor loaded for the pillar moving with its zero rate as described in
+ * {@link ValuationCurve#discountFactorAdjoint}.  Not thread safe; give each thread its own and {@link #add} them
+ * together afterwards.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class CurveSensitivities {
+  public static final double ONE_BASIS_POINT = 0.0001;
+  private String[] curveNames = new String[4];
+  private double[][] sensitivities = new double[4][];
+  private int size;
+
+  /**
+   * @return the number of curves with sensitivities
+   */
+  public int size() {
+    return size;
+  }
+
+  public String getCurveName(int index) {
+    return curveNames[index];
+  }
+
+  /**
+   * @return the sensitivity to each pillar of the curve at the given index, to be added to
+   */
+  public double[] getSensitivities(int index) {
+    return sensitivities[index];
+  }
+
+  /**
+   * @param curve curve to find the sensitivities to
+   * @return the sensitivity to each pillar of the curve, to be added to, created as zeros on first use
+   */
+  public double[] getSensitivities(ValuationCurve curve) {
+    int index = indexOf(curve.getCurveName());
+    if(index < 0) {
+      return add(curve.getCurveName(), new double[curve.getZeroRates().length]);
+    }
+    double[] result = sensitivities[index];
+    if(result.length != curve.getZeroRates().length) {
+      throw new PricerException("Curve " + curve.getCurveName() + " has " + curve.getZeroRates().length + " pillars but sensitivities are held to " + result.length);
+    }
+    return result;
+  }
+
+  /**
+   * @param curveName name of the curve
+   * @return the sensitivity to each pillar of the named curve, null if there are none
+   */
+  public double[] getSensitivities(String curveName) {
+    int index = indexOf(curveName);
+    return index < 0 ? null : sensitivities[index];
+  }
+
+  /**
+   * @param curveName name of the curve
+   * @return a new array of the change in value for a one basis point rise in each pillar's zero rate, null if there
+   *         are no sensitivities to the named curve
+   */
+  public double[] getPv01(String curveName) {
+    double[] values = getSensitivities(curveName);
+    if(values == null) {
+      return null;
+    }
+    double[] result = new double[values.length];
+    for(int i = 0; i < values.length; i++) {
+      result[i] = values[i] * ONE_BASIS_POINT;
+    }
+    return result;
+  }
+
+  /**
+   * Add the sensitivities of another value to these, e.g. to total the sensitivities of several trades.
+   *
+   * @param other sensitivities to add, not modified
+   */
+  public void add(CurveSensitivities other) {
+    for(int i = 0; i < other.size; i++) {
+      double[] from = other.sensitivities[i];
+      int index = indexOf(other.curveNames[i]);
+      if(index < 0) {
+        add(other.curveNames[i], from.clone());
+      } else {
+        double[] to = sensitivities[index];
+        if(to.length != from.length) {
+          throw new PricerException("Cannot add " + from.length + " sensitivities to the " + to.length + " held for curve " + curveNames[index]);
+        }
+        for(int j = 0; j < to.length; j++) {
+          to[j] += from[j];
+        }
+      }
+    }
+  }
+
+  private int indexOf(String curveName) {
+    for(int i = 0; i < size; i++) {
+      if(curveNames[i].equals(curveName)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private double[] add(String curveName, double[] values) {
+    if(size == curveNames.length) {
+      curveNames = Arrays.copyOf(curveNames, size * 2);
+      sensitivities = Arrays.copyOf(sensitivities, size * 2);
+    }
+    curveNames[size] = curveName;
+    sensitivities[size] = values;
+    size++;
+    return values;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("CurveSensitivities{");
+    for(int i = 0; i < size; i++) {
+      double total = 0;
+      for(double value : sensitivities[i]) {
+        total += value;
+      }
+      sb.append(i == 0 ? "" : ", ").append(curveNames[i]).append("=").append(total * ONE_BASIS_POINT);
+    }
+    return sb.append('}').toString();
+  }
+}
@@ -2,8 +2,44 @@ package com.twock.swappricer;
 
 /**
  * Taken from <a href="http://alcor.concordia.ca/~gpkatch/gdate-algorithm.html">http://alcor.concordia.ca/~gpkatch/gdate-algorithm.html</a>.
+ * <p/>
+ * Conversions for dates between 1st January 1900 and 31st December 2200 are served from precomputed tables: day count
+ * to packed year/month/day, and per month the day count of the 1st, the number of days and the IMM date.  Dates
+ * outside that range fall back to the arithmetic.
  */
 public class DateUtil {
+  public static final int TABLE_FIRST_YEAR = 1900;
+  public static final int TABLE_LAST_YEAR = 2200;
+  private static final int TABLE_MONTHS = (TABLE_LAST_YEAR - TABLE_FIRST_YEAR + 1) * 12;
+  private static final int TABLE_FIRST_DAY_COUNT = calculateDayCount(TABLE_FIRST_YEAR, 1, 1);
+  /**
+   * Day count of the 1st of each month from January TABLE_FIRST_YEAR, with one extra entry for the month after the end.
+   */
+  private static final int[] MONTH_START_DAY_COUNTS = new int[TABLE_MONTHS + 1];
+  private static final byte[] DAYS_IN_MONTH = new byte[TABLE_MONTHS];
+  private static final int[] IMM_DAY_COUNTS = new int[TABLE_MONTHS];
+  private static final int[] YEAR_MONTH_DAYS;
+
+  static {
+    for(int i = 0; i <= TABLE_MONTHS; i++) {
+      MONTH_START_DAY_COUNTS[i] = calculateDayCount(TABLE_FIRST_YEAR + i / 12, i % 12 + 1, 1);
+    }
+    YEAR_MONTH_DAYS = new int[MONTH_START_DAY_COUNTS[TABLE_MONTHS] - TABLE_FIRST_DAY_COUNT];
+    for(int i = 0; i < TABLE_MONTHS; i++) {
+      int year = TABLE_FIRST_YEAR + i / 12;
+      int month = i % 12 + 1;
+      int days = MONTH_START_DAY_COUNTS[i + 1] - MONTH_START_DAY_COUNTS[i];
+      DAYS_IN_MONTH[i] = (byte)days;
+      int offset = MONTH_START_DAY_COUNTS[i] - TABLE_FIRST_DAY_COUNT;
+      for(int day = 1; day <= days; day++) {
+        YEAR_MONTH_DAYS[offset + day - 1] = PackedDate.packYearMonthDay(year, month, day);
+      }
+      // 1 sunday, 2 mon, 3 tue, 4 wed,..., 7 sat - so add 14+(11-dow)%7 to get to the third wednesday
+      int dayOfWeek = (MONTH_START_DAY_COUNTS[i] + 3) % 7 + 1;
+      IMM_DAY_COUNTS[i] = MONTH_START_DAY_COUNTS[i] + 14 + ((11 - dayOfWeek) % 7);
+    }
+  }
+
   /**
    * Get the number of days since 1st March 0000.
    *
@@ -11,9 +47,29 @@ public class DateUtil {
    * @return number of days since 01/03/0000
    */
   public static int dateToDayCount(short[] date) {
-    int m = (date[1] + 9) % 12;
-    int y = date[0] - m / 10;
-    return 365 * y + y / 4 - y / 100 + y / 400 + (m * 306 + 5) / 10 + (date[2] - 1);
+    return dateToDayCount(date[0], date[1], date[2]);
+  }
+
+  /**
+   * Get the number of days since 1st March 0000.
+   *
+   * @param year year, e.g. 2012
+   * @param month month of year, 1-12
+   * @param day day of month, 1-31
+   * @return number of days since 01/03/0000
+   */
+  public static int dateToDayCount(int year, int month, int day) {
+    int monthIndex = tableMonthIndex(year, month);
+    if(monthIndex >= 0) {
+      return MONTH_START_DAY_COUNTS[monthIndex] + day - 1;
+    }
+    return calculateDayCount(year, month, day);
+  }
+
+  private static int calculateDayCount(int year, int month, int day) {
+    int m = (month + 9) % 12;
+    int y = year - m / 10;
+    return 365 * y + y / 4 - y / 100 + y / 400 + (m * 306 + 5) / 10 + (day - 1);
   }
 
   /**
@@ -23,6 +79,22 @@ public class DateUtil {
    * @return an array [year, month, day]
    */
   public static short[] dayCountToDate(int dayCount) {
+    int yearMonthDay = dayCountToYearMonthDay(dayCount);
+    return new short[]{(short)PackedDate.year(yearMonthDay), (short)PackedDate.month(yearMonthDay), (short)PackedDate.day(yearMonthDay)};
+  }
+
+  /**
+   * Convert the number of days since 01/03/0000 into year, month and day packed into a single int as described by
+   * {@link PackedDate}, without allocating.
+   *
+   * @param dayCount number of days since 01/03/0000
+   * @return year, month and day packed into the low bits of an int
+   */
+  public static int dayCountToYearMonthDay(int dayCount) {
+    int index = dayCount - TABLE_FIRST_DAY_COUNT;
+    if(index >= 0 && index < YEAR_MONTH_DAYS.length) {
+      return YEAR_MONTH_DAYS[index];
+    }
     int y = (int)((10000L * dayCount + 14780) / 3652425);
     int ddd = dayCount - (y * 365 + y / 4 - y / 100 + y / 400);
     if(ddd < 0) {
@@ -33,7 +105,7 @@ public class DateUtil {
     int year = y + (mi + 2) / 12;
     int month = (mi + 2) % 12 + 1;
     int day = ddd - (mi * 306 + 5) / 10 + 1;
-    return new short[]{(short)year, (short)month, (short)day};
+    return PackedDate.packYearMonthDay(year, month, day);
   }
 
   /**
@@ -43,6 +115,87 @@ public class DateUtil {
    * @return number if days in the year
    */
   public static int daysInYear(int year) {
-    return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 366 : 365;
+    return isLeapYear(year) ? 366 : 365;
+  }
+
+  public static boolean isLeapYear(int year) {
+    return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+  }
+
+  /**
+   * Find the number of days in the given month.
+   *
+   * @param year year to check
+   * @param month month of year, 1-12
+   * @return number of days in the month
+   */
+  public static int daysInMonth(int year, int month) {
+    int monthIndex = tableMonthIndex(year, month);
+    if(monthIndex >= 0) {
+      return DAYS_IN_MONTH[monthIndex];
+    }
+    switch(month) {
+      case 2:
+        return isLeapYear(year) ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+
+  /**
+   * Find the IMM date (third Wednesday) of the given month.
+   *
+   * @param year year of the IMM date
+   * @param month month of the IMM date, 1-12
+   * @return number of days since 01/03/0000 of the third Wednesday of the month
+   */
+  public static int immDayCount(int year, int month) {
+    int monthIndex = tableMonthIndex(year, month);
+    if(monthIndex >= 0) {
+      return IMM_DAY_COUNTS[monthIndex];
+    }
+    int firstOfMonth = dateToDayCount(year, month, 1);
+    // 1 sunday, 2 mon, 3 tue, 4 wed,..., 7 sat - so add 14+(11-dow)%7 to get to the third wednesday
+    int dayOfWeek = (firstOfMonth + 3) % 7 + 1;
+    return firstOfMonth + 14 + ((11 - dayOfWeek) % 7);
+  }
+
+  /**
+   * Find whether the given date is the last day of its month.
+   *
+   * @param dayCount number of days since 01/03/0000
+   * @return true if the following day is in a different month
+   */
+  public static boolean isLastDayOfMonth(int dayCount) {
+    int yearMonthDay = dayCountToYearMonthDay(dayCount);
+    return PackedDate.day(yearMonthDay) == daysInMonth(PackedDate.year(yearMonthDay), PackedDate.month(yearMonthDay));
+  }
+
+  /**
+   * @param year year
+   * @param month month of year
+   * @return index into the monthly tables, or -1 if the month is outside the tables
+   */
+  private static int tableMonthIndex(int year, int month) {
+    if(year < TABLE_FIRST_YEAR || year > TABLE_LAST_YEAR || month < 1 || month > 12) {
+      return -1;
+    }
+    return (year - TABLE_FIRST_YEAR) * 12 + month - 1;
+  }
+
+  /**
+   * Find whether the given date falls on a Saturday or Sunday.
+   *
+   * @param dayCount number of days since 01/03/0000
+   * @return true if the date is a Saturday or Sunday
+   */
+  public static boolean isWeekend(int dayCount) {
+    int dayOfWeekIndex = (dayCount + 3) % 7; // 0 sunday, 1 monday, ..., 6 saturday
+    return dayOfWeekIndex == 0 || dayOfWeekIndex == 6;
   }
 }
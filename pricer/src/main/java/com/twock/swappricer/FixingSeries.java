@@ -0,0 +1,159 @@
+package com.twock.swappricer;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The historic fixings of one index, held as a sorted <code>int[]</code> of fixing dates and a parallel
+ * <code>double[]</code> of rates in percent.  Lookups neither box nor allocate, and report a missing fixing as NaN.
+ * Where the fixings are dense enough (as daily fixings are, allowing for weekends and holidays) a rate per day
+ * between the first and last fixing is also kept, so a lookup by date is a single array access; otherwise it is a
+ * binary search.
+ * <p/>
+ * Immutable, so may be shared between threads.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class FixingSeries {
+  /**
+   * Keep a rate per day if the fixings span no more than this many days per fixing.
+   */
+  public static final int MAX_DAYS_PER_FIXING_FOR_DENSE_LOOKUP = 4;
+  private final int[] fixingDates;
+  private final double[] rates;
+  private final int firstDate;
+  private final double[] ratesByDay;
+
+  /**
+   * @param fixingDates fixing dates as day counts, strictly ascending, held by the series rather than copied
+   * @param rates rate in percent on each fixing date, held by the series rather than copied
+   */
+  public FixingSeries(int[] fixingDates, double[] rates) {
+    if(fixingDates.length != rates.length) {
+      throw new PricerException("Have " + fixingDates.length + " fixing dates but " + rates.length + " rates");
+    }
+    for(int i = 1; i < fixingDates.length; i++) {
+      if(fixingDates[i] <= fixingDates[i - 1]) {
+        throw new PricerException("Fixing dates must be strictly ascending, found " + fixingDates[i] + " after " + fixingDates[i - 1]);
+      }
+    }
+    this.fixingDates = fixingDates;
+    this.rates = rates;
+    if(fixingDates.length == 0) {
+      firstDate = 0;
+      ratesByDay = null;
+    } else {
+      firstDate = fixingDates[0];
+      long span = (long)fixingDates[fixingDates.length - 1] - firstDate + 1;
+      if(span <= (long)MAX_DAYS_PER_FIXING_FOR_DENSE_LOOKUP * fixingDates.length) {
+        ratesByDay = new double[(int)span];
+        Arrays.fill(ratesByDay, Double.NaN);
+        for(int i = 0; i < fixingDates.length; i++) {
+          ratesByDay[fixingDates[i] - firstDate] = rates[i];
+        }
+      } else {
+        ratesByDay = null;
+      }
+    }
+  }
+
+  /**
+   * @param rates rates in percent keyed on fixing date day count
+   * @return a series holding the same fixings
+   */
+  public static FixingSeries fromSortedMap(SortedMap<Integer, Double> rates) {
+    int[] fixingDates = new int[rates.size()];
+    double[] values = new double[rates.size()];
+    int i = 0;
+    for(Map.Entry<Integer, Double> entry : rates.entrySet()) {
+      fixingDates[i] = entry.getKey();
+      values[i++] = entry.getValue();
+    }
+    return new FixingSeries(fixingDates, values);
+  }
+
+  public int size() {
+    return fixingDates.length;
+  }
+
+  /**
+   * @return the fixing dates in ascending order, which must not be modified
+   */
+  public int[] getFixingDates() {
+    return fixingDates;
+  }
+
+  /**
+   * @return the rates in fixing date order, which must not be modified
+   */
+  public double[] getRates() {
+    return rates;
+  }
+
+  /**
+   * @param fixingDate day count of the fixing date
+   * @return the rate in percent fixed on the given date, or NaN if there was no fixing that day
+   */
+  public double getRate(int fixingDate) {
+    if(ratesByDay != null) {
+      int day = fixingDate - firstDate;
+      return day >= 0 && day < ratesByDay.length ? ratesByDay[day] : Double.NaN;
+    }
+    int index = Arrays.binarySearch(fixingDates, fixingDate);
+    return index < 0 ? Double.NaN : rates[index];
+  }
+
+  /**
+   * Look up the rate fixed on each of the given dates.
+   *
+   * @param fixingDates day counts to look up
+   * @param from first index in fixingDates to look up
+   * @param to index after the last to look up
+   * @param out populated with the rate in percent for each date, or NaN where there was no fixing, at the same index
+   */
+  public void getRates(int[] fixingDates, int from, int to, double[] out) {
+    for(int i = from; i < to; i++) {
+      out[i] = getRate(fixingDates[i]);
+    }
+  }
+
+  /**
+   * @param date day count to search back from
+   * @return the index of the last fixing on or before the given date, or -1 if every fixing is after it
+   */
+  public int indexOnOrBefore(int date) {
+    int index = Arrays.binarySearch(fixingDates, date);
+    return index >= 0 ? index : -(index + 1) - 1;
+  }
+
+  /**
+   * @param date day count to search back from
+   * @return the rate of the last fixing on or before the given date, or NaN if every fixing is after it
+   */
+  public double getLatestRate(int date) {
+    int index = indexOnOrBefore(date);
+    return index < 0 ? Double.NaN : rates[index];
+  }
+
+  /**
+   * @return a new map of the rates in percent keyed on fixing date day count
+   */
+  public SortedMap<Integer, Double> toSortedMap() {
+    SortedMap<Integer, Double> result = new TreeMap<Integer, Double>();
+    for(int i = 0; i < fixingDates.length; i++) {
+      result.put(fixingDates[i], rates[i]);
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "FixingSeries{" +
+      "size=" + fixingDates.length +
+      (fixingDates.length == 0 ? "" : ", from=" + Arrays.toString(DateUtil.dayCountToDate(fixingDates[0])) + ", to=" + Arrays.toString(DateUtil.dayCountToDate(fixingDates[fixingDates.length - 1]))) +
+      ", dense=" + (ratesByDay != null) +
+      '}';
+  }
+}
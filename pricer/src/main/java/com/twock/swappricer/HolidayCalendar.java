@@ -11,13 +11,43 @@ import com.twock.swappricer.fpml.model.DateWithDayCount;
 public class HolidayCalendar {
   private final String code;
   private final int[] holidayDayCounts;
+  private final int firstYear;
+  private final int lastYear;
+  private volatile BusinessDayCalendar businessDayCalendar;
 
   public HolidayCalendar(String code, List<DateWithDayCount> holidayDates) {
+    this(code, holidayDates, BusinessDayCalendar.DEFAULT_FIRST_YEAR, BusinessDayCalendar.DEFAULT_LAST_YEAR);
+  }
+
+  /**
+   * @param code business centre code, e.g. GBLO
+   * @param holidayDates holiday dates in ascending order
+   * @param firstYear first year to cover in the compiled business day bitset
+   * @param lastYear last year to cover in the compiled business day bitset, inclusive
+   */
+  public HolidayCalendar(String code, List<DateWithDayCount> holidayDates, int firstYear, int lastYear) {
+    this(code, DateWithDayCount.toDayCounts(holidayDates), firstYear, lastYear);
+  }
+
+  /**
+   * @param code business centre code, e.g. GBLO
+   * @param holidayDayCounts holiday day counts in ascending order, held by the calendar rather than copied
+   */
+  public HolidayCalendar(String code, int[] holidayDayCounts) {
+    this(code, holidayDayCounts, BusinessDayCalendar.DEFAULT_FIRST_YEAR, BusinessDayCalendar.DEFAULT_LAST_YEAR);
+  }
+
+  /**
+   * @param code business centre code, e.g. GBLO
+   * @param holidayDayCounts holiday day counts in ascending order, held by the calendar rather than copied
+   * @param firstYear first year to cover in the compiled business day bitset
+   * @param lastYear last year to cover in the compiled business day bitset, inclusive
+   */
+  public HolidayCalendar(String code, int[] holidayDayCounts, int firstYear, int lastYear) {
     this.code = code;
-    this.holidayDayCounts = new int[holidayDates.size()];
-    for(int i = 0; i < holidayDates.size(); i++) {
-      holidayDayCounts[i] = holidayDates.get(i).getDayCount();
-    }
+    this.holidayDayCounts = holidayDayCounts;
+    this.firstYear = firstYear;
+    this.lastYear = lastYear;
   }
 
   public String getCode() {
@@ -28,6 +58,20 @@ public class HolidayCalendar {
     return holidayDayCounts;
   }
 
+  /**
+   * Obtain the compiled business day bitset for this calendar, building it on first use.
+   *
+   * @return business days for this calendar alone
+   */
+  public BusinessDayCalendar getBusinessDayCalendar() {
+    BusinessDayCalendar result = businessDayCalendar;
+    if(result == null) {
+      result = new BusinessDayCalendar(firstYear, lastYear, holidayDayCounts);
+      businessDayCalendar = result;
+    }
+    return result;
+  }
+
   public boolean isPublicHoliday(DateWithDayCount date) {
     return Arrays.binarySearch(holidayDayCounts, date.getDayCount()) >= 0;
   }
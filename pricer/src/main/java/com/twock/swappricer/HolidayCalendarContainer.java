@@ -1,90 +1,232 @@
 package com.twock.swappricer;
 
+import java.io.File;
+import java.io.InputStream;
 import java.io.Reader;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import au.com.bytecode.opencsv.CSVReader;
 import com.twock.swappricer.fpml.model.DateWithDayCount;
-import org.apache.commons.io.IOUtils;
 
 /**
+ * Holiday calendars keyed on business centre code, with the business day calendar combining all of them and the
+ * combined containers for sets of business centres built on first use.  The calendars and everything built from them
+ * are published together as one {@link Calendars}, so loading new calendars never leaves a container or business day
+ * calendar built from the old ones in the caches of the new.
+ *
  * @author Chris Pearson (chris@twock.com)
  */
 public class HolidayCalendarContainer {
-  public Map<String, HolidayCalendar> holidayCalendars;
+  private volatile Calendars calendars = new Calendars(null);
+  private final boolean shared;
 
   public HolidayCalendarContainer() {
+    this.shared = false;
   }
 
   public HolidayCalendarContainer(HolidayCalendarContainer cals, String... codes) {
-    if(cals.holidayCalendars != null && codes != null) {
-      TreeMap<String, HolidayCalendar> calendars = new TreeMap<String, HolidayCalendar>();
+    this(cals.calendars.holidayCalendars, false, codes);
+  }
+
+  private HolidayCalendarContainer(Map<String, HolidayCalendar> allCalendars, boolean shared, String... codes) {
+    this.shared = shared;
+    if(allCalendars != null && codes != null) {
+      TreeMap<String, HolidayCalendar> selected = new TreeMap<String, HolidayCalendar>();
       for(String code : codes) {
-        HolidayCalendar calendar = cals.getHolidayCalendars().get(code);
+        HolidayCalendar calendar = allCalendars.get(code);
         if(calendar != null) {
-          calendars.put(code, calendar);
+          selected.put(code, calendar);
         }
       }
-      holidayCalendars = calendars;
+      calendars = new Calendars(shared ? Collections.<String, HolidayCalendar>unmodifiableMap(selected) : selected);
+    }
+  }
+
+  /**
+   * Obtain the combined calendar for the given business centres.  The set of codes is canonicalised (sorted, with
+   * duplicates removed) so every request for the same set of business centres, in any order, shares one pre-merged
+   * container.  The returned container is shared between callers and threads, so cannot be modified.
+   *
+   * @param codes business centre codes, e.g. GBLO and EUTA, can be null for weekends only
+   * @return a shared container holding only the requested calendars
+   */
+  public HolidayCalendarContainer getCombinedCalendars(String... codes) {
+    String key = canonicalKey(codes);
+    // built from and cached with the same calendars, so a concurrent load cannot leave it in the new cache
+    Calendars current = calendars;
+    HolidayCalendarContainer result = current.combinedCalendars.get(key);
+    if(result == null) {
+      result = new HolidayCalendarContainer(current.holidayCalendars, true, codes);
+      result.getBusinessDayCalendar();
+      HolidayCalendarContainer existing = current.combinedCalendars.putIfAbsent(key, result);
+      if(existing != null) {
+        result = existing;
+      }
+    }
+    return result;
+  }
+
+  private static String canonicalKey(String... codes) {
+    if(codes == null || codes.length == 0) {
+      return "";
+    } else if(codes.length == 1) {
+      return codes[0];
+    }
+    StringBuilder sb = new StringBuilder();
+    for(String code : new TreeSet<String>(Arrays.asList(codes))) {
+      if(sb.length() > 0) {
+        sb.append('+');
+      }
+      sb.append(code);
     }
+    return sb.toString();
   }
 
+  /**
+   * Load holiday calendars from tab separated text with a header row then a row per holiday holding the business
+   * centre name, code (e.g. GBLO) and date as <code>dd/MM/yyyy</code>, with anything after the date ignored.  Rows
+   * with fewer than three fields are skipped.  Replaces any calendars already loaded.
+   *
+   * @param input reader to load from, will be closed on return/exception
+   */
   public void loadFromTsv(Reader input) {
-    Map<String, HolidayCalendar> result = new TreeMap<String, HolidayCalendar>();
+    loadFromTsv(TsvReader.read(input));
+  }
+
+  /**
+   * Load holiday calendars from a UTF-8 stream, see {@link #loadFromTsv(Reader)}.
+   *
+   * @param input stream to load from, will be closed on return/exception
+   */
+  public void loadFromTsv(InputStream input) {
+    loadFromTsv(TsvReader.read(input));
+  }
+
+  /**
+   * Load holiday calendars from a memory mapped UTF-8 file, see {@link #loadFromTsv(Reader)}.
+   *
+   * @param file file to load from
+   */
+  public void loadFromTsv(File file) {
+    loadFromTsv(TsvReader.open(file));
+  }
+
+  private void loadFromTsv(TsvReader reader) {
+    Map<String, DayCountBuffer> holidays = new HashMap<String, DayCountBuffer>();
     try {
-      CSVReader reader = new CSVReader(input, '\t');
-      reader.readNext(); // dump header row
+      reader.nextLine(); // dump header row
       String currentCalendar = null;
-      List<DateWithDayCount> currentDates = new ArrayList<DateWithDayCount>();
-      String[] line;
-      while((line = reader.readNext()) != null) {
-        if(line.length >= 3) {
-          String thisCalendar = line[1]; // e.g. GBLO
-          DateWithDayCount thisDate = new DateWithDayCount(Short.parseShort(line[2].substring(6, 10)), Short.parseShort(line[2].substring(3, 5)), Short.parseShort(line[2].substring(0, 2)));
-          if(currentCalendar != null && !currentCalendar.equals(thisCalendar)) {
-            result.put(currentCalendar, new HolidayCalendar(currentCalendar, currentDates));
-            currentDates.clear();
-          }
+      DayCountBuffer currentDates = null;
+      while(reader.nextLine()) {
+        if(!reader.nextField() || !reader.nextField()) {
+          continue;
+        }
+        // rows are grouped by calendar, so the code only needs decoding when it changes
+        String thisCalendar = reader.fieldEquals(currentCalendar) ? currentCalendar : reader.getField(); // e.g. GBLO
+        if(!reader.nextField()) {
+          continue;
+        }
+        if(thisCalendar != currentCalendar) {
           currentCalendar = thisCalendar;
-          currentDates.add(thisDate);
+          currentDates = holidays.get(thisCalendar);
+          if(currentDates == null) {
+            currentDates = new DayCountBuffer();
+            holidays.put(thisCalendar, currentDates);
+          }
         }
+        currentDates.add(reader.getDayMonthYearField());
       }
-    } catch(Exception e) {
+    } catch(PricerException e) {
       throw new PricerException("Failed to read in tab separated holiday calendar file", e);
-    } finally {
-      IOUtils.closeQuietly(input);
     }
-    this.holidayCalendars = result;
+    Map<String, HolidayCalendar> result = new TreeMap<String, HolidayCalendar>();
+    for(Map.Entry<String, DayCountBuffer> entry : holidays.entrySet()) {
+      result.put(entry.getKey(), new HolidayCalendar(entry.getKey(), entry.getValue().toSortedArray()));
+    }
+    setHolidayCalendars(result);
   }
 
   public Map<String, HolidayCalendar> getHolidayCalendars() {
-    return holidayCalendars;
+    return calendars.holidayCalendars;
   }
 
   public void setHolidayCalendars(Map<String, HolidayCalendar> holidayCalendars) {
-    this.holidayCalendars = holidayCalendars;
+    if(shared) {
+      throw new PricerException("Cannot modify a shared combined calendar container");
+    }
+    calendars = new Calendars(holidayCalendars);
   }
 
-  public boolean isWeekendOrPublicHoliday(DateWithDayCount date) {
-    if(date.isWeekend()) {
-      return true;
-    }
-    if(holidayCalendars != null) {
-      for(HolidayCalendar holidayCalendar : holidayCalendars.values()) {
-        if(holidayCalendar.isPublicHoliday(date)) {
-          return true;
+  /**
+   * Obtain the compiled business day bitset for the combination of all calendars in this container, building it on
+   * first use.  A container with no calendars treats every weekday as a business day.
+   *
+   * @return business days for the combination of all calendars held
+   */
+  public BusinessDayCalendar getBusinessDayCalendar() {
+    Calendars current = calendars;
+    BusinessDayCalendar result = current.businessDayCalendar;
+    if(result == null) {
+      if(current.holidayCalendars == null || current.holidayCalendars.isEmpty()) {
+        result = new BusinessDayCalendar(BusinessDayCalendar.DEFAULT_FIRST_YEAR, BusinessDayCalendar.DEFAULT_LAST_YEAR);
+      } else {
+        BusinessDayCalendar[] combined = new BusinessDayCalendar[current.holidayCalendars.size()];
+        int i = 0;
+        for(HolidayCalendar holidayCalendar : current.holidayCalendars.values()) {
+          combined[i++] = holidayCalendar.getBusinessDayCalendar();
         }
+        result = BusinessDayCalendar.combine(combined);
       }
+      current.businessDayCalendar = result;
     }
-    return false;
+    return result;
+  }
+
+  public boolean isWeekendOrPublicHoliday(DateWithDayCount date) {
+    return !getBusinessDayCalendar().isBusinessDay(date.getDayCount());
   }
 
   public boolean isPublicHoliday(DateWithDayCount date) {
-    for(HolidayCalendar holidayCalendar : holidayCalendars.values()) {
+    for(HolidayCalendar holidayCalendar : calendars.holidayCalendars.values()) {
       if(holidayCalendar.isPublicHoliday(date)) {
         return true;
       }
     }
     return false;
   }
+
+  /**
+   * One set of loaded calendars and the calendars built from them, replaced as a whole when new calendars are set.
+   */
+  private static class Calendars {
+    private final Map<String, HolidayCalendar> holidayCalendars;
+    private volatile BusinessDayCalendar businessDayCalendar;
+    private final ConcurrentMap<String, HolidayCalendarContainer> combinedCalendars = new ConcurrentHashMap<String, HolidayCalendarContainer>();
+
+    private Calendars(Map<String, HolidayCalendar> holidayCalendars) {
+      this.holidayCalendars = holidayCalendars;
+    }
+  }
+
+  /**
+   * Day counts read for one calendar, grown as needed.
+   */
+  private static class DayCountBuffer {
+    private int[] dayCounts = new int[256];
+    private int size;
+
+    public void add(int dayCount) {
+      if(size == dayCounts.length) {
+        dayCounts = Arrays.copyOf(dayCounts, size * 2);
+      }
+      dayCounts[size++] = dayCount;
+    }
+
+    public int[] toSortedArray() {
+      int[] result = Arrays.copyOf(dayCounts, size);
+      Arrays.sort(result);
+      return result;
+    }
+  }
 }
@@ -0,0 +1,172 @@
+package com.twock.swappricer;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import com.twock.swappricer.fpml.model.enumeration.PeriodEnum;
+
+/**
+ * One consistent version of the market data held by a {@link CurveContainer}: the curve mappings, zero curves and
+ * historic fixings as they stood after a load.  Immutable, so a valuation that takes a snapshot at the start sees the
+ * same curves throughout, however many loads are published meanwhile; a load never changes a snapshot, it publishes
+ * a new one with a higher version.  A snapshot no longer current is released by the garbage collector once the last
+ * valuation holding it has finished.
+ * <p/>
+ * The {@link CurveResolver} for the snapshot is compiled on first use and then shared by every reader.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class MarketSnapshot {
+  static final MarketSnapshot EMPTY = new MarketSnapshot(0, Collections.<String, String>emptyMap(), Collections.<String, String>emptyMap(), Collections.<String, String>emptyMap(),
+    Collections.<String, ValuationCurve>emptyMap(), Collections.<String, FixingSeries>emptyMap());
+  private final long version;
+  private final Map<String, String> forwardCurveMapping;
+  private final Map<String, String> discountCurveMapping;
+  private final Map<String, String> lchToFpmlCurveNameMapping;
+  private final Map<String, ValuationCurve> curves;
+  private final Map<String, FixingSeries> historicFixings;
+  private volatile CurveResolver curveResolver;
+
+  /**
+   * @param version number of loads published before this one
+   * @param forwardCurveMapping forward curve name keyed on index and tenor, index or currency, not copied
+   * @param discountCurveMapping discount curve name keyed on index and tenor, index or currency, not copied
+   * @param lchToFpmlCurveNameMapping FpML index keyed on LCH index, not copied
+   * @param curves loaded curves keyed on name, not copied
+   * @param historicFixings historic fixings keyed on index and tenor or index, not copied
+   */
+  MarketSnapshot(long version, Map<String, String> forwardCurveMapping, Map<String, String> discountCurveMapping, Map<String, String> lchToFpmlCurveNameMapping, Map<String, ValuationCurve> curves, Map<String, FixingSeries> historicFixings) {
+    this.version = version;
+    this.forwardCurveMapping = Collections.unmodifiableMap(forwardCurveMapping);
+    this.discountCurveMapping = Collections.unmodifiableMap(discountCurveMapping);
+    this.lchToFpmlCurveNameMapping = Collections.unmodifiableMap(lchToFpmlCurveNameMapping);
+    this.curves = Collections.unmodifiableMap(curves);
+    this.historicFixings = Collections.unmodifiableMap(historicFixings);
+  }
+
+  /**
+   * @return a new snapshot, one version on, with the given mappings in place of these
+   */
+  MarketSnapshot withMappings(Map<String, String> forwardCurveMapping, Map<String, String> discountCurveMapping, Map<String, String> lchToFpmlCurveNameMapping) {
+    return new MarketSnapshot(version + 1, forwardCurveMapping, discountCurveMapping, lchToFpmlCurveNameMapping, curves, historicFixings);
+  }
+
+  /**
+   * @return a new snapshot, one version on, with the given curves in place of these
+   */
+  MarketSnapshot withCurves(Map<String, ValuationCurve> curves) {
+    return new MarketSnapshot(version + 1, forwardCurveMapping, discountCurveMapping, lchToFpmlCurveNameMapping, curves, historicFixings);
+  }
+
+  /**
+   * @return a new snapshot, one version on, with the given historic fixings in place of these
+   */
+  MarketSnapshot withHistoricFixings(Map<String, FixingSeries> historicFixings) {
+    return new MarketSnapshot(version + 1, forwardCurveMapping, discountCurveMapping, lchToFpmlCurveNameMapping, curves, historicFixings);
+  }
+
+  /**
+   * @return the number of loads published before this snapshot, higher for each newer snapshot of the same container
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * @see CurveContainer#getDiscountCurve
+   */
+  public String getDiscountCurve(String index, Integer periodMultiplier, PeriodEnum period, String currency) {
+    return getMapping(index, periodMultiplier, period, currency, discountCurveMapping);
+  }
+
+  /**
+   * @see CurveContainer#getForwardCurve
+   */
+  public String getForwardCurve(String index, Integer periodMultiplier, PeriodEnum period, String currency) {
+    return getMapping(index, periodMultiplier, period, currency, forwardCurveMapping);
+  }
+
+  private static String getMapping(String index, Integer periodMultiplier, PeriodEnum period, String currency, Map<String, String> mappings) {
+    String mapping = periodMultiplier == null || period == null ? null : mappings.get(index + ' ' + periodMultiplier + period.name());
+    if(mapping == null) {
+      mapping = index == null ? null : mappings.get(index);
+      if(mapping == null) {
+        mapping = mappings.get(currency);
+        if(mapping == null) {
+          throw new MissingMappingException("index=" + index + ", currency=" + currency + ", periodMultiplier=" + periodMultiplier + ", period=" + period);
+        }
+      }
+    }
+    return mapping;
+  }
+
+  /**
+   * @return FpML index keyed on LCH index, unmodifiable
+   */
+  Map<String, String> getLchToFpmlCurveNameMapping() {
+    return lchToFpmlCurveNameMapping;
+  }
+
+  /**
+   * @see CurveContainer#getCurve
+   */
+  public ValuationCurve getCurve(String curveName) {
+    ValuationCurve valuationCurve = curves.get(curveName);
+    if(valuationCurve == null) {
+      throw new PricerException("No such curve " + curveName + ", available curves are " + curves.keySet());
+    }
+    return valuationCurve;
+  }
+
+  /**
+   * @return the loaded curves keyed on name, unmodifiable
+   */
+  public Map<String, ValuationCurve> getCurves() {
+    return curves;
+  }
+
+  /**
+   * @return the names of the loaded curves, unmodifiable
+   */
+  public Set<String> getCurveNames() {
+    return curves.keySet();
+  }
+
+  /**
+   * @see CurveContainer#getHistoricFixings
+   */
+  public FixingSeries getHistoricFixings(String fpmlIndex, Integer periodMultiplier, PeriodEnum period) {
+    FixingSeries fixings = periodMultiplier == null || period == null ? null : historicFixings.get(fpmlIndex + ' ' + periodMultiplier + period.name());
+    if(fixings == null) {
+      fixings = fpmlIndex == null ? null : historicFixings.get(fpmlIndex);
+      if(fixings == null) {
+        throw new MissingMappingException("index=" + fpmlIndex + ", periodMultiplier=" + periodMultiplier + ", period=" + period);
+      }
+    }
+    return fixings;
+  }
+
+  /**
+   * @return the curve mappings of this snapshot compiled against its curves and historic fixings
+   */
+  public CurveResolver getCurveResolver() {
+    CurveResolver result = curveResolver;
+    if(result == null) {
+      // a race only compiles an equivalent resolver twice
+      result = new CurveResolver(forwardCurveMapping, discountCurveMapping, curves, historicFixings);
+      curveResolver = result;
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "MarketSnapshot{" +
+      "version=" + version +
+      ", mappings=" + forwardCurveMapping.size() +
+      ", curves=" + curves.size() +
+      ", historicFixings=" + historicFixings.size() +
+      '}';
+  }
+}
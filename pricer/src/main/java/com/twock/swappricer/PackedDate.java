@@ -0,0 +1,115 @@
+package com.twock.swappricer;
+
+import com.twock.swappricer.fpml.model.enumeration.RollConventionEnum;
+
+/**
+ * Static, allocation-free arithmetic on dates packed into a primitive <code>long</code>.  The upper 32 bits hold the
+ * DateUtil day count, and the lower 32 bits hold the year, month and day of the same date (the "year-month-day" int:
+ * year in bits 9 upwards, month in bits 5-8, day in bits 0-4), so both representations are available without any
+ * conversion or boxing.
+ * <p/>
+ * Schedules are passed around as <code>int[]</code> arrays of day counts, with packed dates used where year, month and
+ * day are needed repeatedly, such as when rolling a date forward month by month.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public final class PackedDate {
+  private PackedDate() {
+  }
+
+  public static int packYearMonthDay(int year, int month, int day) {
+    return year << 9 | month << 5 | day;
+  }
+
+  public static int year(int yearMonthDay) {
+    return yearMonthDay >>> 9;
+  }
+
+  public static int month(int yearMonthDay) {
+    return (yearMonthDay >>> 5) & 15;
+  }
+
+  public static int day(int yearMonthDay) {
+    return yearMonthDay & 31;
+  }
+
+  public static long fromDayCount(int dayCount) {
+    return (long)dayCount << 32 | DateUtil.dayCountToYearMonthDay(dayCount);
+  }
+
+  public static long of(int year, int month, int day) {
+    return (long)DateUtil.dateToDayCount(year, month, day) << 32 | packYearMonthDay(year, month, day);
+  }
+
+  public static int dayCount(long date) {
+    return (int)(date >>> 32);
+  }
+
+  public static int year(long date) {
+    return year((int)date);
+  }
+
+  public static int month(long date) {
+    return month((int)date);
+  }
+
+  public static int day(long date) {
+    return day((int)date);
+  }
+
+  /**
+   * @param date packed date
+   * @return day of week, using the java.util.Calendar constants (1 Sunday to 7 Saturday)
+   */
+  public static int dayOfWeek(long date) {
+    return (dayCount(date) + 3) % 7 + 1;
+  }
+
+  public static boolean isLastDayOfMonth(long date) {
+    return day(date) == DateUtil.daysInMonth(year(date), month(date));
+  }
+
+  public static long addDays(long date, int daysToAdd) {
+    return fromDayCount(dayCount(date) + daysToAdd);
+  }
+
+  /**
+   * Adds the given number of months to the date, keeping where possible the same day of the month.  Where this is not
+   * possible (e.g. 31st January + 1 month, there's no 31st February), the last day of the new month will be used.
+   *
+   * @param date packed date
+   * @param monthsToAdd number of months to add to this date, can be negative
+   * @return the new packed date
+   */
+  public static long addMonths(long date, int monthsToAdd) {
+    int newYearMonth = year(date) * 12 + month(date) - 1 + monthsToAdd;
+    int year = newYearMonth / 12;
+    int month = newYearMonth % 12 + 1;
+    return of(year, month, Math.min(day(date), DateUtil.daysInMonth(year, month)));
+  }
+
+  /**
+   * Adds the given number of months to the date, applying the given roll convention.  Where this is not possible (e.g.
+   * 31st January + 1 month with roll convention DAY31, there's no 31st February), the last day of the new month will be
+   * used.
+   *
+   * @param date packed date
+   * @param monthsToAdd number of months to add to this date, can be negative
+   * @param rollConvention the roll convention to apply after the add
+   * @return the new packed date
+   */
+  public static long addMonths(long date, int monthsToAdd, RollConventionEnum rollConvention) {
+    int newYearMonth = year(date) * 12 + month(date) - 1 + monthsToAdd;
+    int year = newYearMonth / 12;
+    int month = newYearMonth % 12 + 1;
+    if(rollConvention == RollConventionEnum.EOM) {
+      return of(year, month, DateUtil.daysInMonth(year, month));
+    } else if(rollConvention == RollConventionEnum.IMM) {
+      return fromDayCount(DateUtil.immDayCount(year, month));
+    } else if(rollConvention.getDayOfMonth() != 0) {
+      return of(year, month, Math.min(rollConvention.getDayOfMonth(), DateUtil.daysInMonth(year, month)));
+    } else {
+      throw new PricerException("Unhandled roll convention " + rollConvention);
+    }
+  }
+}
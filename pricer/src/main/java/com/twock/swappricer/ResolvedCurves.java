@@ -0,0 +1,95 @@
+package com.twock.swappricer;
+
+/**
+ * The market data a leg is valued against, as found by a {@link CurveResolver} for its index, index tenor and
+ * currency: the forward and discount curves and the historic fixings of the index.  A curve which could not be found
+ * is only reported when it is asked for, as a fixed leg never needs its forward curve.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class ResolvedCurves {
+  private final String description;
+  private final String forwardCurveName;
+  private final ValuationCurve forwardCurve;
+  private final String discountCurveName;
+  private final ValuationCurve discountCurve;
+  private final FixingSeries historicFixings;
+  private final String availableCurves;
+
+  /**
+   * @param description index, tenor and currency the curves were resolved for, for error messages
+   * @param forwardCurveName name of the mapped forward curve, null if unmapped
+   * @param forwardCurve the forward curve, null if unmapped or not loaded
+   * @param discountCurveName name of the mapped discount curve, null if unmapped
+   * @param discountCurve the discount curve, null if unmapped or not loaded
+   * @param historicFixings historic fixings of the index, null if none are available
+   * @param availableCurves names of the loaded curves, for error messages
+   */
+  ResolvedCurves(String description, String forwardCurveName, ValuationCurve forwardCurve, String discountCurveName, ValuationCurve discountCurve, FixingSeries historicFixings, String availableCurves) {
+    this.description = description;
+    this.forwardCurveName = forwardCurveName;
+    this.forwardCurve = forwardCurve;
+    this.discountCurveName = discountCurveName;
+    this.discountCurve = discountCurve;
+    this.historicFixings = historicFixings;
+    this.availableCurves = availableCurves;
+  }
+
+  /**
+   * @return the forward curve
+   * @throws MissingMappingException if no forward curve is mapped
+   * @throws PricerException if the mapped curve is not loaded
+   */
+  public ValuationCurve getForwardCurve() {
+    return check(forwardCurveName, forwardCurve);
+  }
+
+  /**
+   * @return the discount curve
+   * @throws MissingMappingException if no discount curve is mapped
+   * @throws PricerException if the mapped curve is not loaded
+   */
+  public ValuationCurve getDiscountCurve() {
+    return check(discountCurveName, discountCurve);
+  }
+
+  /**
+   * @return the name of the mapped forward curve, null if unmapped
+   */
+  public String getForwardCurveName() {
+    return forwardCurveName;
+  }
+
+  /**
+   * @return the name of the mapped discount curve, null if unmapped
+   */
+  public String getDiscountCurveName() {
+    return discountCurveName;
+  }
+
+  /**
+   * @return the historic fixings of the index, null if none are available
+   */
+  public FixingSeries getHistoricFixings() {
+    return historicFixings;
+  }
+
+  private ValuationCurve check(String curveName, ValuationCurve curve) {
+    if(curveName == null) {
+      throw new MissingMappingException(description);
+    } else if(curve == null) {
+      throw new PricerException("No such curve " + curveName + ", available curves are " + availableCurves);
+    }
+    return curve;
+  }
+
+  @Override
+  public String toString() {
+    return "ResolvedCurves{" +
+      description +
+      ", forwardCurve=" + forwardCurveName +
+      ", discountCurve=" + discountCurveName +
+      ", historicFixings=" + historicFixings +
+      '}';
+  }
+}
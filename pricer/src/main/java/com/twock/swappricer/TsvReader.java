@@ -0,0 +1,241 @@
+package com.twock.swappricer;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import com.twock.swappricer.fpml.TextDecoder;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * A single pass reader of tab separated reference data files, working on the encoded bytes so that fields can be
+ * decoded or compared where they lie rather than being split into strings first.  Lines may end with either
+ * <code>\n</code> or <code>\r\n</code>; quoting is not supported, so fields cannot contain tabs or line breaks.
+ * <p/>
+ * Call {@link #nextLine()} to move to each line, then {@link #nextField()} to move along its fields.  Not thread safe.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class TsvReader {
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private final ByteBuffer buffer;
+  private final int end;
+  private byte[] scratch = new byte[64];
+  private char[] chars = new char[64];
+  private int lineNumber;
+  private int lineStart;
+  private int lineEnd;
+  private int next;
+  private int fieldStart;
+  private int fieldEnd;
+
+  public TsvReader(ByteBuffer buffer) {
+    this.buffer = buffer;
+    this.end = buffer.limit();
+    this.next = buffer.position();
+  }
+
+  /**
+   * @param file file to memory map and read
+   */
+  public static TsvReader open(File file) {
+    try {
+      RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+      try {
+        FileChannel channel = randomAccessFile.getChannel();
+        // the mapping remains valid once the file is closed
+        return new TsvReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+      } finally {
+        randomAccessFile.close();
+      }
+    } catch(IOException e) {
+      throw new PricerException("Failed to open " + file, e);
+    }
+  }
+
+  /**
+   * @param input stream to read fully, will be closed on return/exception
+   */
+  public static TsvReader read(InputStream input) {
+    try {
+      return new TsvReader(ByteBuffer.wrap(IOUtils.toByteArray(input)));
+    } catch(IOException e) {
+      throw new PricerException("Failed to read tab separated input", e);
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
+  /**
+   * @param input reader to read fully, re-encoded as UTF-8, will be closed on return/exception
+   */
+  public static TsvReader read(Reader input) {
+    try {
+      return new TsvReader(ByteBuffer.wrap(IOUtils.toString(input).getBytes(UTF8)));
+    } catch(IOException e) {
+      throw new PricerException("Failed to read tab separated input", e);
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
+  /**
+   * Move to the start of the next line.
+   *
+   * @return false if there are no more lines
+   */
+  public boolean nextLine() {
+    if(next >= end) {
+      return false;
+    }
+    int start = next;
+    int pos = start;
+    while(pos < end && buffer.get(pos) != '\n') {
+      pos++;
+    }
+    next = pos + 1;
+    if(pos > start && buffer.get(pos - 1) == '\r') {
+      pos--;
+    }
+    lineStart = start;
+    lineEnd = pos;
+    fieldStart = start;
+    fieldEnd = -1;
+    lineNumber++;
+    return true;
+  }
+
+  /**
+   * Move to the next field on the current line.
+   *
+   * @return false if the line has no more fields
+   */
+  public boolean nextField() {
+    int pos;
+    if(fieldEnd < 0) {
+      pos = fieldStart;
+    } else if(fieldEnd < lineEnd) {
+      pos = fieldEnd + 1;
+    } else {
+      return false;
+    }
+    fieldStart = pos;
+    while(pos < lineEnd && buffer.get(pos) != '\t') {
+      pos++;
+    }
+    fieldEnd = pos;
+    return true;
+  }
+
+  /**
+   * @return 1-based number of the current line, for error messages
+   */
+  public int getLineNumber() {
+    return lineNumber;
+  }
+
+  public int getFieldLength() {
+    return fieldEnd - fieldStart;
+  }
+
+  /**
+   * @return the number of fields on the current line
+   */
+  public int getFieldCount() {
+    int count = 1;
+    for(int i = lineStart; i < lineEnd; i++) {
+      if(buffer.get(i) == '\t') {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @return the current field parsed as an int, see {@link TextDecoder#parseInt}
+   */
+  public int getIntField() {
+    return TextDecoder.parseInt(fieldChars(), 0, fieldEnd - fieldStart);
+  }
+
+  /**
+   * @return the current field parsed as a double, see {@link TextDecoder#parseDouble}
+   */
+  public double getDoubleField() {
+    return TextDecoder.parseDouble(fieldChars(), 0, fieldEnd - fieldStart);
+  }
+
+  /**
+   * Copy the field into the char buffer, only correct for ASCII, which is all the numeric parsers accept.
+   */
+  private char[] fieldChars() {
+    int length = fieldEnd - fieldStart;
+    if(chars.length < length) {
+      chars = new char[Math.max(length, chars.length * 2)];
+    }
+    for(int i = 0; i < length; i++) {
+      chars[i] = (char)(buffer.get(fieldStart + i) & 0xff);
+    }
+    return chars;
+  }
+
+  public String getField() {
+    int length = fieldEnd - fieldStart;
+    if(scratch.length < length) {
+      scratch = new byte[Math.max(length, scratch.length * 2)];
+    }
+    for(int i = 0; i < length; i++) {
+      scratch[i] = buffer.get(fieldStart + i);
+    }
+    return new String(scratch, 0, length, UTF8);
+  }
+
+  /**
+   * @return true if the current field holds exactly the given ASCII string, compared without decoding the field
+   */
+  public boolean fieldEquals(String value) {
+    int length = fieldEnd - fieldStart;
+    if(value == null || value.length() != length) {
+      return false;
+    }
+    for(int i = 0; i < length; i++) {
+      if(buffer.get(fieldStart + i) != value.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Decode a field starting with a <code>dd/MM/yyyy</code> date, ignoring anything after the date such as a time.
+   *
+   * @return the day count of the date, see {@link DateUtil#dateToDayCount(int, int, int)}
+   * @throws PricerException if the field does not start with a date
+   */
+  public int getDayMonthYearField() {
+    int pos = fieldStart;
+    if(fieldEnd - pos < 10 || buffer.get(pos + 2) != '/' || buffer.get(pos + 5) != '/') {
+      throw new PricerException("Invalid date " + getField() + " on line " + lineNumber);
+    }
+    int day = digits(pos, 2);
+    int month = digits(pos + 3, 2);
+    int year = digits(pos + 6, 4);
+    if(year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+      throw new PricerException("Invalid date " + getField() + " on line " + lineNumber);
+    }
+    return DateUtil.dateToDayCount(year, month, day);
+  }
+
+  private int digits(int pos, int count) {
+    int value = 0;
+    for(int i = pos; i < pos + count; i++) {
+      int digit = buffer.get(i) - '0';
+      if(digit < 0 || digit > 9) {
+        return -1;
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+}
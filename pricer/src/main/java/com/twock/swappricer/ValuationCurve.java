@@ -13,6 +13,11 @@ public class ValuationCurve {
   private final int[] maturityDates;
   private final double[] zeroRates;
   private final double[] discountFactors;
+  /**
+   * Zero rate change per day between each pair of adjacent pillars, precalculated for interpolation.
+   */
+  private final double[] slopes;
+  private final int curveDayCount;
 
   public ValuationCurve(String curveName, DateWithDayCount curveDate, int[] maturityDates, double[] zeroRates, double[] discountFactors) {
     this.curveName = curveName;
@@ -20,6 +25,11 @@ public class ValuationCurve {
     this.maturityDates = maturityDates;
     this.zeroRates = zeroRates;
     this.discountFactors = discountFactors;
+    this.curveDayCount = curveDate.getDayCount();
+    this.slopes = new double[Math.max(0, maturityDates.length - 1)];
+    for(int i = 0; i < slopes.length; i++) {
+      slopes[i] = (zeroRates[i + 1] - zeroRates[i]) / (maturityDates[i + 1] - maturityDates[i]);
+    }
   }
 
   public String getCurveName() {
@@ -51,34 +61,199 @@ public class ValuationCurve {
   public double getDiscountFactor(int dayCount) {
     int position = Arrays.binarySearch(maturityDates, dayCount);
     if(position >= 0) {
-      if(position == 0) {
-        throw new PricerException("Extrapolation earlier than first date " + Arrays.toString(DateUtil.dayCountToDate(maturityDates[0])) + " not currently supported for curve " + curveName + " and date " + Arrays.toString(DateUtil.dayCountToDate(dayCount)));
-      } else if(position == maturityDates.length) {
-        throw new PricerException("Extrapolation not currently supported for curve " + curveName + " and date " + Arrays.toString(DateUtil.dayCountToDate(dayCount)));
-      }
       return discountFactors[position];
-    } else {
-      position = -(position + 1);
-      if(position == 0) {
-        throw new PricerException("Extrapolation earlier than first date " + Arrays.toString(DateUtil.dayCountToDate(maturityDates[0])) + " not currently supported for curve " + curveName + " and date " + Arrays.toString(DateUtil.dayCountToDate(dayCount)));
-      } else if(position == maturityDates.length) {
-        throw new PricerException("Extrapolation not currently supported for curve " + curveName + " and date " + Arrays.toString(DateUtil.dayCountToDate(dayCount)));
+    }
+    position = -(position + 1);
+    checkInRange(position, dayCount);
+    return interpolate(position, dayCount);
+  }
+
+  /**
+   * Batch equivalent of {@link #getDiscountFactor(int)}, which finds the curve segment for each date by stepping
+   * along the pillars from the segment of the previous date rather than searching.  Dates in ascending order are
+   * therefore handled in a single sweep over the pillars, although any order gives the correct result.
+   *
+   * @param sortedDates numeric dates from DateUtil, ideally in ascending order
+   * @param out populated with the discount factor for each date, must be at least as long as sortedDates
+   */
+  public void discountFactors(int[] sortedDates, double[] out) {
+    discountFactors(sortedDates, 0, sortedDates.length, out);
+  }
+
+  /**
+   * Batch equivalent of {@link #getDiscountFactor(int)} for a range of dates.
+   *
+   * @param sortedDates numeric dates from DateUtil, ideally in ascending order
+   * @param from index of the first date to discount
+   * @param to index after the last date to discount
+   * @param out populated with the discount factor for each date between from and to, other entries are untouched
+   * @see #discountFactors(int[], double[])
+   */
+  public void discountFactors(int[] sortedDates, int from, int to, double[] out) {
+    int position = 0; // index of the first pillar on or after the date
+    for(int i = from; i < to; i++) {
+      int dayCount = sortedDates[i];
+      position = step(position, dayCount);
+      out[i] = discountFactor(position, dayCount);
+    }
+  }
+
+  /**
+   * Sum of a range of amounts each discounted from its date, sweeping over the pillars as
+   * {@link #discountFactors(int[], int, int, double[])} does but without holding the discount factors.
+   *
+   * @param sortedDates numeric dates from DateUtil, ideally in ascending order
+   * @param amounts amount paid on each date
+   * @param from index of the first amount to discount
+   * @param to index after the last amount to discount
+   * @return the present value of the amounts
+   */
+  public double presentValue(int[] sortedDates, double[] amounts, int from, int to) {
+    double result = 0;
+    int position = 0;
+    for(int i = from; i < to; i++) {
+      int dayCount = sortedDates[i];
+      position = step(position, dayCount);
+      result += amounts[i] * discountFactor(position, dayCount);
+    }
+    return result;
+  }
+
+  /**
+   * @param position index of the first pillar on or after the previous date
+   * @return index of the first pillar on or after the given date
+   */
+  private int step(int position, int dayCount) {
+    while(position < maturityDates.length && maturityDates[position] < dayCount) {
+      position++;
+    }
+    while(position > 0 && maturityDates[position - 1] >= dayCount) {
+      position--;
+    }
+    return position;
+  }
+
+  /**
+   * @param position index of the first pillar on or after the date
+   */
+  private double discountFactor(int position, int dayCount) {
+    if(position < maturityDates.length && maturityDates[position] == dayCount) {
+      return discountFactors[position];
+    }
+    checkInRange(position, dayCount);
+    return interpolate(position, dayCount);
+  }
+
+  /**
+   * @param position index of the first pillar after the date
+   * @param dayCount numeric date from DateUtil
+   * @return the discount factor from the zero rate interpolated between the pillars either side of the date
+   */
+  private double interpolate(int position, int dayCount) {
+    // df = EXP(zero rate * -(flow date  valuation date)/365)
+    // R = R1 + (D  D1)*(R2  R1)/(D2  D1)
+    // R = interpolated zero rate
+    // R1= zero rate for closest curve pillar with earlier date
+    // R2 = zero rate for closest curve pillar with later date
+    // D = value date for forward flow
+    // D1 = value date for closest curve pillar with earlier date
+    // D2 = value date for closest curve pillar with later date
+    double interpolatedZeroRate = zeroRates[position - 1] + (dayCount - maturityDates[position - 1]) * slopes[position - 1];
+    return Math.exp(interpolatedZeroRate * -(dayCount - curveDayCount) / 365.0);
+  }
+
+  private void checkInRange(int position, int dayCount) {
+    if(position == 0) {
+      throw new PricerException("Extrapolation earlier than first date " + Arrays.toString(DateUtil.dayCountToDate(maturityDates[0])) + " not currently supported for curve " + curveName + " and date " + Arrays.toString(DateUtil.dayCountToDate(dayCount)));
+    } else if(position == maturityDates.length) {
+      throw new PricerException("Extrapolation not currently supported for curve " + curveName + " and date " + Arrays.toString(DateUtil.dayCountToDate(dayCount)));
+    }
+  }
+
+  /**
+   * Obtain the discount factor for projecting forward rates.  Identical to {@link #getDiscountFactor(int)} from the
+   * first pillar onwards, but between the curve date and the first pillar the first zero rate is extrapolated flat, as
+   * forward curves typically start at the end of the first index period.
+   *
+   * @param dayCount numeric date from DateUtil, on or after the curve date
+   * @return the discount factor for the given date from the given curve
+   */
+  public double getProjectionDiscountFactor(int dayCount) {
+    if(dayCount < maturityDates[0]) {
+      if(dayCount < curveDayCount) {
+        throw new PricerException("Projection earlier than curve date " + curveDate + " not supported for curve " + curveName + " and date " + Arrays.toString(DateUtil.dayCountToDate(dayCount)));
       }
-      int earlierDate = maturityDates[position - 1];
-      int laterDate = maturityDates[position];
-      double earlierRate = zeroRates[position - 1];
-      double laterRate = zeroRates[position];
-      // df = EXP(zero rate * -(flow date  valuation date)/365)
-      // R = R1 + (D  D1)*(R2  R1)/(D2  D1)
-      // R = interpolated zero rate
-      // R1= zero rate for closest curve pillar with earlier date
-      // R2 = zero rate for closest curve pillar with later date
-      // D = value date for forward flow
-      // D1 = value date for closest curve pillar with earlier date
-      // D2 = value date for closest curve pillar with later date
-      double interpolatedZeroRate = earlierRate + (dayCount - earlierDate) * (laterRate - earlierRate) / (laterDate - earlierDate);
-      return Math.exp(interpolatedZeroRate * -(dayCount - curveDate.getDayCount()) / 365.0);
+      return Math.exp(zeroRates[0] * -(dayCount - curveDayCount) / 365.0);
     }
+    return getDiscountFactor(dayCount);
+  }
+
+  /**
+   * Project the simple forward rate for the period between two dates.
+   *
+   * @param startDayCount start of the period, numeric date from DateUtil
+   * @param endDayCount end of the period, numeric date from DateUtil
+   * @param dayCountFraction day count fraction of the period
+   * @return the forward rate, e.g. 0.0127 for 1.27%
+   */
+  public double getForwardRate(int startDayCount, int endDayCount, double dayCountFraction) {
+    return (getProjectionDiscountFactor(startDayCount) / getProjectionDiscountFactor(endDayCount) - 1) / dayCountFraction;
+  }
+
+  /**
+   * Adjoint of {@link #getProjectionDiscountFactor(int)}, and so also of {@link #getDiscountFactor(int)}: accumulate the
+   * sensitivity of some value to each zero rate pillar given its sensitivity to the discount factor on one date.  The
+   * discount factor is interpolated from at most two pillars, so only those entries are touched.
+   * <p/>
+   * A discount factor on a pillar date is the one loaded rather than one calculated from the zero rate, so it does not
+   * depend on the zero rate at all.  The sensitivity is instead to a zero rate shift that also moves the loaded
+   * discount factor by <code>exp(-shift * years)</code>, as {@link com.twock.swappricer.fpml.ScenarioEngine} applies
+   * the shifts of a {@link CurveScenarios}, so a pillar date's discount factor has the same derivative,
+   * <code>-years * df</code>, as an interpolated one.
+   *
+   * @param dayCount numeric date from DateUtil, on or after the curve date
+   * @param discountFactor the discount factor on that date, as already calculated from this curve
+   * @param discountFactorBar sensitivity of the value to the discount factor
+   * @param zeroRateBars sensitivity of the value to each zero rate, indexed as {@link #getZeroRates()}, added to
+   */
+  public void discountFactorAdjoint(int dayCount, double discountFactor, double discountFactorBar, double[] zeroRateBars) {
+    // d(df)/d(R) = -years * df, where R is the interpolated zero rate
+    double rateBar = -(dayCount - curveDayCount) / 365.0 * discountFactor * discountFactorBar;
+    if(dayCount <= maturityDates[0]) {
+      zeroRateBars[0] += rateBar;
+      return;
+    }
+    int position = Arrays.binarySearch(maturityDates, dayCount);
+    if(position >= 0) {
+      zeroRateBars[position] += rateBar;
+      return;
+    }
+    position = -(position + 1);
+    checkInRange(position, dayCount);
+    // R = R1 * (1 - w) + R2 * w, where w = (D - D1) / (D2 - D1)
+    double weight = (double)(dayCount - maturityDates[position - 1]) / (maturityDates[position] - maturityDates[position - 1]);
+    zeroRateBars[position - 1] += rateBar * (1 - weight);
+    zeroRateBars[position] += rateBar * weight;
+  }
+
+  /**
+   * Adjoint of {@link #getForwardRate(int, int, double)}: accumulate the sensitivity of some value to each zero rate
+   * pillar given its sensitivity to the forward rate for one period.
+   *
+   * @param startDayCount start of the period, numeric date from DateUtil
+   * @param endDayCount end of the period, numeric date from DateUtil
+   * @param dayCountFraction day count fraction of the period
+   * @param forwardRateBar sensitivity of the value to the forward rate
+   * @param zeroRateBars sensitivity of the value to each zero rate, indexed as {@link #getZeroRates()}, added to
+   */
+  public void forwardRateAdjoint(int startDayCount, int endDayCount, double dayCountFraction, double forwardRateBar, double[] zeroRateBars) {
+    double startDiscountFactor = getProjectionDiscountFactor(startDayCount);
+    double endDiscountFactor = getProjectionDiscountFactor(endDayCount);
+    // F = (Ps / Pe - 1) / dcf
+    double startBar = forwardRateBar / (dayCountFraction * endDiscountFactor);
+    double endBar = -forwardRateBar * startDiscountFactor / (dayCountFraction * endDiscountFactor * endDiscountFactor);
+    discountFactorAdjoint(startDayCount, startDiscountFactor, startBar, zeroRateBars);
+    discountFactorAdjoint(endDayCount, endDiscountFactor, endBar, zeroRateBars);
   }
 
   @Override
@@ -1,14 +1,135 @@
 package com.twock.swappricer.fpml;
 
-import java.util.List;
-
-import com.twock.swappricer.fpml.model.DateWithDayCount;
+import com.twock.swappricer.fpml.model.enumeration.CompoundingMethodEnum;
 
 /**
+ * Calculates the cash flow amount of each calculation period of a stream, working on primitive arrays indexed by
+ * period so a whole leg can be calculated without creating any objects.  Where several consecutive calculation periods
+ * share a payment date they are compounded according to the stream's compounding method, and each period's amount
+ * includes its share of the compounding so the payment amount is the sum of the amounts of its periods.
+ *
  * @author Chris Pearson (chris@twock.com)
  */
 public class CashFlowCalculator {
-  public void calculateFlows(List<DateWithDayCount> adjustedDates, List<DateWithDayCount> paymentDates) {
-    // days * notional * 
+  /**
+   * @param notional notional amount
+   * @param fixedRate fixed rate, e.g. 0.05 for 5%
+   * @param dayCountFractions day count fraction of each period
+   * @param from first period to calculate, earlier entries in out are left untouched
+   * @param out populated with the amount of each period
+   */
+  public void calculateFixedFlows(double notional, double fixedRate, double[] dayCountFractions, int from, double[] out) {
+    for(int i = from; i < dayCountFractions.length; i++) {
+      out[i] = notional * fixedRate * dayCountFractions[i];
+    }
+  }
+
+  /**
+   * Calculate floating period amounts from the rate fixed or projected for each period.  Compounding only applies
+   * between periods with the same payment date.  With FLAT compounding the spread is paid on the notional only, with
+   * STRAIGHT it is compounded along with the rate, and with SPREAD_EXCLUSIVE it is paid simple on the notional while
+   * the rate alone is compounded.
+   *
+   * @param notional notional amount
+   * @param rates floating rate of each period excluding spread, e.g. 0.0127 for 1.27%
+   * @param spread spread over the floating rate, 0 if none
+   * @param dayCountFractions day count fraction of each period
+   * @param paymentDates payment date of each period, as day counts
+   * @param compoundingMethod compounding method, null is treated as NONE
+   * @param from first period to calculate, earlier entries in out are left untouched
+   * @param out populated with the amount of each period
+   */
+  public void calculateFloatingFlows(double notional, double[] rates, double spread, double[] dayCountFractions, int[] paymentDates, CompoundingMethodEnum compoundingMethod, int from, double[] out) {
+    boolean compounding = compoundingMethod != null && compoundingMethod != CompoundingMethodEnum.NONE;
+    double accumulated = 0;
+    for(int i = from; i < dayCountFractions.length; i++) {
+      if(!compounding || i == from || paymentDates[i] != paymentDates[i - 1]) {
+        accumulated = 0;
+      }
+      double rate = rates[i];
+      double dayCountFraction = dayCountFractions[i];
+      double amount;
+      if(!compounding) {
+        amount = notional * (rate + spread) * dayCountFraction;
+      } else if(compoundingMethod == CompoundingMethodEnum.FLAT) {
+        amount = notional * (rate + spread) * dayCountFraction + accumulated * rate * dayCountFraction;
+        accumulated += amount;
+      } else if(compoundingMethod == CompoundingMethodEnum.STRAIGHT) {
+        amount = (notional + accumulated) * (rate + spread) * dayCountFraction;
+        accumulated += amount;
+      } else {
+        double compoundedAmount = (notional + accumulated) * rate * dayCountFraction;
+        accumulated += compoundedAmount;
+        amount = compoundedAmount + notional * spread * dayCountFraction;
+      }
+      out[i] = amount;
+    }
+  }
+
+  /**
+   * Adjoint of {@link #calculateFloatingFlows}: given the sensitivity of some value to each period amount, find its
+   * sensitivity to each period's rate.  Where periods are compounded the amount of each depends on the rates of the
+   * earlier periods with the same payment date, so the periods are swept in reverse carrying the sensitivity to the
+   * amount accumulated so far.
+   *
+   * @param notional notional amount
+   * @param rates floating rate of each period excluding spread, e.g. 0.0127 for 1.27%
+   * @param spread spread over the floating rate, 0 if none
+   * @param dayCountFractions day count fraction of each period
+   * @param paymentDates payment date of each period, as day counts
+   * @param compoundingMethod compounding method, null is treated as NONE
+   * @param from first period to calculate, earlier entries in ratesBar are left untouched
+   * @param amountsBar sensitivity of the value to the amount of each period
+   * @param ratesBar populated with the sensitivity of the value to the rate of each period
+   */
+  public void calculateFloatingFlowsAdjoint(double notional, double[] rates, double spread, double[] dayCountFractions, int[] paymentDates, CompoundingMethodEnum compoundingMethod, int from, double[] amountsBar, double[] ratesBar) {
+    boolean compounding = compoundingMethod != null && compoundingMethod != CompoundingMethodEnum.NONE;
+    int to = dayCountFractions.length;
+    if(!compounding) {
+      for(int i = from; i < to; i++) {
+        ratesBar[i] = amountsBar[i] * notional * dayCountFractions[i];
+      }
+      return;
+    }
+    // forward sweep, keeping the amount accumulated before each period
+    double[] accumulatedBefore = new double[to];
+    double accumulated = 0;
+    for(int i = from; i < to; i++) {
+      if(i == from || paymentDates[i] != paymentDates[i - 1]) {
+        accumulated = 0;
+      }
+      accumulatedBefore[i] = accumulated;
+      double rate = rates[i];
+      double dayCountFraction = dayCountFractions[i];
+      if(compoundingMethod == CompoundingMethodEnum.FLAT) {
+        accumulated += notional * (rate + spread) * dayCountFraction + accumulated * rate * dayCountFraction;
+      } else if(compoundingMethod == CompoundingMethodEnum.STRAIGHT) {
+        accumulated += (notional + accumulated) * (rate + spread) * dayCountFraction;
+      } else {
+        accumulated += (notional + accumulated) * rate * dayCountFraction;
+      }
+    }
+    // reverse sweep, accumulatedBar being the sensitivity to the amount accumulated after the period
+    double accumulatedBar = 0;
+    for(int i = to - 1; i >= from; i--) {
+      if(i == to - 1 || paymentDates[i + 1] != paymentDates[i]) {
+        accumulatedBar = 0;
+      }
+      double rate = rates[i];
+      double dayCountFraction = dayCountFractions[i];
+      double before = accumulatedBefore[i];
+      // each accumulates the period's amount (or the compounded part of it) on top of the amount before
+      double amountBar = amountsBar[i] + accumulatedBar;
+      if(compoundingMethod == CompoundingMethodEnum.FLAT) {
+        ratesBar[i] = amountBar * (notional + before) * dayCountFraction;
+        accumulatedBar += amountBar * rate * dayCountFraction;
+      } else if(compoundingMethod == CompoundingMethodEnum.STRAIGHT) {
+        ratesBar[i] = amountBar * (notional + before) * dayCountFraction;
+        accumulatedBar += amountBar * (rate + spread) * dayCountFraction;
+      } else {
+        ratesBar[i] = amountBar * (notional + before) * dayCountFraction;
+        accumulatedBar += amountBar * rate * dayCountFraction;
+      }
+    }
   }
 }
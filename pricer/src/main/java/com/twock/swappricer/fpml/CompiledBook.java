@@ -0,0 +1,85 @@
+package com.twock.swappricer.fpml;
+
+import com.twock.swappricer.fpml.book.TradeBook;
+
+/**
+ * The legs of a {@link TradeBook} compiled by {@link LegCompiler}, in book order, with the trade id, leg number and
+ * currency each is reported under.  Holds nothing that depends on market data, so can be kept and revalued against
+ * each new set of curves.  Immutable.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class CompiledBook {
+  private final int tradeCount;
+  private final int[] tradeIndices;
+  private final String[] tradeIds;
+  private final int[] legNumbers;
+  private final String[] currencies;
+  private final CompiledLeg[] legs;
+
+  /**
+   * @param tradeCount number of trades
+   * @param tradeIndices index of the trade of each leg
+   * @param tradeIds trade id of each leg
+   * @param legNumbers number of each leg within its trade
+   * @param currencies notional currency of each leg
+   * @param legs each compiled leg, null where a leg has neither a fixed rate nor a floating rate index
+   */
+  public CompiledBook(int tradeCount, int[] tradeIndices, String[] tradeIds, int[] legNumbers, String[] currencies, CompiledLeg[] legs) {
+    this.tradeCount = tradeCount;
+    this.tradeIndices = tradeIndices;
+    this.tradeIds = tradeIds;
+    this.legNumbers = legNumbers;
+    this.currencies = currencies;
+    this.legs = legs;
+  }
+
+  /**
+   * @return the number of legs
+   */
+  public int size() {
+    return legs.length;
+  }
+
+  public int getTradeCount() {
+    return tradeCount;
+  }
+
+  public int getTradeIndex(int leg) {
+    return tradeIndices[leg];
+  }
+
+  public String getTradeId(int leg) {
+    return tradeIds[leg];
+  }
+
+  public int getLegNumber(int leg) {
+    return legNumbers[leg];
+  }
+
+  public String getCurrency(int leg) {
+    return currencies[leg];
+  }
+
+  /**
+   * @return the compiled leg, null if it has neither a fixed rate nor a floating rate index
+   */
+  public CompiledLeg getLeg(int leg) {
+    return legs[leg];
+  }
+
+  /**
+   * @return a new results holding the given value of each leg, reported by trade id, leg number and currency
+   */
+  PortfolioResults toResults(double[] presentValues, long elapsedNanos) {
+    return new PortfolioResults(tradeCount, tradeIds, legNumbers, presentValues, currencies, elapsedNanos);
+  }
+
+  @Override
+  public String toString() {
+    return "CompiledBook{" +
+      "tradeCount=" + tradeCount +
+      ", legs=" + legs.length +
+      '}';
+  }
+}
@@ -0,0 +1,142 @@
+package com.twock.swappricer.fpml;
+
+import com.twock.swappricer.CurveResolver;
+import com.twock.swappricer.fpml.model.enumeration.CompoundingMethodEnum;
+
+/**
+ * Everything about a leg that does not depend on market data, worked out once by {@link LegCompiler} so that valuing
+ * the leg against a fresh set of curves, see {@link SwapPaymentCalculator#value(CompiledLeg, com.twock.swappricer.ResolvedCurves)},
+ * only has to discount and project.  Holds the schedule as day counts, the day count fraction of each period, the
+ * amount of each period of a fixed leg, and the terms and index of a floating leg as {@link CurveResolver} ids.
+ * <p/>
+ * Immutable; the arrays are shared rather than copied, so must not be modified.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class CompiledLeg {
+  private final int indexId;
+  private final int tenor;
+  private final int currencyId;
+  private final double notional;
+  private final double fixedRate;
+  private final double spread;
+  private final Double initialRate;
+  private final CompoundingMethodEnum compoundingMethod;
+  private final int[] adjustedDates;
+  private final int[] paymentDates;
+  private final int[] fixingDates;
+  private final double[] dayCountFractions;
+  private final double[] fixedAmounts;
+
+  /**
+   * @param indexId id of the floating rate index, {@link CurveResolver#NO_ID} for a fixed leg
+   * @param tenor index tenor, see {@link CurveResolver#getTenor}
+   * @param currencyId id of the notional currency
+   * @param notional notional amount
+   * @param fixedRate fixed rate, NaN for a floating leg
+   * @param spread spread over the index, 0 if none
+   * @param initialRate rate of the first period if agreed at trade time, null otherwise
+   * @param compoundingMethod compounding method for periods sharing a payment date, can be null
+   * @param adjustedDates adjusted calculation period dates
+   * @param paymentDates payment date of each period, in ascending order
+   * @param fixingDates fixing date of each period
+   * @param dayCountFractions day count fraction of each period
+   * @param fixedAmounts amount of each period of a fixed leg, null for a floating leg
+   */
+  public CompiledLeg(int indexId, int tenor, int currencyId, double notional, double fixedRate, double spread, Double initialRate, CompoundingMethodEnum compoundingMethod, int[] adjustedDates, int[] paymentDates, int[] fixingDates, double[] dayCountFractions, double[] fixedAmounts) {
+    this.indexId = indexId;
+    this.tenor = tenor;
+    this.currencyId = currencyId;
+    this.notional = notional;
+    this.fixedRate = fixedRate;
+    this.spread = spread;
+    this.initialRate = initialRate;
+    this.compoundingMethod = compoundingMethod;
+    this.adjustedDates = adjustedDates;
+    this.paymentDates = paymentDates;
+    this.fixingDates = fixingDates;
+    this.dayCountFractions = dayCountFractions;
+    this.fixedAmounts = fixedAmounts;
+  }
+
+  public int getIndexId() {
+    return indexId;
+  }
+
+  public int getTenor() {
+    return tenor;
+  }
+
+  public int getCurrencyId() {
+    return currencyId;
+  }
+
+  public boolean isFixed() {
+    return fixedAmounts != null;
+  }
+
+  public double getNotional() {
+    return notional;
+  }
+
+  public double getFixedRate() {
+    return fixedRate;
+  }
+
+  public double getSpread() {
+    return spread;
+  }
+
+  public Double getInitialRate() {
+    return initialRate;
+  }
+
+  public CompoundingMethodEnum getCompoundingMethod() {
+    return compoundingMethod;
+  }
+
+  public int[] getAdjustedDates() {
+    return adjustedDates;
+  }
+
+  public int[] getPaymentDates() {
+    return paymentDates;
+  }
+
+  public int[] getFixingDates() {
+    return fixingDates;
+  }
+
+  public double[] getDayCountFractions() {
+    return dayCountFractions;
+  }
+
+  /**
+   * @return the amount of each period of a fixed leg, null for a floating leg
+   */
+  public double[] getFixedAmounts() {
+    return fixedAmounts;
+  }
+
+  /**
+   * @return the number of calculation periods
+   */
+  public int getPeriodCount() {
+    return dayCountFractions.length;
+  }
+
+  @Override
+  public String toString() {
+    return "CompiledLeg{" +
+      "indexId=" + indexId +
+      ", tenor=" + tenor +
+      ", currencyId=" + currencyId +
+      ", notional=" + notional +
+      ", fixedRate=" + fixedRate +
+      ", spread=" + spread +
+      ", initialRate=" + initialRate +
+      ", compoundingMethod=" + compoundingMethod +
+      ", periods=" + dayCountFractions.length +
+      '}';
+  }
+}
@@ -0,0 +1,167 @@
+package com.twock.swappricer.fpml;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.fpml.model.Trade;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Reads a directory of FpML files on several parser threads, handing the parsed trades to a downstream
+ * {@link TradeHandler} on the calling thread through a bounded queue.  When the downstream stage falls behind the
+ * queue fills and the parser threads block, so memory use is bounded however many files there are.
+ * <p/>
+ * Each parser thread reads whole files into its own reusable buffer before parsing them.  StAX cannot point an
+ * existing reader at a new document, so each file gets a new <code>XMLStreamReader</code>, which is not reused; what
+ * is reused is the character and byte buffers inside it, which Woodstox hands on to the next reader created on the
+ * same thread once the last one is closed.  Any file may contain several trades; trades without a trade id in their
+ * header are reported under the file name without extension.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class FpmlIngestPipeline {
+  private static final Logger log = Logger.getLogger(FpmlIngestPipeline.class);
+  private static final Trade END_OF_TRADES = new Trade(null, null, null);
+  private final FpmlParser fpmlParser;
+  private final int parserThreads;
+  private final int queueCapacity;
+
+  /**
+   * @param fpmlParser parser shared by all parser threads
+   * @param parserThreads number of threads to parse files on
+   * @param queueCapacity maximum number of parsed trades waiting for the downstream stage
+   */
+  public FpmlIngestPipeline(FpmlParser fpmlParser, int parserThreads, int queueCapacity) {
+    if(parserThreads < 1 || queueCapacity < 1) {
+      throw new PricerException("Parser threads and queue capacity must be positive, got " + parserThreads + " and " + queueCapacity);
+    }
+    this.fpmlParser = fpmlParser;
+    this.parserThreads = parserThreads;
+    this.queueCapacity = queueCapacity;
+  }
+
+  /**
+   * Parse every <code>.xml</code> file in the given directory, passing each trade to the handler on the calling
+   * thread.  Trades arrive in no particular order.  If a file fails to parse or the handler throws, the remaining
+   * files are abandoned and the failure is rethrown.
+   *
+   * @param directory directory containing FpML files
+   * @param downstream receives every trade read
+   * @return the number of trades read
+   */
+  public int run(File directory, TradeHandler downstream) {
+    final File[] files = directory.listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+        return name.toLowerCase().endsWith(".xml");
+      }
+    });
+    if(files == null) {
+      throw new PricerException("Unable to list FpML files in " + directory);
+    }
+    Arrays.sort(files);
+    final BlockingQueue<Trade> queue = new ArrayBlockingQueue<Trade>(queueCapacity);
+    final AtomicInteger nextFile = new AtomicInteger();
+    final AtomicInteger runningParsers = new AtomicInteger(parserThreads);
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    final AtomicBoolean abandoned = new AtomicBoolean();
+    Thread[] threads = new Thread[parserThreads];
+    for(int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread("fpml-parser-" + i) {
+        @Override
+        public void run() {
+          try {
+            parseFiles(files, nextFile, queue, failure);
+          } catch(InterruptedException e) {
+            // abandoned by the downstream stage
+          } catch(Throwable e) {
+            failure.compareAndSet(null, e);
+          } finally {
+            if(runningParsers.decrementAndGet() == 0 && !abandoned.get()) {
+              // last parser out tells the downstream stage there are no more trades
+              try {
+                queue.put(END_OF_TRADES);
+              } catch(InterruptedException e) {
+                // abandoned by the downstream stage while waiting
+              }
+            }
+          }
+        }
+      };
+      threads[i].setDaemon(true);
+      threads[i].start();
+    }
+    int count = 0;
+    try {
+      Trade trade;
+      while((trade = queue.take()) != END_OF_TRADES) {
+        downstream.handle(trade);
+        count++;
+      }
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new PricerException("Interrupted while reading FpML from " + directory, e);
+    } finally {
+      abandoned.set(true);
+      for(Thread thread : threads) {
+        thread.interrupt();
+      }
+    }
+    Throwable error = failure.get();
+    if(error != null) {
+      throw error instanceof PricerException ? (PricerException)error : new PricerException("Failed to read FpML from " + directory, error);
+    }
+    log.info("Read " + count + " trades from " + files.length + " files in " + directory);
+    return count;
+  }
+
+  private void parseFiles(File[] files, AtomicInteger nextFile, BlockingQueue<Trade> queue, AtomicReference<Throwable> failure) throws IOException, InterruptedException {
+    byte[] buffer = new byte[65536];
+    int index;
+    while(failure.get() == null && (index = nextFile.getAndIncrement()) < files.length) {
+      File file = files[index];
+      int length = (int)file.length();
+      if(length > buffer.length) {
+        buffer = new byte[Math.max(length, buffer.length * 2)];
+      }
+      length = readFully(file, buffer);
+      String name = file.getName();
+      String defaultTradeId = name.substring(0, name.length() - ".xml".length());
+      TradeIterator trades = fpmlParser.openTrades(new ByteArrayInputStream(buffer, 0, length));
+      try {
+        while(trades.hasNext()) {
+          Trade trade = trades.next();
+          queue.put(trade.getTradeId() == null ? new Trade(defaultTradeId, trade.getTradeDate(), trade.getSwapStreams()) : trade);
+        }
+      } catch(PricerException e) {
+        throw new PricerException("Failed to parse " + file, e);
+      } finally {
+        trades.close();
+      }
+    }
+  }
+
+  private static int readFully(File file, byte[] buffer) throws IOException {
+    InputStream input = new FileInputStream(file);
+    try {
+      int length = 0;
+      int read;
+      while(length < buffer.length && (read = input.read(buffer, length, buffer.length - length)) >= 0) {
+        length += read;
+      }
+      if(length == buffer.length && input.read() >= 0) {
+        throw new PricerException("File " + file + " grew while being read");
+      }
+      return length;
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+}
@@ -1,8 +1,6 @@
 package com.twock.swappricer.fpml;
 
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 import javax.xml.stream.XMLInputFactory;
@@ -11,9 +9,13 @@ import javax.xml.stream.events.XMLEvent;
 
 import com.twock.swappricer.PricerException;
 import com.twock.swappricer.StaxReporter;
+import com.twock.swappricer.fpml.factory.FpmlElement;
 import com.twock.swappricer.fpml.factory.SwapStreamFactory;
 import com.twock.swappricer.fpml.model.DateWithDayCount;
 import com.twock.swappricer.fpml.model.SwapStream;
+import com.twock.swappricer.fpml.model.enumeration.EnumLookup;
+import com.twock.swappricer.fpml.model.enumeration.FpmlEnum;
+import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 import org.codehaus.stax2.XMLInputFactory2;
 import org.codehaus.stax2.XMLStreamReader2;
@@ -33,6 +35,10 @@ public class FpmlParser {
     xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
     xmlInputFactory.setProperty(XMLInputFactory.REPORTER, new StaxReporter());
     xmlInputFactory.configureForSpeed();
+    // element dispatch relies on interned names being cheap to hash and compare, and leaf values are decoded from a
+    // single text event so must not be split across several
+    xmlInputFactory.setProperty(XMLInputFactory2.P_INTERN_NAMES, true);
+    xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
     this.xmlInputFactory = xmlInputFactory;
   }
 
@@ -64,33 +70,150 @@ public class FpmlParser {
     }
   }
 
+  /**
+   * Open the FpML document in the given inputStream for reading one trade at a time.  The returned iterator closes the
+   * inputStream once it reaches the end of the document or fails, and should be closed by the caller if abandoned
+   * before then.
+   *
+   * @param inputStream stream from which to read the FpML
+   * @return an iterator over the trades in the document
+   */
+  public TradeIterator openTrades(InputStream inputStream) {
+    XMLStreamReader2 streamReader;
+    try {
+      streamReader = (XMLStreamReader2)xmlInputFactory.createXMLStreamReader(inputStream, "UTF8");
+    } catch(Exception e) {
+      IOUtils.closeQuietly(inputStream);
+      throw new PricerException("Failed to create reader to parse XML document", e);
+    }
+    return new TradeIterator(streamReader, inputStream, swapStreamFactory);
+  }
+
+  /**
+   * Read each trade in the FpML document in the given inputStream, passing it to the handler before reading the next.
+   * Will always close the provided inputStream.
+   *
+   * @param inputStream stream from which to read the FpML, will be closed on return/exception
+   * @param handler receives each trade in document order
+   * @return the number of trades read
+   */
+  public int parseTrades(InputStream inputStream, TradeHandler handler) {
+    TradeIterator trades = openTrades(inputStream);
+    try {
+      int count = 0;
+      while(trades.hasNext()) {
+        handler.handle(trades.next());
+        count++;
+      }
+      return count;
+    } finally {
+      trades.close();
+    }
+  }
+
   private List<SwapStream> parseFpml(XMLStreamReader2 streamReader) throws XMLStreamException {
     List<SwapStream> swapStreams = new ArrayList<SwapStream>();
     while(streamReader.hasNext()) {
       switch(streamReader.next()) {
         case XMLEvent.START_ELEMENT:
-          if("swapStream".equals(streamReader.getLocalName())) {
+          FpmlElement element = FpmlElement.LOOKUP.get(streamReader.getLocalName());
+          if(element == FpmlElement.SWAP_STREAM) {
             SwapStream swapStream = swapStreamFactory.readSwapStream(streamReader);
             swapStreams.add(swapStream);
+          } else if(isSkipped(element)) {
+            streamReader.skipElement();
           }
       }
     }
     return swapStreams;
   }
 
+  /**
+   * @return true if the subtree of the given element, found outside a swapStream, holds nothing the parser reads
+   */
+  static boolean isSkipped(FpmlElement element) {
+    return element == FpmlElement.PARTY || element == FpmlElement.ACCOUNT || element == FpmlElement.DOCUMENTATION || element == FpmlElement.ADDITIONAL_PAYMENT || element == FpmlElement.OTHER_PARTY_PAYMENT;
+  }
+
+  /**
+   * Move to the text following the current start element and return it as a date.
+   *
+   * @param streamReader reader positioned on a start element
+   * @return the element's text as a date
+   * @throws PricerException if the element is empty
+   */
   public static DateWithDayCount readTextDate(XMLStreamReader2 streamReader) throws XMLStreamException {
-    String sb = readText(streamReader);
-    return new DateWithDayCount(new short[]{Short.parseShort(sb.substring(0, 4)), Short.parseShort(sb.substring(5, 7)), Short.parseShort(sb.substring(8, 10))});
+    nextText(streamReader);
+    return new DateWithDayCount(TextDecoder.parseDayCount(streamReader.getTextCharacters(), streamReader.getTextStart(), streamReader.getTextLength()));
   }
 
+  /**
+   * Move to the text following the current start element and return it as an int, decoded straight from the reader's
+   * buffer.
+   *
+   * @param streamReader reader positioned on a start element
+   * @return the element's text as an int
+   * @throws PricerException if the element is empty
+   */
+  public static int readTextInt(XMLStreamReader2 streamReader) throws XMLStreamException {
+    nextText(streamReader);
+    return TextDecoder.parseInt(streamReader.getTextCharacters(), streamReader.getTextStart(), streamReader.getTextLength());
+  }
+
+  /**
+   * Move to the text following the current start element and return it as a double, decoded straight from the
+   * reader's buffer.
+   *
+   * @param streamReader reader positioned on a start element
+   * @return the element's text as a double
+   * @throws PricerException if the element is empty
+   */
+  public static double readTextDouble(XMLStreamReader2 streamReader) throws XMLStreamException {
+    nextText(streamReader);
+    return TextDecoder.parseDouble(streamReader.getTextCharacters(), streamReader.getTextStart(), streamReader.getTextLength());
+  }
+
+  /**
+   * Move to the text following the current start element and return the enum constant it represents, matched
+   * straight from the reader's buffer.
+   *
+   * @param streamReader reader positioned on a start element
+   * @param lookup lookup for the expected enum
+   * @return the matching constant
+   * @throws IllegalArgumentException if no constant matches, as for the enum's <code>fromValue</code>
+   * @throws PricerException if the element is empty
+   */
+  public static <E extends Enum<E> & FpmlEnum> E readTextEnum(XMLStreamReader2 streamReader, EnumLookup<E> lookup) throws XMLStreamException {
+    nextText(streamReader);
+    char[] text = streamReader.getTextCharacters();
+    int start = streamReader.getTextStart();
+    int length = streamReader.getTextLength();
+    E result = lookup.get(text, start, length);
+    if(result == null) {
+      throw new IllegalArgumentException(new String(text, start, length));
+    }
+    return result;
+  }
+
+  /**
+   * Read the text of the current start element, leaving the reader on its end element.
+   *
+   * @param streamReader reader positioned on a start element
+   * @return the element's text, empty for an empty element such as <code>&lt;tradeId/&gt;</code>
+   */
   public static String readText(XMLStreamReader2 streamReader) throws XMLStreamException {
-    streamReader.next();
-    StringWriter writer = new StringWriter();
-    try {
-      streamReader.getText(writer, false);
-      return writer.toString();
-    } catch(IOException e) {
-      throw new PricerException("Failed to read text from XML document", e);
+    return streamReader.getElementText();
+  }
+
+  /**
+   * Move to the text following the current start element.
+   *
+   * @param streamReader reader positioned on a start element
+   * @throws PricerException if the element is empty, so has no value to decode
+   */
+  private static void nextText(XMLStreamReader2 streamReader) throws XMLStreamException {
+    if(streamReader.next() == XMLEvent.END_ELEMENT) {
+      throw new PricerException("Empty " + streamReader.getLocalName() + " element at line " + streamReader.getLocation().getLineNumber());
     }
   }
-}
\ No newline at end of file
+}
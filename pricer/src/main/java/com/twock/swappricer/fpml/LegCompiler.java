@@ -0,0 +1,185 @@
+package com.twock.swappricer.fpml;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.twock.swappricer.CurveResolver;
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.fpml.book.TradeBook;
+import com.twock.swappricer.fpml.book.TradeBookColumn;
+import com.twock.swappricer.fpml.model.CalculationPeriodFrequency;
+import com.twock.swappricer.fpml.model.StreamSchedule;
+import com.twock.swappricer.fpml.model.SwapStream;
+import com.twock.swappricer.fpml.model.enumeration.CompoundingMethodEnum;
+import org.apache.log4j.Logger;
+
+/**
+ * Compiles legs into {@link CompiledLeg}s: generates the schedule through a {@link ScheduleCache}, then works out the
+ * day count fractions and, for a fixed leg, the amount of each period, none of which depend on market data.  Legs
+ * are compiled once, as trades are loaded, and then valued against each new set of curves.  Thread safe.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class LegCompiler {
+  private static final Logger log = Logger.getLogger(LegCompiler.class);
+  private final SwapStreamDateCalculator swapStreamDateCalculator;
+  private final ScheduleCache scheduleCache;
+  private final CashFlowCalculator cashFlowCalculator = new CashFlowCalculator();
+
+  /**
+   * @param swapStreamDateCalculator calculator used for day count fractions
+   * @param scheduleCache cache to generate schedules through
+   */
+  public LegCompiler(SwapStreamDateCalculator swapStreamDateCalculator, ScheduleCache scheduleCache) {
+    this.swapStreamDateCalculator = swapStreamDateCalculator;
+    this.scheduleCache = scheduleCache;
+  }
+
+  /**
+   * @param stream stream to compile
+   * @return the compiled stream, null if it has neither a fixed rate nor a floating rate index
+   */
+  public CompiledLeg compile(SwapStream stream) {
+    if(stream.getFixedRate() == null && stream.getFloatingRateIndex() == null) {
+      return null;
+    }
+    StreamSchedule schedule = scheduleCache.getSchedule(stream);
+    double[] dayCountFractions = swapStreamDateCalculator.getDayCountFractions(schedule.getAdjustedDates(), stream.getDayCountFraction(), stream.getCalculationPeriodFrequency(),
+      stream.getFirstRegularPeriodStartDate() != null, stream.getLastRegularPeriodEndDate() != null);
+    int currencyId = CurveResolver.getId(stream.getNotionalCurrency());
+    if(stream.getFixedRate() != null) {
+      return compileFixed(currencyId, stream.getNotionalAmount(), stream.getFixedRate(), schedule, dayCountFractions);
+    }
+    return new CompiledLeg(CurveResolver.getId(stream.getFloatingRateIndex()), CurveResolver.getTenor(stream.getIndexTenorPeriodMultiplier(), stream.getIndexTenorPeriod()), currencyId,
+      stream.getNotionalAmount(), Double.NaN, stream.getSpread() == null ? 0 : stream.getSpread(), stream.getInitialRate(), stream.getCompoundingMethod(),
+      schedule.getAdjustedDates(), schedule.getPaymentDates(), schedule.getFixingDates(), dayCountFractions, null);
+  }
+
+  /**
+   * Compile every leg of a trade book, splitting the legs into runs of {@link PortfolioPricer#BOOK_CHUNK_SIZE}
+   * compiled on the executor.  Schedules are generated once per schedule id in the book.
+   *
+   * @param book trades to compile
+   * @param executor executor to compile on, not shut down by this method
+   * @return the compiled legs in book order
+   */
+  public CompiledBook compile(final TradeBook book, ExecutorService executor) {
+    long start = System.nanoTime();
+    final CompiledLeg[] legs = new CompiledLeg[book.size()];
+    final AtomicReferenceArray<BookSchedule> schedules = new AtomicReferenceArray<BookSchedule>(book.getScheduleCount());
+    List<Future<Void>> futures = new ArrayList<Future<Void>>();
+    for(int from = 0; from < book.size(); from += PortfolioPricer.BOOK_CHUNK_SIZE) {
+      final int chunkStart = from;
+      final int chunkEnd = Math.min(book.size(), from + PortfolioPricer.BOOK_CHUNK_SIZE);
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          for(int leg = chunkStart; leg < chunkEnd; leg++) {
+            legs[leg] = compile(book, leg, schedules);
+          }
+          return null;
+        }
+      }));
+    }
+    try {
+      for(int i = 0; i < futures.size(); i++) {
+        futures.get(i).get();
+      }
+    } catch(InterruptedException e) {
+      cancelAll(futures);
+      Thread.currentThread().interrupt();
+      throw new PricerException("Interrupted while compiling trade book", e);
+    } catch(ExecutionException e) {
+      cancelAll(futures);
+      throw new PricerException("Failed to compile trade book", e.getCause());
+    }
+    int[] tradeIndices = new int[book.size()];
+    String[] tradeIds = new String[book.size()];
+    int[] legNumbers = new int[book.size()];
+    String[] currencies = new String[book.size()];
+    for(int leg = 0; leg < book.size(); leg++) {
+      tradeIndices[leg] = book.getTradeIndex(leg);
+      tradeIds[leg] = book.getTradeId(tradeIndices[leg]);
+      legNumbers[leg] = book.getInt(TradeBookColumn.LEG, leg);
+      currencies[leg] = book.getString(TradeBookColumn.CURRENCY, leg);
+    }
+    if(log.isDebugEnabled()) {
+      log.debug("Compiled " + book.size() + " legs in " + (System.nanoTime() - start) / 1000000 + "ms, " + scheduleCache);
+    }
+    return new CompiledBook(book.getTradeCount(), tradeIndices, tradeIds, legNumbers, currencies, legs);
+  }
+
+  /**
+   * @param schedules schedules already generated, indexed by schedule id, to be added to
+   * @return the compiled leg, null if it has neither a fixed rate nor a floating rate index
+   */
+  private CompiledLeg compile(TradeBook book, int leg, AtomicReferenceArray<BookSchedule> schedules) {
+    TradeBook.LegType legType = book.getLegType(leg);
+    if(legType == TradeBook.LegType.OTHER) {
+      return null;
+    }
+    BookSchedule bookSchedule = BookSchedule.get(book, leg, schedules, scheduleCache);
+    StreamSchedule schedule = bookSchedule.schedule;
+    double[] dayCountFractions = swapStreamDateCalculator.getDayCountFractions(schedule.getAdjustedDates(), book.getDayCountFraction(leg), bookSchedule.frequency,
+      book.getInt(TradeBookColumn.FIRST_REGULAR_PERIOD_START_DATE, leg) != TradeBook.NULL_INT, book.getInt(TradeBookColumn.LAST_REGULAR_PERIOD_END_DATE, leg) != TradeBook.NULL_INT);
+    double notional = book.getDouble(TradeBookColumn.NOTIONAL, leg);
+    int currencyId = CurveResolver.getId(book.getString(TradeBookColumn.CURRENCY, leg));
+    if(legType == TradeBook.LegType.FIXED) {
+      return compileFixed(currencyId, notional, book.getDouble(TradeBookColumn.FIXED_RATE, leg), schedule, dayCountFractions);
+    }
+    int tenorMultiplier = book.getInt(TradeBookColumn.INDEX_TENOR_MULTIPLIER, leg);
+    double spread = book.getDouble(TradeBookColumn.SPREAD, leg);
+    double initialRate = book.getDouble(TradeBookColumn.INITIAL_RATE, leg);
+    CompoundingMethodEnum compoundingMethod = book.getCompoundingMethod(leg);
+    return new CompiledLeg(CurveResolver.getId(book.getString(TradeBookColumn.INDEX, leg)), CurveResolver.getTenor(tenorMultiplier == TradeBook.NULL_INT ? null : tenorMultiplier, book.getIndexTenorPeriod(leg)), currencyId,
+      notional, Double.NaN, Double.isNaN(spread) ? 0 : spread, Double.isNaN(initialRate) ? null : initialRate, compoundingMethod,
+      schedule.getAdjustedDates(), schedule.getPaymentDates(), schedule.getFixingDates(), dayCountFractions, null);
+  }
+
+  private CompiledLeg compileFixed(int currencyId, double notional, double fixedRate, StreamSchedule schedule, double[] dayCountFractions) {
+    double[] fixedAmounts = new double[dayCountFractions.length];
+    cashFlowCalculator.calculateFixedFlows(notional, fixedRate, dayCountFractions, 0, fixedAmounts);
+    return new CompiledLeg(CurveResolver.NO_ID, CurveResolver.NO_TENOR, currencyId, notional, fixedRate, 0, null, null,
+      schedule.getAdjustedDates(), schedule.getPaymentDates(), schedule.getFixingDates(), dayCountFractions, fixedAmounts);
+  }
+
+  private static void cancelAll(List<Future<Void>> futures) {
+    for(Future<Void> future : futures) {
+      future.cancel(true);
+    }
+  }
+
+  /**
+   * The schedule of a trade book schedule id, with the calculation period frequency needed for its day count fractions.
+   */
+  private static class BookSchedule {
+    private final StreamSchedule schedule;
+    private final CalculationPeriodFrequency frequency;
+
+    private BookSchedule(StreamSchedule schedule, CalculationPeriodFrequency frequency) {
+      this.schedule = schedule;
+      this.frequency = frequency;
+    }
+
+    /**
+     * @param schedules schedules already generated, indexed by schedule id, to be added to
+     * @return the schedule of the leg, generated through the schedule cache the first time its schedule id is seen
+     */
+    private static BookSchedule get(TradeBook book, int leg, AtomicReferenceArray<BookSchedule> schedules, ScheduleCache scheduleCache) {
+      int scheduleId = book.getSchedule(leg);
+      BookSchedule bookSchedule = schedules.get(scheduleId);
+      if(bookSchedule == null) {
+        // a race only generates the same schedule twice
+        SwapStream stream = book.toSwapStream(leg);
+        bookSchedule = new BookSchedule(scheduleCache.getSchedule(stream), stream.getCalculationPeriodFrequency());
+        schedules.set(scheduleId, bookSchedule);
+      }
+      return bookSchedule;
+    }
+  }
+}
@@ -0,0 +1,284 @@
+package com.twock.swappricer.fpml;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.twock.swappricer.CurveResolver;
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.ResolvedCurves;
+import org.apache.log4j.Logger;
+
+/**
+ * The present value of every leg of a {@link CompiledBook}, with the total of each trade and currency, kept up to date
+ * as curves are refreshed.  Each leg is indexed by the names of the forward and discount curves its index, tenor and
+ * currency are mapped to, so when a curve is reloaded only the legs that depend on it are priced again.  The trade and
+ * currency totals are then summed again from the value of every leg rather than adjusted by the change in those
+ * legs, which is cheap next to pricing and keeps rounding error from building up over a day of updates.
+ * <p/>
+ * The index is built by {@link #revalue()}, which prices every leg and must be called again if the curve mappings or
+ * historic fixings are reloaded, as either can change any leg.  Legs with neither a fixed rate nor a floating rate
+ * index have a present value of NaN, and like any leg valued at NaN or infinity are left out of the totals until they
+ * next value to a finite amount.  Methods are synchronized, so the values read are always those of a complete update.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class LivePortfolio {
+  private static final Logger log = Logger.getLogger(LivePortfolio.class);
+  private static final int[] NO_LEGS = new int[0];
+  private final CompiledBook book;
+  private final SwapPaymentCalculator swapPaymentCalculator;
+  private final ExecutorService executor;
+  private final double[] presentValues;
+  private final double[] tradePresentValues;
+  private final String[] currencies;
+  private final int[] legCurrencies;
+  private final double[] currencyPresentValues;
+  private Map<String, int[]> legsByCurve = new HashMap<String, int[]>();
+
+  /**
+   * Price every leg of the book against the payment calculator's current curves.
+   *
+   * @param book compiled trades to keep valued
+   * @param swapPaymentCalculator calculator whose curves are reloaded
+   * @param executor executor to price legs on, not shut down by this class
+   */
+  public LivePortfolio(CompiledBook book, SwapPaymentCalculator swapPaymentCalculator, ExecutorService executor) {
+    this.book = book;
+    this.swapPaymentCalculator = swapPaymentCalculator;
+    this.executor = executor;
+    this.presentValues = new double[book.size()];
+    this.tradePresentValues = new double[book.getTradeCount()];
+    this.legCurrencies = new int[book.size()];
+    List<String> currencyList = new ArrayList<String>();
+    for(int leg = 0; leg < book.size(); leg++) {
+      int currency = currencyList.indexOf(book.getCurrency(leg));
+      if(currency < 0) {
+        currency = currencyList.size();
+        currencyList.add(book.getCurrency(leg));
+      }
+      legCurrencies[leg] = currency;
+    }
+    this.currencies = currencyList.toArray(new String[currencyList.size()]);
+    this.currencyPresentValues = new double[currencies.length];
+    revalue();
+  }
+
+  /**
+   * Price every leg again, rebuilding the index of which legs depend on which curves, and the totals.
+   */
+  public synchronized void revalue() {
+    long start = System.nanoTime();
+    CurveResolver curveResolver = swapPaymentCalculator.getCurveResolver();
+    Map<String, List<Integer>> dependents = new HashMap<String, List<Integer>>();
+    int[] legs = new int[book.size()];
+    int count = 0;
+    for(int leg = 0; leg < book.size(); leg++) {
+      CompiledLeg compiledLeg = book.getLeg(leg);
+      if(compiledLeg == null) {
+        continue;
+      }
+      legs[count++] = leg;
+      ResolvedCurves curves = curveResolver.resolve(compiledLeg.getIndexId(), compiledLeg.getTenor(), compiledLeg.getCurrencyId());
+      String forwardCurveName = curves.getForwardCurveName();
+      addDependent(dependents, curves.getDiscountCurveName(), leg);
+      if(!compiledLeg.isFixed() && forwardCurveName != null && !forwardCurveName.equals(curves.getDiscountCurveName())) {
+        addDependent(dependents, forwardCurveName, leg);
+      }
+    }
+    Map<String, int[]> index = new HashMap<String, int[]>();
+    for(Map.Entry<String, List<Integer>> entry : dependents.entrySet()) {
+      List<Integer> dependentLegs = entry.getValue();
+      int[] legArray = new int[dependentLegs.size()];
+      for(int i = 0; i < legArray.length; i++) {
+        legArray[i] = dependentLegs.get(i);
+      }
+      index.put(entry.getKey(), legArray);
+    }
+    double[] values = price(curveResolver, legs, count);
+    Arrays.fill(presentValues, Double.NaN);
+    for(int i = 0; i < count; i++) {
+      presentValues[legs[i]] = values[i];
+    }
+    sumTotals();
+    legsByCurve = index;
+    if(log.isInfoEnabled()) {
+      log.info("Revalued " + count + " legs in " + (System.nanoTime() - start) / 1000000 + "ms, " + legsByCurve.size() + " curves used");
+    }
+  }
+
+  private static void addDependent(Map<String, List<Integer>> dependents, String curveName, int leg) {
+    if(curveName == null) {
+      return; // reported when the leg is valued
+    }
+    List<Integer> legs = dependents.get(curveName);
+    if(legs == null) {
+      legs = new ArrayList<Integer>();
+      dependents.put(curveName, legs);
+    }
+    legs.add(leg);
+  }
+
+  /**
+   * Price again only the legs that depend on the given curves, once they have been reloaded into the payment
+   * calculator's curve container, then sum the trade and currency totals again.
+   *
+   * @param curveNames names of the curves that have changed
+   * @return the number of legs priced
+   */
+  public synchronized int curvesUpdated(Collection<String> curveNames) {
+    long start = System.nanoTime();
+    boolean[] affected = new boolean[book.size()];
+    int[] legs = new int[book.size()];
+    int count = 0;
+    for(String curveName : curveNames) {
+      int[] dependents = legsByCurve.get(curveName);
+      for(int leg : dependents == null ? NO_LEGS : dependents) {
+        if(!affected[leg]) {
+          affected[leg] = true;
+          legs[count++] = leg;
+        }
+      }
+    }
+    Arrays.sort(legs, 0, count);
+    double[] values = price(swapPaymentCalculator.getCurveResolver(), legs, count);
+    for(int i = 0; i < count; i++) {
+      presentValues[legs[i]] = values[i];
+    }
+    sumTotals();
+    if(log.isDebugEnabled()) {
+      log.debug("Revalued " + count + " legs affected by " + curveNames + " in " + (System.nanoTime() - start) / 1000000 + "ms");
+    }
+    return count;
+  }
+
+  /**
+   * Sum the trade and currency totals from the value of every leg, leaving out any leg valued at NaN or infinity.
+   */
+  private void sumTotals() {
+    Arrays.fill(tradePresentValues, 0);
+    Arrays.fill(currencyPresentValues, 0);
+    for(int leg = 0; leg < presentValues.length; leg++) {
+      double value = presentValues[leg];
+      if(!Double.isNaN(value) && !Double.isInfinite(value)) {
+        tradePresentValues[book.getTradeIndex(leg)] += value;
+        currencyPresentValues[legCurrencies[leg]] += value;
+      }
+    }
+  }
+
+  /**
+   * @see #curvesUpdated(Collection)
+   */
+  public int curvesUpdated(String... curveNames) {
+    return curvesUpdated(Arrays.asList(curveNames));
+  }
+
+  /**
+   * @return the value of the first count legs given, in runs of {@link PortfolioPricer#BOOK_CHUNK_SIZE} priced on
+   *         the executor
+   */
+  private double[] price(final CurveResolver curveResolver, final int[] legs, int count) {
+    final double[] result = new double[count];
+    List<Future<Void>> futures = new ArrayList<Future<Void>>();
+    for(int from = 0; from < count; from += PortfolioPricer.BOOK_CHUNK_SIZE) {
+      final int chunkStart = from;
+      final int chunkEnd = Math.min(count, from + PortfolioPricer.BOOK_CHUNK_SIZE);
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          for(int i = chunkStart; i < chunkEnd; i++) {
+            CompiledLeg leg = book.getLeg(legs[i]);
+            result[i] = swapPaymentCalculator.value(leg, curveResolver.resolve(leg.getIndexId(), leg.getTenor(), leg.getCurrencyId()));
+          }
+          return null;
+        }
+      }));
+    }
+    try {
+      for(Future<Void> future : futures) {
+        future.get();
+      }
+    } catch(InterruptedException e) {
+      cancelAll(futures);
+      Thread.currentThread().interrupt();
+      throw new PricerException("Interrupted while revaluing portfolio", e);
+    } catch(ExecutionException e) {
+      cancelAll(futures);
+      throw new PricerException("Failed to revalue portfolio", e.getCause());
+    }
+    return result;
+  }
+
+  private static void cancelAll(List<Future<Void>> futures) {
+    for(Future<Void> future : futures) {
+      future.cancel(true);
+    }
+  }
+
+  /**
+   * @return the names of the curves some leg depends on
+   */
+  public synchronized Collection<String> getCurveNames() {
+    return new ArrayList<String>(legsByCurve.keySet());
+  }
+
+  /**
+   * @param curveName name of a curve
+   * @return the number of legs that depend on the curve
+   */
+  public synchronized int getDependentLegCount(String curveName) {
+    int[] legs = legsByCurve.get(curveName);
+    return legs == null ? 0 : legs.length;
+  }
+
+  public synchronized double getPresentValue(int leg) {
+    return presentValues[leg];
+  }
+
+  /**
+   * @param trade trade index, see {@link CompiledBook#getTradeIndex}
+   * @return the total value of the trade's legs
+   */
+  public synchronized double getTradePresentValue(int trade) {
+    return tradePresentValues[trade];
+  }
+
+  /**
+   * @param currency notional currency, not null
+   * @return the total value of the legs in the currency, 0 if there are none
+   */
+  public synchronized double getCurrencyPresentValue(String currency) {
+    if(currency == null) {
+      throw new PricerException("Currency must be given");
+    }
+    for(int i = 0; i < currencies.length; i++) {
+      if(currency.equals(currencies[i])) {
+        return currencyPresentValues[i];
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * @return a copy of the current value of every leg, one row per leg in book order
+   */
+  public synchronized PortfolioResults toResults() {
+    return book.toResults(presentValues.clone(), 0);
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "LivePortfolio{" +
+      "legs=" + book.size() +
+      ", curves=" + legsByCurve.size() +
+      '}';
+  }
+}
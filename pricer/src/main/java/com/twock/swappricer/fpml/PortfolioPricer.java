@@ -0,0 +1,458 @@
+package com.twock.swappricer.fpml;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.twock.swappricer.CurveResolver;
+import com.twock.swappricer.CurveSensitivities;
+import com.twock.swappricer.HolidayCalendarContainer;
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.ResolvedCurves;
+import com.twock.swappricer.fpml.book.TradeBook;
+import com.twock.swappricer.fpml.model.SwapStream;
+import com.twock.swappricer.fpml.model.Trade;
+import com.twock.swappricer.fpml.store.TradeStore;
+import org.apache.log4j.Logger;
+
+/**
+ * Parses and values a portfolio of FpML trades, either one trade per file, many trades in a single document, trades
+ * previously saved to a {@link TradeStore} or the legs of a {@link TradeBook}, spreading the trades over the given
+ * executor.  The parser, calculators, curves and holiday calendars are read only once loaded, so they are shared
+ * between all workers, as is a cache of schedules so trades with the same dates and conventions only generate them
+ * once.  Each leg's curves are resolved once, as its trade is loaded, through the {@link CurveResolver} of the
+ * payment calculator, taken once per pricing run so the whole run values against a single market data snapshot.
+ * <p/>
+ * Each leg is first compiled by a {@link LegCompiler}, working out everything that does not depend on the curves, then
+ * valued using {@link SwapPaymentCalculator#value(CompiledLeg, ResolvedCurves)}.  A {@link CompiledBook} can be kept
+ * and priced again whenever the curves change.  Streams with neither a fixed rate nor a floating rate index are
+ * reported with a present value of NaN.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class PortfolioPricer {
+  private static final Logger log = Logger.getLogger(PortfolioPricer.class);
+  public static final int DEFAULT_SCHEDULE_CACHE_SIZE = 10000;
+  public static final int MAX_TRADES_IN_FLIGHT = 1000;
+  public static final int BOOK_CHUNK_SIZE = 1024;
+  private final FpmlParser fpmlParser;
+  private final SwapPaymentCalculator swapPaymentCalculator;
+  private final ScheduleCache scheduleCache;
+  private final LegCompiler legCompiler;
+  private final ExecutorService executor;
+
+  /**
+   * @param fpmlParser parser used to read each trade
+   * @param swapStreamDateCalculator calculator used for schedules and day count fractions
+   * @param swapPaymentCalculator calculator used to value each leg
+   * @param allCalendars all holiday calendars, relevant ones will be extracted for each stream
+   * @param executor executor to run trades on, not shut down by this class
+   */
+  public PortfolioPricer(FpmlParser fpmlParser, SwapStreamDateCalculator swapStreamDateCalculator, SwapPaymentCalculator swapPaymentCalculator, HolidayCalendarContainer allCalendars, ExecutorService executor) {
+    this.fpmlParser = fpmlParser;
+    this.swapPaymentCalculator = swapPaymentCalculator;
+    this.scheduleCache = new ScheduleCache(swapStreamDateCalculator, allCalendars, DEFAULT_SCHEDULE_CACHE_SIZE);
+    this.legCompiler = new LegCompiler(swapStreamDateCalculator, scheduleCache);
+    this.executor = executor;
+  }
+
+  public ScheduleCache getScheduleCache() {
+    return scheduleCache;
+  }
+
+  public LegCompiler getLegCompiler() {
+    return legCompiler;
+  }
+
+  /**
+   * Price every <code>.xml</code> file in the given directory, using the file name without extension as the trade id.
+   *
+   * @param directory directory containing one FpML trade per file
+   * @return the results, ordered by file name
+   */
+  public PortfolioResults priceDirectory(File directory) {
+    File[] files = directory.listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+        return name.toLowerCase().endsWith(".xml");
+      }
+    });
+    if(files == null) {
+      throw new PricerException("Unable to list FpML files in " + directory);
+    }
+    Arrays.sort(files);
+    return priceFiles(Arrays.asList(files));
+  }
+
+  /**
+   * Price each of the given files, using the file name without extension as the trade id.
+   *
+   * @param files files containing one FpML trade each
+   * @return the results, in the same order as the files
+   */
+  public PortfolioResults priceFiles(List<File> files) {
+    long start = System.nanoTime();
+    final CurveResolver curveResolver = swapPaymentCalculator.getCurveResolver();
+    List<Future<TradeResult>> futures = new ArrayList<Future<TradeResult>>(files.size());
+    for(final File file : files) {
+      futures.add(executor.submit(new Callable<TradeResult>() {
+        @Override
+        public TradeResult call() throws Exception {
+          String name = file.getName();
+          int dot = name.lastIndexOf('.');
+          List<SwapStream> streams = fpmlParser.parse(new BufferedInputStream(new FileInputStream(file)));
+          return priceTrade(dot < 0 ? name : name.substring(0, dot), streams, resolveCurves(streams, curveResolver));
+        }
+      }));
+    }
+    List<TradeResult> tradeResults = new ArrayList<TradeResult>(futures.size());
+    try {
+      for(int i = 0; i < futures.size(); i++) {
+        tradeResults.add(getResult(futures, i, "trade from " + files.get(i)));
+      }
+    } catch(RuntimeException e) {
+      cancelAll(futures);
+      throw e;
+    }
+    return collect(tradeResults, System.nanoTime() - start);
+  }
+
+  private static <T> T getResult(List<Future<T>> futures, int index, String description) {
+    try {
+      return futures.get(index).get();
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new PricerException("Interrupted while pricing portfolio", e);
+    } catch(ExecutionException e) {
+      throw new PricerException("Failed to price " + description, e.getCause());
+    }
+  }
+
+  /**
+   * Price a single trade from the given stream on the calling thread.
+   *
+   * @param tradeId id to report the trade under
+   * @param inputStream stream from which to read the FpML, will be closed on return/exception
+   * @return the results for the trade's legs
+   */
+  public PortfolioResults price(String tradeId, InputStream inputStream) {
+    long start = System.nanoTime();
+    List<SwapStream> streams = fpmlParser.parse(inputStream);
+    TradeResult tradeResult = priceTrade(tradeId, streams, resolveCurves(streams, swapPaymentCalculator.getCurveResolver()));
+    return collect(Arrays.asList(tradeResult), System.nanoTime() - start);
+  }
+
+  /**
+   * Price every trade in a single FpML document, reporting each under the trade id from its trade header.  Trades are
+   * handed to the executor as they are read so pricing overlaps parsing, with at most
+   * {@link #MAX_TRADES_IN_FLIGHT} trades read but not yet priced, so memory use does not grow with the document.
+   *
+   * @param inputStream stream from which to read the FpML, will be closed on return/exception
+   * @return the results, in document order
+   */
+  public PortfolioResults priceTrades(InputStream inputStream) {
+    long start = System.nanoTime();
+    PricingStage pricingStage = new PricingStage();
+    try {
+      fpmlParser.parseTrades(inputStream, pricingStage);
+      return collect(pricingStage.finish(), System.nanoTime() - start);
+    } catch(RuntimeException e) {
+      pricingStage.cancel();
+      throw e;
+    }
+  }
+
+  /**
+   * Price every trade in a directory of FpML files, parsing the files on the pipeline's parser threads and pricing
+   * the trades on this pricer's executor as they arrive.
+   *
+   * @param directory directory containing FpML files, each holding one or more trades
+   * @param pipeline pipeline to parse the files with
+   * @return the results, in the order the trades were parsed
+   */
+  public PortfolioResults priceDirectory(File directory, FpmlIngestPipeline pipeline) {
+    long start = System.nanoTime();
+    PricingStage pricingStage = new PricingStage();
+    try {
+      pipeline.run(directory, pricingStage);
+      return collect(pricingStage.finish(), System.nanoTime() - start);
+    } catch(RuntimeException e) {
+      pricingStage.cancel();
+      throw e;
+    }
+  }
+
+  /**
+   * Price every trade in a trade store, decoding the trades on the calling thread and pricing them on this pricer's
+   * executor, in the same way as {@link #priceTrades(InputStream)}.
+   *
+   * @param tradeStore trades to price
+   * @return the results, in the order the trades were stored
+   */
+  public PortfolioResults priceTrades(TradeStore tradeStore) {
+    long start = System.nanoTime();
+    PricingStage pricingStage = new PricingStage();
+    try {
+      tradeStore.readTrades(pricingStage);
+      return collect(pricingStage.finish(), System.nanoTime() - start);
+    } catch(RuntimeException e) {
+      pricingStage.cancel();
+      throw e;
+    }
+  }
+
+  /**
+   * Compile every leg of a trade book, see {@link LegCompiler#compile(TradeBook, ExecutorService)}, so it can be
+   * priced repeatedly against fresh curves without regenerating its schedules, day count fractions or fixed amounts.
+   *
+   * @param book trades to compile
+   * @return the compiled legs in book order
+   */
+  public CompiledBook compile(TradeBook book) {
+    return legCompiler.compile(book, executor);
+  }
+
+  /**
+   * @param book compiled trades to keep valued
+   * @return the book priced against the current curves, to be revalued incrementally as curves are refreshed
+   */
+  public LivePortfolio createLivePortfolio(CompiledBook book) {
+    return new LivePortfolio(book, swapPaymentCalculator, executor);
+  }
+
+  /**
+   * Price every leg of a trade book, compiling it and then pricing it as {@link #priceBook(CompiledBook)}.
+   * Schedules are generated once per schedule id in the book, through this pricer's schedule cache.
+   *
+   * @param book trades to price
+   * @return the results, one row per leg in book order
+   */
+  public PortfolioResults priceBook(TradeBook book) {
+    long start = System.nanoTime();
+    return priceBook(compile(book), start);
+  }
+
+  /**
+   * Price every leg of a compiled book against the payment calculator's current curves, splitting the legs into runs
+   * of {@link #BOOK_CHUNK_SIZE} priced on the executor.  Each leg's curves are resolved by id and only the
+   * discounting and projection are calculated.
+   *
+   * @param book compiled trades to price
+   * @return the results, one row per leg in book order
+   */
+  public PortfolioResults priceBook(CompiledBook book) {
+    return priceBook(book, System.nanoTime());
+  }
+
+  private PortfolioResults priceBook(final CompiledBook book, long start) {
+    final double[] presentValues = new double[book.size()];
+    final CurveResolver curveResolver = swapPaymentCalculator.getCurveResolver();
+    List<Future<Void>> futures = new ArrayList<Future<Void>>();
+    for(int from = 0; from < book.size(); from += BOOK_CHUNK_SIZE) {
+      final int chunkStart = from;
+      final int chunkEnd = Math.min(book.size(), from + BOOK_CHUNK_SIZE);
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          for(int leg = chunkStart; leg < chunkEnd; leg++) {
+            presentValues[leg] = valueLeg(book.getLeg(leg), curveResolver, null);
+          }
+          return null;
+        }
+      }));
+    }
+    try {
+      for(int i = 0; i < futures.size(); i++) {
+        getResult(futures, i, "legs from " + i * BOOK_CHUNK_SIZE);
+      }
+    } catch(RuntimeException e) {
+      cancelAll(futures);
+      throw e;
+    }
+    return logged(book.toResults(presentValues, System.nanoTime() - start));
+  }
+
+  /**
+   * Find the sensitivity of the total value of every leg of a trade book to each zero rate pillar of the curves they
+   * are valued against, compiling the book and then as {@link #priceBookSensitivities(CompiledBook)}.
+   *
+   * @param book trades to find the sensitivities of
+   * @return the total sensitivities of the book
+   */
+  public CurveSensitivities priceBookSensitivities(TradeBook book) {
+    return priceBookSensitivities(compile(book));
+  }
+
+  /**
+   * Find the sensitivity of the total value of every leg of a compiled book to each zero rate pillar of the curves
+   * they are valued against, by reverse mode differentiation of each leg's valuation.  The legs are split into runs of
+   * {@link #BOOK_CHUNK_SIZE} as for {@link #priceBook}, each run adding to its own sensitivities which are totalled
+   * once all have finished.  Legs with neither a fixed rate nor a floating rate index have no sensitivities.
+   *
+   * @param book compiled trades to find the sensitivities of
+   * @return the total sensitivities of the book
+   */
+  public CurveSensitivities priceBookSensitivities(final CompiledBook book) {
+    long start = System.nanoTime();
+    final CurveResolver curveResolver = swapPaymentCalculator.getCurveResolver();
+    List<Future<CurveSensitivities>> futures = new ArrayList<Future<CurveSensitivities>>();
+    for(int from = 0; from < book.size(); from += BOOK_CHUNK_SIZE) {
+      final int chunkStart = from;
+      final int chunkEnd = Math.min(book.size(), from + BOOK_CHUNK_SIZE);
+      futures.add(executor.submit(new Callable<CurveSensitivities>() {
+        @Override
+        public CurveSensitivities call() throws Exception {
+          CurveSensitivities sensitivities = new CurveSensitivities();
+          for(int leg = chunkStart; leg < chunkEnd; leg++) {
+            valueLeg(book.getLeg(leg), curveResolver, sensitivities);
+          }
+          return sensitivities;
+        }
+      }));
+    }
+    CurveSensitivities result = new CurveSensitivities();
+    try {
+      for(int i = 0; i < futures.size(); i++) {
+        result.add(getResult(futures, i, "sensitivities of legs from " + i * BOOK_CHUNK_SIZE));
+      }
+    } catch(RuntimeException e) {
+      cancelAll(futures);
+      throw e;
+    }
+    if(log.isInfoEnabled()) {
+      log.info("Found sensitivities of " + book.size() + " legs in " + (System.nanoTime() - start) / 1000000 + "ms, " + result);
+    }
+    return result;
+  }
+
+  /**
+   * @param leg compiled leg, null if it has neither a fixed rate nor a floating rate index
+   * @param sensitivities if not null, the leg's sensitivity to each curve pillar is added to these
+   */
+  private double valueLeg(CompiledLeg leg, CurveResolver curveResolver, CurveSensitivities sensitivities) {
+    if(leg == null) {
+      return Double.NaN;
+    }
+    ResolvedCurves curves = curveResolver.resolve(leg.getIndexId(), leg.getTenor(), leg.getCurrencyId());
+    return sensitivities == null ? swapPaymentCalculator.value(leg, curves) : swapPaymentCalculator.value(leg, curves, sensitivities);
+  }
+
+  private static ResolvedCurves[] resolveCurves(List<SwapStream> streams, CurveResolver curveResolver) {
+    ResolvedCurves[] result = new ResolvedCurves[streams.size()];
+    for(int i = 0; i < result.length; i++) {
+      result[i] = curveResolver.resolve(streams.get(i));
+    }
+    return result;
+  }
+
+  private TradeResult priceTrade(String tradeId, List<SwapStream> streams, ResolvedCurves[] curves) {
+    double[] presentValues = new double[streams.size()];
+    String[] currencies = new String[streams.size()];
+    for(int i = 0; i < presentValues.length; i++) {
+      SwapStream stream = streams.get(i);
+      presentValues[i] = valueStream(stream, curves[i]);
+      currencies[i] = stream.getNotionalCurrency();
+    }
+    return new TradeResult(tradeId, presentValues, currencies);
+  }
+
+  private double valueStream(SwapStream stream, ResolvedCurves curves) {
+    CompiledLeg leg = legCompiler.compile(stream);
+    return leg == null ? Double.NaN : swapPaymentCalculator.value(leg, curves);
+  }
+
+  private PortfolioResults collect(List<TradeResult> tradeResults, long elapsedNanos) {
+    int rows = 0;
+    for(TradeResult tradeResult : tradeResults) {
+      rows += tradeResult.presentValues.length;
+    }
+    String[] tradeIds = new String[rows];
+    int[] legs = new int[rows];
+    double[] presentValues = new double[rows];
+    String[] currencies = new String[rows];
+    int row = 0;
+    for(TradeResult tradeResult : tradeResults) {
+      for(int leg = 0; leg < tradeResult.presentValues.length; leg++, row++) {
+        tradeIds[row] = tradeResult.tradeId;
+        legs[row] = leg;
+        presentValues[row] = tradeResult.presentValues[leg];
+        currencies[row] = tradeResult.currencies[leg];
+      }
+    }
+    return logged(new PortfolioResults(tradeResults.size(), tradeIds, legs, presentValues, currencies, elapsedNanos));
+  }
+
+  private PortfolioResults logged(PortfolioResults result) {
+    if(log.isInfoEnabled()) {
+      log.info("Priced " + result.getTradeCount() + " trades in " + result.getElapsedNanos() / 1000000 + "ms (" + Math.round(result.getTradesPerSecond()) + " trades/s), " + scheduleCache);
+    }
+    return result;
+  }
+
+  private static void cancelAll(List<? extends Future<?>> futures) {
+    for(Future<?> future : futures) {
+      if(future != null) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Submits trades to the executor as they are handed over, waiting for the oldest to be priced whenever more than
+   * MAX_TRADES_IN_FLIGHT are outstanding.  Every trade is resolved against the curves current when the stage was
+   * created, so a reload part way through does not mix two sets of market data.
+   */
+  private class PricingStage implements TradeHandler {
+    private final CurveResolver curveResolver = swapPaymentCalculator.getCurveResolver();
+    private final List<Future<TradeResult>> futures = new ArrayList<Future<TradeResult>>();
+    private final List<TradeResult> tradeResults = new ArrayList<TradeResult>();
+
+    @Override
+    public void handle(final Trade trade) {
+      final ResolvedCurves[] curves = resolveCurves(trade.getSwapStreams(), curveResolver);
+      futures.add(executor.submit(new Callable<TradeResult>() {
+        @Override
+        public TradeResult call() throws Exception {
+          return priceTrade(trade.getTradeId(), trade.getSwapStreams(), curves);
+        }
+      }));
+      if(futures.size() - tradeResults.size() > MAX_TRADES_IN_FLIGHT) {
+        collectNext();
+      }
+    }
+
+    private void collectNext() {
+      int index = tradeResults.size();
+      tradeResults.add(getResult(futures, index, "trade " + index));
+      futures.set(index, null); // result now held in tradeResults
+    }
+
+    public List<TradeResult> finish() {
+      while(tradeResults.size() < futures.size()) {
+        collectNext();
+      }
+      return tradeResults;
+    }
+
+    public void cancel() {
+      cancelAll(futures);
+    }
+  }
+
+  private static class TradeResult {
+    private final String tradeId;
+    private final double[] presentValues;
+    private final String[] currencies;
+
+    private TradeResult(String tradeId, double[] presentValues, String[] currencies) {
+      this.tradeId = tradeId;
+      this.presentValues = presentValues;
+      this.currencies = currencies;
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package com.twock.swappricer.fpml;
+
+import java.util.Arrays;
+
+/**
+ * Results of pricing a portfolio, held column by column with one row per valued leg.  Rows for the same trade are
+ * adjacent and in the order the legs appear in the FpML.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class PortfolioResults {
+  private final int tradeCount;
+  private final String[] tradeIds;
+  private final int[] legs;
+  private final double[] presentValues;
+  private final String[] currencies;
+  private final long elapsedNanos;
+
+  public PortfolioResults(int tradeCount, String[] tradeIds, int[] legs, double[] presentValues, String[] currencies, long elapsedNanos) {
+    this.tradeCount = tradeCount;
+    this.tradeIds = tradeIds;
+    this.legs = legs;
+    this.presentValues = presentValues;
+    this.currencies = currencies;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * @return number of rows, i.e. legs valued
+   */
+  public int size() {
+    return tradeIds.length;
+  }
+
+  public String getTradeId(int row) {
+    return tradeIds[row];
+  }
+
+  /**
+   * @param row row index
+   * @return index of the leg within its trade, starting at 0
+   */
+  public int getLeg(int row) {
+    return legs[row];
+  }
+
+  public double getPresentValue(int row) {
+    return presentValues[row];
+  }
+
+  public String getCurrency(int row) {
+    return currencies[row];
+  }
+
+  public int getTradeCount() {
+    return tradeCount;
+  }
+
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  public double getTradesPerSecond() {
+    return elapsedNanos == 0 ? 0 : tradeCount * 1e9 / elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "PortfolioResults{" +
+      "tradeCount=" + tradeCount +
+      ", rows=" + size() +
+      ", elapsedNanos=" + elapsedNanos +
+      ", tradesPerSecond=" + getTradesPerSecond() +
+      ", tradeIds=" + (tradeIds.length > 10 ? Arrays.asList(tradeIds).subList(0, 10) + "..." : Arrays.asList(tradeIds)) +
+      '}';
+  }
+}
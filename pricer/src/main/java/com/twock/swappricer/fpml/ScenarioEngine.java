@@ -0,0 +1,359 @@
+package com.twock.swappricer.fpml;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.twock.swappricer.CurveResolver;
+import com.twock.swappricer.CurveScenarios;
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.ResolvedCurves;
+import com.twock.swappricer.ValuationCurve;
+import com.twock.swappricer.fpml.book.TradeBook;
+import com.twock.swappricer.fpml.model.enumeration.CompoundingMethodEnum;
+import org.apache.log4j.Logger;
+
+/**
+ * Revalues every trade of a {@link TradeBook} under each of a set of {@link CurveScenarios}, giving the profit and
+ * loss vector of each trade, e.g. for historical value at risk.
+ * <p/>
+ * Each leg is compiled by a {@link LegCompiler}, and everything else about it that does not depend on the scenario is
+ * worked out once: its historic fixings, and for each date it is discounted or projected to, the base discount factor
+ * and where the date falls between the curve pillars.  As the zero rate is interpolated linearly, a shifted curve's
+ * discount factor is then the base discount factor times <code>exp(-interpolated shift * years)</code>, so no curve
+ * is built and no search is made per scenario.
+ * <p/>
+ * The legs are split into blocks of whole trades, each valued on the executor, and each block is worked through a
+ * block of scenarios at a time so that the shifts of those scenarios stay in cache while every leg of the block is
+ * valued against them.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class ScenarioEngine {
+  private static final Logger log = Logger.getLogger(ScenarioEngine.class);
+  /**
+   * Legs per task, extended to the end of the last trade so each trade is valued by a single task.
+   */
+  public static final int LEG_BLOCK_SIZE = 64;
+  /**
+   * Scenarios each block of legs is valued against before moving on to the next.
+   */
+  public static final int SCENARIO_BLOCK_SIZE = 256;
+  private final SwapPaymentCalculator swapPaymentCalculator;
+  private final LegCompiler legCompiler;
+  private final ExecutorService executor;
+  private final CashFlowCalculator cashFlowCalculator = new CashFlowCalculator();
+
+  /**
+   * @param swapStreamDateCalculator calculator used for day count fractions
+   * @param swapPaymentCalculator calculator whose curves are the base of every scenario
+   * @param scheduleCache cache to generate schedules through, e.g. {@link PortfolioPricer#getScheduleCache()}
+   * @param executor executor to run blocks of trades on, not shut down by this class
+   */
+  public ScenarioEngine(SwapStreamDateCalculator swapStreamDateCalculator, SwapPaymentCalculator swapPaymentCalculator, ScheduleCache scheduleCache, ExecutorService executor) {
+    this.swapPaymentCalculator = swapPaymentCalculator;
+    this.legCompiler = new LegCompiler(swapStreamDateCalculator, scheduleCache);
+    this.executor = executor;
+  }
+
+  /**
+   * Value every trade of the book under the base curves and each scenario.  Legs with neither a fixed rate nor a
+   * floating rate index are taken to have no value.
+   *
+   * @param book trades to revalue
+   * @param scenarios shifts to apply to the base curves
+   * @return the base value and profit and loss in each scenario of each trade
+   */
+  public ScenarioResults run(TradeBook book, CurveScenarios scenarios) {
+    long start = System.nanoTime();
+    return run(legCompiler.compile(book, executor), scenarios, start);
+  }
+
+  /**
+   * Value every leg of a compiled book under the base curves and each scenario, as {@link #run(TradeBook, CurveScenarios)}.
+   *
+   * @param book compiled trades to revalue
+   * @param scenarios shifts to apply to the base curves
+   * @return the base value and profit and loss in each scenario of each trade
+   */
+  public ScenarioResults run(CompiledBook book, CurveScenarios scenarios) {
+    return run(book, scenarios, System.nanoTime());
+  }
+
+  private ScenarioResults run(final CompiledBook book, CurveScenarios scenarios, long start) {
+    final int scenarioCount = scenarios.getScenarioCount();
+    if((long)book.getTradeCount() * scenarioCount > Integer.MAX_VALUE) {
+      throw new PricerException("Too many results for " + book.getTradeCount() + " trades in " + scenarioCount + " scenarios");
+    }
+    // give each curve used a slot holding its shifts, null if it is not shifted
+    CurveResolver curveResolver = swapPaymentCalculator.getCurveResolver();
+    final ResolvedCurves[] curves = new ResolvedCurves[book.size()];
+    Map<ValuationCurve, Integer> slots = new IdentityHashMap<ValuationCurve, Integer>();
+    List<double[]> slotShifts = new ArrayList<double[]>();
+    final int[] discountSlots = new int[book.size()];
+    final int[] forwardSlots = new int[book.size()];
+    for(int leg = 0; leg < book.size(); leg++) {
+      CompiledLeg compiledLeg = book.getLeg(leg);
+      if(compiledLeg == null) {
+        discountSlots[leg] = forwardSlots[leg] = -1;
+        continue;
+      }
+      curves[leg] = curveResolver.resolve(compiledLeg.getIndexId(), compiledLeg.getTenor(), compiledLeg.getCurrencyId());
+      discountSlots[leg] = slot(curves[leg].getDiscountCurve(), scenarios, slots, slotShifts);
+      forwardSlots[leg] = compiledLeg.isFixed() ? -1 : slot(curves[leg].getForwardCurve(), scenarios, slots, slotShifts);
+    }
+    final double[][] shifts = slotShifts.toArray(new double[slotShifts.size()][]);
+
+    final double[] basePresentValues = new double[book.getTradeCount()];
+    final double[] profitAndLoss = new double[book.getTradeCount() * scenarioCount];
+    List<Future<Void>> futures = new ArrayList<Future<Void>>();
+    int from = 0;
+    while(from < book.size()) {
+      int to = Math.min(book.size(), from + LEG_BLOCK_SIZE);
+      while(to < book.size() && book.getTradeIndex(to) == book.getTradeIndex(to - 1)) {
+        to++;
+      }
+      final int blockStart = from;
+      final int blockEnd = to;
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          ScenarioLeg[] legs = new ScenarioLeg[blockEnd - blockStart];
+          int maxPeriods = 0;
+          for(int leg = blockStart; leg < blockEnd; leg++) {
+            if(discountSlots[leg] >= 0) {
+              ScenarioLeg scenarioLeg = compile(book.getLeg(leg), book.getTradeIndex(leg), curves[leg], discountSlots[leg], forwardSlots[leg]);
+              legs[leg - blockStart] = scenarioLeg;
+              maxPeriods = Math.max(maxPeriods, scenarioLeg.dayCountFractions.length);
+            }
+          }
+          valueBlock(legs, shifts, scenarioCount, new double[maxPeriods], new double[maxPeriods], basePresentValues, profitAndLoss);
+          return null;
+        }
+      }));
+      from = to;
+    }
+    try {
+      for(Future<Void> future : futures) {
+        future.get();
+      }
+    } catch(InterruptedException e) {
+      cancelAll(futures);
+      Thread.currentThread().interrupt();
+      throw new PricerException("Interrupted while running scenarios", e);
+    } catch(ExecutionException e) {
+      cancelAll(futures);
+      throw new PricerException("Failed to run scenarios", e.getCause());
+    }
+    String[] tradeIds = new String[book.getTradeCount()];
+    for(int leg = 0; leg < book.size(); leg++) {
+      tradeIds[book.getTradeIndex(leg)] = book.getTradeId(leg);
+    }
+    ScenarioResults results = new ScenarioResults(tradeIds, scenarioCount, basePresentValues, profitAndLoss, System.nanoTime() - start);
+    if(log.isInfoEnabled()) {
+      log.info("Revalued " + book.getTradeCount() + " trades under " + scenarioCount + " scenarios in " + results.getElapsedNanos() / 1000000 + "ms (" + Math.round(results.getValuationsPerSecond()) + " valuations/s)");
+    }
+    return results;
+  }
+
+  private static int slot(ValuationCurve curve, CurveScenarios scenarios, Map<ValuationCurve, Integer> slots, List<double[]> slotShifts) {
+    Integer slot = slots.get(curve);
+    if(slot == null) {
+      slot = slotShifts.size();
+      slotShifts.add(scenarios.getShifts(curve));
+      slots.put(curve, slot);
+    }
+    return slot;
+  }
+
+  private static void cancelAll(List<Future<Void>> futures) {
+    for(Future<Void> future : futures) {
+      future.cancel(true);
+    }
+  }
+
+  /**
+   * Work out everything about a compiled leg that does not depend on the scenario.
+   */
+  private ScenarioLeg compile(CompiledLeg compiledLeg, int trade, ResolvedCurves curves, int discountSlot, int forwardSlot) {
+    double[] dayCountFractions = compiledLeg.getDayCountFractions();
+    int[] paymentDates = compiledLeg.getPaymentDates();
+    ValuationCurve discountCurve = curves.getDiscountCurve();
+    int from = SwapPaymentCalculator.firstPaymentOnCurve(paymentDates, discountCurve);
+    int periods = dayCountFractions.length;
+    ScenarioLeg result = new ScenarioLeg(trade, from, dayCountFractions, paymentDates, discountSlot, discountCurve.getZeroRates().length, forwardSlot);
+    for(int i = from; i < periods; i++) {
+      result.discount.set(i, discountCurve, paymentDates[i], false);
+    }
+    if(forwardSlot < 0) {
+      result.fixedAmounts = compiledLeg.getFixedAmounts();
+    } else {
+      ValuationCurve forwardCurve = curves.getForwardCurve();
+      Double initialRate = compiledLeg.getInitialRate();
+      int[] adjustedDates = compiledLeg.getAdjustedDates();
+      int[] fixingDates = compiledLeg.getFixingDates();
+      result.notional = compiledLeg.getNotional();
+      result.spread = compiledLeg.getSpread();
+      result.compoundingMethod = compiledLeg.getCompoundingMethod();
+      result.forwardPillars = forwardCurve.getZeroRates().length;
+      result.knownRates = new double[periods];
+      swapPaymentCalculator.projectRates(adjustedDates, fixingDates, dayCountFractions, initialRate, curves.getHistoricFixings(), forwardCurve, from, result.knownRates);
+      result.forwardStart = new CurvePoints(periods);
+      result.forwardEnd = new CurvePoints(periods);
+      int valuationDate = forwardCurve.getCurveDate().getDayCount();
+      for(int i = from; i < periods; i++) {
+        if(SwapPaymentCalculator.isProjected(i, fixingDates[i], valuationDate, initialRate, curves.getHistoricFixings())) {
+          result.knownRates[i] = Double.NaN;
+          result.forwardStart.set(i, forwardCurve, adjustedDates[i], true);
+          result.forwardEnd.set(i, forwardCurve, adjustedDates[i + 1], true);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Value a block of legs under the base curves, then under every scenario a block of scenarios at a time, adding
+   * each leg's values to its trade.  The legs of a trade are all in the same block, so no other thread writes to the
+   * same trades.
+   */
+  private void valueBlock(ScenarioLeg[] legs, double[][] shifts, int scenarioCount, double[] rates, double[] amounts, double[] basePresentValues, double[] profitAndLoss) {
+    for(ScenarioLeg leg : legs) {
+      if(leg != null) {
+        leg.baseValue = value(leg, null, 0, null, 0, rates, amounts);
+        basePresentValues[leg.trade] += leg.baseValue;
+      }
+    }
+    for(int blockStart = 0; blockStart < scenarioCount; blockStart += SCENARIO_BLOCK_SIZE) {
+      int blockEnd = Math.min(scenarioCount, blockStart + SCENARIO_BLOCK_SIZE);
+      for(ScenarioLeg leg : legs) {
+        if(leg == null) {
+          continue;
+        }
+        double[] discountShifts = shifts[leg.discountSlot];
+        double[] forwardShifts = leg.forwardSlot < 0 ? null : shifts[leg.forwardSlot];
+        if(discountShifts == null && forwardShifts == null) {
+          continue; // no change in any scenario
+        }
+        int offset = leg.trade * scenarioCount;
+        for(int scenario = blockStart; scenario < blockEnd; scenario++) {
+          double value = value(leg, discountShifts, scenario * leg.discountPillars, forwardShifts, scenario * leg.forwardPillars, rates, amounts);
+          profitAndLoss[offset + scenario] += value - leg.baseValue;
+        }
+      }
+    }
+  }
+
+  private double value(ScenarioLeg leg, double[] discountShifts, int discountOffset, double[] forwardShifts, int forwardOffset, double[] rates, double[] amounts) {
+    int periods = leg.dayCountFractions.length;
+    double result = 0;
+    if(leg.fixedAmounts != null) {
+      for(int i = leg.from; i < periods; i++) {
+        result += leg.fixedAmounts[i] * leg.discount.discountFactor(i, discountShifts, discountOffset);
+      }
+      return result;
+    }
+    for(int i = leg.from; i < periods; i++) {
+      double rate = leg.knownRates[i];
+      if(Double.isNaN(rate)) {
+        rate = (leg.forwardStart.discountFactor(i, forwardShifts, forwardOffset) / leg.forwardEnd.discountFactor(i, forwardShifts, forwardOffset) - 1) / leg.dayCountFractions[i];
+      }
+      rates[i] = rate;
+    }
+    cashFlowCalculator.calculateFloatingFlows(leg.notional, rates, leg.spread, leg.dayCountFractions, leg.paymentDates, leg.compoundingMethod, leg.from, amounts);
+    for(int i = leg.from; i < periods; i++) {
+      result += amounts[i] * leg.discount.discountFactor(i, discountShifts, discountOffset);
+    }
+    return result;
+  }
+
+  /**
+   * A leg with everything that does not depend on the scenario worked out.
+   */
+  private static class ScenarioLeg {
+    private final int trade;
+    private final int from;
+    private final double[] dayCountFractions;
+    private final int[] paymentDates;
+    private final int discountSlot;
+    private final int discountPillars;
+    private final CurvePoints discount;
+    private final int forwardSlot;
+    private int forwardPillars;
+    private double[] fixedAmounts;
+    private double notional;
+    private double spread;
+    private CompoundingMethodEnum compoundingMethod;
+    /**
+     * Initial rate or historic fixing of each period, NaN where the rate is projected.
+     */
+    private double[] knownRates;
+    private CurvePoints forwardStart;
+    private CurvePoints forwardEnd;
+    private double baseValue;
+
+    private ScenarioLeg(int trade, int from, double[] dayCountFractions, int[] paymentDates, int discountSlot, int discountPillars, int forwardSlot) {
+      this.trade = trade;
+      this.from = from;
+      this.dayCountFractions = dayCountFractions;
+      this.paymentDates = paymentDates;
+      this.discountSlot = discountSlot;
+      this.discountPillars = discountPillars;
+      this.discount = new CurvePoints(dayCountFractions.length);
+      this.forwardSlot = forwardSlot;
+    }
+  }
+
+  /**
+   * The base discount factor on each of a set of dates, with the pillars either side of each date and the weight of
+   * the later one, so the discount factor can be found for any parallel or pillar shift.
+   */
+  private static class CurvePoints {
+    private final double[] baseDiscountFactors;
+    private final double[] years;
+    private final int[] lowerPillars;
+    private final double[] upperWeights;
+
+    private CurvePoints(int size) {
+      baseDiscountFactors = new double[size];
+      years = new double[size];
+      lowerPillars = new int[size];
+      upperWeights = new double[size];
+    }
+
+    /**
+     * @param projection true to extrapolate flat before the first pillar, see {@link ValuationCurve#getProjectionDiscountFactor}
+     */
+    private void set(int i, ValuationCurve curve, int dayCount, boolean projection) {
+      baseDiscountFactors[i] = projection ? curve.getProjectionDiscountFactor(dayCount) : curve.getDiscountFactor(dayCount);
+      years[i] = (dayCount - curve.getCurveDate().getDayCount()) / 365.0;
+      int[] maturityDates = curve.getMaturityDates();
+      int position = Arrays.binarySearch(maturityDates, dayCount);
+      if(dayCount <= maturityDates[0]) {
+        lowerPillars[i] = 0;
+      } else if(position >= 0) {
+        lowerPillars[i] = position;
+      } else {
+        position = -(position + 1);
+        lowerPillars[i] = position - 1;
+        upperWeights[i] = (double)(dayCount - maturityDates[position - 1]) / (maturityDates[position] - maturityDates[position - 1]);
+      }
+    }
+
+    private double discountFactor(int i, double[] shifts, int offset) {
+      if(shifts == null) {
+        return baseDiscountFactors[i];
+      }
+      int lower = offset + lowerPillars[i];
+      double weight = upperWeights[i];
+      double shift = weight == 0 ? shifts[lower] : shifts[lower] * (1 - weight) + shifts[lower + 1] * weight;
+      return baseDiscountFactors[i] * Math.exp(-shift * years[i]);
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package com.twock.swappricer.fpml;
+
+import java.util.Arrays;
+
+/**
+ * Results of revaluing a portfolio under a set of scenarios: the base value of each trade and its profit and loss in
+ * each scenario relative to that base.  The profit and loss is held in a single <code>double[]</code>, trade by trade,
+ * so the vector of one trade over all scenarios is adjacent.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class ScenarioResults {
+  private final String[] tradeIds;
+  private final int scenarioCount;
+  private final double[] basePresentValues;
+  private final double[] profitAndLoss;
+  private final long elapsedNanos;
+
+  /**
+   * @param tradeIds id of each trade
+   * @param scenarioCount number of scenarios
+   * @param basePresentValues value of each trade before any scenario is applied
+   * @param profitAndLoss change in value of each trade in each scenario, trade by trade
+   * @param elapsedNanos time taken
+   */
+  public ScenarioResults(String[] tradeIds, int scenarioCount, double[] basePresentValues, double[] profitAndLoss, long elapsedNanos) {
+    this.tradeIds = tradeIds;
+    this.scenarioCount = scenarioCount;
+    this.basePresentValues = basePresentValues;
+    this.profitAndLoss = profitAndLoss;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  public int getTradeCount() {
+    return tradeIds.length;
+  }
+
+  public int getScenarioCount() {
+    return scenarioCount;
+  }
+
+  public String getTradeId(int trade) {
+    return tradeIds[trade];
+  }
+
+  public double getBasePresentValue(int trade) {
+    return basePresentValues[trade];
+  }
+
+  public double getProfitAndLoss(int trade, int scenario) {
+    return profitAndLoss[trade * scenarioCount + scenario];
+  }
+
+  /**
+   * @param trade trade index
+   * @return a new array of the change in value of the trade in each scenario
+   */
+  public double[] getProfitAndLossVector(int trade) {
+    return Arrays.copyOfRange(profitAndLoss, trade * scenarioCount, (trade + 1) * scenarioCount);
+  }
+
+  /**
+   * @return a new array of the change in value of the whole portfolio in each scenario
+   */
+  public double[] getPortfolioProfitAndLoss() {
+    double[] result = new double[scenarioCount];
+    for(int trade = 0; trade < tradeIds.length; trade++) {
+      int offset = trade * scenarioCount;
+      for(int scenario = 0; scenario < scenarioCount; scenario++) {
+        result[scenario] += profitAndLoss[offset + scenario];
+      }
+    }
+    return result;
+  }
+
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * @return trade valuations per second, counting each trade in each scenario
+   */
+  public double getValuationsPerSecond() {
+    return elapsedNanos == 0 ? 0 : (double)tradeIds.length * scenarioCount * 1e9 / elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "ScenarioResults{" +
+      "tradeCount=" + tradeIds.length +
+      ", scenarioCount=" + scenarioCount +
+      ", elapsedNanos=" + elapsedNanos +
+      ", valuationsPerSecond=" + getValuationsPerSecond() +
+      '}';
+  }
+}
@@ -0,0 +1,216 @@
+package com.twock.swappricer.fpml;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.twock.swappricer.HolidayCalendarContainer;
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.fpml.model.*;
+
+/**
+ * A bounded, thread-safe cache of stream schedules.  Streams are keyed on every input that affects their schedule
+ * (unadjusted effective, termination and regular period dates, calculation period frequency, all business day
+ * adjustments, and the payment and reset frequencies, offsets and rules), so large portfolios of trades with the same
+ * dates and conventions only generate each schedule once.
+ * <p/>
+ * Lookups take no lock, so a hit costs building the key, one concurrent map lookup and stamping the entry from a
+ * counter of uses.  Once a miss takes the cache over its maximum size, the least recently used eighth of the entries
+ * are evicted in one pass, which sorts the stamps, so evicting costs a few comparisons per miss however large the
+ * cache is.
+ * <p/>
+ * Schedules are calculated against the holiday calendars given at construction, so the cache should be cleared if
+ * those calendars are reloaded.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class ScheduleCache {
+  private final SwapStreamDateCalculator calculator;
+  private final HolidayCalendarContainer allCalendars;
+  private final ConcurrentMap<String, Entry> schedules = new ConcurrentHashMap<String, Entry>();
+  private final int maximumSize;
+  private final int lowWaterMark;
+  private final Object evictionLock = new Object();
+  private final AtomicLong uses = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  public ScheduleCache(SwapStreamDateCalculator calculator, HolidayCalendarContainer allCalendars, int maximumSize) {
+    if(maximumSize < 1) {
+      throw new PricerException("Schedule cache size must be positive, got " + maximumSize);
+    }
+    this.calculator = calculator;
+    this.allCalendars = allCalendars;
+    this.maximumSize = maximumSize;
+    this.lowWaterMark = maximumSize - maximumSize / 8;
+  }
+
+  /**
+   * Find the schedule for the given stream, calculating it if no stream with the same schedule parameters has been
+   * seen.  Concurrent misses on the same key may each calculate the schedule, but only one result is kept.
+   *
+   * @param stream stream to find the schedule for
+   * @return the shared schedule, whose arrays must not be modified
+   */
+  public StreamSchedule getSchedule(SwapStream stream) {
+    String key = scheduleKey(stream);
+    Entry entry = schedules.get(key);
+    if(entry != null) {
+      entry.lastUsed = uses.incrementAndGet();
+      hits.incrementAndGet();
+      return entry.schedule;
+    }
+    misses.incrementAndGet();
+    entry = new Entry(calculate(stream), uses.incrementAndGet());
+    Entry existing = schedules.putIfAbsent(key, entry);
+    if(existing != null) {
+      return existing.schedule;
+    }
+    if(schedules.size() > maximumSize) {
+      evict();
+    }
+    return entry.schedule;
+  }
+
+  /**
+   * Remove the least recently used schedules until the cache is down to its low water mark.
+   */
+  private void evict() {
+    synchronized(evictionLock) {
+      int excess = schedules.size() - lowWaterMark;
+      if(schedules.size() <= maximumSize || excess <= 0) {
+        return; // already evicted by another thread, or cleared
+      }
+      long[] stamps = new long[schedules.size()];
+      int count = 0;
+      for(Entry entry : schedules.values()) {
+        if(count == stamps.length) {
+          break; // added meanwhile
+        }
+        stamps[count++] = entry.lastUsed;
+      }
+      Arrays.sort(stamps, 0, count);
+      long newestEvicted = stamps[Math.min(excess, count) - 1];
+      for(Map.Entry<String, Entry> candidate : schedules.entrySet()) {
+        // entries used since the stamps were taken are kept
+        if(candidate.getValue().lastUsed <= newestEvicted && schedules.remove(candidate.getKey(), candidate.getValue())) {
+          evictions.incrementAndGet();
+        }
+      }
+    }
+  }
+
+  private StreamSchedule calculate(SwapStream stream) {
+    int[] unadjusted = calculator.calculateUnadjustedPeriodDayCounts(stream);
+    int[] adjusted = calculator.calculateAdjustedPeriodDayCounts(unadjusted, stream.getEffectiveDate().getBusinessDayAdjustments(), stream.getCalculationPeriodDatesAdjustments(), stream.getTerminationDate().getBusinessDayAdjustments(), allCalendars);
+    int[] payment = calculator.calculatePaymentDayCounts(adjusted, stream.getPaymentDates(), allCalendars);
+    int[] fixing = stream.getResetDates() == null ? null : calculator.calculateFixingDayCounts(adjusted, stream.getResetDates(), allCalendars);
+    return new StreamSchedule(unadjusted, adjusted, payment, fixing);
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  public int size() {
+    return schedules.size();
+  }
+
+  public void clear() {
+    schedules.clear();
+  }
+
+  /**
+   * Build a string containing every input to the schedule calculations for the given stream.
+   *
+   * @param stream stream to build a key for
+   * @return a key equal for any two streams which produce the same schedule
+   */
+  public static String scheduleKey(SwapStream stream) {
+    StringBuilder sb = new StringBuilder(128);
+    sb.append(stream.getEffectiveDate().getUnadjustedDate().getDayCount());
+    appendAdjustments(sb, stream.getEffectiveDate().getBusinessDayAdjustments());
+    sb.append('|').append(stream.getTerminationDate().getUnadjustedDate().getDayCount());
+    appendAdjustments(sb, stream.getTerminationDate().getBusinessDayAdjustments());
+    appendAdjustments(sb, stream.getCalculationPeriodDatesAdjustments());
+    CalculationPeriodFrequency frequency = stream.getCalculationPeriodFrequency();
+    sb.append('|').append(frequency.getPeriodMultiplier()).append(frequency.getPeriod()).append(',').append(frequency.getRollConvention());
+    appendDate(sb, stream.getFirstRegularPeriodStartDate());
+    appendDate(sb, stream.getLastRegularPeriodEndDate());
+    PaymentDates paymentDates = stream.getPaymentDates();
+    sb.append('|').append(paymentDates.getPaymentFrequencyPeriodMultiplier()).append(paymentDates.getPaymentFrequencyPeriod()).append(',').append(paymentDates.getPayRelativeTo());
+    Offset paymentDaysOffset = paymentDates.getPaymentDaysOffset();
+    sb.append('|');
+    if(paymentDaysOffset != null) {
+      sb.append(paymentDaysOffset.getPeriodMultiplier()).append(paymentDaysOffset.getPeriod()).append(',').append(paymentDaysOffset.getDayType());
+    }
+    appendAdjustments(sb, paymentDates.getPaymentDatesAdjustments());
+    ResetDates resetDates = stream.getResetDates();
+    if(resetDates != null) {
+      sb.append('|').append(resetDates.getFrequencyPeriodMultiplier()).append(resetDates.getFrequencyPeriod()).append(',').append(resetDates.getResetRelativeTo());
+      appendAdjustments(sb, resetDates.getResetDatesAdjustments());
+      appendOffset(sb, resetDates.getInitialFixingDate());
+      appendOffset(sb, resetDates.getFixingDates());
+    }
+    return sb.toString();
+  }
+
+  private static void appendDate(StringBuilder sb, DateWithDayCount date) {
+    sb.append('|');
+    if(date != null) {
+      sb.append(date.getDayCount());
+    }
+  }
+
+  private static void appendAdjustments(StringBuilder sb, BusinessDayAdjustments adjustments) {
+    sb.append('|').append(adjustments.getBusinessDayConvention());
+    appendBusinessCenters(sb, adjustments.getBusinessCenters());
+  }
+
+  private static void appendOffset(StringBuilder sb, RelativeDateOffset offset) {
+    sb.append('|');
+    if(offset != null) {
+      sb.append(offset.getPeriodMultiplier()).append(offset.getPeriod()).append(',').append(offset.getDayType()).append(',').append(offset.getBusinessDayConvention());
+      appendBusinessCenters(sb, offset.getBusinessCenters());
+    }
+  }
+
+  private static void appendBusinessCenters(StringBuilder sb, String[] businessCenters) {
+    if(businessCenters != null) {
+      for(String businessCenter : businessCenters) {
+        sb.append(',').append(businessCenter);
+      }
+    }
+  }
+
+  private static class Entry {
+    private final StreamSchedule schedule;
+    private volatile long lastUsed;
+
+    private Entry(StreamSchedule schedule, long lastUsed) {
+      this.schedule = schedule;
+      this.lastUsed = lastUsed;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ScheduleCache{" +
+      "size=" + size() +
+      ", hits=" + hits +
+      ", misses=" + misses +
+      ", evictions=" + evictions +
+      '}';
+  }
+}
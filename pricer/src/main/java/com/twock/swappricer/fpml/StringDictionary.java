@@ -0,0 +1,85 @@
+package com.twock.swappricer.fpml;
+
+import java.util.*;
+
+/**
+ * Numbers each distinct string, and each distinct set of business centres, in the order they are first seen, so that
+ * trades can refer to them by index.  Used by the trade store and the trade book to hold currencies, indexes and
+ * business centres once however many legs use them.  A set's centres are added as strings too.
+ * <p/>
+ * Not thread safe.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class StringDictionary {
+  private final Map<String, Integer> stringIndexes = new HashMap<String, Integer>();
+  private final List<String> strings = new ArrayList<String>();
+  private final Map<List<String>, Integer> centreSetIndexes = new HashMap<List<String>, Integer>();
+  private final List<int[]> centreSets = new ArrayList<int[]>();
+
+  /**
+   * @return index of the string, added if not seen before, or {@link SwapStreamEncoding#NULL_INT} if null
+   */
+  public int stringIndex(String string) {
+    if(string == null) {
+      return SwapStreamEncoding.NULL_INT;
+    }
+    Integer index = stringIndexes.get(string);
+    if(index == null) {
+      index = strings.size();
+      strings.add(string);
+      stringIndexes.put(string, index);
+    }
+    return index;
+  }
+
+  /**
+   * @return index of the set of centres, added if not seen before, or {@link SwapStreamEncoding#NULL_INT} if null
+   */
+  public int centreSetIndex(String[] centres) {
+    if(centres == null) {
+      return SwapStreamEncoding.NULL_INT;
+    }
+    List<String> key = Arrays.asList(centres);
+    Integer index = centreSetIndexes.get(key);
+    if(index == null) {
+      int[] centreSet = new int[centres.length];
+      for(int i = 0; i < centres.length; i++) {
+        centreSet[i] = stringIndex(centres[i]);
+      }
+      index = centreSets.size();
+      centreSets.add(centreSet);
+      centreSetIndexes.put(new ArrayList<String>(key), index);
+    }
+    return index;
+  }
+
+  /**
+   * @return the strings in index order
+   */
+  public List<String> getStrings() {
+    return Collections.unmodifiableList(strings);
+  }
+
+  /**
+   * @return the string index of each centre of each set, in index order, not to be modified
+   */
+  public List<int[]> getCentreSetStringIndexes() {
+    return Collections.unmodifiableList(centreSets);
+  }
+
+  /**
+   * @return a copy of the sets of centres in index order
+   */
+  public String[][] getCentreSets() {
+    String[][] result = new String[centreSets.size()][];
+    for(int i = 0; i < result.length; i++) {
+      int[] centreSet = centreSets.get(i);
+      result[i] = new String[centreSet.length];
+      for(int j = 0; j < centreSet.length; j++) {
+        result[i][j] = strings.get(centreSet[j]);
+      }
+    }
+    return result;
+  }
+}
@@ -1,30 +1,344 @@
 package com.twock.swappricer.fpml;
 
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 
 import com.twock.swappricer.CurveContainer;
+import com.twock.swappricer.CurveResolver;
+import com.twock.swappricer.CurveSensitivities;
+import com.twock.swappricer.DateUtil;
+import com.twock.swappricer.FixingSeries;
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.ResolvedCurves;
 import com.twock.swappricer.ValuationCurve;
 import com.twock.swappricer.fpml.model.DateWithDayCount;
+import com.twock.swappricer.fpml.model.SwapStream;
+import com.twock.swappricer.fpml.model.enumeration.CompoundingMethodEnum;
+import com.twock.swappricer.fpml.model.enumeration.PeriodEnum;
 
 /**
  * @author Chris Pearson (chris@twock.com)
  */
 public class SwapPaymentCalculator {
   private final CurveContainer curveContainer;
+  private final CashFlowCalculator cashFlowCalculator;
 
   public SwapPaymentCalculator(CurveContainer curveContainer) {
+    this(curveContainer, new CashFlowCalculator());
+  }
+
+  public SwapPaymentCalculator(CurveContainer curveContainer, CashFlowCalculator cashFlowCalculator) {
     this.curveContainer = curveContainer;
+    this.cashFlowCalculator = cashFlowCalculator;
   }
 
   public double valueFixedSide(double notional, double fixedRate, double[] dayCount, List<DateWithDayCount> paymentDates, String currency) {
-    String discountCurve = curveContainer.getDiscountCurve(null, null, null, currency);
-    ValuationCurve curve = curveContainer.getCurve(discountCurve);
-    double[] fixedPaymentAmounts = calculateFixedPaymentAmounts(notional, fixedRate, dayCount, 0, dayCount.length);
-    double[] fixedDiscountedAmounts = calculateDiscountedPaymentAmounts(fixedPaymentAmounts, paymentDates, curve);
+    return valueFixedSide(notional, fixedRate, dayCount, DateWithDayCount.toDayCounts(paymentDates), currency);
+  }
+
+  public double valueFixedSide(double notional, double fixedRate, double[] dayCount, int[] paymentDates, String currency) {
+    return valueFixedSide(notional, fixedRate, dayCount, paymentDates, curveContainer.getCurveResolver().resolve(null, null, null, currency).getDiscountCurve());
+  }
+
+  /**
+   * Value a fixed stream against a discount curve already resolved for it.  Periods paying before the first date on
+   * the discount curve are ignored.
+   *
+   * @param notional notional amount
+   * @param fixedRate fixed rate, e.g. 0.0127 for 1.27%
+   * @param dayCount day count fraction of each period
+   * @param paymentDates payment date of each period, in ascending order
+   * @param curve curve to discount payments with
+   * @return the sum of the discounted fixed payments
+   */
+  public double valueFixedSide(double notional, double fixedRate, double[] dayCount, int[] paymentDates, ValuationCurve curve) {
+    int from = firstPaymentOnCurve(paymentDates, curve);
+    double[] fixedPaymentAmounts = new double[dayCount.length];
+    cashFlowCalculator.calculateFixedFlows(notional, fixedRate, dayCount, from, fixedPaymentAmounts);
+    return discount(fixedPaymentAmounts, paymentDates, from, curve);
+  }
+
+  /**
+   * Value a fixed stream as {@link #valueFixedSide(double, double, double[], int[], ValuationCurve)}, adding the
+   * sensitivity of the value to each zero rate pillar of the discount curve.
+   *
+   * @param sensitivities sensitivities to add to, see {@link CurveSensitivities}
+   */
+  public double valueFixedSide(double notional, double fixedRate, double[] dayCount, int[] paymentDates, ValuationCurve curve, CurveSensitivities sensitivities) {
+    return valueFixedSide(notional, fixedRate, dayCount, paymentDates, curve, sensitivities.getSensitivities(curve));
+  }
+
+  /**
+   * Value a fixed stream as {@link #valueFixedSide(double, double, double[], int[], ValuationCurve)}, adding the
+   * sensitivity of the value to each zero rate pillar of the discount curve.  The sensitivities are found by reverse
+   * mode differentiation of the valuation, so cost about the same again as the valuation itself.
+   *
+   * @param discountSensitivities sensitivity to each discount curve zero rate, indexed as
+   * {@link ValuationCurve#getZeroRates()}, added to
+   */
+  public double valueFixedSide(double notional, double fixedRate, double[] dayCount, int[] paymentDates, ValuationCurve curve, double[] discountSensitivities) {
+    int from = firstPaymentOnCurve(paymentDates, curve);
+    double[] fixedPaymentAmounts = new double[dayCount.length];
+    cashFlowCalculator.calculateFixedFlows(notional, fixedRate, dayCount, from, fixedPaymentAmounts);
+    return discountAdjoint(fixedPaymentAmounts, paymentDates, from, curve, null, discountSensitivities);
+  }
+
+  public double valueFloatingSide(SwapStream stream, List<DateWithDayCount> adjustedDates, List<DateWithDayCount> paymentDates, List<DateWithDayCount> fixingDates, double[] dayCountFractions) {
+    return valueFloatingSide(stream, DateWithDayCount.toDayCounts(adjustedDates), DateWithDayCount.toDayCounts(paymentDates), DateWithDayCount.toDayCounts(fixingDates), dayCountFractions);
+  }
+
+  /**
+   * Value a floating stream, using the forward and discount curves mapped to its index and the historic fixings of its
+   * index for any fixings before the curve date.
+   *
+   * @param stream the floating stream
+   * @param adjustedDates adjusted calculation period dates
+   * @param paymentDates payment date of each period
+   * @param fixingDates fixing date of each period
+   * @param dayCountFractions day count fraction of each period
+   * @return the sum of the discounted floating payments
+   */
+  public double valueFloatingSide(SwapStream stream, int[] adjustedDates, int[] paymentDates, int[] fixingDates, double[] dayCountFractions) {
+    double spread = stream.getSpread() == null ? 0 : stream.getSpread();
+    return valueFloatingSide(stream.getNotionalAmount(), spread, stream.getInitialRate(), stream.getCompoundingMethod(), stream.getFloatingRateIndex(), stream.getIndexTenorPeriodMultiplier(), stream.getIndexTenorPeriod(), stream.getNotionalCurrency(), adjustedDates, paymentDates, fixingDates, dayCountFractions);
+  }
+
+  /**
+   * Value a floating stream given its terms as separate values rather than a {@link SwapStream}, looking up the curves
+   * and historic fixings mapped to the index in the same way.
+   *
+   * @param notional notional amount
+   * @param spread spread over the index, 0 if none
+   * @param initialRate rate of the first period if agreed at trade time, null otherwise
+   * @param compoundingMethod compounding method for periods sharing a payment date, can be null
+   * @param index floating rate index
+   * @param indexTenorPeriodMultiplier index tenor multiplier
+   * @param indexTenorPeriod index tenor period
+   * @param currency notional currency
+   * @param adjustedDates adjusted calculation period dates
+   * @param paymentDates payment date of each period
+   * @param fixingDates fixing date of each period
+   * @param dayCountFractions day count fraction of each period
+   * @return the sum of the discounted floating payments
+   */
+  public double valueFloatingSide(double notional, double spread, Double initialRate, CompoundingMethodEnum compoundingMethod, String index, Integer indexTenorPeriodMultiplier, PeriodEnum indexTenorPeriod, String currency, int[] adjustedDates, int[] paymentDates, int[] fixingDates, double[] dayCountFractions) {
+    ResolvedCurves curves = curveContainer.getCurveResolver().resolve(index, indexTenorPeriodMultiplier, indexTenorPeriod, currency);
+    return valueFloatingSide(notional, spread, initialRate, compoundingMethod, adjustedDates, paymentDates, fixingDates, dayCountFractions, curves);
+  }
+
+  /**
+   * Value a floating stream against curves and historic fixings already resolved for it, see
+   * {@link #valueFloatingSide(double, double, Double, CompoundingMethodEnum, int[], int[], int[], double[], FixingSeries, ValuationCurve, ValuationCurve)}.
+   *
+   * @param notional notional amount
+   * @param spread spread over the index, 0 if none
+   * @param initialRate rate of the first period if agreed at trade time, null otherwise
+   * @param compoundingMethod compounding method for periods sharing a payment date, can be null
+   * @param adjustedDates adjusted calculation period dates
+   * @param paymentDates payment date of each period
+   * @param fixingDates fixing date of each period
+   * @param dayCountFractions day count fraction of each period
+   * @param curves market data resolved for the stream's index, tenor and currency
+   * @return the sum of the discounted floating payments
+   */
+  public double valueFloatingSide(double notional, double spread, Double initialRate, CompoundingMethodEnum compoundingMethod, int[] adjustedDates, int[] paymentDates, int[] fixingDates, double[] dayCountFractions, ResolvedCurves curves) {
+    // with no historic fixings, only a problem if a fixing in the past is required
+    return valueFloatingSide(notional, spread, initialRate, compoundingMethod, adjustedDates, paymentDates, fixingDates, dayCountFractions, curves.getHistoricFixings(), curves.getForwardCurve(), curves.getDiscountCurve());
+  }
+
+  /**
+   * @return the resolver for the curves this calculator values against
+   */
+  public CurveResolver getCurveResolver() {
+    return curveContainer.getCurveResolver();
+  }
+
+  /**
+   * Value a leg compiled by {@link LegCompiler} against the curves its index, tenor and currency resolve to through
+   * {@link #getCurveResolver()}.
+   *
+   * @param leg leg to value
+   * @return the sum of the discounted payments
+   */
+  public double value(CompiledLeg leg) {
+    return value(leg, getCurveResolver().resolve(leg.getIndexId(), leg.getTenor(), leg.getCurrencyId()));
+  }
+
+  /**
+   * Value a leg compiled by {@link LegCompiler} against curves already resolved for it.  Only the discounting, and for
+   * a floating leg the projection of rates and the payment amounts, are calculated; everything else was worked out
+   * when the leg was compiled.
+   *
+   * @param leg leg to value
+   * @param curves market data resolved for the leg's index, tenor and currency
+   * @return the sum of the discounted payments
+   */
+  public double value(CompiledLeg leg, ResolvedCurves curves) {
+    if(leg.isFixed()) {
+      ValuationCurve discountCurve = curves.getDiscountCurve();
+      return discount(leg.getFixedAmounts(), leg.getPaymentDates(), firstPaymentOnCurve(leg.getPaymentDates(), discountCurve), discountCurve);
+    }
+    return valueFloatingSide(leg.getNotional(), leg.getSpread(), leg.getInitialRate(), leg.getCompoundingMethod(), leg.getAdjustedDates(), leg.getPaymentDates(), leg.getFixingDates(),
+      leg.getDayCountFractions(), curves.getHistoricFixings(), curves.getForwardCurve(), curves.getDiscountCurve());
+  }
+
+  /**
+   * Value a compiled leg as {@link #value(CompiledLeg, ResolvedCurves)}, adding the sensitivity of the value to each
+   * zero rate pillar of the curves it is valued against.
+   *
+   * @param sensitivities sensitivities to add to, see {@link CurveSensitivities}
+   */
+  public double value(CompiledLeg leg, ResolvedCurves curves, CurveSensitivities sensitivities) {
+    ValuationCurve discountCurve = curves.getDiscountCurve();
+    if(leg.isFixed()) {
+      return discountAdjoint(leg.getFixedAmounts(), leg.getPaymentDates(), firstPaymentOnCurve(leg.getPaymentDates(), discountCurve), discountCurve, null, sensitivities.getSensitivities(discountCurve));
+    }
+    ValuationCurve forwardCurve = curves.getForwardCurve();
+    return valueFloatingSide(leg.getNotional(), leg.getSpread(), leg.getInitialRate(), leg.getCompoundingMethod(), leg.getAdjustedDates(), leg.getPaymentDates(), leg.getFixingDates(),
+      leg.getDayCountFractions(), curves.getHistoricFixings(), forwardCurve, discountCurve, sensitivities.getSensitivities(forwardCurve), sensitivities.getSensitivities(discountCurve));
+  }
+
+  /**
+   * Value a floating stream from its schedule, using historic fixings where the fixing date is before the forward
+   * curve date and forward rates projected from the forward curve otherwise.  Periods paying before the first date on
+   * the discount curve are ignored.
+   *
+   * @param notional notional amount
+   * @param spread spread over the index, 0 if none
+   * @param initialRate rate of the first period if agreed at trade time, null otherwise
+   * @param compoundingMethod compounding method for periods sharing a payment date, can be null
+   * @param adjustedDates adjusted calculation period dates
+   * @param paymentDates payment date of each period, in ascending order
+   * @param fixingDates fixing date of each period
+   * @param dayCountFractions day count fraction of each period
+   * @param historicFixings historic index rates in percent, can be null if none are available
+   * @param forwardCurve curve to project future rates from
+   * @param discountCurve curve to discount payments with
+   * @return the sum of the discounted floating payments
+   */
+  public double valueFloatingSide(double notional, double spread, Double initialRate, CompoundingMethodEnum compoundingMethod, int[] adjustedDates, int[] paymentDates, int[] fixingDates, double[] dayCountFractions, FixingSeries historicFixings, ValuationCurve forwardCurve, ValuationCurve discountCurve) {
+    int from = firstPaymentOnCurve(paymentDates, discountCurve);
+    double[] rates = new double[dayCountFractions.length];
+    projectRates(adjustedDates, fixingDates, dayCountFractions, initialRate, historicFixings, forwardCurve, from, rates);
+    double[] amounts = new double[dayCountFractions.length];
+    cashFlowCalculator.calculateFloatingFlows(notional, rates, spread, dayCountFractions, paymentDates, compoundingMethod, from, amounts);
+    return discount(amounts, paymentDates, from, discountCurve);
+  }
+
+  /**
+   * Value a floating stream as {@link #valueFloatingSide(double, double, Double, CompoundingMethodEnum, int[], int[], int[], double[], ResolvedCurves)},
+   * adding the sensitivity of the value to each zero rate pillar of the forward and discount curves.
+   *
+   * @param sensitivities sensitivities to add to, see {@link CurveSensitivities}
+   */
+  public double valueFloatingSide(double notional, double spread, Double initialRate, CompoundingMethodEnum compoundingMethod, int[] adjustedDates, int[] paymentDates, int[] fixingDates, double[] dayCountFractions, ResolvedCurves curves, CurveSensitivities sensitivities) {
+    ValuationCurve forwardCurve = curves.getForwardCurve();
+    ValuationCurve discountCurve = curves.getDiscountCurve();
+    return valueFloatingSide(notional, spread, initialRate, compoundingMethod, adjustedDates, paymentDates, fixingDates, dayCountFractions, curves.getHistoricFixings(), forwardCurve, discountCurve,
+      sensitivities.getSensitivities(forwardCurve), sensitivities.getSensitivities(discountCurve));
+  }
+
+  /**
+   * Value a floating stream as {@link #valueFloatingSide(double, double, Double, CompoundingMethodEnum, int[], int[], int[], double[], FixingSeries, ValuationCurve, ValuationCurve)},
+   * adding the sensitivity of the value to each zero rate pillar of the forward and discount curves.  The
+   * sensitivities are found by reverse mode differentiation: from each payment amount back through any compounding to
+   * the rate of each period, then from each projected rate to the forward curve pillars, so cost a small multiple of
+   * the valuation itself however many pillars the curves have.  Historic fixings and an initial rate have no
+   * sensitivity to the curves.
+   *
+   * @param forwardSensitivities sensitivity to each forward curve zero rate, added to, can be the same array as
+   * discountSensitivities where both curves are the same
+   * @param discountSensitivities sensitivity to each discount curve zero rate, added to
+   */
+  public double valueFloatingSide(double notional, double spread, Double initialRate, CompoundingMethodEnum compoundingMethod, int[] adjustedDates, int[] paymentDates, int[] fixingDates, double[] dayCountFractions, FixingSeries historicFixings, ValuationCurve forwardCurve, ValuationCurve discountCurve, double[] forwardSensitivities, double[] discountSensitivities) {
+    int from = firstPaymentOnCurve(paymentDates, discountCurve);
+    double[] rates = new double[dayCountFractions.length];
+    projectRates(adjustedDates, fixingDates, dayCountFractions, initialRate, historicFixings, forwardCurve, from, rates);
+    double[] amounts = new double[dayCountFractions.length];
+    cashFlowCalculator.calculateFloatingFlows(notional, rates, spread, dayCountFractions, paymentDates, compoundingMethod, from, amounts);
+    double[] amountsBar = new double[dayCountFractions.length];
+    double result = discountAdjoint(amounts, paymentDates, from, discountCurve, amountsBar, discountSensitivities);
+    double[] ratesBar = new double[dayCountFractions.length];
+    cashFlowCalculator.calculateFloatingFlowsAdjoint(notional, rates, spread, dayCountFractions, paymentDates, compoundingMethod, from, amountsBar, ratesBar);
+    int valuationDate = forwardCurve.getCurveDate().getDayCount();
+    for(int i = from; i < dayCountFractions.length; i++) {
+      if(isProjected(i, fixingDates[i], valuationDate, initialRate, historicFixings)) {
+        forwardCurve.forwardRateAdjoint(adjustedDates[i], adjustedDates[i + 1], dayCountFractions[i], ratesBar[i], forwardSensitivities);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Find the floating rate of each period: the initial rate for the first period if given, the historic fixing if the
+   * fixing date is before the forward curve date (or on it, where available), otherwise the forward rate over the
+   * period projected from the forward curve.
+   *
+   * @param adjustedDates adjusted calculation period dates
+   * @param fixingDates fixing date of each period
+   * @param dayCountFractions day count fraction of each period
+   * @param initialRate rate of the first period if agreed at trade time, null otherwise
+   * @param historicFixings historic index rates in percent, can be null if none are available
+   * @param forwardCurve curve to project future rates from
+   * @param from first period to find the rate for, earlier entries in out are left untouched
+   * @param out populated with the rate of each period, e.g. 0.0127 for 1.27%
+   */
+  public void projectRates(int[] adjustedDates, int[] fixingDates, double[] dayCountFractions, Double initialRate, FixingSeries historicFixings, ValuationCurve forwardCurve, int from, double[] out) {
+    int valuationDate = forwardCurve.getCurveDate().getDayCount();
+    for(int i = from; i < dayCountFractions.length; i++) {
+      int fixingDate = fixingDates[i];
+      if(i == 0 && initialRate != null) {
+        out[i] = initialRate;
+      } else if(!isProjected(i, fixingDate, valuationDate, initialRate, historicFixings)) {
+        out[i] = historicFixings.getRate(fixingDate) / 100;
+      } else if(fixingDate < valuationDate) {
+        throw new PricerException("No historic fixing on " + Arrays.toString(DateUtil.dayCountToDate(fixingDate)) + " to value period " + i + " against forward curve " + forwardCurve.getCurveName());
+      } else {
+        out[i] = forwardCurve.getForwardRate(adjustedDates[i], adjustedDates[i + 1], dayCountFractions[i]);
+      }
+    }
+  }
+
+  /**
+   * @return true if the rate of the period is projected from the forward curve, rather than being the initial rate or
+   *         a historic fixing
+   */
+  static boolean isProjected(int period, int fixingDate, int valuationDate, Double initialRate, FixingSeries historicFixings) {
+    if(period == 0 && initialRate != null) {
+      return false;
+    }
+    return fixingDate > valuationDate || historicFixings == null || Double.isNaN(historicFixings.getRate(fixingDate));
+  }
+
+  static int firstPaymentOnCurve(int[] paymentDates, ValuationCurve curve) {
+    int position = Arrays.binarySearch(paymentDates, curve.getMaturityDates()[0]);
+    return position < 0 ? -(position + 1) : position;
+  }
+
+  /**
+   * @return the sum of the amounts from index from onwards, each discounted from its payment date
+   */
+  private static double discount(double[] amounts, int[] paymentDates, int from, ValuationCurve curve) {
+    return curve.presentValue(paymentDates, amounts, from, amounts.length);
+  }
+
+  /**
+   * Discount as {@link #discount}, adding the sensitivity of the result to each zero rate of the curve.
+   *
+   * @param amountsBar populated with the sensitivity of the result to each amount, i.e. its discount factor, can be
+   * null if not needed
+   * @param zeroRateBars sensitivity to each zero rate of the curve, added to
+   */
+  private static double discountAdjoint(double[] amounts, int[] paymentDates, int from, ValuationCurve curve, double[] amountsBar, double[] zeroRateBars) {
+    double[] discountFactors = new double[amounts.length];
+    curve.discountFactors(paymentDates, from, amounts.length, discountFactors);
     double result = 0;
-    for(double amount : fixedDiscountedAmounts) {
-      result += amount;
+    for(int i = from; i < amounts.length; i++) {
+      result += discountFactors[i] * amounts[i];
+      curve.discountFactorAdjoint(paymentDates[i], discountFactors[i], amounts[i], zeroRateBars);
+    }
+    if(amountsBar != null) {
+      System.arraycopy(discountFactors, from, amountsBar, from, amounts.length - from);
     }
     return result;
   }
@@ -48,16 +362,27 @@ public class SwapPaymentCalculator {
    * @return the discounted future cash flows
    */
   public double[] calculateDiscountedPaymentAmounts(double[] paymentAmounts, List<DateWithDayCount> paymentDates, ValuationCurve curve) {
-    DateWithDayCount temp = new DateWithDayCount(curve.getMaturityDates()[0]);
-    int position = Collections.binarySearch(paymentDates, temp);
-    if(position < 0) {
-      position = -(position + 1);
-    }
-    int firstPaymentToLookAt = position;
+    return calculateDiscountedPaymentAmounts(paymentAmounts, DateWithDayCount.toDayCounts(paymentDates), curve);
+  }
+
+  /**
+   * Dump all payments that pay before the first maturity date on the given curve, and discount the provided payments
+   * for the rest. Expects paymentAmounts.length == paymentDates.length and returns an array of size &lt;=
+   * paymentDates.length containing only those payments that are within the given curve.
+   *
+   * @param paymentAmounts array of past and future payment amounts
+   * @param paymentDates payment dates for the given payment amounts, as day counts in ascending order
+   * @param curve the curve to use for discounting
+   * @return the discounted future cash flows
+   */
+  public double[] calculateDiscountedPaymentAmounts(double[] paymentAmounts, int[] paymentDates, ValuationCurve curve) {
+    int firstPaymentToLookAt = firstPaymentOnCurve(paymentDates, curve);
+    double[] discountFactors = new double[paymentAmounts.length];
+    curve.discountFactors(paymentDates, firstPaymentToLookAt, paymentAmounts.length, discountFactors);
     double[] result = new double[paymentAmounts.length - firstPaymentToLookAt];
     for(int i = 0; i < result.length; i++) {
       int index = i + firstPaymentToLookAt;
-      result[i] = curve.getDiscountFactor(paymentDates.get(index).getDayCount()) * paymentAmounts[index];
+      result[i] = discountFactors[index] * paymentAmounts[index];
     }
     return result;
   }
@@ -2,17 +2,26 @@ package com.twock.swappricer.fpml;
 
 import java.util.*;
 
+import com.twock.swappricer.BusinessDayCalendar;
 import com.twock.swappricer.DateUtil;
 import com.twock.swappricer.HolidayCalendarContainer;
+import com.twock.swappricer.PackedDate;
 import com.twock.swappricer.PricerException;
 import com.twock.swappricer.fpml.model.*;
 import com.twock.swappricer.fpml.model.enumeration.*;
 
 /**
+ * Calculates schedules of dates for swap streams.  Every calculation is available in two forms: one working on lists
+ * of {@link DateWithDayCount} objects, and a primitive form working on <code>int[]</code> arrays of DateUtil day counts
+ * which allocates nothing beyond the returned array.  The list forms delegate to the primitive ones.
+ *
  * @author Chris Pearson (chris@twock.com)
  */
 public class SwapStreamDateCalculator {
-
+  /**
+   * Passed to the primitive methods in place of a date that was not provided, e.g. no first regular period start date.
+   */
+  public static final int NO_DATE = Integer.MIN_VALUE;
   private static final EnumSet<PeriodEnum> MONTH_OR_YEAR = EnumSet.of(PeriodEnum.M, PeriodEnum.Y);
 
   /**
@@ -24,12 +33,22 @@ public class SwapStreamDateCalculator {
    * @return true if there is an initial stub, false otherwise
    */
   public boolean hasInitialStub(DateWithDayCount date1, DateWithDayCount date2, CalculationPeriodFrequency calculationPeriodFrequency) {
+    return hasInitialStub(date1.getDayCount(), date2.getDayCount(), calculationPeriodFrequency);
+  }
+
+  /**
+   * Work out from the period dates whether the first period is a stub or not.
+   *
+   * @param date1 unadjusted period start date as a day count
+   * @param date2 unadjusted period end date as a day count
+   * @param calculationPeriodFrequency swap stream's period frequency
+   * @return true if there is an initial stub, false otherwise
+   */
+  public boolean hasInitialStub(int date1, int date2, CalculationPeriodFrequency calculationPeriodFrequency) {
     if(!matchesRollConvention(date1, calculationPeriodFrequency.getRollConvention())) {
       return true;
     }
-    DateWithDayCount dateCopy = new DateWithDayCount(date1);
-    addPeriod(dateCopy, calculationPeriodFrequency.getPeriod(), calculationPeriodFrequency.getPeriodMultiplier(), calculationPeriodFrequency.getRollConvention());
-    return date2.compareTo(dateCopy) == 0;
+    return date2 == addPeriod(date1, calculationPeriodFrequency.getPeriod(), calculationPeriodFrequency.getPeriodMultiplier(), calculationPeriodFrequency.getRollConvention());
   }
 
   /**
@@ -40,44 +59,34 @@ public class SwapStreamDateCalculator {
    * @return true if the date matches the roll convention
    */
   public boolean matchesRollConvention(DateWithDayCount date, RollConventionEnum rollConvention) {
+    return matchesRollConvention(date.getDayCount(), rollConvention);
+  }
+
+  /**
+   * Find whether the given date complies with the supplied roll convention.
+   *
+   * @param dayCount the date to check
+   * @param rollConvention the roll convention to check the date against
+   * @return true if the date matches the roll convention
+   */
+  public boolean matchesRollConvention(int dayCount, RollConventionEnum rollConvention) {
+    long date = PackedDate.fromDayCount(dayCount);
     switch(rollConvention) {
       case EOM:
-        short[] nextDate = DateUtil.dayCountToDate(date.getDayCount() + 1);
-        return nextDate[1] != date.getDate()[1];
+        return PackedDate.isLastDayOfMonth(date);
       case IMM:
         // third wednesday of the month
-        if(date.getDayOfWeek() != Calendar.WEDNESDAY) {
-          return false;
-        }
-        // 1 sunday, 2 mon, 3 tue, 4 wed,..., 7 sat
-        // if dow=1, add 17     11-dow=3
-        // if dow=2, add 16     11-dow=2
-        // if dow=3, add 15     11-dow=1
-        // if dow=4, add 14     11-dow=0
-        // if dow=5, add 20     11-dow=6
-        // if dow=6, add 19     11-dow=5
-        // if dow=7, add 18     11-dow=4
-        // so add 14+(11-dow)%7
-        DateWithDayCount firstOfMonth = new DateWithDayCount(date.getYear(), date.getMonthOfYear(), 1);
-        int dayOfWeek = firstOfMonth.getDayOfWeek();
-        int immDayCount = firstOfMonth.getDayCount() + 14 + ((11 - dayOfWeek) % 7);
-        return immDayCount == date.getDayCount();
-
+        return PackedDate.dayOfWeek(date) == Calendar.WEDNESDAY && DateUtil.immDayCount(PackedDate.year(date), PackedDate.month(date)) == dayCount;
       default:
-        if(!rollConvention.value().matches("\\d+")) {
+        int roll = rollConvention.getDayOfMonth();
+        if(roll == 0) {
           throw new PricerException("Unhandled roll convention: " + rollConvention);
         }
-        int roll = Integer.parseInt(rollConvention.value());
-        if(roll == date.getDate()[2]) {
+        if(roll == PackedDate.day(date)) {
           return true;
         }
         // roll conventions greater than number of days in the month must match too
-        if(roll >= 29) {
-          nextDate = DateUtil.dayCountToDate(date.getDayCount() + 1);
-          return nextDate[1] != date.getDate()[1];
-        } else {
-          return false;
-        }
+        return roll >= 29 && PackedDate.isLastDayOfMonth(date);
     }
   }
 
@@ -90,47 +99,60 @@ public class SwapStreamDateCalculator {
    * @return startDate, for convenience/method chaining
    */
   public DateWithDayCount adjustDate(DateWithDayCount date, BusinessDayConventionEnum businessDayConvention, HolidayCalendarContainer calendars) {
+    date.setDayCount(adjustDate(date.getDayCount(), businessDayConvention, calendars));
+    return date;
+  }
+
+  /**
+   * Adjust the given date according to the business day convention and calendars provided.
+   *
+   * @param dayCount date to adjust
+   * @param businessDayConvention business day convention to apply
+   * @param calendars holiday calendars in use
+   * @return the adjusted date
+   */
+  public int adjustDate(int dayCount, BusinessDayConventionEnum businessDayConvention, HolidayCalendarContainer calendars) {
     if(businessDayConvention == BusinessDayConventionEnum.NO_ADJUST) {
-      return date;
+      return dayCount;
     }
-    short startMonth = businessDayConvention == BusinessDayConventionEnum.MODFOLLOWING || businessDayConvention == BusinessDayConventionEnum.MODPRECEDING ? date.getMonthOfYear() : 0;
-    int startDate = date.getDayCount();
-    while(calendars.isWeekendOrPublicHoliday(date)) {
-      int dayOfWeek = date.getDayOfWeek();
-      switch(businessDayConvention) {
-        case FOLLOWING:
-          date.addDays(dayOfWeek == Calendar.SATURDAY ? 2 : 1);
-          break;
-        case MODFOLLOWING:
-          date.addDays(1);
-          if(date.getMonthOfYear() != startMonth) {
-            // if we've strayed to the next month, rewind to the starting date, and go backwards instead
-            date.setDayCount(startDate);
-            return adjustDate(date, BusinessDayConventionEnum.PRECEDING, calendars);
-          }
-          break;
-        case PRECEDING:
-          date.addDays(dayOfWeek == Calendar.SUNDAY ? -2 : -1);
-          break;
-        case MODPRECEDING:
-          date.addDays(-1);
-          if(date.getMonthOfYear() != startMonth) {
-            // if we've strayed to the previous month, fast forward to the starting date, and go forwards instead
-            date.setDayCount(startDate);
-            return adjustDate(date, BusinessDayConventionEnum.FOLLOWING, calendars);
-          }
-          break;
-        case NEAREST:
-          if(dayOfWeek == Calendar.SUNDAY || dayOfWeek == Calendar.MONDAY) {
-            return adjustDate(date, BusinessDayConventionEnum.FOLLOWING, calendars);
-          } else {
-            return adjustDate(date, BusinessDayConventionEnum.PRECEDING, calendars);
-          }
-        default:
-          throw new PricerException("Unhandled business day convention " + businessDayConvention);
-      }
+    BusinessDayCalendar businessDays = calendars.getBusinessDayCalendar();
+    if(businessDays.isBusinessDay(dayCount)) {
+      return dayCount;
     }
-    return date;
+    int adjusted;
+    switch(businessDayConvention) {
+      case FOLLOWING:
+        return businessDays.nextBusinessDay(dayCount);
+      case MODFOLLOWING:
+        adjusted = businessDays.nextBusinessDay(dayCount);
+        if(!sameMonth(adjusted, dayCount)) {
+          // if we've strayed to the next month, go backwards from the starting date instead
+          adjusted = businessDays.previousBusinessDay(dayCount);
+        }
+        return adjusted;
+      case PRECEDING:
+        return businessDays.previousBusinessDay(dayCount);
+      case MODPRECEDING:
+        adjusted = businessDays.previousBusinessDay(dayCount);
+        if(!sameMonth(adjusted, dayCount)) {
+          // if we've strayed to the previous month, go forwards from the starting date instead
+          adjusted = businessDays.nextBusinessDay(dayCount);
+        }
+        return adjusted;
+      case NEAREST:
+        int dayOfWeek = (dayCount + 3) % 7 + 1;
+        if(dayOfWeek == Calendar.SUNDAY || dayOfWeek == Calendar.MONDAY) {
+          return businessDays.nextBusinessDay(dayCount);
+        } else {
+          return businessDays.previousBusinessDay(dayCount);
+        }
+      default:
+        throw new PricerException("Unhandled business day convention " + businessDayConvention);
+    }
+  }
+
+  private static boolean sameMonth(int dayCount1, int dayCount2) {
+    return PackedDate.month(DateUtil.dayCountToYearMonthDay(dayCount1)) == PackedDate.month(DateUtil.dayCountToYearMonthDay(dayCount2));
   }
 
   /**
@@ -145,70 +167,113 @@ public class SwapStreamDateCalculator {
    * @return the unadjusted period dates in order
    */
   public List<DateWithDayCount> calculateUnadjustedPeriodDates(DateWithDayCount effectiveDate, DateWithDayCount firstRegularPeriodStartDate, DateWithDayCount lastRegularPeriodEndDate, DateWithDayCount terminationDate, CalculationPeriodFrequency calculationPeriodFrequency) {
-    List<DateWithDayCount> result = new ArrayList<DateWithDayCount>();
-    result.add(effectiveDate);
+    return DateWithDayCount.fromDayCounts(calculateUnadjustedPeriodDayCounts(effectiveDate.getDayCount(), toDayCount(firstRegularPeriodStartDate), toDayCount(lastRegularPeriodEndDate), terminationDate.getDayCount(), calculationPeriodFrequency));
+  }
+
+  /**
+   * Equivalent to the call <code>calculateUnadjustedPeriodDates(stream.getEffectiveDate().getUnadjustedDate(), stream.getFirstRegularPeriodStartDate(), stream.getLastRegularPeriodEndDate(), stream.getTerminationDate().getUnadjustedDate(), stream.getCalculationPeriodFrequency())</code>.
+   * Given the necessary information to calculate the schedule of unadjusted period dates, calculate them and return as
+   * a list.
+   *
+   * @param stream stream to calculate unadjusted dates for
+   * @return the unadjusted period dates in order
+   */
+  public List<DateWithDayCount> calculateUnadjustedPeriodDates(SwapStream stream) {
+    return DateWithDayCount.fromDayCounts(calculateUnadjustedPeriodDayCounts(stream));
+  }
+
+  /**
+   * Primitive equivalent of {@link #calculateUnadjustedPeriodDates(SwapStream)}.
+   *
+   * @param stream stream to calculate unadjusted dates for
+   * @return the unadjusted period dates in order, as day counts
+   */
+  public int[] calculateUnadjustedPeriodDayCounts(SwapStream stream) {
+    return calculateUnadjustedPeriodDayCounts(stream.getEffectiveDate().getUnadjustedDate().getDayCount(), toDayCount(stream.getFirstRegularPeriodStartDate()), toDayCount(stream.getLastRegularPeriodEndDate()), stream.getTerminationDate().getUnadjustedDate().getDayCount(), stream.getCalculationPeriodFrequency());
+  }
+
+  /**
+   * Given the necessary information to calculate the schedule of unadjusted period dates, calculate them and return as
+   * an array of day counts.
+   *
+   * @param effectiveDate swap stream effective date
+   * @param firstRegularPeriodStartDate beginning of the first regular period if specified in the FpML, NO_DATE otherwise
+   * @param lastRegularPeriodEndDate end of the last regular period if specified in the FpML, NO_DATE otherwise
+   * @param terminationDate swap stream end date
+   * @param calculationPeriodFrequency period frequency and roll convention
+   * @return the unadjusted period dates in order
+   */
+  public int[] calculateUnadjustedPeriodDayCounts(int effectiveDate, int firstRegularPeriodStartDate, int lastRegularPeriodEndDate, int terminationDate, CalculationPeriodFrequency calculationPeriodFrequency) {
+    int[] result = new int[16];
+    int size = 0;
+    result[size++] = effectiveDate;
 
     if(calculationPeriodFrequency.getPeriod() != PeriodEnum.T) {
-      DateWithDayCount start = effectiveDate;
-      if(firstRegularPeriodStartDate != null && firstRegularPeriodStartDate.compareTo(terminationDate) < 0) {
-        result.add(firstRegularPeriodStartDate);
+      int start = effectiveDate;
+      if(firstRegularPeriodStartDate != NO_DATE && firstRegularPeriodStartDate < terminationDate) {
+        result[size++] = firstRegularPeriodStartDate;
         start = firstRegularPeriodStartDate;
       }
-      DateWithDayCount end = lastRegularPeriodEndDate == null ? terminationDate : lastRegularPeriodEndDate;
+      int end = lastRegularPeriodEndDate == NO_DATE ? terminationDate : lastRegularPeriodEndDate;
 
-      DateWithDayCount current = new DateWithDayCount(start);
-      while(current.compareTo(end) < 0) {
-        addPeriod(current, calculationPeriodFrequency.getPeriod(), calculationPeriodFrequency.getPeriodMultiplier(), calculationPeriodFrequency.getRollConvention());
-        if(current.compareTo(end) < 0) {
-          result.add(new DateWithDayCount(current));
+      PeriodEnum period = calculationPeriodFrequency.getPeriod();
+      int periodMultiplier = calculationPeriodFrequency.getPeriodMultiplier();
+      RollConventionEnum rollConvention = calculationPeriodFrequency.getRollConvention();
+      long current = PackedDate.fromDayCount(start);
+      while(PackedDate.dayCount(current) < end) {
+        current = addPeriod(current, period, periodMultiplier, rollConvention);
+        if(PackedDate.dayCount(current) < end) {
+          result = ensureCapacity(result, size + 1);
+          result[size++] = PackedDate.dayCount(current);
         }
       }
 
-      if(lastRegularPeriodEndDate != null && lastRegularPeriodEndDate.compareTo(effectiveDate) > 0) {
-        result.add(lastRegularPeriodEndDate);
+      if(lastRegularPeriodEndDate != NO_DATE && lastRegularPeriodEndDate > effectiveDate) {
+        result = ensureCapacity(result, size + 1);
+        result[size++] = lastRegularPeriodEndDate;
       }
     }
-    result.add(terminationDate);
-    return result;
+    result = ensureCapacity(result, size + 1);
+    result[size++] = terminationDate;
+    return size == result.length ? result : Arrays.copyOf(result, size);
   }
 
-  /**
-   * Equivalent to the call <code>calculateUnadjustedPeriodDates(stream.getEffectiveDate().getUnadjustedDate(), stream.getFirstRegularPeriodStartDate(), stream.getLastRegularPeriodEndDate(), stream.getTerminationDate().getUnadjustedDate(), stream.getCalculationPeriodFrequency())</code>.
-   * Given the necessary information to calculate the schedule of unadjusted period dates, calculate them and return as
-   * a list.
-   *
-   * @param stream stream to calculate unadjusted dates for
-   * @return the unadjusted period dates in order
-   */
-  public List<DateWithDayCount> calculateUnadjustedPeriodDates(SwapStream stream) {
-    return calculateUnadjustedPeriodDates(stream.getEffectiveDate().getUnadjustedDate(), stream.getFirstRegularPeriodStartDate(), stream.getLastRegularPeriodEndDate(), stream.getTerminationDate().getUnadjustedDate(), stream.getCalculationPeriodFrequency());
+  private static int[] ensureCapacity(int[] array, int size) {
+    return size <= array.length ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+  }
+
+  private static int toDayCount(DateWithDayCount date) {
+    return date == null ? NO_DATE : date.getDayCount();
   }
 
   /**
-   * Take a given date and modify it by adding the given calculation period to it, and applying the roll convention.
+   * Take a given date and add the given calculation period to it, applying the roll convention.
    *
-   * @param current the date to modify
+   * @param current the date to start from
    * @param period unit of periods
    * @param periodMultiplier number of units per period
    * @param rollConvention roll convention for monthly/yearly rolls
+   * @return the new date
    */
-  private static void addPeriod(DateWithDayCount current, PeriodEnum period, Integer periodMultiplier, RollConventionEnum rollConvention) {
+  private static long addPeriod(long current, PeriodEnum period, int periodMultiplier, RollConventionEnum rollConvention) {
     switch(period) {
       case D:
-        current.addDays(periodMultiplier);
-        break;
+        return PackedDate.addDays(current, periodMultiplier);
       case W:
-        current.addDays(7 * periodMultiplier);
-        break;
+        return PackedDate.addDays(current, 7 * periodMultiplier);
       case M:
-        current.addMonths(periodMultiplier, rollConvention);
-        break;
+        return PackedDate.addMonths(current, periodMultiplier, rollConvention);
       case Y:
-        current.addMonths(periodMultiplier * 12, rollConvention);
-        break;
+        return PackedDate.addMonths(current, periodMultiplier * 12, rollConvention);
+      default:
+        return current;
     }
   }
 
+  private static int addPeriod(int current, PeriodEnum period, int periodMultiplier, RollConventionEnum rollConvention) {
+    return PackedDate.dayCount(addPeriod(PackedDate.fromDayCount(current), period, periodMultiplier, rollConvention));
+  }
+
   /**
    * When given a list of unadjusted period dates, and the necessary business day adjustments and holiday calendars,
    * calculate and return the list of adjusted calculation period dates.  Where possible tries to use the same date
@@ -223,25 +288,31 @@ public class SwapStreamDateCalculator {
    * @return the adjusted period dates, the list will be the same length as the unadjustedDates parameter
    */
   public List<DateWithDayCount> calculateAdjustedPeriodDates(List<DateWithDayCount> unadjustedDates, BusinessDayAdjustments effectiveDateAdjustments, BusinessDayAdjustments normalAdjustments, BusinessDayAdjustments terminationDateAdjustments, HolidayCalendarContainer allCalendars) {
+    int[] adjusted = calculateAdjustedPeriodDayCounts(DateWithDayCount.toDayCounts(unadjustedDates), effectiveDateAdjustments, normalAdjustments, terminationDateAdjustments, allCalendars);
+    return toDates(adjusted, unadjustedDates, 0);
+  }
+
+  /**
+   * Primitive equivalent of {@link #calculateAdjustedPeriodDates(List, BusinessDayAdjustments, BusinessDayAdjustments, BusinessDayAdjustments, HolidayCalendarContainer)}.
+   *
+   * @param unadjustedDates the pre-calculated unadjusted period dates, will not be modified
+   * @param effectiveDateAdjustments adjustments to apply to the first date only
+   * @param normalAdjustments adjustments to apply to every date except first and last
+   * @param terminationDateAdjustments adjustments to apply to the last date only
+   * @param allCalendars all holiday calendars in existence, appropriate calendars will be extracted
+   * @return the adjusted period dates, the array will be the same length as the unadjustedDates parameter
+   */
+  public int[] calculateAdjustedPeriodDayCounts(int[] unadjustedDates, BusinessDayAdjustments effectiveDateAdjustments, BusinessDayAdjustments normalAdjustments, BusinessDayAdjustments terminationDateAdjustments, HolidayCalendarContainer allCalendars) {
     HolidayCalendarContainer[] calendars = {
-      new HolidayCalendarContainer(allCalendars, effectiveDateAdjustments.getBusinessCenters()),
-      new HolidayCalendarContainer(allCalendars, normalAdjustments.getBusinessCenters()),
-      new HolidayCalendarContainer(allCalendars, terminationDateAdjustments.getBusinessCenters())
+      allCalendars.getCombinedCalendars(effectiveDateAdjustments.getBusinessCenters()),
+      allCalendars.getCombinedCalendars(normalAdjustments.getBusinessCenters()),
+      allCalendars.getCombinedCalendars(terminationDateAdjustments.getBusinessCenters())
     };
-    List<DateWithDayCount> adjustedDates = new ArrayList<DateWithDayCount>(unadjustedDates.size());
-    DateWithDayCount temp = new DateWithDayCount(0);
-    for(int index = 0, last = unadjustedDates.size() - 1; index <= last; index++) {
-      DateWithDayCount toAdjust = unadjustedDates.get(index);
-      temp.setDayCount(toAdjust.getDayCount());
-      adjustDate(temp,
+    int[] adjustedDates = new int[unadjustedDates.length];
+    for(int index = 0, last = unadjustedDates.length - 1; index <= last; index++) {
+      adjustedDates[index] = adjustDate(unadjustedDates[index],
         index == 0 ? effectiveDateAdjustments.getBusinessDayConvention() : (index == last ? terminationDateAdjustments.getBusinessDayConvention() : normalAdjustments.getBusinessDayConvention()),
         calendars[index == 0 ? 0 : (index == last ? 2 : 1)]);
-      if(temp.compareTo(toAdjust) == 0) {
-        adjustedDates.add(toAdjust);
-      } else {
-        adjustedDates.add(temp);
-        temp = new DateWithDayCount(0);
-      }
     }
     return adjustedDates;
   }
@@ -258,6 +329,17 @@ public class SwapStreamDateCalculator {
     return calculateAdjustedPeriodDates(calculateUnadjustedPeriodDates(stream), stream.getEffectiveDate().getBusinessDayAdjustments(), stream.getCalculationPeriodDatesAdjustments(), stream.getTerminationDate().getBusinessDayAdjustments(), allCalendars);
   }
 
+  /**
+   * Primitive equivalent of {@link #calculateAdjustedPeriodDates(SwapStream, HolidayCalendarContainer)}.
+   *
+   * @param stream the stream to produce dates for
+   * @param allCalendars all holiday calendars in existence, appropriate calendars will be extracted
+   * @return the adjusted period dates as day counts
+   */
+  public int[] calculateAdjustedPeriodDayCounts(SwapStream stream, HolidayCalendarContainer allCalendars) {
+    return calculateAdjustedPeriodDayCounts(calculateUnadjustedPeriodDayCounts(stream), stream.getEffectiveDate().getBusinessDayAdjustments(), stream.getCalculationPeriodDatesAdjustments(), stream.getTerminationDate().getBusinessDayAdjustments(), allCalendars);
+  }
+
   /**
    * Take a date and shift it according to the parameters.  Used for fixing lags, payment lags, etc.  This method
    * modifies the provided date, and does not create a new DateWithDayCount object.
@@ -271,26 +353,33 @@ public class SwapStreamDateCalculator {
    * @return for convenience, returns the modified date paramter for method chaining
    */
   public DateWithDayCount shift(DateWithDayCount date, int periodMultiplier, PeriodEnum period, DayTypeEnum dayType, BusinessDayConventionEnum businessDayConvention, HolidayCalendarContainer holidayCalendarContainer) {
+    date.setDayCount(shift(date.getDayCount(), periodMultiplier, period, dayType, businessDayConvention, holidayCalendarContainer));
+    return date;
+  }
+
+  /**
+   * Take a date and shift it according to the parameters.  Used for fixing lags, payment lags, etc.
+   *
+   * @param dayCount the date to shift
+   * @param periodMultiplier number of periods to shift by, can be negative
+   * @param period period type, the only acceptable period is days
+   * @param dayType type applied to days
+   * @param businessDayConvention business day convention to apply
+   * @param holidayCalendarContainer all holiday calendars, relevant ones will be extracted for use
+   * @return the shifted date
+   */
+  public int shift(int dayCount, int periodMultiplier, PeriodEnum period, DayTypeEnum dayType, BusinessDayConventionEnum businessDayConvention, HolidayCalendarContainer holidayCalendarContainer) {
     if(period != PeriodEnum.D) {
       throw new PricerException("Unhandled period " + period + ", expected D");
     }
     switch(dayType) {
       case BUSINESS:
-        int signum = Integer.signum(periodMultiplier);
-        int abs = Math.abs(periodMultiplier);
-        for(int i = 0; i < abs; i++) {
-          date.addDays(signum);
-          adjustDate(date, signum == -1 ? BusinessDayConventionEnum.PRECEDING : BusinessDayConventionEnum.FOLLOWING, holidayCalendarContainer);
-        }
-        break;
+        return holidayCalendarContainer.getBusinessDayCalendar().addBusinessDays(dayCount, periodMultiplier);
       case CALENDAR:
-        date.addDays(periodMultiplier);
-        adjustDate(date, businessDayConvention, holidayCalendarContainer);
-        break;
+        return adjustDate(dayCount + periodMultiplier, businessDayConvention, holidayCalendarContainer);
       default:
         throw new PricerException("Unhandled dayType " + dayType + ", expected BUSINESS or CALENDAR");
     }
-    return date;
   }
 
   /**
@@ -304,23 +393,29 @@ public class SwapStreamDateCalculator {
    * @return a list of payment dates, one per period - so length will be one less than the number of unadjustedDates
    */
   public List<DateWithDayCount> calculatePaymentDates(List<DateWithDayCount> adjustedDates, PaymentDates paymentDates, HolidayCalendarContainer allCalendars) {
+    int[] result = calculatePaymentDayCounts(DateWithDayCount.toDayCounts(adjustedDates), paymentDates, allCalendars);
+    return toDates(result, adjustedDates, paymentDates.getPayRelativeTo() == PayRelativeToEnum.CALCULATION_PERIOD_END_DATE ? 1 : 0);
+  }
+
+  /**
+   * Primitive equivalent of {@link #calculatePaymentDates(List, PaymentDates, HolidayCalendarContainer)}.
+   *
+   * @param adjustedDates pre-calculated adjusted period dates
+   * @param paymentDates rules for payment date calculation
+   * @param allCalendars all holiday calendars, relevant ones will be extracted for use
+   * @return payment dates, one per period - so length will be one less than the number of adjustedDates
+   */
+  public int[] calculatePaymentDayCounts(int[] adjustedDates, PaymentDates paymentDates, HolidayCalendarContainer allCalendars) {
     // todo compounded payment dates
     // calculate unadjusted dates for payment schedule from effective/first regular payment/last regular payment/termination
     // to match up to period need to know multiplier, i.e. 1m period 1y payment = 12x periods per payment
-    HolidayCalendarContainer paymentCalendars = new HolidayCalendarContainer(allCalendars, paymentDates.getPaymentDatesAdjustments().getBusinessCenters());
-    List<DateWithDayCount> result = new ArrayList<DateWithDayCount>(adjustedDates.size() - 1);
+    HolidayCalendarContainer paymentCalendars = allCalendars.getCombinedCalendars(paymentDates.getPaymentDatesAdjustments().getBusinessCenters());
+    BusinessDayConventionEnum businessDayConvention = paymentDates.getPaymentDatesAdjustments().getBusinessDayConvention();
     boolean payInArrears = paymentDates.getPayRelativeTo() == PayRelativeToEnum.CALCULATION_PERIOD_END_DATE;
-    DateWithDayCount temp = new DateWithDayCount(0);
-    for(int i = payInArrears ? 1 : 0, last = adjustedDates.size() - (payInArrears ? 1 : 2); i <= last; i++) {
-      DateWithDayCount unadjusted = adjustedDates.get(i);
-      temp.setDayCount(unadjusted.getDayCount());
-      adjustDate(temp, paymentDates.getPaymentDatesAdjustments().getBusinessDayConvention(), paymentCalendars);
-      if(temp.compareTo(unadjusted) == 0) {
-        result.add(unadjusted);
-      } else {
-        result.add(temp);
-        temp = new DateWithDayCount(0);
-      }
+    int first = payInArrears ? 1 : 0;
+    int[] result = new int[adjustedDates.length - 1];
+    for(int i = 0; i < result.length; i++) {
+      result[i] = adjustDate(adjustedDates[i + first], businessDayConvention, paymentCalendars);
     }
     return result;
   }
@@ -337,6 +432,21 @@ public class SwapStreamDateCalculator {
    * @return number of days in each period, so array will be one smaller than adjustedDates parameter
    */
   public double[] getDayCountFractions(List<DateWithDayCount> adjustedDates, DayCountFractionEnum dayCountFraction, CalculationPeriodFrequency regularCalculationPeriod, Boolean hasInitialStub, Boolean hasFinalStub) {
+    return getDayCountFractions(DateWithDayCount.toDayCounts(adjustedDates), dayCountFraction, regularCalculationPeriod, hasInitialStub, hasFinalStub);
+  }
+
+  /**
+   * Given a set of dates and a day count fraction, calculate the number of days in each period for calculation
+   * purposes.
+   *
+   * @param adjustedDates period dates as day counts
+   * @param dayCountFraction the day count fraction to use for calculation
+   * @param regularCalculationPeriod frequency information for regular calculation periods
+   * @param hasInitialStub whether the initial period is irregular, only required for ACT_ACT_ICMA and ACT_ACT_ISMA
+   * @param hasFinalStub whether the final period is irregular, only required for ACT_ACT_ICMA and ACT_ACT_ISMA
+   * @return number of days in each period, so array will be one smaller than adjustedDates parameter
+   */
+  public double[] getDayCountFractions(int[] adjustedDates, DayCountFractionEnum dayCountFraction, CalculationPeriodFrequency regularCalculationPeriod, Boolean hasInitialStub, Boolean hasFinalStub) {
     if(dayCountFraction == DayCountFractionEnum.ACT_ACT_ICMA || dayCountFraction == DayCountFractionEnum.ACT_ACT_ISMA) {
       if(regularCalculationPeriod == null) {
         throw new PricerException("Regular calculation period required for " + dayCountFraction.value());
@@ -344,76 +454,78 @@ public class SwapStreamDateCalculator {
         throw new PricerException("Can only handle yearly or monthly regular calculation periods for " + dayCountFraction.value());
       }
     }
-    double[] result = new double[adjustedDates.size() - 1];
-    for(int i = 0, last = adjustedDates.size() - 2; i <= last; i++) {
-      DateWithDayCount startDate = adjustedDates.get(i);
-      DateWithDayCount endDate = adjustedDates.get(i + 1);
+    double[] result = new double[adjustedDates.length - 1];
+    long endDate = PackedDate.fromDayCount(adjustedDates[0]);
+    for(int i = 0, last = adjustedDates.length - 2; i <= last; i++) {
+      long startDate = endDate;
+      endDate = PackedDate.fromDayCount(adjustedDates[i + 1]);
+      int startDayCount = PackedDate.dayCount(startDate);
+      int endDayCount = PackedDate.dayCount(endDate);
       switch(dayCountFraction) {
         case SINGLE:
           result[i] = 1;
           break;
         case ACT_ACT_ISDA:
-          short startYear = startDate.getYear();
-          short endYear = endDate.getYear();
+          int startYear = PackedDate.year(startDate);
+          int endYear = PackedDate.year(endDate);
           if(startYear == endYear) {
-            result[i] = (double)(endDate.getDayCount() - startDate.getDayCount()) / DateUtil.daysInYear(startYear);
+            result[i] = (double)(endDayCount - startDayCount) / DateUtil.daysInYear(startYear);
           } else {
-            result[i] = (double)(DateUtil.dateToDayCount(new short[]{(short)(startYear + 1), 1, 1}) - startDate.getDayCount()) / DateUtil.daysInYear(startYear)
+            result[i] = (double)(DateUtil.dateToDayCount(startYear + 1, 1, 1) - startDayCount) / DateUtil.daysInYear(startYear)
               + endYear - startYear - 1
-              + (double)(endDate.getDayCount() - DateUtil.dateToDayCount(new short[]{endYear, 1, 1})) / DateUtil.daysInYear(endYear);
+              + (double)(endDayCount - DateUtil.dateToDayCount(endYear, 1, 1)) / DateUtil.daysInYear(endYear);
           }
           break;
         case ACT_ACT_ICMA:
         case ACT_ACT_ISMA:
-          double periodsPerYear = 12.0 / (regularCalculationPeriod.getPeriod() == PeriodEnum.Y ? 12 * regularCalculationPeriod.getPeriodMultiplier() : regularCalculationPeriod.getPeriodMultiplier());
+          PeriodEnum period = regularCalculationPeriod.getPeriod();
+          int periodMultiplier = regularCalculationPeriod.getPeriodMultiplier();
+          RollConventionEnum rollConvention = regularCalculationPeriod.getRollConvention();
+          double periodsPerYear = 12.0 / (period == PeriodEnum.Y ? 12 * periodMultiplier : periodMultiplier);
           result[i] = 0;
           if(hasInitialStub && i == 0) {
-            DateWithDayCount tempEndDate = new DateWithDayCount(endDate);
-            DateWithDayCount tempStartDate = new DateWithDayCount(0);
-            while(tempEndDate.compareTo(startDate) > 0) {
-              tempStartDate.setDayCount(tempEndDate.getDayCount());
-              addPeriod(tempStartDate, regularCalculationPeriod.getPeriod(), -regularCalculationPeriod.getPeriodMultiplier(), regularCalculationPeriod.getRollConvention());
-              result[i] += (double)(tempEndDate.getDayCount() - Math.max(tempStartDate.getDayCount(), startDate.getDayCount())) / (periodsPerYear * (tempEndDate.getDayCount() - tempStartDate.getDayCount()));
-              tempEndDate.setDayCount(tempStartDate.getDayCount());
+            int tempEndDate = endDayCount;
+            while(tempEndDate > startDayCount) {
+              int tempStartDate = addPeriod(tempEndDate, period, -periodMultiplier, rollConvention);
+              result[i] += (double)(tempEndDate - Math.max(tempStartDate, startDayCount)) / (periodsPerYear * (tempEndDate - tempStartDate));
+              tempEndDate = tempStartDate;
             }
           } else if(hasFinalStub && i == last) {
-            DateWithDayCount tempStartDate = new DateWithDayCount(startDate);
-            DateWithDayCount tempEndDate = new DateWithDayCount(0);
-            while(tempStartDate.compareTo(endDate) < 0) {
-              tempEndDate.setDayCount(tempStartDate.getDayCount());
-              addPeriod(tempEndDate, regularCalculationPeriod.getPeriod(), regularCalculationPeriod.getPeriodMultiplier(), regularCalculationPeriod.getRollConvention());
-              result[i] += (double)(Math.min(tempEndDate.getDayCount(), endDate.getDayCount()) - tempStartDate.getDayCount()) / (periodsPerYear * (tempEndDate.getDayCount() - tempStartDate.getDayCount()));
-              tempStartDate.setDayCount(tempEndDate.getDayCount());
+            int tempStartDate = startDayCount;
+            while(tempStartDate < endDayCount) {
+              int tempEndDate = addPeriod(tempStartDate, period, periodMultiplier, rollConvention);
+              result[i] += (double)(Math.min(tempEndDate, endDayCount) - tempStartDate) / (periodsPerYear * (tempEndDate - tempStartDate));
+              tempStartDate = tempEndDate;
             }
           } else {
             result[i] = 1.0 / periodsPerYear;
           }
           break;
         case ACT_365_FIXED:
-          result[i] = (double)(endDate.getDayCount() - startDate.getDayCount()) / 365;
+          result[i] = (double)(endDayCount - startDayCount) / 365;
           break;
         case ACT_360:
-          result[i] = (double)(endDate.getDayCount() - startDate.getDayCount()) / 360;
+          result[i] = (double)(endDayCount - startDayCount) / 360;
           break;
         case THIRTY_360:
-          result[i] = (double)(360 * (endDate.getYear() - startDate.getYear())
-            + 30 * (endDate.getMonthOfYear() - startDate.getMonthOfYear())
-            + (endDate.getDayOfMonth() == 31 && startDate.getDayOfMonth() > 29 ? 30 : endDate.getDayOfMonth())
-            - Math.min(startDate.getDayOfMonth(), 30))
+          result[i] = (double)(360 * (PackedDate.year(endDate) - PackedDate.year(startDate))
+            + 30 * (PackedDate.month(endDate) - PackedDate.month(startDate))
+            + (PackedDate.day(endDate) == 31 && PackedDate.day(startDate) > 29 ? 30 : PackedDate.day(endDate))
+            - Math.min(PackedDate.day(startDate), 30))
             / 360.0;
           break;
         case THIRTY_E_360:
-          result[i] = (double)(360 * (endDate.getYear() - startDate.getYear())
-            + 30 * (endDate.getMonthOfYear() - startDate.getMonthOfYear())
-            + Math.min(endDate.getDayOfMonth(), 30)
-            - Math.min(startDate.getDayOfMonth(), 30))
+          result[i] = (double)(360 * (PackedDate.year(endDate) - PackedDate.year(startDate))
+            + 30 * (PackedDate.month(endDate) - PackedDate.month(startDate))
+            + Math.min(PackedDate.day(endDate), 30)
+            - Math.min(PackedDate.day(startDate), 30))
             / 360.0;
           break;
         case THIRTY_E_360_ISDA:
-          result[i] = (double)(360 * (endDate.getYear() - startDate.getYear())
-            + 30 * (endDate.getMonthOfYear() - startDate.getMonthOfYear())
-            + (endDate.getDayOfMonth() == 31 || (i != last && endDate.getMonthOfYear() == 2 && DateUtil.dateToDayCount(new short[]{endDate.getYear(), 3, 1}) - 1 == endDate.getDayCount()) ? 30 : endDate.getDayOfMonth())
-            - (startDate.getDayOfMonth() == 31 || (startDate.getMonthOfYear() == 2 && DateUtil.dateToDayCount(new short[]{startDate.getYear(), 3, 1}) - 1 == startDate.getDayCount()) ? 30 : startDate.getDayOfMonth()))
+          result[i] = (double)(360 * (PackedDate.year(endDate) - PackedDate.year(startDate))
+            + 30 * (PackedDate.month(endDate) - PackedDate.month(startDate))
+            + (PackedDate.day(endDate) == 31 || (i != last && PackedDate.month(endDate) == 2 && PackedDate.isLastDayOfMonth(endDate)) ? 30 : PackedDate.day(endDate))
+            - (PackedDate.day(startDate) == 31 || (PackedDate.month(startDate) == 2 && PackedDate.isLastDayOfMonth(startDate)) ? 30 : PackedDate.day(startDate)))
             / 360.0;
           break;
         default:
@@ -433,30 +545,53 @@ public class SwapStreamDateCalculator {
    * @return the calculated fixing dates
    */
   public List<DateWithDayCount> calculateFixingDates(List<DateWithDayCount> adjustedDates, ResetDates resetDates, HolidayCalendarContainer allCalendars) {
-    HolidayCalendarContainer resetCalendars = new HolidayCalendarContainer(allCalendars, resetDates.getResetDatesAdjustments().getBusinessCenters());
+    int[] result = calculateFixingDayCounts(DateWithDayCount.toDayCounts(adjustedDates), resetDates, allCalendars);
+    return toDates(result, adjustedDates, resetDates.getResetRelativeTo() == ResetRelativeToEnum.CALCULATION_PERIOD_END_DATE ? 1 : 0);
+  }
+
+  /**
+   * Primitive equivalent of {@link #calculateFixingDates(List, ResetDates, HolidayCalendarContainer)}.
+   *
+   * @param adjustedDates adjusted calculation period dates
+   * @param resetDates rules for adjustment for reset and fixing dates
+   * @param allCalendars all holiday calendars, for extraction of reset/initialfixing/fixing calendars
+   * @return the calculated fixing dates, one per period
+   */
+  public int[] calculateFixingDayCounts(int[] adjustedDates, ResetDates resetDates, HolidayCalendarContainer allCalendars) {
+    HolidayCalendarContainer resetCalendars = allCalendars.getCombinedCalendars(resetDates.getResetDatesAdjustments().getBusinessCenters());
+    BusinessDayConventionEnum resetConvention = resetDates.getResetDatesAdjustments().getBusinessDayConvention();
     RelativeDateOffset initialFixingDate = resetDates.getInitialFixingDate();
     RelativeDateOffset fixingDates = resetDates.getFixingDates();
-    HolidayCalendarContainer initialFixingCalendar = initialFixingDate == null ? null : new HolidayCalendarContainer(allCalendars, initialFixingDate.getBusinessCenters());
-    HolidayCalendarContainer fixingCalendars = new HolidayCalendarContainer(allCalendars, fixingDates.getBusinessCenters());
-    List<DateWithDayCount> result = new ArrayList<DateWithDayCount>(adjustedDates.size() - 1);
+    HolidayCalendarContainer initialFixingCalendar = initialFixingDate == null ? null : allCalendars.getCombinedCalendars(initialFixingDate.getBusinessCenters());
+    HolidayCalendarContainer fixingCalendars = allCalendars.getCombinedCalendars(fixingDates.getBusinessCenters());
     boolean resetInArrears = resetDates.getResetRelativeTo() == ResetRelativeToEnum.CALCULATION_PERIOD_END_DATE;
-    DateWithDayCount temp = new DateWithDayCount(0);
-    for(int first = resetInArrears ? 1 : 0, i = first, last = adjustedDates.size() - (resetInArrears ? 1 : 2); i <= last; i++) {
-      DateWithDayCount adjusted = adjustedDates.get(i);
-      temp.setDayCount(adjusted.getDayCount());
-      adjustDate(temp, resetDates.getResetDatesAdjustments().getBusinessDayConvention(), resetCalendars);
-      boolean isInitialFixing = initialFixingDate != null && i == first;
+    int first = resetInArrears ? 1 : 0;
+    int[] result = new int[adjustedDates.length - 1];
+    for(int i = 0; i < result.length; i++) {
+      int resetDate = adjustDate(adjustedDates[i + first], resetConvention, resetCalendars);
+      boolean isInitialFixing = initialFixingDate != null && i == 0;
       RelativeDateOffset offset = isInitialFixing ? initialFixingDate : fixingDates;
-      shift(temp, offset.getPeriodMultiplier(), offset.getPeriod(), offset.getDayType(), offset.getBusinessDayConvention(), isInitialFixing ? initialFixingCalendar : fixingCalendars);
+      result[i] = shift(resetDate, offset.getPeriodMultiplier(), offset.getPeriod(), offset.getDayType(), offset.getBusinessDayConvention(), isInitialFixing ? initialFixingCalendar : fixingCalendars);
       // todo initial fixing date
-      if(temp.compareTo(adjusted) == 0) {
-        result.add(adjusted);
-      } else {
-        result.add(temp);
-        temp = new DateWithDayCount(0);
-      }
     }
     return result;
+  }
 
+  /**
+   * Convert calculated day counts back into dates, reusing the date instances from the source list where the date is
+   * unchanged.
+   *
+   * @param dayCounts calculated dates
+   * @param source dates the calculation started from
+   * @param sourceOffset index into source corresponding to the first calculated date
+   * @return a list of dates of the same length as dayCounts
+   */
+  private static List<DateWithDayCount> toDates(int[] dayCounts, List<DateWithDayCount> source, int sourceOffset) {
+    List<DateWithDayCount> result = new ArrayList<DateWithDayCount>(dayCounts.length);
+    for(int i = 0; i < dayCounts.length; i++) {
+      DateWithDayCount original = source.get(i + sourceOffset);
+      result.add(original.getDayCount() == dayCounts[i] ? original : new DateWithDayCount(dayCounts[i]));
+    }
+    return result;
   }
 }
@@ -0,0 +1,287 @@
+package com.twock.swappricer.fpml;
+
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.fpml.model.*;
+import com.twock.swappricer.fpml.model.enumeration.*;
+
+/**
+ * The flattened form of a {@link SwapStream} shared by the trade store and the trade book: a presence flags int, then
+ * every field of the stream and its nested objects in a fixed order, each as an int, an enum ordinal byte, a double,
+ * a string or a set of business centres.  How each is held is up to the {@link FieldWriter} and {@link FieldReader},
+ * which the store implements over its stream records and the book over its columns.
+ * <p/>
+ * Nested objects and doubles are recorded as absent in the flags, as a double has no spare value to represent null.
+ * Other null ints, including dates, are written as {@link #NULL_INT} and null enums as {@link #NULL_ENUM}.  Enums are
+ * written as their ordinal, so anything persisted must be versioned whenever the constants of an FpML enum are
+ * reordered.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public final class SwapStreamEncoding {
+  public static final int NULL_INT = Integer.MIN_VALUE;
+  public static final byte NULL_ENUM = -1;
+
+  public static final int HAS_EFFECTIVE_DATE = 1;
+  public static final int HAS_EFFECTIVE_DATE_ADJUSTMENTS = 1 << 1;
+  public static final int HAS_TERMINATION_DATE = 1 << 2;
+  public static final int HAS_TERMINATION_DATE_ADJUSTMENTS = 1 << 3;
+  public static final int HAS_CALCULATION_PERIOD_DATES_ADJUSTMENTS = 1 << 4;
+  public static final int HAS_CALCULATION_PERIOD_FREQUENCY = 1 << 5;
+  public static final int HAS_PAYMENT_DATES = 1 << 6;
+  public static final int HAS_PAYMENT_DAYS_OFFSET = 1 << 7;
+  public static final int HAS_PAYMENT_DATES_ADJUSTMENTS = 1 << 8;
+  public static final int HAS_RESET_DATES = 1 << 9;
+  public static final int HAS_INITIAL_FIXING_DATE = 1 << 10;
+  public static final int HAS_FIXING_DATES = 1 << 11;
+  public static final int HAS_RESET_DATES_ADJUSTMENTS = 1 << 12;
+  public static final int HAS_NOTIONAL_AMOUNT = 1 << 13;
+  public static final int HAS_FIXED_RATE = 1 << 14;
+  public static final int HAS_SPREAD = 1 << 15;
+  public static final int HAS_INITIAL_RATE = 1 << 16;
+
+  private static final PeriodEnum[] PERIODS = PeriodEnum.values();
+  private static final RollConventionEnum[] ROLL_CONVENTIONS = RollConventionEnum.values();
+  private static final BusinessDayConventionEnum[] BUSINESS_DAY_CONVENTIONS = BusinessDayConventionEnum.values();
+  private static final DayTypeEnum[] DAY_TYPES = DayTypeEnum.values();
+  private static final PayRelativeToEnum[] PAY_RELATIVE_TOS = PayRelativeToEnum.values();
+  private static final ResetRelativeToEnum[] RESET_RELATIVE_TOS = ResetRelativeToEnum.values();
+  private static final DayCountFractionEnum[] DAY_COUNT_FRACTIONS = DayCountFractionEnum.values();
+  private static final CompoundingMethodEnum[] COMPOUNDING_METHODS = CompoundingMethodEnum.values();
+
+  /**
+   * Receives the fields of a stream in order.
+   */
+  public interface FieldWriter {
+    void writeInt(int value);
+
+    void writeEnum(byte ordinal);
+
+    /**
+     * @param value the double, null if absent from the flags
+     */
+    void writeDouble(Double value);
+
+    void writeString(String value);
+
+    void writeCentres(String[] businessCentres);
+  }
+
+  /**
+   * Supplies the fields of a stream in the order they were written.
+   */
+  public interface FieldReader {
+    int readInt();
+
+    byte readEnum();
+
+    /**
+     * @return the double, ignored if absent from the flags
+     */
+    double readDouble();
+
+    String readString();
+
+    String[] readCentres();
+  }
+
+  private SwapStreamEncoding() {
+  }
+
+  /**
+   * @return the presence flags of the stream's nested objects and doubles
+   */
+  public static int flags(SwapStream stream) {
+    AdjustableDate effectiveDate = stream.getEffectiveDate();
+    AdjustableDate terminationDate = stream.getTerminationDate();
+    PaymentDates paymentDates = stream.getPaymentDates();
+    ResetDates resetDates = stream.getResetDates();
+    int flags = 0;
+    flags |= effectiveDate == null ? 0 : HAS_EFFECTIVE_DATE | (effectiveDate.getBusinessDayAdjustments() == null ? 0 : HAS_EFFECTIVE_DATE_ADJUSTMENTS);
+    flags |= terminationDate == null ? 0 : HAS_TERMINATION_DATE | (terminationDate.getBusinessDayAdjustments() == null ? 0 : HAS_TERMINATION_DATE_ADJUSTMENTS);
+    flags |= stream.getCalculationPeriodDatesAdjustments() == null ? 0 : HAS_CALCULATION_PERIOD_DATES_ADJUSTMENTS;
+    flags |= stream.getCalculationPeriodFrequency() == null ? 0 : HAS_CALCULATION_PERIOD_FREQUENCY;
+    if(paymentDates != null) {
+      flags |= HAS_PAYMENT_DATES;
+      flags |= paymentDates.getPaymentDaysOffset() == null ? 0 : HAS_PAYMENT_DAYS_OFFSET;
+      flags |= paymentDates.getPaymentDatesAdjustments() == null ? 0 : HAS_PAYMENT_DATES_ADJUSTMENTS;
+    }
+    if(resetDates != null) {
+      flags |= HAS_RESET_DATES;
+      flags |= resetDates.getInitialFixingDate() == null ? 0 : HAS_INITIAL_FIXING_DATE;
+      flags |= resetDates.getFixingDates() == null ? 0 : HAS_FIXING_DATES;
+      flags |= resetDates.getResetDatesAdjustments() == null ? 0 : HAS_RESET_DATES_ADJUSTMENTS;
+    }
+    flags |= stream.getNotionalAmount() == null ? 0 : HAS_NOTIONAL_AMOUNT;
+    flags |= stream.getFixedRate() == null ? 0 : HAS_FIXED_RATE;
+    flags |= stream.getSpread() == null ? 0 : HAS_SPREAD;
+    flags |= stream.getInitialRate() == null ? 0 : HAS_INITIAL_RATE;
+    return flags;
+  }
+
+  /**
+   * Write the flags and then every field of the stream, absent ones included.
+   */
+  public static void write(SwapStream stream, FieldWriter out) {
+    AdjustableDate effectiveDate = stream.getEffectiveDate();
+    AdjustableDate terminationDate = stream.getTerminationDate();
+    CalculationPeriodFrequency calculationPeriodFrequency = stream.getCalculationPeriodFrequency();
+    PaymentDates paymentDates = stream.getPaymentDates();
+    ResetDates resetDates = stream.getResetDates();
+    out.writeInt(flags(stream));
+
+    writeDate(out, effectiveDate == null ? null : effectiveDate.getUnadjustedDate());
+    writeAdjustments(out, effectiveDate == null ? null : effectiveDate.getBusinessDayAdjustments());
+    writeDate(out, terminationDate == null ? null : terminationDate.getUnadjustedDate());
+    writeAdjustments(out, terminationDate == null ? null : terminationDate.getBusinessDayAdjustments());
+    writeAdjustments(out, stream.getCalculationPeriodDatesAdjustments());
+    writeInteger(out, calculationPeriodFrequency == null ? null : calculationPeriodFrequency.getPeriodMultiplier());
+    writeEnum(out, calculationPeriodFrequency == null ? null : calculationPeriodFrequency.getPeriod());
+    writeEnum(out, calculationPeriodFrequency == null ? null : calculationPeriodFrequency.getRollConvention());
+    writeDate(out, stream.getFirstRegularPeriodStartDate());
+    writeDate(out, stream.getLastRegularPeriodEndDate());
+
+    writeInteger(out, paymentDates == null ? null : paymentDates.getPaymentFrequencyPeriodMultiplier());
+    writeEnum(out, paymentDates == null ? null : paymentDates.getPaymentFrequencyPeriod());
+    writeEnum(out, paymentDates == null ? null : paymentDates.getPayRelativeTo());
+    Offset paymentDaysOffset = paymentDates == null ? null : paymentDates.getPaymentDaysOffset();
+    writeInteger(out, paymentDaysOffset == null ? null : paymentDaysOffset.getPeriodMultiplier());
+    writeEnum(out, paymentDaysOffset == null ? null : paymentDaysOffset.getPeriod());
+    writeEnum(out, paymentDaysOffset == null ? null : paymentDaysOffset.getDayType());
+    writeAdjustments(out, paymentDates == null ? null : paymentDates.getPaymentDatesAdjustments());
+
+    writeEnum(out, resetDates == null ? null : resetDates.getResetRelativeTo());
+    writeRelativeDateOffset(out, resetDates == null ? null : resetDates.getInitialFixingDate());
+    writeRelativeDateOffset(out, resetDates == null ? null : resetDates.getFixingDates());
+    writeInteger(out, resetDates == null ? null : resetDates.getFrequencyPeriodMultiplier());
+    writeEnum(out, resetDates == null ? null : resetDates.getFrequencyPeriod());
+    writeAdjustments(out, resetDates == null ? null : resetDates.getResetDatesAdjustments());
+
+    out.writeDouble(stream.getNotionalAmount());
+    out.writeString(stream.getNotionalCurrency());
+    writeEnum(out, stream.getDayCountFraction());
+    writeEnum(out, stream.getCompoundingMethod());
+    out.writeDouble(stream.getFixedRate());
+    out.writeString(stream.getFloatingRateIndex());
+    writeInteger(out, stream.getIndexTenorPeriodMultiplier());
+    writeEnum(out, stream.getIndexTenorPeriod());
+    out.writeDouble(stream.getSpread());
+    out.writeDouble(stream.getInitialRate());
+  }
+
+  private static void writeRelativeDateOffset(FieldWriter out, RelativeDateOffset offset) {
+    writeInteger(out, offset == null ? null : offset.getPeriodMultiplier());
+    writeEnum(out, offset == null ? null : offset.getPeriod());
+    writeEnum(out, offset == null ? null : offset.getDayType());
+    writeEnum(out, offset == null ? null : offset.getBusinessDayConvention());
+    out.writeCentres(offset == null ? null : offset.getBusinessCenters());
+  }
+
+  private static void writeAdjustments(FieldWriter out, BusinessDayAdjustments adjustments) {
+    writeEnum(out, adjustments == null ? null : adjustments.getBusinessDayConvention());
+    out.writeCentres(adjustments == null ? null : adjustments.getBusinessCenters());
+  }
+
+  private static void writeDate(FieldWriter out, DateWithDayCount date) {
+    out.writeInt(date == null ? NULL_INT : date.getDayCount());
+  }
+
+  private static void writeInteger(FieldWriter out, Integer value) {
+    if(value != null && value == NULL_INT) {
+      throw new PricerException("Unable to encode " + value);
+    }
+    out.writeInt(value == null ? NULL_INT : value);
+  }
+
+  private static void writeEnum(FieldWriter out, Enum<?> value) {
+    out.writeEnum(value == null ? NULL_ENUM : (byte)value.ordinal());
+  }
+
+  /**
+   * Read the flags and then every field of a stream, as written by {@link #write}.
+   *
+   * @return a new stream equal to the one written
+   */
+  public static SwapStream read(FieldReader in) {
+    int flags = in.readInt();
+    AdjustableDate effectiveDate = readAdjustableDate(in, flags, HAS_EFFECTIVE_DATE, HAS_EFFECTIVE_DATE_ADJUSTMENTS);
+    AdjustableDate terminationDate = readAdjustableDate(in, flags, HAS_TERMINATION_DATE, HAS_TERMINATION_DATE_ADJUSTMENTS);
+    BusinessDayAdjustments calculationPeriodDatesAdjustments = readAdjustments(in, flags, HAS_CALCULATION_PERIOD_DATES_ADJUSTMENTS);
+    Integer periodMultiplier = readInteger(in);
+    PeriodEnum period = readEnum(in, PERIODS);
+    RollConventionEnum rollConvention = readEnum(in, ROLL_CONVENTIONS);
+    CalculationPeriodFrequency calculationPeriodFrequency = (flags & HAS_CALCULATION_PERIOD_FREQUENCY) == 0 ? null : new CalculationPeriodFrequency(periodMultiplier, period, rollConvention);
+    DateWithDayCount firstRegularPeriodStartDate = readDate(in);
+    DateWithDayCount lastRegularPeriodEndDate = readDate(in);
+
+    Integer paymentFrequencyPeriodMultiplier = readInteger(in);
+    PeriodEnum paymentFrequencyPeriod = readEnum(in, PERIODS);
+    PayRelativeToEnum payRelativeTo = readEnum(in, PAY_RELATIVE_TOS);
+    Integer offsetPeriodMultiplier = readInteger(in);
+    PeriodEnum offsetPeriod = readEnum(in, PERIODS);
+    DayTypeEnum offsetDayType = readEnum(in, DAY_TYPES);
+    Offset paymentDaysOffset = (flags & HAS_PAYMENT_DAYS_OFFSET) == 0 ? null : new Offset(offsetPeriodMultiplier, offsetPeriod, offsetDayType);
+    BusinessDayAdjustments paymentDatesAdjustments = readAdjustments(in, flags, HAS_PAYMENT_DATES_ADJUSTMENTS);
+    PaymentDates paymentDates = (flags & HAS_PAYMENT_DATES) == 0 ? null : new PaymentDates(paymentFrequencyPeriodMultiplier, paymentFrequencyPeriod, payRelativeTo, paymentDaysOffset, paymentDatesAdjustments);
+
+    ResetRelativeToEnum resetRelativeTo = readEnum(in, RESET_RELATIVE_TOS);
+    RelativeDateOffset initialFixingDate = readRelativeDateOffset(in, flags, HAS_INITIAL_FIXING_DATE);
+    RelativeDateOffset fixingDates = readRelativeDateOffset(in, flags, HAS_FIXING_DATES);
+    Integer frequencyPeriodMultiplier = readInteger(in);
+    PeriodEnum frequencyPeriod = readEnum(in, PERIODS);
+    BusinessDayAdjustments resetDatesAdjustments = readAdjustments(in, flags, HAS_RESET_DATES_ADJUSTMENTS);
+    ResetDates resetDates = (flags & HAS_RESET_DATES) == 0 ? null : new ResetDates(resetRelativeTo, initialFixingDate, fixingDates, frequencyPeriodMultiplier, frequencyPeriod, resetDatesAdjustments);
+
+    Double notionalAmount = readDouble(in, flags, HAS_NOTIONAL_AMOUNT);
+    String notionalCurrency = in.readString();
+    DayCountFractionEnum dayCountFraction = readEnum(in, DAY_COUNT_FRACTIONS);
+    CompoundingMethodEnum compoundingMethod = readEnum(in, COMPOUNDING_METHODS);
+    Double fixedRate = readDouble(in, flags, HAS_FIXED_RATE);
+    String floatingRateIndex = in.readString();
+    Integer indexTenorPeriodMultiplier = readInteger(in);
+    PeriodEnum indexTenorPeriod = readEnum(in, PERIODS);
+    Double spread = readDouble(in, flags, HAS_SPREAD);
+    Double initialRate = readDouble(in, flags, HAS_INITIAL_RATE);
+    return new SwapStream(effectiveDate, terminationDate, calculationPeriodDatesAdjustments, calculationPeriodFrequency, firstRegularPeriodStartDate, lastRegularPeriodEndDate, paymentDates, resetDates, notionalAmount, notionalCurrency, dayCountFraction, compoundingMethod, fixedRate, floatingRateIndex, indexTenorPeriodMultiplier, indexTenorPeriod, spread, initialRate);
+  }
+
+  private static AdjustableDate readAdjustableDate(FieldReader in, int flags, int presentFlag, int adjustmentsFlag) {
+    DateWithDayCount unadjustedDate = readDate(in);
+    BusinessDayAdjustments adjustments = readAdjustments(in, flags, adjustmentsFlag);
+    return (flags & presentFlag) == 0 ? null : new AdjustableDate(unadjustedDate, adjustments);
+  }
+
+  private static BusinessDayAdjustments readAdjustments(FieldReader in, int flags, int presentFlag) {
+    BusinessDayConventionEnum businessDayConvention = readEnum(in, BUSINESS_DAY_CONVENTIONS);
+    String[] businessCenters = in.readCentres();
+    return (flags & presentFlag) == 0 ? null : new BusinessDayAdjustments(businessDayConvention, businessCenters);
+  }
+
+  private static RelativeDateOffset readRelativeDateOffset(FieldReader in, int flags, int presentFlag) {
+    Integer periodMultiplier = readInteger(in);
+    PeriodEnum period = readEnum(in, PERIODS);
+    DayTypeEnum dayType = readEnum(in, DAY_TYPES);
+    BusinessDayConventionEnum businessDayConvention = readEnum(in, BUSINESS_DAY_CONVENTIONS);
+    String[] businessCenters = in.readCentres();
+    return (flags & presentFlag) == 0 ? null : new RelativeDateOffset(periodMultiplier, period, dayType, businessDayConvention, businessCenters);
+  }
+
+  private static DateWithDayCount readDate(FieldReader in) {
+    int dayCount = in.readInt();
+    return dayCount == NULL_INT ? null : new DateWithDayCount(dayCount);
+  }
+
+  private static Integer readInteger(FieldReader in) {
+    int value = in.readInt();
+    return value == NULL_INT ? null : value;
+  }
+
+  private static Double readDouble(FieldReader in, int flags, int presentFlag) {
+    double value = in.readDouble();
+    return (flags & presentFlag) == 0 ? null : value;
+  }
+
+  private static <E extends Enum<E>> E readEnum(FieldReader in, E[] values) {
+    byte ordinal = in.readEnum();
+    return ordinal == NULL_ENUM ? null : values[ordinal];
+  }
+}
@@ -0,0 +1,175 @@
+package com.twock.swappricer.fpml;
+
+import com.twock.swappricer.DateUtil;
+import com.twock.swappricer.PricerException;
+
+/**
+ * Decodes FpML leaf values straight from a character buffer, such as the one returned by
+ * {@link javax.xml.stream.XMLStreamReader#getTextCharacters()}, without creating an intermediate String.  Leading
+ * and trailing whitespace is ignored.  Anything outside the common forms handled here is passed to the JDK parsers,
+ * so results and errors are the same as for {@link Integer#parseInt(String)} and {@link Double#parseDouble(String)}.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class TextDecoder {
+  /**
+   * Powers of ten that are exactly representable as a double.
+   */
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+  private static final int MAX_MANTISSA_DIGITS = 18;
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  private TextDecoder() {
+  }
+
+  /**
+   * @return an int parsed from the given characters
+   * @throws NumberFormatException if the characters are not a valid int
+   */
+  public static int parseInt(char[] text, int start, int length) {
+    int end = trimEnd(text, start, start + length);
+    int pos = trimStart(text, start, end);
+    boolean negative = false;
+    if(pos < end && (text[pos] == '-' || text[pos] == '+')) {
+      negative = text[pos++] == '-';
+    }
+    // ten digits always fit in a long, longer values are left to the JDK to reject
+    if(pos == end || end - pos > 10) {
+      return Integer.parseInt(new String(text, start, length).trim());
+    }
+    long value = 0;
+    for(; pos < end; pos++) {
+      int digit = text[pos] - '0';
+      if(digit < 0 || digit > 9) {
+        return Integer.parseInt(new String(text, start, length).trim());
+      }
+      value = value * 10 + digit;
+    }
+    if(negative) {
+      value = -value;
+    }
+    if(value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      return Integer.parseInt(new String(text, start, length).trim());
+    }
+    return (int)value;
+  }
+
+  /**
+   * Parse a decimal number such as <code>-0.0125</code> or <code>1.5E6</code>.  When the significant digits fit in
+   * 53 bits and the decimal exponent is at most 22 either way the result is a single exact multiplication or division
+   * of two doubles, so is correctly rounded.  Other values are left to the JDK.
+   *
+   * @return a double parsed from the given characters
+   * @throws NumberFormatException if the characters are not a valid double
+   */
+  public static double parseDouble(char[] text, int start, int length) {
+    int end = trimEnd(text, start, start + length);
+    int pos = trimStart(text, start, end);
+    boolean negative = false;
+    if(pos < end && (text[pos] == '-' || text[pos] == '+')) {
+      negative = text[pos++] == '-';
+    }
+    long mantissa = 0;
+    int mantissaDigits = 0;
+    int exponent = 0;
+    int digits = 0;
+    boolean point = false;
+    for(; pos < end; pos++) {
+      char c = text[pos];
+      if(c >= '0' && c <= '9') {
+        digits++;
+        if(mantissa != 0 || c != '0') {
+          if(++mantissaDigits > MAX_MANTISSA_DIGITS) {
+            return Double.parseDouble(new String(text, start, length));
+          }
+          mantissa = mantissa * 10 + (c - '0');
+        }
+        if(point) {
+          exponent--;
+        }
+      } else if(c == '.' && !point) {
+        point = true;
+      } else {
+        break;
+      }
+    }
+    if(digits > 0 && pos < end && (text[pos] == 'e' || text[pos] == 'E')) {
+      pos++;
+      boolean negativeExponent = false;
+      if(pos < end && (text[pos] == '-' || text[pos] == '+')) {
+        negativeExponent = text[pos++] == '-';
+      }
+      int exponentStart = pos;
+      int explicitExponent = 0;
+      for(; pos < end && pos - exponentStart < 4 && text[pos] >= '0' && text[pos] <= '9'; pos++) {
+        explicitExponent = explicitExponent * 10 + (text[pos] - '0');
+      }
+      if(pos == exponentStart) {
+        return Double.parseDouble(new String(text, start, length));
+      }
+      exponent += negativeExponent ? -explicitExponent : explicitExponent;
+    }
+    if(digits == 0 || pos != end) {
+      return Double.parseDouble(new String(text, start, length));
+    }
+    double value;
+    if(mantissa == 0) {
+      value = 0;
+    } else if(mantissa <= MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+      value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+    } else {
+      return Double.parseDouble(new String(text, start, length));
+    }
+    return negative ? -value : value;
+  }
+
+  /**
+   * Parse an xsd:date of the form <code>yyyy-mm-dd</code>, ignoring any time zone that follows.
+   *
+   * @return the day count of the date, see {@link DateUtil#dateToDayCount(int, int, int)}
+   * @throws PricerException if the characters do not start with a date
+   */
+  public static int parseDayCount(char[] text, int start, int length) {
+    int end = trimEnd(text, start, start + length);
+    int pos = trimStart(text, start, end);
+    if(end - pos < 10 || text[pos + 4] != '-' || text[pos + 7] != '-') {
+      throw new PricerException("Invalid date " + new String(text, start, length));
+    }
+    int year = digits(text, pos, 4);
+    int month = digits(text, pos + 5, 2);
+    int day = digits(text, pos + 8, 2);
+    if(year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+      throw new PricerException("Invalid date " + new String(text, start, length));
+    }
+    return DateUtil.dateToDayCount(year, month, day);
+  }
+
+  private static int digits(char[] text, int pos, int count) {
+    int value = 0;
+    for(int i = pos; i < pos + count; i++) {
+      int digit = text[i] - '0';
+      if(digit < 0 || digit > 9) {
+        return -1;
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  private static int trimStart(char[] text, int pos, int end) {
+    while(pos < end && text[pos] <= ' ') {
+      pos++;
+    }
+    return pos;
+  }
+
+  private static int trimEnd(char[] text, int start, int end) {
+    while(end > start && text[end - 1] <= ' ') {
+      end--;
+    }
+    return end;
+  }
+}
@@ -0,0 +1,12 @@
+package com.twock.swappricer.fpml;
+
+import com.twock.swappricer.fpml.model.Trade;
+
+/**
+ * Receives trades one at a time as they are read by {@link FpmlParser#parseTrades(java.io.InputStream, TradeHandler)}.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public interface TradeHandler {
+  void handle(Trade trade);
+}
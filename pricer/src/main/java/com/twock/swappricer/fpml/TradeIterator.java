@@ -0,0 +1,135 @@
+package com.twock.swappricer.fpml;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.XMLEvent;
+
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.fpml.factory.FpmlElement;
+import com.twock.swappricer.fpml.factory.SwapStreamFactory;
+import com.twock.swappricer.fpml.model.DateWithDayCount;
+import com.twock.swappricer.fpml.model.SwapStream;
+import com.twock.swappricer.fpml.model.Trade;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+import org.codehaus.stax2.XMLStreamReader2;
+
+/**
+ * Pulls <code>trade</code> elements one at a time from an FpML document, so documents holding any number of trades
+ * can be read in constant memory.  Each trade is only read from the document when {@link #hasNext()} is called, and
+ * the underlying stream is closed once the end of the document is reached, an error occurs, or {@link #close()} is
+ * called.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class TradeIterator implements Iterator<Trade>, Closeable {
+  private static final Logger log = Logger.getLogger(TradeIterator.class);
+  private final XMLStreamReader2 streamReader;
+  private final InputStream inputStream;
+  private final SwapStreamFactory swapStreamFactory;
+  private Trade next;
+  private boolean closed;
+
+  TradeIterator(XMLStreamReader2 streamReader, InputStream inputStream, SwapStreamFactory swapStreamFactory) {
+    this.streamReader = streamReader;
+    this.inputStream = inputStream;
+    this.swapStreamFactory = swapStreamFactory;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if(next == null && !closed) {
+      try {
+        next = readNextTrade();
+      } catch(XMLStreamException e) {
+        close();
+        throw new PricerException("Error parsing XML document", e);
+      } catch(RuntimeException e) {
+        close();
+        throw e;
+      }
+      if(next == null) {
+        close();
+      }
+    }
+    return next != null;
+  }
+
+  @Override
+  public Trade next() {
+    if(!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    Trade result = next;
+    next = null;
+    return result;
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void close() {
+    if(!closed) {
+      closed = true;
+      try {
+        streamReader.close();
+      } catch(XMLStreamException e) {
+        log.warn("Failed to close streamReader", e);
+      }
+      IOUtils.closeQuietly(inputStream);
+    }
+  }
+
+  private Trade readNextTrade() throws XMLStreamException {
+    while(streamReader.hasNext()) {
+      if(streamReader.next() == XMLEvent.START_ELEMENT) {
+        FpmlElement element = FpmlElement.LOOKUP.get(streamReader.getLocalName());
+        if(element == FpmlElement.TRADE) {
+          return readTrade();
+        } else if(FpmlParser.isSkipped(element)) {
+          streamReader.skipElement();
+        }
+      }
+    }
+    return null;
+  }
+
+  private Trade readTrade() throws XMLStreamException {
+    String tradeId = null;
+    DateWithDayCount tradeDate = null;
+    List<SwapStream> swapStreams = new ArrayList<SwapStream>(2);
+    while(streamReader.hasNext()) {
+      switch(streamReader.next()) {
+        case XMLEvent.START_ELEMENT:
+          FpmlElement element = FpmlElement.LOOKUP.get(streamReader.getLocalName());
+          if(element == FpmlElement.TRADE_ID) {
+            String id = FpmlParser.readText(streamReader);
+            if(tradeId == null && id.length() > 0) {
+              tradeId = id;
+            }
+          } else if(element == FpmlElement.TRADE_DATE) {
+            tradeDate = FpmlParser.readTextDate(streamReader);
+          } else if(element == FpmlElement.SWAP_STREAM) {
+            swapStreams.add(swapStreamFactory.readSwapStream(streamReader));
+          } else if(FpmlParser.isSkipped(element)) {
+            streamReader.skipElement();
+          }
+          break;
+        case XMLEvent.END_ELEMENT:
+          if(FpmlElement.LOOKUP.get(streamReader.getLocalName()) == FpmlElement.TRADE) {
+            return new Trade(tradeId, tradeDate, swapStreams);
+          }
+          break;
+      }
+    }
+    throw new PricerException("Unexpected end of document inside trade " + tradeId);
+  }
+}
@@ -0,0 +1,243 @@
+package com.twock.swappricer.fpml.book;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.fpml.SwapStreamEncoding;
+import com.twock.swappricer.fpml.model.SwapStream;
+import com.twock.swappricer.fpml.model.enumeration.CompoundingMethodEnum;
+import com.twock.swappricer.fpml.model.enumeration.DayCountFractionEnum;
+import com.twock.swappricer.fpml.model.enumeration.PeriodEnum;
+
+import static com.twock.swappricer.fpml.book.TradeBookColumn.*;
+
+/**
+ * A portfolio of trades held column by column, one row per leg, in direct buffers outside the Java heap.  Each
+ * {@link TradeBookColumn} is a separate buffer, so code working through one field of every leg, such as the notionals
+ * or the schedule ids, reads consecutive memory rather than following references between small objects, and a large
+ * book adds almost nothing for the garbage collector to trace.  Books are built from the model with a
+ * {@link TradeBookBuilder}, and each leg can be turned back into a {@link SwapStream} with {@link #toSwapStream(int)}.
+ * <p/>
+ * Legs of the same trade are consecutive.  Legs whose schedules would be generated from identical inputs share a
+ * schedule id (see {@link com.twock.swappricer.fpml.ScheduleCache#scheduleKey}), so a schedule need only be generated
+ * once per id.
+ * <p/>
+ * A book is immutable once built and may be read by several threads at once.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class TradeBook {
+  public static final int NULL_INT = SwapStreamEncoding.NULL_INT;
+  public static final byte NULL_ENUM = SwapStreamEncoding.NULL_ENUM;
+  /**
+   * Schedule id of legs which cannot be priced.
+   */
+  public static final int NO_SCHEDULE = -1;
+
+  private static final LegType[] LEG_TYPES = LegType.values();
+  private static final PeriodEnum[] PERIODS = PeriodEnum.values();
+  private static final TradeBookColumn[] COLUMNS = TradeBookColumn.values();
+  private static final DayCountFractionEnum[] DAY_COUNT_FRACTIONS = DayCountFractionEnum.values();
+  private static final CompoundingMethodEnum[] COMPOUNDING_METHODS = CompoundingMethodEnum.values();
+
+  /**
+   * How a leg is valued.
+   */
+  public enum LegType {
+    /**
+     * Has a fixed rate.
+     */
+    FIXED,
+    /**
+     * Has a floating rate index and no fixed rate.
+     */
+    FLOATING,
+    /**
+     * Has neither, so cannot be valued.
+     */
+    OTHER
+  }
+
+  private final ByteBuffer[] columns;
+  private final int legCount;
+  private final String[] tradeIds;
+  private final String[] strings;
+  private final String[][] calendarSets;
+  private final int scheduleCount;
+
+  TradeBook(ByteBuffer[] columns, int legCount, String[] tradeIds, String[] strings, String[][] calendarSets, int scheduleCount) {
+    this.columns = columns;
+    this.legCount = legCount;
+    this.tradeIds = tradeIds;
+    this.strings = strings;
+    this.calendarSets = calendarSets;
+    this.scheduleCount = scheduleCount;
+  }
+
+  /**
+   * @return the number of legs in the book
+   */
+  public int size() {
+    return legCount;
+  }
+
+  public int getTradeCount() {
+    return tradeIds.length;
+  }
+
+  /**
+   * @param trade index of the trade, in the order the trades were added
+   * @return the trade's id
+   */
+  public String getTradeId(int trade) {
+    return tradeIds[trade];
+  }
+
+  /**
+   * @return the number of distinct schedules, ids run from 0 to one less than this
+   */
+  public int getScheduleCount() {
+    return scheduleCount;
+  }
+
+  /**
+   * @return a read only view of the whole column, in native byte order, holding {@link #size()} values of the column's
+   *         width
+   */
+  public ByteBuffer getColumn(TradeBookColumn column) {
+    ByteBuffer result = columns[column.ordinal()].asReadOnlyBuffer().order(ByteOrder.nativeOrder());
+    result.limit(legCount * column.width());
+    return result;
+  }
+
+  public int getInt(TradeBookColumn column, int leg) {
+    return columns[column.ordinal()].getInt(offset(column, leg, 4));
+  }
+
+  public byte getByte(TradeBookColumn column, int leg) {
+    return columns[column.ordinal()].get(offset(column, leg, 1));
+  }
+
+  public double getDouble(TradeBookColumn column, int leg) {
+    return columns[column.ordinal()].getDouble(offset(column, leg, 8));
+  }
+
+  /**
+   * @return the string in the given currency or index column, or null if none
+   */
+  public String getString(TradeBookColumn column, int leg) {
+    int index = getInt(column, leg);
+    return index == NULL_INT ? null : strings[index];
+  }
+
+  /**
+   * @return the business centres in the given calendars column, shared by every leg with the same centres so must not
+   *         be modified, or null if none
+   */
+  public String[] getCalendars(TradeBookColumn column, int leg) {
+    int index = getInt(column, leg);
+    return index == NULL_INT ? null : calendarSets[index];
+  }
+
+  /**
+   * @return index of the leg's trade, for {@link #getTradeId(int)}
+   */
+  public int getTradeIndex(int leg) {
+    return getInt(TRADE, leg);
+  }
+
+  public LegType getLegType(int leg) {
+    return LEG_TYPES[getByte(LEG_TYPE, leg)];
+  }
+
+  /**
+   * @return the leg's schedule id, or {@link #NO_SCHEDULE} if the leg cannot be priced
+   */
+  public int getSchedule(int leg) {
+    return getInt(SCHEDULE, leg);
+  }
+
+  public DayCountFractionEnum getDayCountFraction(int leg) {
+    return getEnum(DAY_COUNT_FRACTION, leg, DAY_COUNT_FRACTIONS);
+  }
+
+  public CompoundingMethodEnum getCompoundingMethod(int leg) {
+    return getEnum(COMPOUNDING_METHOD, leg, COMPOUNDING_METHODS);
+  }
+
+  public PeriodEnum getIndexTenorPeriod(int leg) {
+    return getEnum(INDEX_TENOR_PERIOD, leg, PERIODS);
+  }
+
+  /**
+   * Rebuild a leg as the stream it was created from.
+   *
+   * @param leg index of the leg
+   * @return a new stream equal to the one added to the builder
+   */
+  public SwapStream toSwapStream(int leg) {
+    return SwapStreamEncoding.read(new LegReader(leg));
+  }
+
+  private <E extends Enum<E>> E getEnum(TradeBookColumn column, int leg, E[] values) {
+    byte ordinal = getByte(column, leg);
+    return ordinal == NULL_ENUM ? null : values[ordinal];
+  }
+
+  private int offset(TradeBookColumn column, int leg, int width) {
+    if(column.width() != width) {
+      throw new PricerException(column + " holds " + column.width() + " byte values, not " + width);
+    }
+    if(leg < 0 || leg >= legCount) {
+      throw new PricerException("Leg " + leg + " not in trade book of " + legCount + " legs");
+    }
+    return leg * width;
+  }
+
+  /**
+   * Reads the fields of a leg's stream from consecutive columns, starting with {@link TradeBookColumn#FLAGS}.
+   */
+  private class LegReader implements SwapStreamEncoding.FieldReader {
+    private final int leg;
+    private int column = FLAGS.ordinal();
+
+    private LegReader(int leg) {
+      this.leg = leg;
+    }
+
+    @Override
+    public int readInt() {
+      return getInt(COLUMNS[column++], leg);
+    }
+
+    @Override
+    public byte readEnum() {
+      return getByte(COLUMNS[column++], leg);
+    }
+
+    @Override
+    public double readDouble() {
+      return getDouble(COLUMNS[column++], leg);
+    }
+
+    @Override
+    public String readString() {
+      return getString(COLUMNS[column++], leg);
+    }
+
+    @Override
+    public String[] readCentres() {
+      return getCalendars(COLUMNS[column++], leg);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "TradeBook{" +
+      "trades=" + tradeIds.length +
+      ", legs=" + legCount +
+      ", schedules=" + scheduleCount +
+      '}';
+  }
+}
@@ -0,0 +1,178 @@
+package com.twock.swappricer.fpml.book;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.fpml.ScheduleCache;
+import com.twock.swappricer.fpml.StringDictionary;
+import com.twock.swappricer.fpml.SwapStreamEncoding;
+import com.twock.swappricer.fpml.TradeHandler;
+import com.twock.swappricer.fpml.model.SwapStream;
+import com.twock.swappricer.fpml.model.Trade;
+
+import static com.twock.swappricer.fpml.book.TradeBook.*;
+import static com.twock.swappricer.fpml.book.TradeBookColumn.*;
+
+/**
+ * Converts trades into the columns of a {@link TradeBook}.  Trades are converted as they are handed over, so the
+ * builder can be given directly to {@link com.twock.swappricer.fpml.FpmlParser#parseTrades},
+ * {@link com.twock.swappricer.fpml.FpmlIngestPipeline} or {@link com.twock.swappricer.fpml.store.TradeStore#readTrades}
+ * without keeping the parsed trades.  The columns start at {@link #DEFAULT_CAPACITY} legs and double in size whenever
+ * they fill up.
+ * <p/>
+ * Not thread safe.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class TradeBookBuilder implements TradeHandler {
+  public static final int DEFAULT_CAPACITY = 1024;
+  private static final TradeBookColumn[] COLUMNS = TradeBookColumn.values();
+  private final ByteBuffer[] columns = new ByteBuffer[COLUMNS.length];
+  private final List<String> tradeIds = new ArrayList<String>();
+  private final StringDictionary dictionary = new StringDictionary();
+  private final LegWriter legWriter = new LegWriter();
+  private final Map<String, Integer> scheduleIds = new HashMap<String, Integer>();
+  private int capacity;
+  private int legCount;
+  private boolean built;
+
+  public TradeBookBuilder() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity number of legs to allocate room for initially
+   */
+  public TradeBookBuilder(int capacity) {
+    if(capacity < 1) {
+      throw new PricerException("Trade book capacity must be positive, got " + capacity);
+    }
+    allocate(capacity);
+  }
+
+  public int getTradeCount() {
+    return tradeIds.size();
+  }
+
+  @Override
+  public void handle(Trade trade) {
+    add(trade);
+  }
+
+  /**
+   * Append each stream of the trade to the book as a leg.  The legs only become part of the book once every stream
+   * has been written, so a trade that fails part way through leaves the book as it was and the next trade is written
+   * over its legs.
+   */
+  public void add(Trade trade) {
+    if(built) {
+      throw new PricerException("Trade book already built");
+    }
+    int tradeIndex = tradeIds.size();
+    List<SwapStream> swapStreams = trade.getSwapStreams();
+    if(legCount + swapStreams.size() > capacity) {
+      allocate(Math.max(legCount + swapStreams.size(), capacity * 2));
+    }
+    for(int i = 0; i < swapStreams.size(); i++) {
+      putStream(legCount + i, tradeIndex, i, swapStreams.get(i));
+    }
+    legCount += swapStreams.size();
+    tradeIds.add(trade.getTradeId());
+  }
+
+  /**
+   * Finish the book.  The builder's buffers are handed over to the book, so no more trades can be added.
+   */
+  public TradeBook build() {
+    built = true;
+    List<String> strings = dictionary.getStrings();
+    return new TradeBook(columns, legCount, tradeIds.toArray(new String[tradeIds.size()]), strings.toArray(new String[strings.size()]), dictionary.getCentreSets(), scheduleIds.size());
+  }
+
+  private void allocate(int newCapacity) {
+    if((long)newCapacity * 8 > Integer.MAX_VALUE) {
+      throw new PricerException("Trade book cannot hold " + newCapacity + " legs");
+    }
+    for(TradeBookColumn column : COLUMNS) {
+      ByteBuffer grown = ByteBuffer.allocateDirect(newCapacity * column.width()).order(ByteOrder.nativeOrder());
+      ByteBuffer existing = columns[column.ordinal()];
+      if(existing != null) {
+        ByteBuffer used = existing.duplicate();
+        used.clear();
+        used.limit(legCount * column.width());
+        grown.put(used);
+        grown.clear();
+      }
+      columns[column.ordinal()] = grown;
+    }
+    capacity = newCapacity;
+  }
+
+  private void putStream(int leg, int tradeIndex, int legNumber, SwapStream stream) {
+    LegType legType = stream.getFixedRate() != null ? LegType.FIXED : stream.getFloatingRateIndex() != null ? LegType.FLOATING : LegType.OTHER;
+    putInt(TRADE, leg, tradeIndex);
+    putInt(LEG, leg, legNumber);
+    columns[LEG_TYPE.ordinal()].put(leg, (byte)legType.ordinal());
+    putInt(SCHEDULE, leg, legType == LegType.OTHER ? NO_SCHEDULE : scheduleId(stream));
+    legWriter.leg = leg;
+    legWriter.column = FLAGS.ordinal();
+    SwapStreamEncoding.write(stream, legWriter);
+  }
+
+  private void putInt(TradeBookColumn column, int leg, int value) {
+    columns[column.ordinal()].putInt(leg * 4, value);
+  }
+
+  private int scheduleId(SwapStream stream) {
+    String key = ScheduleCache.scheduleKey(stream);
+    Integer id = scheduleIds.get(key);
+    if(id == null) {
+      id = scheduleIds.size();
+      scheduleIds.put(key, id);
+    }
+    return id;
+  }
+
+  /**
+   * Writes the fields of a leg's stream to consecutive columns, starting with {@link TradeBookColumn#FLAGS}.
+   */
+  private class LegWriter implements SwapStreamEncoding.FieldWriter {
+    private int leg;
+    private int column;
+
+    @Override
+    public void writeInt(int value) {
+      putInt(next(4), leg, value);
+    }
+
+    @Override
+    public void writeEnum(byte ordinal) {
+      columns[next(1).ordinal()].put(leg, ordinal);
+    }
+
+    @Override
+    public void writeDouble(Double value) {
+      columns[next(8).ordinal()].putDouble(leg * 8, value == null ? Double.NaN : value);
+    }
+
+    @Override
+    public void writeString(String value) {
+      putInt(next(4), leg, dictionary.stringIndex(value));
+    }
+
+    @Override
+    public void writeCentres(String[] businessCentres) {
+      putInt(next(4), leg, dictionary.centreSetIndex(businessCentres));
+    }
+
+    private TradeBookColumn next(int width) {
+      TradeBookColumn result = COLUMNS[column++];
+      if(result.width() != width) {
+        throw new PricerException(result + " holds " + result.width() + " byte values, not " + width);
+      }
+      return result;
+    }
+  }
+}
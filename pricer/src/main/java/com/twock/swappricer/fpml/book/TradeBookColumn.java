@@ -0,0 +1,83 @@
+package com.twock.swappricer.fpml.book;
+
+/**
+ * The columns of a {@link TradeBook}, one value per leg.  Each column holds ints, bytes or doubles according to its
+ * width:
+ * <ul>
+ * <li>dates are DateUtil day counts, and other ints are as in the FpML, with {@link TradeBook#NULL_INT} for null</li>
+ * <li>enums are held as the byte ordinal of the constant, with {@link TradeBook#NULL_ENUM} for null</li>
+ * <li>doubles are held as is, with NaN for null</li>
+ * <li>currencies and indexes are indexes into the book's string table, see {@link TradeBook#getString}</li>
+ * <li>business centres are indexes into the book's table of calendar sets, see {@link TradeBook#getCalendars}</li>
+ * </ul>
+ * From {@link #FLAGS} on the columns are the fields of a stream in the order of
+ * {@link com.twock.swappricer.fpml.SwapStreamEncoding}, one column per field, so must be kept in that order.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public enum TradeBookColumn {
+  TRADE(4),
+  LEG(4),
+  LEG_TYPE(1),
+  SCHEDULE(4),
+  FLAGS(4),
+  EFFECTIVE_DATE(4),
+  EFFECTIVE_DATE_CONVENTION(1),
+  EFFECTIVE_DATE_CALENDARS(4),
+  TERMINATION_DATE(4),
+  TERMINATION_DATE_CONVENTION(1),
+  TERMINATION_DATE_CALENDARS(4),
+  CALCULATION_PERIOD_CONVENTION(1),
+  CALCULATION_PERIOD_CALENDARS(4),
+  PERIOD_MULTIPLIER(4),
+  PERIOD(1),
+  ROLL_CONVENTION(1),
+  FIRST_REGULAR_PERIOD_START_DATE(4),
+  LAST_REGULAR_PERIOD_END_DATE(4),
+  PAYMENT_PERIOD_MULTIPLIER(4),
+  PAYMENT_PERIOD(1),
+  PAY_RELATIVE_TO(1),
+  PAYMENT_OFFSET_MULTIPLIER(4),
+  PAYMENT_OFFSET_PERIOD(1),
+  PAYMENT_OFFSET_DAY_TYPE(1),
+  PAYMENT_CONVENTION(1),
+  PAYMENT_CALENDARS(4),
+  RESET_RELATIVE_TO(1),
+  INITIAL_FIXING_MULTIPLIER(4),
+  INITIAL_FIXING_PERIOD(1),
+  INITIAL_FIXING_DAY_TYPE(1),
+  INITIAL_FIXING_CONVENTION(1),
+  INITIAL_FIXING_CALENDARS(4),
+  FIXING_MULTIPLIER(4),
+  FIXING_PERIOD(1),
+  FIXING_DAY_TYPE(1),
+  FIXING_CONVENTION(1),
+  FIXING_CALENDARS(4),
+  RESET_PERIOD_MULTIPLIER(4),
+  RESET_PERIOD(1),
+  RESET_CONVENTION(1),
+  RESET_CALENDARS(4),
+  NOTIONAL(8),
+  CURRENCY(4),
+  DAY_COUNT_FRACTION(1),
+  COMPOUNDING_METHOD(1),
+  FIXED_RATE(8),
+  INDEX(4),
+  INDEX_TENOR_MULTIPLIER(4),
+  INDEX_TENOR_PERIOD(1),
+  SPREAD(8),
+  INITIAL_RATE(8);
+
+  private final int width;
+
+  TradeBookColumn(int width) {
+    this.width = width;
+  }
+
+  /**
+   * @return bytes per leg: 1 for enums, 4 for ints and 8 for doubles
+   */
+  public int width() {
+    return width;
+  }
+}
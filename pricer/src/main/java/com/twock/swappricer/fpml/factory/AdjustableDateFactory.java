@@ -28,11 +28,10 @@ public class AdjustableDateFactory {
     while(streamReader.hasNext()) {
       switch(streamReader.next()) {
         case XMLEvent.START_ELEMENT:
-          String localName = streamReader.getLocalName();
-          if("unadjustedDate".equals(localName)) {
+          FpmlElement element = FpmlElement.LOOKUP.get(streamReader.getLocalName());
+          if(element == FpmlElement.UNADJUSTED_DATE) {
             unadjustedDate = FpmlParser.readTextDate(streamReader);
-          }
-          if("dateAdjustments".equals(localName)) {
+          } else if(element == FpmlElement.DATE_ADJUSTMENTS) {
             businessDayAdjustments = businessDayAdjustmentsFactory.readBusinessDayAdjustments(streamReader);
           }
           break;
@@ -22,11 +22,10 @@ public class BusinessDayAdjustmentsFactory {
     while(streamReader.hasNext()) {
       switch(streamReader.next()) {
         case XMLEvent.START_ELEMENT:
-          String localName = streamReader.getLocalName();
-          if("businessDayConvention".equals(localName)) {
-            businessDayConvention = BusinessDayConventionEnum.fromValue(FpmlParser.readText(streamReader));
-          }
-          if("businessCenter".equals(localName)) {
+          FpmlElement element = FpmlElement.LOOKUP.get(streamReader.getLocalName());
+          if(element == FpmlElement.BUSINESS_DAY_CONVENTION) {
+            businessDayConvention = FpmlParser.readTextEnum(streamReader, BusinessDayConventionEnum.LOOKUP);
+          } else if(element == FpmlElement.BUSINESS_CENTER) {
             if(businessCenters == null) {
               businessCenters = new ArrayList<String>();
             }
@@ -23,15 +23,13 @@ public class CalculationPeriodFrequencyFactory {
       switch(streamReader.next()) {
         case XMLEvent.START_ELEMENT:
           if(streamReader.getDepth() == startingDepth + 1) {
-            String localName = streamReader.getLocalName();
-            if("periodMultiplier".equals(localName)) {
-              periodMultiplier = Integer.parseInt(FpmlParser.readText(streamReader));
-            }
-            if("period".equals(localName)) {
-              period = PeriodEnum.valueOf(FpmlParser.readText(streamReader));
-            }
-            if("rollConvention".equals(localName)) {
-              rollConvention = RollConventionEnum.fromValue(FpmlParser.readText(streamReader));
+            FpmlElement element = FpmlElement.LOOKUP.get(streamReader.getLocalName());
+            if(element == FpmlElement.PERIOD_MULTIPLIER) {
+              periodMultiplier = FpmlParser.readTextInt(streamReader);
+            } else if(element == FpmlElement.PERIOD) {
+              period = FpmlParser.readTextEnum(streamReader, PeriodEnum.LOOKUP);
+            } else if(element == FpmlElement.ROLL_CONVENTION) {
+              rollConvention = FpmlParser.readTextEnum(streamReader, RollConventionEnum.LOOKUP);
             }
           }
           break;
@@ -0,0 +1,73 @@
+package com.twock.swappricer.fpml.factory;
+
+import com.twock.swappricer.fpml.model.enumeration.EnumLookup;
+import com.twock.swappricer.fpml.model.enumeration.FpmlEnum;
+
+/**
+ * The FpML elements the parser acts upon, either reading them or skipping their whole subtree.  Readers route each
+ * start element by looking up the interned local name the parser reports in {@link #LOOKUP} and switching on the
+ * result, instead of comparing the name against each element they know in turn.  Elements not listed here are passed
+ * over one event at a time as before, so their descendants are still seen.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public enum FpmlElement implements FpmlEnum {
+  // document and trade structure
+  TRADE("trade"),
+  TRADE_ID("tradeId"),
+  TRADE_DATE("tradeDate"),
+  SWAP_STREAM("swapStream"),
+  // swapStream content
+  EFFECTIVE_DATE("effectiveDate"),
+  TERMINATION_DATE("terminationDate"),
+  CALCULATION_PERIOD_DATES_ADJUSTMENTS("calculationPeriodDatesAdjustments"),
+  CALCULATION_PERIOD_FREQUENCY("calculationPeriodFrequency"),
+  FIRST_REGULAR_PERIOD_START_DATE("firstRegularPeriodStartDate"),
+  LAST_REGULAR_PERIOD_END_DATE("lastRegularPeriodEndDate"),
+  PAYMENT_DATES("paymentDates"),
+  RESET_DATES("resetDates"),
+  NOTIONAL_SCHEDULE("notionalSchedule"),
+  DAY_COUNT_FRACTION("dayCountFraction"),
+  COMPOUNDING_METHOD("compoundingMethod"),
+  FIXED_RATE_SCHEDULE("fixedRateSchedule"),
+  FLOATING_RATE_INDEX("floatingRateIndex"),
+  INDEX_TENOR("indexTenor"),
+  SPREAD_SCHEDULE("spreadSchedule"),
+  INITIAL_RATE("initialRate"),
+  INITIAL_VALUE("initialValue"),
+  CURRENCY("currency"),
+  // dates, offsets and adjustments
+  UNADJUSTED_DATE("unadjustedDate"),
+  DATE_ADJUSTMENTS("dateAdjustments"),
+  BUSINESS_DAY_CONVENTION("businessDayConvention"),
+  BUSINESS_CENTER("businessCenter"),
+  PERIOD_MULTIPLIER("periodMultiplier"),
+  PERIOD("period"),
+  ROLL_CONVENTION("rollConvention"),
+  DAY_TYPE("dayType"),
+  PAY_RELATIVE_TO("payRelativeTo"),
+  PAYMENT_DAYS_OFFSET("paymentDaysOffset"),
+  PAYMENT_DATES_ADJUSTMENTS("paymentDatesAdjustments"),
+  RESET_RELATIVE_TO("resetRelativeTo"),
+  INITIAL_FIXING_DATE("initialFixingDate"),
+  FIXING_DATES("fixingDates"),
+  RESET_DATES_ADJUSTMENTS("resetDatesAdjustments"),
+  // subtrees holding nothing the parser reads
+  PARTY("party"),
+  ACCOUNT("account"),
+  DOCUMENTATION("documentation"),
+  ADDITIONAL_PAYMENT("additionalPayment"),
+  OTHER_PARTY_PAYMENT("otherPartyPayment"),
+  CASHFLOWS("cashflows"),
+  PRINCIPAL_EXCHANGES("principalExchanges");
+  public static final EnumLookup<FpmlElement> LOOKUP = new EnumLookup<FpmlElement>(values());
+  private final String value;
+
+  FpmlElement(String v) {
+    value = v;
+  }
+
+  public String value() {
+    return value;
+  }
+}
@@ -23,13 +23,13 @@ public class OffsetFactory {
       switch(streamReader.next()) {
         case XMLEvent.START_ELEMENT:
           if(streamReader.getDepth() == startingDepth + 1) {
-            String localName = streamReader.getLocalName();
-            if("periodMultiplier".equals(localName)) {
-              periodMultiplier = Integer.parseInt(FpmlParser.readText(streamReader));
-            } else if("period".equals(localName)) {
-              period = PeriodEnum.valueOf(FpmlParser.readText(streamReader));
-            } else if("dayType".equals(localName)) {
-              dayType = DayTypeEnum.fromValue(FpmlParser.readText(streamReader));
+            FpmlElement element = FpmlElement.LOOKUP.get(streamReader.getLocalName());
+            if(element == FpmlElement.PERIOD_MULTIPLIER) {
+              periodMultiplier = FpmlParser.readTextInt(streamReader);
+            } else if(element == FpmlElement.PERIOD) {
+              period = FpmlParser.readTextEnum(streamReader, PeriodEnum.LOOKUP);
+            } else if(element == FpmlElement.DAY_TYPE) {
+              dayType = FpmlParser.readTextEnum(streamReader, DayTypeEnum.LOOKUP);
             }
           }
           break;
@@ -34,17 +34,25 @@ public class PaymentDatesFactory {
     while(streamReader.hasNext()) {
       switch(streamReader.next()) {
         case XMLEvent.START_ELEMENT:
-          String localName = streamReader.getLocalName();
-          if("periodMultiplier".equals(localName)) {
-            paymentFrequencyPeriodMultiplier = Integer.parseInt(FpmlParser.readText(streamReader));
-          } else if("period".equals(localName)) {
-            paymentFrequencyPeriod = PeriodEnum.valueOf(FpmlParser.readText(streamReader));
-          } else if("payRelativeTo".equals(localName)) {
-            payRelativeTo = PayRelativeToEnum.fromValue(FpmlParser.readText(streamReader));
-          } else if("paymentDaysOffset".equals(localName)) {
-            paymentDaysOffset = offsetFactory.readOffset(streamReader);
-          } else if("paymentDatesAdjustments".equals(localName)) {
-            paymentDatesAdjustments = businessDayAdjustmentsFactory.readBusinessDayAdjustments(streamReader);
+          FpmlElement element = FpmlElement.LOOKUP.get(streamReader.getLocalName());
+          if(element != null) {
+            switch(element) {
+              case PERIOD_MULTIPLIER:
+                paymentFrequencyPeriodMultiplier = FpmlParser.readTextInt(streamReader);
+                break;
+              case PERIOD:
+                paymentFrequencyPeriod = FpmlParser.readTextEnum(streamReader, PeriodEnum.LOOKUP);
+                break;
+              case PAY_RELATIVE_TO:
+                payRelativeTo = FpmlParser.readTextEnum(streamReader, PayRelativeToEnum.LOOKUP);
+                break;
+              case PAYMENT_DAYS_OFFSET:
+                paymentDaysOffset = offsetFactory.readOffset(streamReader);
+                break;
+              case PAYMENT_DATES_ADJUSTMENTS:
+                paymentDatesAdjustments = businessDayAdjustmentsFactory.readBusinessDayAdjustments(streamReader);
+                break;
+            }
           }
           break;
         case XMLEvent.END_ELEMENT:
@@ -33,20 +33,28 @@ public class RelativeDateOffsetFactory {
     while(streamReader.hasNext()) {
       switch(streamReader.next()) {
         case XMLEvent.START_ELEMENT:
-          String localName = streamReader.getLocalName();
-          if("periodMultiplier".equals(localName)) {
-            periodMultiplier = Integer.parseInt(FpmlParser.readText(streamReader));
-          } else if("period".equals(localName)) {
-            period = PeriodEnum.valueOf(FpmlParser.readText(streamReader));
-          } else if("dayType".equals(localName)) {
-            dayType = DayTypeEnum.fromValue(FpmlParser.readText(streamReader));
-          } else if("businessDayConvention".equals(localName)) {
-            businessDayConvention = BusinessDayConventionEnum.fromValue(FpmlParser.readText(streamReader));
-          } else if("businessCenter".equals(localName)) {
-            if(businessCenters == null) {
-              businessCenters = new ArrayList<String>();
+          FpmlElement element = FpmlElement.LOOKUP.get(streamReader.getLocalName());
+          if(element != null) {
+            switch(element) {
+              case PERIOD_MULTIPLIER:
+                periodMultiplier = FpmlParser.readTextInt(streamReader);
+                break;
+              case PERIOD:
+                period = FpmlParser.readTextEnum(streamReader, PeriodEnum.LOOKUP);
+                break;
+              case DAY_TYPE:
+                dayType = FpmlParser.readTextEnum(streamReader, DayTypeEnum.LOOKUP);
+                break;
+              case BUSINESS_DAY_CONVENTION:
+                businessDayConvention = FpmlParser.readTextEnum(streamReader, BusinessDayConventionEnum.LOOKUP);
+                break;
+              case BUSINESS_CENTER:
+                if(businessCenters == null) {
+                  businessCenters = new ArrayList<String>();
+                }
+                businessCenters.add(FpmlParser.readText(streamReader));
+                break;
             }
-            businessCenters.add(FpmlParser.readText(streamReader));
           }
           break;
         case XMLEvent.END_ELEMENT:
@@ -35,19 +35,28 @@ public class ResetDatesFactory {
     while(streamReader.hasNext()) {
       switch(streamReader.next()) {
         case XMLEvent.START_ELEMENT:
-          String localName = streamReader.getLocalName();
-          if("resetRelativeTo".equals(localName)) {
-            resetRelativeTo = ResetRelativeToEnum.fromValue(FpmlParser.readText(streamReader));
-          } else if("initialFixingDate".equals(localName)) {
-            initialFixingDate = relativeDateOffsetFactory.readOffset(streamReader);
-          } else if("fixingDates".equals(localName)) {
-            fixingDates = relativeDateOffsetFactory.readOffset(streamReader);
-          } else if("periodMultiplier".equals(localName)) {
-            frequencyPeriodMultiplier = Integer.parseInt(FpmlParser.readText(streamReader));
-          } else if("period".equals(localName)) {
-            frequencyPeriod = PeriodEnum.valueOf(FpmlParser.readText(streamReader));
-          } else if("resetDatesAdjustments".equals(localName)) {
-            resetDatesAdjustments = businessDayAdjustmentsFactory.readBusinessDayAdjustments(streamReader);
+          FpmlElement element = FpmlElement.LOOKUP.get(streamReader.getLocalName());
+          if(element != null) {
+            switch(element) {
+              case RESET_RELATIVE_TO:
+                resetRelativeTo = FpmlParser.readTextEnum(streamReader, ResetRelativeToEnum.LOOKUP);
+                break;
+              case INITIAL_FIXING_DATE:
+                initialFixingDate = relativeDateOffsetFactory.readOffset(streamReader);
+                break;
+              case FIXING_DATES:
+                fixingDates = relativeDateOffsetFactory.readOffset(streamReader);
+                break;
+              case PERIOD_MULTIPLIER:
+                frequencyPeriodMultiplier = FpmlParser.readTextInt(streamReader);
+                break;
+              case PERIOD:
+                frequencyPeriod = FpmlParser.readTextEnum(streamReader, PeriodEnum.LOOKUP);
+                break;
+              case RESET_DATES_ADJUSTMENTS:
+                resetDatesAdjustments = businessDayAdjustmentsFactory.readBusinessDayAdjustments(streamReader);
+                break;
+            }
           }
           break;
         case XMLEvent.END_ELEMENT:
@@ -53,43 +53,66 @@ public class SwapStreamFactory {
     while(streamReader.hasNext()) {
       switch(streamReader.next()) {
         case XMLEvent.START_ELEMENT:
-          String localName = streamReader.getLocalName();
-          if("effectiveDate".equals(localName)) {
-            effectiveDate = adjustableDateFactory.readAdjustableDate(streamReader);
-          } else if("terminationDate".equals(localName)) {
-            terminationDate = adjustableDateFactory.readAdjustableDate(streamReader);
-          } else if("calculationPeriodDatesAdjustments".equals(localName)) {
-            calculationPeriodDatesAdjustments = businessDayAdjustmentsFactory.readBusinessDayAdjustments(streamReader);
-          } else if("calculationPeriodFrequency".equals(localName)) {
-            calculationPeriodFrequency = calculationPeriodFrequencyFactory.readCalculationPeriodFrequency(streamReader);
-          } else if("firstRegularPeriodStartDate".equals(localName)) {
-            firstRegularPeriodStartDate = FpmlParser.readTextDate(streamReader);
-          } else if("lastRegularPeriodEndDate".equals(localName)) {
-            lastRegularPeriodEndDate = FpmlParser.readTextDate(streamReader);
-          } else if("paymentDates".equals(localName)) {
-            paymentDates = paymentDatesFactory.readPaymentDates(streamReader);
-          } else if("resetDates".equals(localName)) {
-            resetDates = resetDatesFactory.readResetDates(streamReader);
-          } else if("notionalSchedule".equals(localName)) {
-            Object[] notionalParts = readNotional(streamReader);
-            notionalAmount = (Double)notionalParts[0];
-            notionalCurrency = (String)notionalParts[1];
-          } else if("dayCountFraction".equals(localName)) {
-            dayCountFraction = DayCountFractionEnum.fromValue(FpmlParser.readText(streamReader));
-          } else if("compoundingMethod".equals(localName)) {
-            compoundingMethod = CompoundingMethodEnum.fromValue(FpmlParser.readText(streamReader));
-          } else if("fixedRateSchedule".equals(localName)) {
-            fixedRate = readInitialValue(streamReader);
-          } else if("floatingRateIndex".equals(localName)) {
-            floatingRateIndex = FpmlParser.readText(streamReader);
-          } else if("indexTenor".equals(localName)) {
-            Object[] indexTenorParts = readIndexTenor(streamReader);
-            indexTenorPeriodMultiplier = (Integer)indexTenorParts[0];
-            indexTenorPeriod = (PeriodEnum)indexTenorParts[1];
-          } else if("spreadSchedule".equals(localName)) {
-            spread = readInitialValue(streamReader);
-          } else if("initialRate".equals(localName)) {
-            initialRate = Double.valueOf(FpmlParser.readText(streamReader));
+          FpmlElement element = FpmlElement.LOOKUP.get(streamReader.getLocalName());
+          if(element != null) {
+            switch(element) {
+              case EFFECTIVE_DATE:
+                effectiveDate = adjustableDateFactory.readAdjustableDate(streamReader);
+                break;
+              case TERMINATION_DATE:
+                terminationDate = adjustableDateFactory.readAdjustableDate(streamReader);
+                break;
+              case CALCULATION_PERIOD_DATES_ADJUSTMENTS:
+                calculationPeriodDatesAdjustments = businessDayAdjustmentsFactory.readBusinessDayAdjustments(streamReader);
+                break;
+              case CALCULATION_PERIOD_FREQUENCY:
+                calculationPeriodFrequency = calculationPeriodFrequencyFactory.readCalculationPeriodFrequency(streamReader);
+                break;
+              case FIRST_REGULAR_PERIOD_START_DATE:
+                firstRegularPeriodStartDate = FpmlParser.readTextDate(streamReader);
+                break;
+              case LAST_REGULAR_PERIOD_END_DATE:
+                lastRegularPeriodEndDate = FpmlParser.readTextDate(streamReader);
+                break;
+              case PAYMENT_DATES:
+                paymentDates = paymentDatesFactory.readPaymentDates(streamReader);
+                break;
+              case RESET_DATES:
+                resetDates = resetDatesFactory.readResetDates(streamReader);
+                break;
+              case NOTIONAL_SCHEDULE:
+                Object[] notionalParts = readNotional(streamReader);
+                notionalAmount = (Double)notionalParts[0];
+                notionalCurrency = (String)notionalParts[1];
+                break;
+              case DAY_COUNT_FRACTION:
+                dayCountFraction = FpmlParser.readTextEnum(streamReader, DayCountFractionEnum.LOOKUP);
+                break;
+              case COMPOUNDING_METHOD:
+                compoundingMethod = FpmlParser.readTextEnum(streamReader, CompoundingMethodEnum.LOOKUP);
+                break;
+              case FIXED_RATE_SCHEDULE:
+                fixedRate = readInitialValue(streamReader);
+                break;
+              case FLOATING_RATE_INDEX:
+                floatingRateIndex = FpmlParser.readText(streamReader);
+                break;
+              case INDEX_TENOR:
+                Object[] indexTenorParts = readIndexTenor(streamReader);
+                indexTenorPeriodMultiplier = (Integer)indexTenorParts[0];
+                indexTenorPeriod = (PeriodEnum)indexTenorParts[1];
+                break;
+              case SPREAD_SCHEDULE:
+                spread = readInitialValue(streamReader);
+                break;
+              case INITIAL_RATE:
+                initialRate = FpmlParser.readTextDouble(streamReader);
+                break;
+              case CASHFLOWS:
+              case PRINCIPAL_EXCHANGES:
+                streamReader.skipElement();
+                break;
+            }
           }
         case XMLEvent.END_ELEMENT:
           if(streamReader.getDepth() == startingDepth) {
@@ -109,11 +132,11 @@ public class SwapStreamFactory {
       switch(streamReader.next()) {
         case XMLEvent.START_ELEMENT:
           if(streamReader.getDepth() == startingDepth + 1) {
-            String localName = streamReader.getLocalName();
-            if("periodMultiplier".equals(localName)) {
-              periodMultiplier = Integer.parseInt(FpmlParser.readText(streamReader));
-            } else if("period".equals(localName)) {
-              period = PeriodEnum.valueOf(FpmlParser.readText(streamReader));
+            FpmlElement element = FpmlElement.LOOKUP.get(streamReader.getLocalName());
+            if(element == FpmlElement.PERIOD_MULTIPLIER) {
+              periodMultiplier = FpmlParser.readTextInt(streamReader);
+            } else if(element == FpmlElement.PERIOD) {
+              period = FpmlParser.readTextEnum(streamReader, PeriodEnum.LOOKUP);
             }
           }
           break;
@@ -134,10 +157,10 @@ public class SwapStreamFactory {
     while(streamReader.hasNext()) {
       switch(streamReader.next()) {
         case XMLEvent.START_ELEMENT:
-          String localName = streamReader.getLocalName();
-          if("initialValue".equals(localName)) {
-            notionalAmount = Double.valueOf(FpmlParser.readText(streamReader));
-          } else if("currency".equals(localName)) {
+          FpmlElement element = FpmlElement.LOOKUP.get(streamReader.getLocalName());
+          if(element == FpmlElement.INITIAL_VALUE) {
+            notionalAmount = FpmlParser.readTextDouble(streamReader);
+          } else if(element == FpmlElement.CURRENCY) {
             notionalCurrency = FpmlParser.readText(streamReader);
           }
         case XMLEvent.END_ELEMENT:
@@ -155,9 +178,8 @@ public class SwapStreamFactory {
     while(streamReader.hasNext()) {
       switch(streamReader.next()) {
         case XMLEvent.START_ELEMENT:
-          String localName = streamReader.getLocalName();
-          if("initialValue".equals(localName)) {
-            initialValue = Double.valueOf(FpmlParser.readText(streamReader));
+          if(FpmlElement.LOOKUP.get(streamReader.getLocalName()) == FpmlElement.INITIAL_VALUE) {
+            initialValue = FpmlParser.readTextDouble(streamReader);
           }
         case XMLEvent.END_ELEMENT:
           if(streamReader.getDepth() == startingDepth) {
@@ -166,5 +188,4 @@ public class SwapStreamFactory {
       }
     }
     throw new PricerException("No more events before element finished");
-  }
-}
+  }}
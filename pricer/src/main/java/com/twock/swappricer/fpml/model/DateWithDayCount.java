@@ -1,27 +1,29 @@
 package com.twock.swappricer.fpml.model;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Calendar;
+import java.util.List;
 
 import com.twock.swappricer.DateUtil;
-import com.twock.swappricer.PricerException;
+import com.twock.swappricer.PackedDate;
 import com.twock.swappricer.fpml.model.enumeration.RollConventionEnum;
 
 public class DateWithDayCount implements Comparable<DateWithDayCount> {
+  private long packedDate;
   private short[] date;
-  private Integer dayCount;
 
   public DateWithDayCount(DateWithDayCount toCopy) {
+    this.packedDate = toCopy.packedDate;
     this.date = toCopy.date;
-    this.dayCount = toCopy.dayCount;
   }
 
   public DateWithDayCount(short[] date) {
+    this.packedDate = PackedDate.of(date[0], date[1], date[2]);
     this.date = date;
   }
 
   public DateWithDayCount(int dayCount) {
-    this.dayCount = dayCount;
+    this.packedDate = PackedDate.fromDayCount(dayCount);
   }
 
   public DateWithDayCount(short year, short month, short day) {
@@ -34,47 +36,52 @@ public class DateWithDayCount implements Comparable<DateWithDayCount> {
 
   public short[] getDate() {
     if(date == null) {
-      date = DateUtil.dayCountToDate(dayCount);
+      date = new short[]{getYear(), getMonthOfYear(), getDayOfMonth()};
     }
     return date;
   }
 
   public void setDate(short[] date) {
+    this.packedDate = PackedDate.of(date[0], date[1], date[2]);
     this.date = date;
-    this.dayCount = null;
   }
 
   public int getDayCount() {
-    if(dayCount == null) {
-      dayCount = DateUtil.dateToDayCount(date);
-    }
-    return dayCount;
+    return PackedDate.dayCount(packedDate);
   }
 
   public void setDayCount(int dayCount) {
-    this.date = null;
-    this.dayCount = dayCount;
+    if(dayCount != getDayCount()) {
+      this.packedDate = PackedDate.fromDayCount(dayCount);
+      this.date = null;
+    }
+  }
+
+  /**
+   * @return this date as a packed long, see {@link PackedDate}
+   */
+  public long getPackedDate() {
+    return packedDate;
   }
 
   public boolean isWeekend() {
-    int dayOfWeek = getDayOfWeek();
-    return dayOfWeek == Calendar.SATURDAY || dayOfWeek == Calendar.SUNDAY;
+    return DateUtil.isWeekend(getDayCount());
   }
 
   public int getDayOfWeek() {
-    return (getDayCount() + 3) % 7 + 1;
+    return PackedDate.dayOfWeek(packedDate);
   }
 
   public short getYear() {
-    return getDate()[0];
+    return (short)PackedDate.year(packedDate);
   }
 
   public short getMonthOfYear() {
-    return getDate()[1];
+    return (short)PackedDate.month(packedDate);
   }
 
   public short getDayOfMonth() {
-    return getDate()[2];
+    return (short)PackedDate.day(packedDate);
   }
 
   public DateWithDayCount addDays(int daysToAdd) {
@@ -90,11 +97,8 @@ public class DateWithDayCount implements Comparable<DateWithDayCount> {
    * @return convenience value for method chaining - returns this date instance
    */
   public DateWithDayCount addMonths(int monthsToAdd) {
-    short[] dateNow = getDate();
-    int newYearMonth = dateNow[0] * 12 + dateNow[1] - 1 + monthsToAdd;
-    short[] firstDayOfMonthAfter = {(short)((newYearMonth + 1) / 12), (short)((newYearMonth + 1) % 12 + 1), 1};
-    short[] dateAfterAdd = {(short)(newYearMonth / 12), (short)(newYearMonth % 12 + 1), dateNow[2]};
-    setDayCount(Math.min(DateUtil.dateToDayCount(firstDayOfMonthAfter) - 1, DateUtil.dateToDayCount(dateAfterAdd)));
+    packedDate = PackedDate.addMonths(packedDate, monthsToAdd);
+    date = null;
     return this;
   }
 
@@ -108,30 +112,40 @@ public class DateWithDayCount implements Comparable<DateWithDayCount> {
    * @return convenience value for method chaining - returns this date instance
    */
   public DateWithDayCount addMonths(int monthsToAdd, RollConventionEnum rollConvention) {
-    short[] dateNow = getDate();
-    int newYearMonth = dateNow[0] * 12 + dateNow[1] - 1 + monthsToAdd;
-    short[] firstDayOfMonthAfter = {(short)((newYearMonth + 1) / 12), (short)((newYearMonth + 1) % 12 + 1), 1};
-    if(rollConvention == RollConventionEnum.EOM) {
-      setDayCount(DateUtil.dateToDayCount(firstDayOfMonthAfter) - 1);
-    } else {
-      short[] dateAfterAdd;
-      if(rollConvention == RollConventionEnum.IMM) {
-        // adjust to third wednesday
-        dateAfterAdd = new short[]{(short)(newYearMonth / 12), (short)(newYearMonth % 12 + 1), 1};
-        setDate(dateAfterAdd);
-        int dayOfWeek = getDayOfWeek();
-        int immDayCount = getDayCount() + 14 + ((11 - dayOfWeek) % 7);
-        setDayCount(immDayCount);
-      } else if(RollConventionEnum.DAY_ROLLS.contains(rollConvention)) {
-        dateAfterAdd = new short[]{(short)(newYearMonth / 12), (short)(newYearMonth % 12 + 1), Short.parseShort(rollConvention.value())};
-        setDayCount(Math.min(DateUtil.dateToDayCount(firstDayOfMonthAfter) - 1, DateUtil.dateToDayCount(dateAfterAdd)));
-      } else {
-        throw new PricerException("Unhandled roll convention " + rollConvention);
-      }
-    }
+    packedDate = PackedDate.addMonths(packedDate, monthsToAdd, rollConvention);
+    date = null;
     return this;
   }
 
+  /**
+   * Extract the day counts from a list of dates, for use with the primitive schedule and pricing methods.
+   *
+   * @param dates dates to convert
+   * @return the day count of each date, in the same order
+   */
+  public static int[] toDayCounts(List<DateWithDayCount> dates) {
+    int[] result = new int[dates.size()];
+    int i = 0;
+    for(DateWithDayCount date : dates) {
+      result[i++] = date.getDayCount();
+    }
+    return result;
+  }
+
+  /**
+   * Convert day counts back into a list of dates.
+   *
+   * @param dayCounts dates to convert
+   * @return a new date instance per day count, in the same order
+   */
+  public static List<DateWithDayCount> fromDayCounts(int[] dayCounts) {
+    List<DateWithDayCount> result = new ArrayList<DateWithDayCount>(dayCounts.length);
+    for(int dayCount : dayCounts) {
+      result.add(new DateWithDayCount(dayCount));
+    }
+    return result;
+  }
+
   @Override
   public int compareTo(DateWithDayCount o) {
     return getDayCount() - o.getDayCount();
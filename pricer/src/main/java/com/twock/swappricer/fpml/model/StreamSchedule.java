@@ -0,0 +1,53 @@
+package com.twock.swappricer.fpml.model;
+
+import java.util.Arrays;
+
+/**
+ * The full set of dates generated for a swap stream, as DateUtil day counts.  Instances are shared between all streams
+ * with the same schedule parameters by {@link com.twock.swappricer.fpml.ScheduleCache}, so the arrays returned must be
+ * treated as read only.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class StreamSchedule {
+  private final int[] unadjustedDates;
+  private final int[] adjustedDates;
+  private final int[] paymentDates;
+  private final int[] fixingDates;
+
+  public StreamSchedule(int[] unadjustedDates, int[] adjustedDates, int[] paymentDates, int[] fixingDates) {
+    this.unadjustedDates = unadjustedDates;
+    this.adjustedDates = adjustedDates;
+    this.paymentDates = paymentDates;
+    this.fixingDates = fixingDates;
+  }
+
+  public int[] getUnadjustedDates() {
+    return unadjustedDates;
+  }
+
+  public int[] getAdjustedDates() {
+    return adjustedDates;
+  }
+
+  public int[] getPaymentDates() {
+    return paymentDates;
+  }
+
+  /**
+   * @return fixing dates, one per period, or null if the stream has no reset dates (i.e. a fixed stream)
+   */
+  public int[] getFixingDates() {
+    return fixingDates;
+  }
+
+  @Override
+  public String toString() {
+    return "StreamSchedule{" +
+      "unadjustedDates=" + Arrays.toString(unadjustedDates) +
+      ", adjustedDates=" + Arrays.toString(adjustedDates) +
+      ", paymentDates=" + Arrays.toString(paymentDates) +
+      ", fixingDates=" + (fixingDates == null ? "null" : Arrays.toString(fixingDates)) +
+      '}';
+  }
+}
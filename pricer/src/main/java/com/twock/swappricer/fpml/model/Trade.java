@@ -0,0 +1,42 @@
+package com.twock.swappricer.fpml.model;
+
+import java.util.List;
+
+/**
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class Trade {
+  private final String tradeId;
+  private final DateWithDayCount tradeDate;
+  private final List<SwapStream> swapStreams;
+
+  public Trade(String tradeId, DateWithDayCount tradeDate, List<SwapStream> swapStreams) {
+    this.tradeId = tradeId;
+    this.tradeDate = tradeDate;
+    this.swapStreams = swapStreams;
+  }
+
+  /**
+   * @return the first trade id in the trade header, normally that of the clearing house
+   */
+  public String getTradeId() {
+    return tradeId;
+  }
+
+  public DateWithDayCount getTradeDate() {
+    return tradeDate;
+  }
+
+  public List<SwapStream> getSwapStreams() {
+    return swapStreams;
+  }
+
+  @Override
+  public String toString() {
+    return "Trade{" +
+      "tradeId='" + tradeId + '\'' +
+      ", tradeDate=" + tradeDate +
+      ", swapStreams=" + swapStreams +
+      '}';
+  }
+}
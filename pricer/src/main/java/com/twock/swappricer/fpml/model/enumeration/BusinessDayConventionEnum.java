@@ -20,7 +20,7 @@ package com.twock.swappricer.fpml.model.enumeration;
  * &lt;/simpleType>
  * </pre>
  */
-public enum BusinessDayConventionEnum {
+public enum BusinessDayConventionEnum implements FpmlEnum {
 
   /**
    * The non-business date will be adjusted to the first following day that is a business day
@@ -62,6 +62,7 @@ public enum BusinessDayConventionEnum {
    */
 //  NOT_APPLICABLE("NotApplicable");
   ;
+  public static final EnumLookup<BusinessDayConventionEnum> LOOKUP = new EnumLookup<BusinessDayConventionEnum>(values());
   private final String value;
 
   BusinessDayConventionEnum(String v) {
@@ -73,12 +74,11 @@ public enum BusinessDayConventionEnum {
   }
 
   public static BusinessDayConventionEnum fromValue(String v) {
-    for(BusinessDayConventionEnum c : BusinessDayConventionEnum.values()) {
-      if(c.value.equals(v)) {
-        return c;
-      }
+    BusinessDayConventionEnum c = LOOKUP.get(v);
+    if(c == null) {
+      throw new IllegalArgumentException(v);
     }
-    throw new IllegalArgumentException(v);
+    return c;
   }
 
 }
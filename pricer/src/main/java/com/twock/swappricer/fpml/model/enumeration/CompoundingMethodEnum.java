@@ -16,7 +16,7 @@ package com.twock.swappricer.fpml.model.enumeration;
  * &lt;/simpleType>
  * </pre>
  */
-public enum CompoundingMethodEnum {
+public enum CompoundingMethodEnum implements FpmlEnum {
 
   /**
    * Flat compounding. Compounding excludes the spread. Note that the first compounding period has it's interest calculated including any spread then subsequent periods compound this at a rate excluding the spread.
@@ -37,6 +37,7 @@ public enum CompoundingMethodEnum {
    * Spread Exclusive compounding.
    */
   SPREAD_EXCLUSIVE("SpreadExclusive");
+  public static final EnumLookup<CompoundingMethodEnum> LOOKUP = new EnumLookup<CompoundingMethodEnum>(values());
   private final String value;
 
   CompoundingMethodEnum(String v) {
@@ -48,12 +49,11 @@ public enum CompoundingMethodEnum {
   }
 
   public static CompoundingMethodEnum fromValue(String v) {
-    for(CompoundingMethodEnum c : CompoundingMethodEnum.values()) {
-      if(c.value.equals(v)) {
-        return c;
-      }
+    CompoundingMethodEnum c = LOOKUP.get(v);
+    if(c == null) {
+      throw new IllegalArgumentException(v);
     }
-    throw new IllegalArgumentException(v);
+    return c;
   }
 
 }
@@ -6,7 +6,7 @@ package com.twock.swappricer.fpml.model.enumeration;
  *
  * @author Chris Pearson (chris@twock.com)
  */
-public enum DayCountFractionEnum {
+public enum DayCountFractionEnum implements FpmlEnum {
   /**
    * Per 2006 ISDA Definitions, Section 4.16. Day Count Fraction, paragraph (a) or Annex to the 2000 ISDA Definitions
    * (June 2000 Version), Section 4.16. Day Count Fraction, paragraph (a).
@@ -172,6 +172,7 @@ public enum DayCountFractionEnum {
 //  ACT_365L("ACT/365L");
   ;
 
+  public static final EnumLookup<DayCountFractionEnum> LOOKUP = new EnumLookup<DayCountFractionEnum>(values());
   private final String value;
 
   DayCountFractionEnum(String v) {
@@ -183,11 +184,10 @@ public enum DayCountFractionEnum {
   }
 
   public static DayCountFractionEnum fromValue(String v) {
-    for(DayCountFractionEnum c : DayCountFractionEnum.values()) {
-      if(c.value.equals(v)) {
-        return c;
-      }
+    DayCountFractionEnum c = LOOKUP.get(v);
+    if(c == null) {
+      throw new IllegalArgumentException(v);
     }
-    throw new IllegalArgumentException(v);
+    return c;
   }
 }
@@ -18,7 +18,7 @@ package com.twock.swappricer.fpml.model.enumeration;
  * &lt;/simpleType>
  * </pre>
  */
-public enum DayTypeEnum {
+public enum DayTypeEnum implements FpmlEnum {
 
   /**
    * When calculating the number of days between two dates the count includes only business days.
@@ -50,6 +50,7 @@ public enum DayTypeEnum {
    */
 //  SCHEDULED_TRADING_DAY("ScheduledTradingDay")
   ;
+  public static final EnumLookup<DayTypeEnum> LOOKUP = new EnumLookup<DayTypeEnum>(values());
   private final String value;
 
   DayTypeEnum(String v) {
@@ -61,12 +62,11 @@ public enum DayTypeEnum {
   }
 
   public static DayTypeEnum fromValue(String v) {
-    for(DayTypeEnum c : DayTypeEnum.values()) {
-      if(c.value.equals(v)) {
-        return c;
-      }
+    DayTypeEnum c = LOOKUP.get(v);
+    if(c == null) {
+      throw new IllegalArgumentException(v);
     }
-    throw new IllegalArgumentException(v);
+    return c;
   }
 
 }
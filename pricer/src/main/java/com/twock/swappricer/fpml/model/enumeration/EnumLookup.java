@@ -0,0 +1,97 @@
+package com.twock.swappricer.fpml.model.enumeration;
+
+import java.lang.reflect.Array;
+
+/**
+ * Hashed lookup from FpML value to enum constant, which can match the value straight from a character buffer so the
+ * parser need not create a String for it.  Lookups by String use the String's cached hash code, so looking up the
+ * interned element names reported by the parser costs no more than a field read and an identity comparison.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class EnumLookup<E extends Enum<E> & FpmlEnum> {
+  private final String[] names;
+  private final char[][] keys;
+  private final E[] constants;
+  private final int mask;
+
+  public EnumLookup(E[] values) {
+    int size = Integer.highestOneBit(Math.max(values.length, 1) * 4);
+    names = new String[size];
+    keys = new char[size][];
+    @SuppressWarnings("unchecked") // an array of the same component type as values, so an E[]
+    E[] table = (E[])Array.newInstance(values.getClass().getComponentType(), size);
+    constants = table;
+    mask = size - 1;
+    for(E value : values) {
+      String name = value.value();
+      int slot = mix(name.hashCode()) & mask;
+      while(keys[slot] != null) {
+        slot = (slot + 1) & mask;
+      }
+      names[slot] = name;
+      keys[slot] = name.toCharArray();
+      constants[slot] = value;
+    }
+  }
+
+  /**
+   * @return the constant for the given value, or null if there is none
+   */
+  public E get(String value) {
+    if(value == null) {
+      return null;
+    }
+    int slot = mix(value.hashCode()) & mask;
+    String name;
+    while((name = names[slot]) != null) {
+      if(name.equals(value)) {
+        return constants[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  /**
+   * @return the constant for the value in the given characters, or null if there is none
+   */
+  public E get(char[] text, int start, int length) {
+    int slot = mix(hash(text, start, length)) & mask;
+    char[] key;
+    while((key = keys[slot]) != null) {
+      if(matches(key, text, start, length)) {
+        return constants[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  private static boolean matches(char[] key, char[] text, int start, int length) {
+    if(key.length != length) {
+      return false;
+    }
+    for(int i = 0; i < length; i++) {
+      if(key[i] != text[start + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the same hash as {@link String#hashCode()} would for the given characters
+   */
+  private static int hash(char[] text, int start, int length) {
+    int hash = 0;
+    for(int i = start; i < start + length; i++) {
+      hash = 31 * hash + text[i];
+    }
+    return hash;
+  }
+
+  private static int mix(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -0,0 +1,13 @@
+package com.twock.swappricer.fpml.model.enumeration;
+
+/**
+ * An enumeration whose constants each correspond to a single value in FpML.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public interface FpmlEnum {
+  /**
+   * @return the value representing this constant in FpML
+   */
+  String value();
+}
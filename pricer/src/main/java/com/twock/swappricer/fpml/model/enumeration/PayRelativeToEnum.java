@@ -17,7 +17,7 @@ package com.twock.swappricer.fpml.model.enumeration;
  * &lt;/simpleType>
  * </pre>
  */
-public enum PayRelativeToEnum {
+public enum PayRelativeToEnum implements FpmlEnum {
 
   /**
    * Payments will occur relative to the first day of each calculation period.
@@ -44,6 +44,7 @@ public enum PayRelativeToEnum {
    */
 //  VALUATION_DATE("ValuationDate")
   ;
+  public static final EnumLookup<PayRelativeToEnum> LOOKUP = new EnumLookup<PayRelativeToEnum>(values());
   private final String value;
 
   PayRelativeToEnum(String v) {
@@ -55,11 +56,10 @@ public enum PayRelativeToEnum {
   }
 
   public static PayRelativeToEnum fromValue(String v) {
-    for(PayRelativeToEnum c : PayRelativeToEnum.values()) {
-      if(c.value.equals(v)) {
-        return c;
-      }
+    PayRelativeToEnum c = LOOKUP.get(v);
+    if(c == null) {
+      throw new IllegalArgumentException(v);
     }
-    throw new IllegalArgumentException(v);
+    return c;
   }
 }
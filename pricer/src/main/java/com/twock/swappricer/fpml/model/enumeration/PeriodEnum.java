@@ -3,6 +3,11 @@ package com.twock.swappricer.fpml.model.enumeration;
 /**
  * @author Chris Pearson (chris@twock.com)
  */
-public enum PeriodEnum {
-  D, W, M, Y, T
+public enum PeriodEnum implements FpmlEnum {
+  D, W, M, Y, T;
+  public static final EnumLookup<PeriodEnum> LOOKUP = new EnumLookup<PeriodEnum>(values());
+
+  public String value() {
+    return name();
+  }
 }
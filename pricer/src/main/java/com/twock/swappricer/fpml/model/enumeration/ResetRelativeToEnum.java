@@ -14,7 +14,7 @@ package com.twock.swappricer.fpml.model.enumeration;
  * &lt;/simpleType>
  * </pre>
  */
-public enum ResetRelativeToEnum {
+public enum ResetRelativeToEnum implements FpmlEnum {
 
   /**
    * Resets will occur relative to the first day of each calculation period.
@@ -25,6 +25,7 @@ public enum ResetRelativeToEnum {
    * Resets will occur relative to the last day of each calculation period.
    */
   CALCULATION_PERIOD_END_DATE("CalculationPeriodEndDate");
+  public static final EnumLookup<ResetRelativeToEnum> LOOKUP = new EnumLookup<ResetRelativeToEnum>(values());
   private final String value;
 
   ResetRelativeToEnum(String v) {
@@ -36,11 +37,10 @@ public enum ResetRelativeToEnum {
   }
 
   public static ResetRelativeToEnum fromValue(String v) {
-    for(ResetRelativeToEnum c : ResetRelativeToEnum.values()) {
-      if(c.value.equals(v)) {
-        return c;
-      }
+    ResetRelativeToEnum c = LOOKUP.get(v);
+    if(c == null) {
+      throw new IllegalArgumentException(v);
     }
-    throw new IllegalArgumentException(v);
+    return c;
   }
 }
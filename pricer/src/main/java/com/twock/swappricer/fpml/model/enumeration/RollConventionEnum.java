@@ -9,7 +9,7 @@ import java.util.Set;
  *
  * @author Chris Pearson (chris@twock.com)
  */
-public enum RollConventionEnum {
+public enum RollConventionEnum implements FpmlEnum {
   EOM("EOM"),
   //  FRN("FRN"),
   IMM("IMM"),
@@ -57,23 +57,32 @@ public enum RollConventionEnum {
 //  SAT("SAT"),
 //  SUN("SUN");
   ;
+  public static final EnumLookup<RollConventionEnum> LOOKUP = new EnumLookup<RollConventionEnum>(values());
   private final String value;
+  private final int dayOfMonth;
   public static final Set<RollConventionEnum> DAY_ROLLS = Collections.unmodifiableSet(EnumSet.range(DAY1, DAY30));
 
   RollConventionEnum(String v) {
     value = v;
+    dayOfMonth = v.matches("\\d+") ? Integer.parseInt(v) : 0;
   }
 
   public String value() {
     return value;
   }
 
+  /**
+   * @return the day of the month for day rolls DAY1 to DAY30, otherwise 0
+   */
+  public int getDayOfMonth() {
+    return dayOfMonth;
+  }
+
   public static RollConventionEnum fromValue(String v) {
-    for(RollConventionEnum c : RollConventionEnum.values()) {
-      if(c.value.equals(v)) {
-        return c;
-      }
+    RollConventionEnum c = LOOKUP.get(v);
+    if(c == null) {
+      throw new IllegalArgumentException(v);
     }
-    throw new IllegalArgumentException(v);
+    return c;
   }
 }
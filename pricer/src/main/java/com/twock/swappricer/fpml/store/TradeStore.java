@@ -0,0 +1,181 @@
+package com.twock.swappricer.fpml.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.fpml.SwapStreamEncoding;
+import com.twock.swappricer.fpml.TradeHandler;
+import com.twock.swappricer.fpml.model.DateWithDayCount;
+import com.twock.swappricer.fpml.model.SwapStream;
+import com.twock.swappricer.fpml.model.Trade;
+
+import static com.twock.swappricer.fpml.store.TradeStoreFormat.*;
+
+/**
+ * Trades previously written by a {@link TradeStoreWriter}, memory mapped from the file.  Opening a store only reads
+ * the header and string dictionary; each trade is decoded from its fixed width records when it is asked for, so
+ * trades can be read in any order, and by several threads at once.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class TradeStore {
+  private final File file;
+  private final ByteBuffer buffer;
+  private final int tradeCount;
+  private final int tradesOffset;
+  private final String[] strings;
+  private final String[][] centreSets;
+
+  private TradeStore(File file, ByteBuffer buffer) {
+    this.file = file;
+    this.buffer = buffer;
+    if(buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new PricerException(file + " is not a trade store");
+    }
+    if(buffer.getInt(4) != VERSION) {
+      throw new PricerException("Trade store " + file + " is version " + buffer.getInt(4) + ", expected " + VERSION);
+    }
+    tradeCount = buffer.getInt(8);
+    int streamCount = buffer.getInt(12);
+    tradesOffset = buffer.getInt(24);
+    if(tradesOffset != HEADER_SIZE + streamCount * STREAM_RECORD_SIZE) {
+      throw new PricerException("Trade store " + file + " is incomplete or corrupt");
+    }
+    ByteBuffer in = buffer.duplicate();
+    in.position(buffer.getInt(28));
+    strings = new String[buffer.getInt(16)];
+    for(int i = 0; i < strings.length; i++) {
+      char[] chars = new char[in.getInt()];
+      in.asCharBuffer().get(chars);
+      in.position(in.position() + chars.length * 2);
+      strings[i] = new String(chars);
+    }
+    centreSets = new String[buffer.getInt(20)][];
+    for(int i = 0; i < centreSets.length; i++) {
+      String[] centres = new String[in.getInt()];
+      for(int j = 0; j < centres.length; j++) {
+        centres[j] = strings[in.getInt()];
+      }
+      centreSets[i] = centres;
+    }
+  }
+
+  /**
+   * Map the given trade store file.
+   *
+   * @param file file written by a {@link TradeStoreWriter}
+   * @return the store
+   */
+  public static TradeStore open(File file) {
+    try {
+      RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+      try {
+        FileChannel channel = randomAccessFile.getChannel();
+        // the mapping remains valid once the file is closed
+        return new TradeStore(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+      } finally {
+        randomAccessFile.close();
+      }
+    } catch(IOException e) {
+      throw new PricerException("Failed to open trade store " + file, e);
+    }
+  }
+
+  public int size() {
+    return tradeCount;
+  }
+
+  public String getTradeId(int index) {
+    return string(buffer.getInt(tradeRecord(index)));
+  }
+
+  /**
+   * @param index index of the trade, in the order the trades were written
+   * @return the trade, decoded from the store
+   */
+  public Trade getTrade(int index) {
+    int record = tradeRecord(index);
+    int tradeDate = buffer.getInt(record + 4);
+    int firstStream = buffer.getInt(record + 8);
+    int streams = buffer.getInt(record + 12);
+    ByteBuffer in = buffer.duplicate();
+    in.position(HEADER_SIZE + firstStream * STREAM_RECORD_SIZE);
+    StreamRecordReader reader = new StreamRecordReader(in);
+    List<SwapStream> swapStreams = new ArrayList<SwapStream>(streams);
+    for(int i = 0; i < streams; i++) {
+      swapStreams.add(SwapStreamEncoding.read(reader));
+    }
+    return new Trade(string(buffer.getInt(record)), tradeDate == SwapStreamEncoding.NULL_INT ? null : new DateWithDayCount(tradeDate), swapStreams);
+  }
+
+  /**
+   * Decode each trade in turn, passing it to the handler before decoding the next.
+   *
+   * @param handler receives each trade in the order they were written
+   * @return the number of trades read
+   */
+  public int readTrades(TradeHandler handler) {
+    for(int i = 0; i < tradeCount; i++) {
+      handler.handle(getTrade(i));
+    }
+    return tradeCount;
+  }
+
+  private int tradeRecord(int index) {
+    if(index < 0 || index >= tradeCount) {
+      throw new PricerException("Trade " + index + " not in trade store " + file + " of " + tradeCount + " trades");
+    }
+    return tradesOffset + index * TRADE_RECORD_SIZE;
+  }
+
+  private String string(int index) {
+    return index == SwapStreamEncoding.NULL_INT ? null : strings[index];
+  }
+
+  private String[] centreSet(int index) {
+    // shared by every stream using the same business centres, like the strings
+    return index == SwapStreamEncoding.NULL_INT ? null : centreSets[index];
+  }
+
+  /**
+   * Reads the fields of consecutive stream records from a buffer positioned at the first.
+   */
+  private class StreamRecordReader implements SwapStreamEncoding.FieldReader {
+    private final ByteBuffer in;
+
+    private StreamRecordReader(ByteBuffer in) {
+      this.in = in;
+    }
+
+    @Override
+    public int readInt() {
+      return in.getInt();
+    }
+
+    @Override
+    public byte readEnum() {
+      return in.get();
+    }
+
+    @Override
+    public double readDouble() {
+      return in.getDouble();
+    }
+
+    @Override
+    public String readString() {
+      return string(in.getInt());
+    }
+
+    @Override
+    public String[] readCentres() {
+      return centreSet(in.getInt());
+    }
+  }
+}
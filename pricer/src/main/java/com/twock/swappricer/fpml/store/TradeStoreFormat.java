@@ -0,0 +1,38 @@
+package com.twock.swappricer.fpml.store;
+
+/**
+ * Layout of a trade store file, shared by {@link TradeStoreWriter} and {@link TradeStore}.  All values are big endian.
+ * <pre>
+ * header         MAGIC, VERSION, trade count, stream count, string count, business centre set count,
+ *                offset of trade records, offset of strings (8 ints)
+ * stream records STREAM_RECORD_SIZE bytes each, the fields of a stream in the order of SwapStreamEncoding
+ * trade records  string index of trade id, trade date day count, index of first stream, stream count (4 ints)
+ * strings        char count then chars, for each string
+ * centre sets    string count then string indexes, for each set of business centres
+ * </pre>
+ * Strings and sets of business centres are referred to by their index in a
+ * {@link com.twock.swappricer.fpml.StringDictionary}.  Null references, like null ints and dates, are written as
+ * {@link com.twock.swappricer.fpml.SwapStreamEncoding#NULL_INT}, and absent doubles as 0.  Enums are written as their
+ * ordinal, so {@link #VERSION} must change whenever the constants of an FpML enum are reordered.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+class TradeStoreFormat {
+  static final int MAGIC = 0x53575053; // "SWPS"
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 8 * 4;
+  static final int TRADE_RECORD_SIZE = 4 * 4;
+  static final int BUSINESS_DAY_ADJUSTMENTS_SIZE = 1 + 4;
+  static final int RELATIVE_DATE_OFFSET_SIZE = 4 + 1 + 1 + BUSINESS_DAY_ADJUSTMENTS_SIZE;
+  static final int STREAM_RECORD_SIZE = 4 // presence flags
+    + 2 * (4 + BUSINESS_DAY_ADJUSTMENTS_SIZE) // effective and termination dates
+    + BUSINESS_DAY_ADJUSTMENTS_SIZE + (4 + 1 + 1) // calculation period adjustments and frequency
+    + 4 + 4 // first and last regular period dates
+    + (4 + 1 + 1 + (4 + 1 + 1) + BUSINESS_DAY_ADJUSTMENTS_SIZE) // payment dates
+    + (1 + 2 * RELATIVE_DATE_OFFSET_SIZE + 4 + 1 + BUSINESS_DAY_ADJUSTMENTS_SIZE) // reset dates
+    + 8 + 4 + 1 + 1 // notional, currency, day count fraction and compounding method
+    + 8 + 4 + 4 + 1 + 8 + 8; // fixed rate, index, index tenor, spread and initial rate
+
+  private TradeStoreFormat() {
+  }
+}
@@ -0,0 +1,183 @@
+package com.twock.swappricer.fpml.store;
+
+import java.io.*;
+import java.util.List;
+
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.fpml.StringDictionary;
+import com.twock.swappricer.fpml.SwapStreamEncoding;
+import com.twock.swappricer.fpml.TradeHandler;
+import com.twock.swappricer.fpml.model.SwapStream;
+import com.twock.swappricer.fpml.model.Trade;
+
+import static com.twock.swappricer.fpml.store.TradeStoreFormat.*;
+
+/**
+ * Writes trades to a file that can later be opened as a {@link TradeStore} instead of parsing the FpML again.  Trades
+ * are written as they are handed over, so the writer can be given directly to
+ * {@link com.twock.swappricer.fpml.FpmlParser#parseTrades} or {@link com.twock.swappricer.fpml.FpmlIngestPipeline};
+ * only the string dictionary and the small trade records are held in memory until {@link #close()}.
+ * <p/>
+ * Not thread safe.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class TradeStoreWriter implements TradeHandler, Closeable {
+  private final File file;
+  private final DataOutputStream streamOut;
+  private final ByteArrayOutputStream tradeBytes = new ByteArrayOutputStream();
+  private final DataOutputStream tradeOut = new DataOutputStream(tradeBytes);
+  private final StringDictionary dictionary = new StringDictionary();
+  private final StreamRecordWriter recordWriter = new StreamRecordWriter();
+  private int tradeCount;
+  private int streamCount;
+  private boolean closed;
+
+  /**
+   * @param file file to write, replaced if it already exists
+   */
+  public TradeStoreWriter(File file) {
+    this.file = file;
+    try {
+      streamOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+      // header is filled in once the counts and offsets are known
+      streamOut.write(new byte[HEADER_SIZE]);
+    } catch(IOException e) {
+      throw new PricerException("Failed to create trade store " + file, e);
+    }
+  }
+
+  public int getTradeCount() {
+    return tradeCount;
+  }
+
+  @Override
+  public void handle(Trade trade) {
+    write(trade);
+  }
+
+  /**
+   * Append a trade to the store.
+   */
+  public void write(Trade trade) {
+    if(closed) {
+      throw new PricerException("Trade store " + file + " already closed");
+    }
+    List<SwapStream> swapStreams = trade.getSwapStreams();
+    try {
+      tradeOut.writeInt(dictionary.stringIndex(trade.getTradeId()));
+      tradeOut.writeInt(trade.getTradeDate() == null ? SwapStreamEncoding.NULL_INT : trade.getTradeDate().getDayCount());
+      tradeOut.writeInt(streamCount);
+      tradeOut.writeInt(swapStreams.size());
+      for(SwapStream swapStream : swapStreams) {
+        writeStream(swapStream);
+      }
+    } catch(IOException e) {
+      throw new PricerException("Failed to write trade " + trade.getTradeId() + " to " + file, e);
+    }
+    tradeCount++;
+  }
+
+  /**
+   * Write the trade records, dictionary and header, and close the file.
+   */
+  @Override
+  public void close() {
+    if(closed) {
+      return;
+    }
+    closed = true;
+    try {
+      try {
+        long tradesOffset = HEADER_SIZE + (long)streamCount * STREAM_RECORD_SIZE;
+        tradeBytes.writeTo(streamOut);
+        long stringsOffset = tradesOffset + tradeBytes.size();
+        List<String> strings = dictionary.getStrings();
+        for(String string : strings) {
+          streamOut.writeInt(string.length());
+          streamOut.writeChars(string);
+        }
+        List<int[]> centreSets = dictionary.getCentreSetStringIndexes();
+        for(int[] centreSet : centreSets) {
+          streamOut.writeInt(centreSet.length);
+          for(int centre : centreSet) {
+            streamOut.writeInt(centre);
+          }
+        }
+        // DataOutputStream stops counting at Integer.MAX_VALUE, beyond which offsets no longer fit in the header
+        if(streamOut.size() == Integer.MAX_VALUE) {
+          throw new PricerException("Trade store " + file + " exceeds 2GB");
+        }
+        streamOut.close();
+        RandomAccessFile header = new RandomAccessFile(file, "rw");
+        try {
+          header.writeInt(MAGIC);
+          header.writeInt(VERSION);
+          header.writeInt(tradeCount);
+          header.writeInt(streamCount);
+          header.writeInt(strings.size());
+          header.writeInt(centreSets.size());
+          header.writeInt((int)tradesOffset);
+          header.writeInt((int)stringsOffset);
+        } finally {
+          header.close();
+        }
+      } finally {
+        streamOut.close();
+      }
+    } catch(IOException e) {
+      throw new PricerException("Failed to complete trade store " + file, e);
+    }
+  }
+
+  private void writeStream(SwapStream stream) throws IOException {
+    int start = streamOut.size();
+    SwapStreamEncoding.write(stream, recordWriter);
+    if(streamOut.size() - start != STREAM_RECORD_SIZE) {
+      throw new PricerException("Wrote " + (streamOut.size() - start) + " bytes for a stream, expected " + STREAM_RECORD_SIZE);
+    }
+    streamCount++;
+  }
+
+  /**
+   * Writes the fields of a stream record, big endian, with strings and centres as their dictionary index.
+   */
+  private class StreamRecordWriter implements SwapStreamEncoding.FieldWriter {
+    @Override
+    public void writeInt(int value) {
+      try {
+        streamOut.writeInt(value);
+      } catch(IOException e) {
+        throw new PricerException("Failed to write stream to " + file, e);
+      }
+    }
+
+    @Override
+    public void writeEnum(byte ordinal) {
+      try {
+        streamOut.writeByte(ordinal);
+      } catch(IOException e) {
+        throw new PricerException("Failed to write stream to " + file, e);
+      }
+    }
+
+    @Override
+    public void writeDouble(Double value) {
+      try {
+        streamOut.writeDouble(value == null ? 0 : value);
+      } catch(IOException e) {
+        throw new PricerException("Failed to write stream to " + file, e);
+      }
+    }
+
+    @Override
+    public void writeString(String value) {
+      writeInt(dictionary.stringIndex(value));
+    }
+
+    @Override
+    public void writeCentres(String[] businessCentres) {
+      writeInt(dictionary.centreSetIndex(businessCentres));
+    }
+  }
+}
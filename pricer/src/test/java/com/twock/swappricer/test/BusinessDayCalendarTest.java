@@ -0,0 +1,108 @@
+package com.twock.swappricer.test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.twock.swappricer.BusinessDayCalendar;
+import com.twock.swappricer.DateUtil;
+import com.twock.swappricer.fpml.model.DateWithDayCount;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class BusinessDayCalendarTest {
+  private static final int FIRST_YEAR = 2010;
+  private static final int LAST_YEAR = 2014;
+
+  @Test
+  public void weekendsOnly() {
+    BusinessDayCalendar calendar = new BusinessDayCalendar(FIRST_YEAR, LAST_YEAR);
+    Assert.assertFalse(calendar.isBusinessDay(new DateWithDayCount(2012, 1, 7).getDayCount()));
+    Assert.assertFalse(calendar.isBusinessDay(new DateWithDayCount(2012, 1, 8).getDayCount()));
+    Assert.assertTrue(calendar.isBusinessDay(new DateWithDayCount(2012, 1, 9).getDayCount()));
+    Assert.assertEquals(new DateWithDayCount(2012, 1, 9).getDayCount(), calendar.nextBusinessDay(new DateWithDayCount(2012, 1, 7).getDayCount()));
+    Assert.assertEquals(new DateWithDayCount(2012, 1, 6).getDayCount(), calendar.previousBusinessDay(new DateWithDayCount(2012, 1, 8).getDayCount()));
+  }
+
+  @Test
+  public void matchesBruteForce() {
+    Random random = new Random(42);
+    int[] holidays1 = randomHolidays(random, 300);
+    int[] holidays2 = randomHolidays(random, 300);
+    BusinessDayCalendar combined = BusinessDayCalendar.combine(new BusinessDayCalendar(FIRST_YEAR, LAST_YEAR, holidays1), new BusinessDayCalendar(FIRST_YEAR, LAST_YEAR, holidays2));
+    BusinessDayCalendar mismatched = BusinessDayCalendar.combine(new BusinessDayCalendar(FIRST_YEAR, LAST_YEAR, holidays1), new BusinessDayCalendar(FIRST_YEAR + 1, LAST_YEAR - 1, holidays2));
+    // go a year either side of the compiled range to exercise the fallback
+    int start = DateUtil.dateToDayCount(new short[]{FIRST_YEAR - 1, 1, 1});
+    int end = DateUtil.dateToDayCount(new short[]{LAST_YEAR + 2, 1, 1});
+    for(int day = start; day < end; day++) {
+      boolean expected = isBusinessDay(day, holidays1, holidays2);
+      Assert.assertEquals(expected, combined.isBusinessDay(day));
+      Assert.assertEquals(expected, mismatched.isBusinessDay(day));
+      int next = day;
+      while(!isBusinessDay(next, holidays1, holidays2)) {
+        next++;
+      }
+      Assert.assertEquals(next, combined.nextBusinessDay(day));
+      int previous = day;
+      while(!isBusinessDay(previous, holidays1, holidays2)) {
+        previous--;
+      }
+      Assert.assertEquals(previous, combined.previousBusinessDay(day));
+    }
+  }
+
+  @Test
+  public void businessDayArithmeticMatchesBruteForce() {
+    Random random = new Random(7);
+    int[] holidays = randomHolidays(random, 300);
+    BusinessDayCalendar calendar = new BusinessDayCalendar(FIRST_YEAR, LAST_YEAR, holidays);
+    int start = DateUtil.dateToDayCount(new short[]{FIRST_YEAR - 1, 12, 1});
+    int end = DateUtil.dateToDayCount(new short[]{LAST_YEAR + 1, 2, 1});
+    for(int day = start; day < end; day++) {
+      for(int shift = -12; shift <= 12; shift++) {
+        int expected = day;
+        int signum = Integer.signum(shift);
+        for(int i = 0; i < Math.abs(shift); i++) {
+          expected += signum;
+          while(!isBusinessDay(expected, holidays)) {
+            expected += signum;
+          }
+        }
+        Assert.assertEquals(expected, calendar.addBusinessDays(day, shift));
+      }
+      int count = 0;
+      for(int other = day; other < day + 40; other++) {
+        Assert.assertEquals(count, calendar.businessDaysBetween(day, other));
+        Assert.assertEquals(-count, calendar.businessDaysBetween(other, day));
+        if(isBusinessDay(other, holidays)) {
+          count++;
+        }
+      }
+    }
+  }
+
+  private static int[] randomHolidays(Random random, int count) {
+    int start = DateUtil.dateToDayCount(new short[]{FIRST_YEAR - 1, 1, 1});
+    int end = DateUtil.dateToDayCount(new short[]{LAST_YEAR + 2, 1, 1});
+    int[] result = new int[count];
+    for(int i = 0; i < count; i++) {
+      result[i] = start + random.nextInt(end - start);
+    }
+    Arrays.sort(result);
+    return result;
+  }
+
+  private static boolean isBusinessDay(int day, int[]... holidays) {
+    if(DateUtil.isWeekend(day)) {
+      return false;
+    }
+    for(int[] holiday : holidays) {
+      if(Arrays.binarySearch(holiday, day) >= 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -1,13 +1,16 @@
 package com.twock.swappricer.test;
 
-import java.io.BufferedInputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.io.*;
+import java.util.*;
 
 import com.twock.swappricer.CurveContainer;
 import com.twock.swappricer.DateUtil;
 import com.twock.swappricer.MissingMappingException;
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.ValuationCurve;
 import com.twock.swappricer.fpml.model.enumeration.PeriodEnum;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -15,13 +18,18 @@ import org.junit.Test;
  * @author Chris Pearson (chris@twock.com)
  */
 public class CurveContainerTest {
+  private static final String INDEX_RATES = "Currency\tIndexname\tTenorunit\tTenorperiod\tFixingdate\tEffectivedate\tIndexrate\tregulatoryBody\n" +
+    "EUR\tEURIBOR\t6\tM\t29/10/2010 00:00:00\t02/11/2010 00:00:00\t1.26900\tReuters\n" +
+    "AUD\tLIBOR\t1\tM\t04/10/2010 00:00:00\t06/10/2010 00:00:00\t4.71250\tBBA\n" +
+    "EUR\tEURIBOR\t6\tM\t28/10/2010 00:00:00\t01/11/2010 00:00:00\t1.26000\tReuters\n" +
+    "EUR\tEURIBOR\t6\tM\t29/10/2010 00:00:00\t02/11/2010 00:00:00\t1.27\tReuters\n";
   private static CurveContainer container;
 
   public static synchronized CurveContainer getCurveContainer() {
     if(container == null) {
       Reader mappingsCsv = new InputStreamReader(new BufferedInputStream(CurveContainerTest.class.getResourceAsStream("/static/curveMappings.csv")));
       Reader curveTsv = new InputStreamReader(new BufferedInputStream(CurveContainerTest.class.getResourceAsStream("/DMPAUC_EUR00100a - VM Yield Curve - Zero Rates Day 1.TXT")));
-      Reader historicRates = new InputStreamReader(new BufferedInputStream(CurveContainerTest.class.getResourceAsStream("/20111104_0210 - DMPAUC00003 - Historic Index Rates.TXT")));
+      Reader historicRates = new InputStreamReader(new BufferedInputStream(CurveContainerTest.class.getResourceAsStream("/static/historicIndexRates.tsv")));
       container = new CurveContainer(mappingsCsv, curveTsv, historicRates);
     }
     return container;
@@ -80,4 +88,68 @@ public class CurveContainerTest {
   public void getLoadedHistoricIndexRate() {
     Assert.assertEquals(1.26900, getCurveContainer().getHistoricIndexRates("EUR-EURIBOR-Reuters", 6, PeriodEnum.M).get(DateUtil.dateToDayCount(new short[]{2010, 10, 29})), 0.00001);
   }
+
+  @Test
+  public void loadsFilesConcurrently() throws IOException {
+    File directory = File.createTempFile("curves", "");
+    if(!directory.delete() || !directory.mkdir()) {
+      throw new IOException("Failed to create directory " + directory);
+    }
+    try {
+      File mappings = new File(directory, "mappings.csv");
+      File curves = new File(directory, "curves.tsv");
+      File indexRates = new File(directory, "rates.tsv");
+      FileUtils.copyInputStreamToFile(getClass().getResourceAsStream("/static/curveMappings.csv"), mappings);
+      // pillars in reverse order must be sorted into the same curves
+      List<String> curveLines = IOUtils.readLines(getClass().getResourceAsStream("/DMPAUC_EUR00100a - VM Yield Curve - Zero Rates Day 1.TXT"), "UTF8");
+      Collections.reverse(curveLines.subList(1, curveLines.size()));
+      FileUtils.writeLines(curves, "UTF8", curveLines, "\r\n");
+      FileUtils.writeStringToFile(indexRates, INDEX_RATES, "UTF8");
+
+      CurveContainer loaded = new CurveContainer(mappings, curves, indexRates);
+      for(String curveName : new String[]{"EUR_EONIA_EOD", "EUR_EURIBOR_6M_EOD"}) {
+        ValuationCurve expected = getCurveContainer().getCurve(curveName);
+        ValuationCurve actual = loaded.getCurve(curveName);
+        Assert.assertEquals(expected.getCurveDate().getDayCount(), actual.getCurveDate().getDayCount());
+        Assert.assertArrayEquals(expected.getMaturityDates(), actual.getMaturityDates());
+        Assert.assertArrayEquals(expected.getZeroRates(), actual.getZeroRates(), 0);
+      }
+      SortedMap<Integer, Double> rates = loaded.getHistoricIndexRates("EUR-EURIBOR-Reuters", 6, PeriodEnum.M);
+      Assert.assertEquals(Arrays.asList(DateUtil.dateToDayCount(2010, 10, 28), DateUtil.dateToDayCount(2010, 10, 29)), new ArrayList<Integer>(rates.keySet()));
+      Assert.assertEquals(1.27, rates.get(DateUtil.dateToDayCount(2010, 10, 29)), 0);
+    } finally {
+      FileUtils.deleteDirectory(directory);
+    }
+  }
+
+  @Test(expected = PricerException.class)
+  public void duplicatePillar() {
+    String header = "Curve\tClose_Date\tMaturity_Date\tAccrual_Factor\tZero_Rate\tDiscount_Factor\n";
+    String pillar = "EUR_EONIA_EOD\t04/11/2011 00:00:00\t07/11/2011 00:00:00\t0.0082\t0.0081\t0.9999\n";
+    new CurveContainer(new InputStreamReader(getClass().getResourceAsStream("/static/curveMappings.csv")), new StringReader(header + pillar + pillar), new StringReader(""));
+  }
+
+  @Test
+  public void batchDiscountFactorsMatchSingle() {
+    ValuationCurve curve = getCurveContainer().getCurve("EUR_EURIBOR_6M_EOD");
+    int[] maturityDates = curve.getMaturityDates();
+    int first = maturityDates[0];
+    int[] dates = new int[(maturityDates[maturityDates.length - 1] - first) / 3 + 1];
+    for(int i = 0; i < dates.length; i++) {
+      dates[i] = first + i * 3;
+    }
+    double[] out = new double[dates.length];
+    curve.discountFactors(dates, out);
+    for(int i = 0; i < dates.length; i++) {
+      Assert.assertEquals(curve.getDiscountFactor(dates[i]), out[i], 1e-15);
+    }
+    // out of order dates still give the right answer
+    int[] unsorted = {dates[dates.length - 1], dates[0], dates[dates.length / 2]};
+    double[] unsortedOut = new double[4];
+    curve.discountFactors(unsorted, 0, 3, unsortedOut);
+    Assert.assertEquals(out[dates.length - 1], unsortedOut[0], 1e-15);
+    Assert.assertEquals(out[0], unsortedOut[1], 1e-15);
+    Assert.assertEquals(out[dates.length / 2], unsortedOut[2], 1e-15);
+    Assert.assertEquals(0, unsortedOut[3], 0);
+  }
 }
@@ -0,0 +1,85 @@
+package com.twock.swappricer.test;
+
+import java.util.Arrays;
+
+import com.twock.swappricer.CurveContainer;
+import com.twock.swappricer.CurveResolver;
+import com.twock.swappricer.MissingMappingException;
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.ResolvedCurves;
+import com.twock.swappricer.fpml.model.enumeration.PeriodEnum;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class CurveResolverTest {
+  @Test
+  public void matchesContainerMappings() {
+    CurveContainer container = CurveContainerTest.getCurveContainer();
+    CurveResolver resolver = container.getCurveResolver();
+    Object[][] cases = {
+      {"EUR-EURIBOR-Reuters", 1, PeriodEnum.M, "EUR"},
+      {"EUR-EURIBOR-Reuters", 6, PeriodEnum.M, "EUR"},
+      {"EUR-EURIBOR-Reuters", 1, PeriodEnum.Y, "EUR"},
+      {"EUR-EONIA-OIS-COMPOUND", null, null, "EUR"},
+      {"xxx", 1, null, "EUR"},
+      {null, null, null, "EUR"},
+    };
+    for(Object[] c : cases) {
+      ResolvedCurves curves = resolver.resolve((String)c[0], (Integer)c[1], (PeriodEnum)c[2], (String)c[3]);
+      Assert.assertSame(container.getCurve(container.getForwardCurve((String)c[0], (Integer)c[1], (PeriodEnum)c[2], (String)c[3])), curves.getForwardCurve());
+      Assert.assertSame(container.getCurve(container.getDiscountCurve((String)c[0], (Integer)c[1], (PeriodEnum)c[2], (String)c[3])), curves.getDiscountCurve());
+    }
+  }
+
+  @Test
+  public void memoisedByIds() {
+    CurveResolver resolver = CurveContainerTest.getCurveContainer().getCurveResolver();
+    int index = CurveResolver.getId("EUR-EURIBOR-Reuters");
+    int currency = CurveResolver.getId("EUR");
+    Assert.assertEquals(index, CurveResolver.getId(new String("EUR-EURIBOR-Reuters")));
+    Assert.assertEquals(CurveResolver.NO_ID, CurveResolver.getId(null));
+    Assert.assertEquals(CurveResolver.NO_TENOR, CurveResolver.getTenor(6, null));
+    ResolvedCurves curves = resolver.resolve(index, CurveResolver.getTenor(6, PeriodEnum.M), currency);
+    Assert.assertSame(curves, resolver.resolve("EUR-EURIBOR-Reuters", 6, PeriodEnum.M, "EUR"));
+    Assert.assertEquals("EUR_EURIBOR_6M_EOD", curves.getForwardCurve().getCurveName());
+    Assert.assertSame(CurveContainerTest.getCurveContainer().getHistoricFixings("EUR-EURIBOR-Reuters", 6, PeriodEnum.M), curves.getHistoricFixings());
+  }
+
+  @Test
+  public void missingMappingReportedWhenUsed() {
+    ResolvedCurves curves = CurveContainerTest.getCurveContainer().getCurveResolver().resolve("xxx", 1, PeriodEnum.Y, "xxx");
+    Assert.assertNull(curves.getHistoricFixings());
+    try {
+      curves.getDiscountCurve();
+      Assert.fail("Expected missing mapping to be reported");
+    } catch(MissingMappingException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void rejectsKeysThatDoNotFit() {
+    CurveResolver resolver = CurveContainerTest.getCurveContainer().getCurveResolver();
+    int currency = CurveResolver.getId("EUR");
+    Assert.assertTrue(CurveResolver.getTenor(9999, PeriodEnum.Y) <= CurveResolver.MAX_TENOR);
+    for(Integer periodMultiplier : new Integer[]{-1, Integer.MAX_VALUE}) {
+      try {
+        CurveResolver.getTenor(periodMultiplier, PeriodEnum.M);
+        Assert.fail("Expected tenor multiplier " + periodMultiplier + " to be rejected");
+      } catch(PricerException e) {
+        // expected
+      }
+    }
+    for(int[] ids : new int[][]{{CurveResolver.MAX_ID + 1, CurveResolver.NO_TENOR, currency}, {CurveResolver.NO_ID, CurveResolver.NO_TENOR, CurveResolver.MAX_ID + 1}, {CurveResolver.NO_ID, -1, currency}}) {
+      try {
+        resolver.resolve(ids[0], ids[1], ids[2]);
+        Assert.fail("Expected " + Arrays.toString(ids) + " to be rejected");
+      } catch(PricerException e) {
+        // expected
+      }
+    }
+  }
+}
@@ -1,9 +1,13 @@
 package com.twock.swappricer.test;
 
 import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
 
 import com.twock.swappricer.DateUtil;
+import com.twock.swappricer.PackedDate;
 import com.twock.swappricer.fpml.model.DateWithDayCount;
+import com.twock.swappricer.fpml.model.enumeration.RollConventionEnum;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -54,4 +58,49 @@ public class DateUtilTest {
     Assert.assertEquals(365, DateUtil.daysInYear(2300));
     Assert.assertEquals(366, DateUtil.daysInYear(2400));
   }
+
+  @Test
+  public void testPackedDate() {
+    long date = PackedDate.fromDayCount(735173);
+    Assert.assertEquals(735173, PackedDate.dayCount(date));
+    Assert.assertEquals(2012, PackedDate.year(date));
+    Assert.assertEquals(12, PackedDate.month(date));
+    Assert.assertEquals(31, PackedDate.day(date));
+    Assert.assertTrue(PackedDate.isLastDayOfMonth(date));
+    Assert.assertEquals(date, PackedDate.of(2012, 12, 31));
+    Assert.assertEquals(PackedDate.of(2013, 2, 28), PackedDate.addMonths(date, 2));
+    Assert.assertEquals(PackedDate.of(2012, 2, 29), PackedDate.addMonths(date, -10, RollConventionEnum.DAY30));
+    Assert.assertEquals(PackedDate.of(2013, 4, 30), PackedDate.addMonths(date, 4, RollConventionEnum.EOM));
+    Assert.assertEquals(PackedDate.of(2013, 3, 20), PackedDate.addMonths(date, 3, RollConventionEnum.IMM));
+  }
+
+  @Test
+  public void testDaysInMonth() {
+    Assert.assertEquals(31, DateUtil.daysInMonth(2012, 1));
+    Assert.assertEquals(29, DateUtil.daysInMonth(2012, 2));
+    Assert.assertEquals(28, DateUtil.daysInMonth(2100, 2));
+    Assert.assertEquals(30, DateUtil.daysInMonth(2012, 11));
+  }
+
+  @Test
+  public void testTablesMatchCalendar() {
+    GregorianCalendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+    calendar.clear();
+    calendar.set(DateUtil.TABLE_FIRST_YEAR - 2, Calendar.JANUARY, 1);
+    int dayCount = DateUtil.dateToDayCount(new short[]{DateUtil.TABLE_FIRST_YEAR - 2, 1, 1});
+    while(calendar.get(Calendar.YEAR) <= DateUtil.TABLE_LAST_YEAR + 2) {
+      int year = calendar.get(Calendar.YEAR);
+      int month = calendar.get(Calendar.MONTH) + 1;
+      int day = calendar.get(Calendar.DAY_OF_MONTH);
+      Assert.assertEquals(dayCount, DateUtil.dateToDayCount(year, month, day));
+      Assert.assertEquals(PackedDate.packYearMonthDay(year, month, day), DateUtil.dayCountToYearMonthDay(dayCount));
+      Assert.assertEquals(calendar.getActualMaximum(Calendar.DAY_OF_MONTH), DateUtil.daysInMonth(year, month));
+      Assert.assertEquals(day == calendar.getActualMaximum(Calendar.DAY_OF_MONTH), DateUtil.isLastDayOfMonth(dayCount));
+      if(calendar.get(Calendar.DAY_OF_WEEK) == Calendar.WEDNESDAY && calendar.get(Calendar.DAY_OF_WEEK_IN_MONTH) == 3) {
+        Assert.assertEquals(dayCount, DateUtil.immDayCount(year, month));
+      }
+      calendar.add(Calendar.DAY_OF_MONTH, 1);
+      dayCount++;
+    }
+  }
 }
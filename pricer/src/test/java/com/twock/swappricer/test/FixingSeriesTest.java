@@ -0,0 +1,68 @@
+package com.twock.swappricer.test;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.twock.swappricer.FixingSeries;
+import com.twock.swappricer.PricerException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class FixingSeriesTest {
+  @Test
+  public void denseAndSparseLookupsAgree() {
+    FixingSeries dense = new FixingSeries(new int[]{100, 101, 104, 105}, new double[]{1.1, 1.2, 1.3, 1.4});
+    FixingSeries sparse = new FixingSeries(new int[]{100, 101, 104, 500}, new double[]{1.1, 1.2, 1.3, 1.4});
+    Assert.assertTrue(dense.toString().contains("dense=true"));
+    Assert.assertTrue(sparse.toString().contains("dense=false"));
+    for(FixingSeries series : new FixingSeries[]{dense, sparse}) {
+      Assert.assertEquals(1.1, series.getRate(100), 0);
+      Assert.assertEquals(1.3, series.getRate(104), 0);
+      Assert.assertTrue(Double.isNaN(series.getRate(99)));
+      Assert.assertTrue(Double.isNaN(series.getRate(102)));
+      Assert.assertTrue(Double.isNaN(series.getRate(1000)));
+    }
+  }
+
+  @Test
+  public void latestOnOrBefore() {
+    FixingSeries series = new FixingSeries(new int[]{100, 101, 104}, new double[]{1.1, 1.2, 1.3});
+    Assert.assertEquals(-1, series.indexOnOrBefore(99));
+    Assert.assertEquals(0, series.indexOnOrBefore(100));
+    Assert.assertEquals(1, series.indexOnOrBefore(103));
+    Assert.assertEquals(2, series.indexOnOrBefore(200));
+    Assert.assertEquals(1.2, series.getLatestRate(102), 0);
+    Assert.assertTrue(Double.isNaN(series.getLatestRate(99)));
+    Assert.assertTrue(Double.isNaN(new FixingSeries(new int[0], new double[0]).getLatestRate(100)));
+  }
+
+  @Test
+  public void bulkLookup() {
+    FixingSeries series = new FixingSeries(new int[]{100, 101, 104}, new double[]{1.1, 1.2, 1.3});
+    double[] out = new double[]{-1, -1, -1, -1};
+    series.getRates(new int[]{0, 101, 102, 104}, 1, 4, out);
+    Assert.assertEquals(-1, out[0], 0);
+    Assert.assertEquals(1.2, out[1], 0);
+    Assert.assertTrue(Double.isNaN(out[2]));
+    Assert.assertEquals(1.3, out[3], 0);
+  }
+
+  @Test
+  public void roundTripSortedMap() {
+    SortedMap<Integer, Double> rates = new TreeMap<Integer, Double>();
+    rates.put(200, 2.5);
+    rates.put(100, 1.5);
+    FixingSeries series = FixingSeries.fromSortedMap(rates);
+    Assert.assertEquals(2, series.size());
+    Assert.assertEquals(100, series.getFixingDates()[0]);
+    Assert.assertEquals(rates, series.toSortedMap());
+  }
+
+  @Test(expected = PricerException.class)
+  public void rejectsUnsortedDates() {
+    new FixingSeries(new int[]{100, 100}, new double[]{1.1, 1.2});
+  }
+}
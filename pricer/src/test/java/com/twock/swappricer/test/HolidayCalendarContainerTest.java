@@ -1,9 +1,14 @@
 package com.twock.swappricer.test;
 
-import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
+import java.io.*;
+import java.util.Collections;
 
+import com.twock.swappricer.BusinessDayCalendar;
+import com.twock.swappricer.HolidayCalendar;
 import com.twock.swappricer.HolidayCalendarContainer;
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.fpml.model.DateWithDayCount;
+import org.apache.commons.io.FileUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -15,6 +20,86 @@ public class HolidayCalendarContainerTest {
   public void testRead() throws UnsupportedEncodingException {
     HolidayCalendarContainer container = new HolidayCalendarContainer();
     container.loadFromTsv(new InputStreamReader(getClass().getResourceAsStream("/calendars.tsv"), "UTF8"));
-    Assert.assertEquals(container.getHolidayCalendars().keySet().toString(), 36, container.getHolidayCalendars().size());
+    // the calendar on the final rows used to be dropped
+    Assert.assertEquals(container.getHolidayCalendars().keySet().toString(), 37, container.getHolidayCalendars().size());
+    Assert.assertTrue(container.getHolidayCalendars().get("ZAJO").isPublicHoliday(new DateWithDayCount(2072, 12, 26)));
+  }
+
+  @Test
+  public void fileMatchesReader() throws IOException {
+    File file = File.createTempFile("calendars", ".tsv");
+    try {
+      FileUtils.copyInputStreamToFile(getClass().getResourceAsStream("/calendars.tsv"), file);
+      HolidayCalendarContainer fromFile = new HolidayCalendarContainer();
+      fromFile.loadFromTsv(file);
+      HolidayCalendarContainer fromReader = new HolidayCalendarContainer();
+      fromReader.loadFromTsv(new InputStreamReader(getClass().getResourceAsStream("/calendars.tsv"), "UTF8"));
+      Assert.assertEquals(fromReader.getHolidayCalendars().keySet(), fromFile.getHolidayCalendars().keySet());
+      for(String code : fromReader.getHolidayCalendars().keySet()) {
+        Assert.assertArrayEquals(code, fromReader.getHolidayCalendars().get(code).getHolidayDayCounts(), fromFile.getHolidayCalendars().get(code).getHolidayDayCounts());
+      }
+    } finally {
+      FileUtils.deleteQuietly(file);
+    }
+  }
+
+  @Test
+  public void readsUngroupedRows() throws UnsupportedEncodingException {
+    HolidayCalendarContainer container = new HolidayCalendarContainer();
+    container.loadFromTsv(new ByteArrayInputStream(("name\tcode\tdate\r\n" +
+      "London\tGBLO\t26/12/2011 00:00:00\tBoxing Day\r\n" +
+      "Target\tEUTA\t01/01/2012\r\n" +
+      "short row\r\n" +
+      "London\tGBLO\t29/08/2011\r\n").getBytes("UTF8")));
+    Assert.assertEquals(2, container.getHolidayCalendars().size());
+    Assert.assertArrayEquals(new int[]{new DateWithDayCount(2011, 8, 29).getDayCount(), new DateWithDayCount(2011, 12, 26).getDayCount()}, container.getHolidayCalendars().get("GBLO").getHolidayDayCounts());
+    Assert.assertArrayEquals(new int[]{new DateWithDayCount(2012, 1, 1).getDayCount()}, container.getHolidayCalendars().get("EUTA").getHolidayDayCounts());
+  }
+
+  @Test(expected = PricerException.class)
+  public void rejectsInvalidDate() throws UnsupportedEncodingException {
+    new HolidayCalendarContainer().loadFromTsv(new ByteArrayInputStream("name\tcode\tdate\nLondon\tGBLO\t2011-08-29\n".getBytes("UTF8")));
+  }
+
+  @Test
+  public void combinedCalendarsAreShared() throws UnsupportedEncodingException {
+    HolidayCalendarContainer container = new HolidayCalendarContainer();
+    container.loadFromTsv(new InputStreamReader(getClass().getResourceAsStream("/calendars.tsv"), "UTF8"));
+    HolidayCalendarContainer londonTarget = container.getCombinedCalendars("GBLO", "EUTA");
+    Assert.assertSame(londonTarget, container.getCombinedCalendars("EUTA", "GBLO"));
+    Assert.assertSame(londonTarget, container.getCombinedCalendars("EUTA", "GBLO", "EUTA"));
+    Assert.assertEquals(2, londonTarget.getHolidayCalendars().size());
+    Assert.assertNotSame(londonTarget, container.getCombinedCalendars("GBLO"));
+    // 29th August 2011 is a London bank holiday but not a TARGET holiday
+    DateWithDayCount bankHoliday = new DateWithDayCount(2011, 8, 29);
+    Assert.assertTrue(londonTarget.isWeekendOrPublicHoliday(bankHoliday));
+    Assert.assertFalse(container.getCombinedCalendars("EUTA").isWeekendOrPublicHoliday(bankHoliday));
+    Assert.assertFalse(container.getCombinedCalendars((String[])null).isWeekendOrPublicHoliday(bankHoliday));
+  }
+
+  @Test(expected = PricerException.class)
+  public void combinedCalendarsAreUnmodifiable() {
+    new HolidayCalendarContainer().getCombinedCalendars("GBLO").setHolidayCalendars(null);
+  }
+
+  @Test
+  public void reloadDuringCombineIsNotCached() {
+    DateWithDayCount bankHoliday = new DateWithDayCount(2011, 8, 29);
+    final HolidayCalendarContainer container = new HolidayCalendarContainer();
+    final HolidayCalendar reloaded = new HolidayCalendar("GBLO", new int[]{bankHoliday.getDayCount()});
+    // calendars are reloaded while the combined calendar is still being built from the old ones
+    container.setHolidayCalendars(Collections.<String, HolidayCalendar>singletonMap("GBLO", new HolidayCalendar("GBLO", new int[0]) {
+      @Override
+      public BusinessDayCalendar getBusinessDayCalendar() {
+        container.setHolidayCalendars(Collections.singletonMap("GBLO", reloaded));
+        return super.getBusinessDayCalendar();
+      }
+    }));
+    HolidayCalendarContainer stale = container.getCombinedCalendars("GBLO");
+    Assert.assertFalse(stale.isWeekendOrPublicHoliday(bankHoliday));
+    HolidayCalendarContainer current = container.getCombinedCalendars("GBLO");
+    Assert.assertNotSame(stale, current);
+    Assert.assertTrue(current.isWeekendOrPublicHoliday(bankHoliday));
+    Assert.assertTrue(container.isWeekendOrPublicHoliday(bankHoliday));
   }
 }
@@ -0,0 +1,89 @@
+package com.twock.swappricer.test;
+
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.twock.swappricer.CurveContainer;
+import com.twock.swappricer.CurveResolver;
+import com.twock.swappricer.MarketSnapshot;
+import com.twock.swappricer.ValuationCurve;
+import com.twock.swappricer.fpml.model.enumeration.PeriodEnum;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class MarketSnapshotTest {
+  private static final String HEADER = "Curve\tClose_Date\tMaturity_Date\tAccrual_Factor\tZero_Rate\tDiscount_Factor\n";
+
+  @Test
+  public void snapshotUnchangedByLaterLoads() {
+    CurveContainer container = createContainer(0.01);
+    MarketSnapshot before = container.getSnapshot();
+    CurveResolver resolver = container.getCurveResolver();
+    Assert.assertSame(before.getCurveResolver(), resolver);
+    ValuationCurve eonia = before.getCurve("EUR_EONIA_EOD");
+
+    container.updateCurvesFromTsv(new StringReader(HEADER + pillars("EUR_EONIA_EOD", 0.02)));
+    MarketSnapshot after = container.getSnapshot();
+    Assert.assertEquals(before.getVersion() + 1, after.getVersion());
+    Assert.assertSame(eonia, before.getCurve("EUR_EONIA_EOD"));
+    Assert.assertSame(eonia, resolver.resolve(null, null, null, "EUR").getDiscountCurve());
+    Assert.assertEquals(0.02, container.getCurve("EUR_EONIA_EOD").getZeroRates()[0], 0);
+    Assert.assertEquals(0.02, container.getCurveResolver().resolve(null, null, null, "EUR").getDiscountCurve().getZeroRates()[0], 0);
+    // curves not in the update are kept
+    Assert.assertSame(before.getCurve("EUR_EURIBOR_6M_EOD"), after.getCurve("EUR_EURIBOR_6M_EOD"));
+    Assert.assertEquals(before.getForwardCurve("EUR-EURIBOR-Reuters", 6, PeriodEnum.M, "EUR"), after.getForwardCurve("EUR-EURIBOR-Reuters", 6, PeriodEnum.M, "EUR"));
+  }
+
+  @Test
+  public void readersSeeConsistentSnapshotsWhileReloading() throws Exception {
+    final CurveContainer container = createContainer(0);
+    final AtomicBoolean loading = new AtomicBoolean(true);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Future<Integer> reader = executor.submit(new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+          int reads = 0;
+          while(loading.get() || reads == 0) {
+            MarketSnapshot snapshot = container.getSnapshot();
+            double forward = snapshot.getCurve("EUR_EURIBOR_6M_EOD").getZeroRates()[0];
+            double discount = snapshot.getCurveResolver().resolve(null, null, null, "EUR").getDiscountCurve().getZeroRates()[0];
+            Assert.assertEquals(forward, discount, 0);
+            reads++;
+          }
+          return reads;
+        }
+      });
+      for(int i = 1; i <= 200; i++) {
+        container.loadCurvesFromTsv(new StringReader(curves(i / 10000.0)));
+      }
+      loading.set(false);
+      Assert.assertTrue(reader.get(10, TimeUnit.SECONDS) > 0);
+      Assert.assertEquals(0.02, container.getCurve("EUR_EONIA_EOD").getZeroRates()[0], 1e-12);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * @return a container with the test mappings, no historic fixings, and flat forward and discount curves at the
+   *         given zero rate
+   */
+  private static CurveContainer createContainer(double zeroRate) {
+    return new CurveContainer(new InputStreamReader(MarketSnapshotTest.class.getResourceAsStream("/static/curveMappings.csv")), new StringReader(curves(zeroRate)), new StringReader(""));
+  }
+
+  private static String curves(double zeroRate) {
+    return HEADER + pillars("EUR_EONIA_EOD", zeroRate) + pillars("EUR_EURIBOR_6M_EOD", zeroRate);
+  }
+
+  private static String pillars(String curveName, double zeroRate) {
+    return curveName + "\t04/11/2011 00:00:00\t07/11/2011 00:00:00\t0.0082\t" + zeroRate + "\t" + Math.exp(-zeroRate * 0.0082) + "\n" +
+      curveName + "\t04/11/2011 00:00:00\t04/11/2021 00:00:00\t10.0082\t" + zeroRate + "\t" + Math.exp(-zeroRate * 10.0082) + "\n";
+  }
+}
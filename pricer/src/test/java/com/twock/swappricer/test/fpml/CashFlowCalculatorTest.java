@@ -0,0 +1,58 @@
+package com.twock.swappricer.test.fpml;
+
+import com.twock.swappricer.fpml.CashFlowCalculator;
+import com.twock.swappricer.fpml.model.enumeration.CompoundingMethodEnum;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class CashFlowCalculatorTest {
+  private static final double DELTA = 0.000001;
+  private static final double NOTIONAL = 1000000;
+  private static final double[] RATES = {0.02, 0.03, 0.04};
+  private static final double SPREAD = 0.01;
+  private static final double[] DAY_COUNT_FRACTIONS = {0.25, 0.25, 0.5};
+  // first two periods compound into one payment, the last pays on its own
+  private static final int[] PAYMENT_DATES = {100, 100, 200};
+  private final CashFlowCalculator calculator = new CashFlowCalculator();
+
+  @Test
+  public void fixedFlows() {
+    double[] out = new double[3];
+    calculator.calculateFixedFlows(NOTIONAL, 0.05, DAY_COUNT_FRACTIONS, 1, out);
+    Assert.assertArrayEquals(new double[]{0, 12500, 25000}, out, DELTA);
+  }
+
+  @Test
+  public void noCompounding() {
+    double[] out = new double[3];
+    calculator.calculateFloatingFlows(NOTIONAL, RATES, SPREAD, DAY_COUNT_FRACTIONS, PAYMENT_DATES, null, 0, out);
+    Assert.assertArrayEquals(new double[]{7500, 10000, 25000}, out, DELTA);
+    calculator.calculateFloatingFlows(NOTIONAL, RATES, SPREAD, DAY_COUNT_FRACTIONS, PAYMENT_DATES, CompoundingMethodEnum.NONE, 0, out);
+    Assert.assertArrayEquals(new double[]{7500, 10000, 25000}, out, DELTA);
+  }
+
+  @Test
+  public void flatCompounding() {
+    double[] out = new double[3];
+    calculator.calculateFloatingFlows(NOTIONAL, RATES, SPREAD, DAY_COUNT_FRACTIONS, PAYMENT_DATES, CompoundingMethodEnum.FLAT, 0, out);
+    // second period adds 7500 * 3% * 0.25 compounded at the rate excluding spread
+    Assert.assertArrayEquals(new double[]{7500, 10000 + 56.25, 25000}, out, DELTA);
+  }
+
+  @Test
+  public void straightCompounding() {
+    double[] out = new double[3];
+    calculator.calculateFloatingFlows(NOTIONAL, RATES, SPREAD, DAY_COUNT_FRACTIONS, PAYMENT_DATES, CompoundingMethodEnum.STRAIGHT, 0, out);
+    Assert.assertArrayEquals(new double[]{7500, 1007500 * 0.04 * 0.25, 25000}, out, DELTA);
+  }
+
+  @Test
+  public void spreadExclusiveCompounding() {
+    double[] out = new double[3];
+    calculator.calculateFloatingFlows(NOTIONAL, RATES, SPREAD, DAY_COUNT_FRACTIONS, PAYMENT_DATES, CompoundingMethodEnum.SPREAD_EXCLUSIVE, 0, out);
+    Assert.assertArrayEquals(new double[]{7500, 1005000 * 0.03 * 0.25 + 2500, 25000}, out, DELTA);
+  }
+}
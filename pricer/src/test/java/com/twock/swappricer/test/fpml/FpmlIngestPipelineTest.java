@@ -0,0 +1,100 @@
+package com.twock.swappricer.test.fpml;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.fpml.FpmlIngestPipeline;
+import com.twock.swappricer.fpml.TradeHandler;
+import com.twock.swappricer.fpml.model.Trade;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class FpmlIngestPipelineTest {
+  private File directory;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = File.createTempFile("ingest", "");
+    if(!directory.delete() || !directory.mkdir()) {
+      throw new IOException("Failed to create directory " + directory);
+    }
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(directory);
+  }
+
+  @Test
+  public void readsEveryTrade() throws IOException {
+    // 30 files of 3 trades each, all with ids LCH0-LCH2
+    byte[] document = FpmlParserTest.createMultiTradeDocument(3);
+    for(int i = 0; i < 30; i++) {
+      FileUtils.writeByteArrayToFile(new File(directory, "trades" + i + ".xml"), document);
+    }
+    FileUtils.writeStringToFile(new File(directory, "ignored.txt"), "not FpML");
+    final Map<String, Integer> tradeCounts = new TreeMap<String, Integer>();
+    // a tiny queue and a slow consumer keep the parser threads blocked on the queue
+    int count = new FpmlIngestPipeline(FpmlParserTest.createFpmlParser(), 3, 2).run(directory, new TradeHandler() {
+      @Override
+      public void handle(Trade trade) {
+        Assert.assertEquals(2, trade.getSwapStreams().size());
+        Integer previous = tradeCounts.get(trade.getTradeId());
+        tradeCounts.put(trade.getTradeId(), previous == null ? 1 : previous + 1);
+        Thread.yield();
+      }
+    });
+    Assert.assertEquals(90, count);
+    Map<String, Integer> expected = new TreeMap<String, Integer>();
+    expected.put("LCH0", 30);
+    expected.put("LCH1", 30);
+    expected.put("LCH2", 30);
+    Assert.assertEquals(expected, tradeCounts);
+  }
+
+  @Test
+  public void reportsParseFailure() throws IOException {
+    byte[] document = FpmlParserTest.createMultiTradeDocument(1);
+    for(int i = 0; i < 10; i++) {
+      FileUtils.writeByteArrayToFile(new File(directory, "trade" + i + ".xml"), document);
+    }
+    FileUtils.writeStringToFile(new File(directory, "trade5.xml"), "<FpML><trade><tradeHeader>", "UTF8");
+    try {
+      new FpmlIngestPipeline(FpmlParserTest.createFpmlParser(), 2, 4).run(directory, new TradeHandler() {
+        @Override
+        public void handle(Trade trade) {
+        }
+      });
+      Assert.fail("Expected the broken file to be reported");
+    } catch(PricerException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains("trade5.xml"));
+    }
+  }
+
+  @Test
+  public void stopsWhenDownstreamFails() throws IOException {
+    byte[] document = FpmlParserTest.createMultiTradeDocument(5);
+    for(int i = 0; i < 20; i++) {
+      FileUtils.writeByteArrayToFile(new File(directory, "trades" + i + ".xml"), document);
+    }
+    try {
+      new FpmlIngestPipeline(FpmlParserTest.createFpmlParser(), 2, 1).run(directory, new TradeHandler() {
+        @Override
+        public void handle(Trade trade) {
+          throw new IllegalStateException("downstream failure");
+        }
+      });
+      Assert.fail("Expected the downstream failure to be rethrown");
+    } catch(IllegalStateException e) {
+      Assert.assertEquals("downstream failure", e.getMessage());
+    }
+  }
+}
@@ -1,12 +1,21 @@
 package com.twock.swappricer.test.fpml;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
+import com.twock.swappricer.PricerException;
 import com.twock.swappricer.fpml.FpmlParser;
+import com.twock.swappricer.fpml.TradeHandler;
+import com.twock.swappricer.fpml.TradeIterator;
 import com.twock.swappricer.fpml.factory.*;
+import com.twock.swappricer.fpml.model.DateWithDayCount;
 import com.twock.swappricer.fpml.model.SwapStream;
+import com.twock.swappricer.fpml.model.Trade;
 import com.twock.swappricer.fpml.model.enumeration.BusinessDayConventionEnum;
 import com.twock.swappricer.fpml.model.enumeration.PeriodEnum;
+import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -27,6 +36,25 @@ public class FpmlParserTest {
     log.info("Stream 2: " + streams.get(1));
   }
 
+  /**
+   * Build an FpML document holding the given number of copies of the sample trade, with trade ids LCH0 upwards.
+   *
+   * @param tradeCount number of trades to include
+   * @return the UTF8 encoded document
+   */
+  public static byte[] createMultiTradeDocument(int tradeCount) throws IOException {
+    String document = IOUtils.toString(FpmlParserTest.class.getResourceAsStream("/LCH00000513426.xml"), "UTF8");
+    int tradeStart = document.indexOf("<trade>");
+    int tradeEnd = document.indexOf("</trade>") + "</trade>".length();
+    String trade = document.substring(tradeStart, tradeEnd);
+    StringBuilder sb = new StringBuilder(document.substring(0, tradeStart));
+    for(int i = 0; i < tradeCount; i++) {
+      sb.append(trade.replace("LCH00000513426", "LCH" + i)).append('\n');
+    }
+    sb.append(document.substring(tradeEnd));
+    return sb.toString().getBytes("UTF8");
+  }
+
   public static FpmlParser createFpmlParser() {
     BusinessDayAdjustmentsFactory businessDayAdjustmentsFactory = new BusinessDayAdjustmentsFactory();
     AdjustableDateFactory adjustableDateFactory = new AdjustableDateFactory(businessDayAdjustmentsFactory);
@@ -63,4 +91,69 @@ public class FpmlParserTest {
   public void fixingBusinessCenters() {
     Assert.assertArrayEquals(new String[]{"EUTA"}, streams.get(1).getResetDates().getFixingDates().getBusinessCenters());
   }
+
+  @Test
+  public void iterateTrades() throws IOException {
+    TradeIterator trades = createFpmlParser().openTrades(new ByteArrayInputStream(createMultiTradeDocument(3)));
+    for(int i = 0; i < 3; i++) {
+      Assert.assertTrue(trades.hasNext());
+      Trade trade = trades.next();
+      Assert.assertEquals("LCH" + i, trade.getTradeId());
+      Assert.assertEquals(new DateWithDayCount(2011, 6, 13).getDayCount(), trade.getTradeDate().getDayCount());
+      Assert.assertEquals(2, trade.getSwapStreams().size());
+      Assert.assertEquals(Double.valueOf(0.05), trade.getSwapStreams().get(0).getFixedRate());
+      Assert.assertEquals("EUR-EURIBOR-Reuters", trade.getSwapStreams().get(1).getFloatingRateIndex());
+    }
+    Assert.assertFalse(trades.hasNext());
+  }
+
+  @Test
+  public void parseTradesWithHandler() throws IOException {
+    final List<String> tradeIds = new ArrayList<String>();
+    int count = createFpmlParser().parseTrades(new ByteArrayInputStream(createMultiTradeDocument(50)), new TradeHandler() {
+      @Override
+      public void handle(Trade trade) {
+        tradeIds.add(trade.getTradeId());
+      }
+    });
+    Assert.assertEquals(50, count);
+    Assert.assertEquals(50, tradeIds.size());
+    Assert.assertEquals("LCH49", tradeIds.get(49));
+  }
+
+  @Test
+  public void skipsUnusedSubtrees() throws IOException {
+    // elements inside these subtrees would be read if the subtrees were scanned rather than skipped
+    String document = new String(createMultiTradeDocument(1), "UTF8")
+      .replace("<tradeHeader>", "<documentation><tradeId>BOGUS</tradeId></documentation><tradeHeader>")
+      .replace("</swap>", "<additionalPayment><tradeDate>1999-01-01</tradeDate></additionalPayment></swap>")
+      .replace("<party id=\"partyA\">", "<party id=\"partyA\"><swapStream/>");
+    TradeIterator trades = createFpmlParser().openTrades(new ByteArrayInputStream(document.getBytes("UTF8")));
+    Trade trade = trades.next();
+    Assert.assertEquals("LCH0", trade.getTradeId());
+    Assert.assertEquals(new DateWithDayCount(2011, 6, 13).getDayCount(), trade.getTradeDate().getDayCount());
+    Assert.assertFalse(trades.hasNext());
+    Assert.assertEquals(2, createFpmlParser().parse(new ByteArrayInputStream(document.getBytes("UTF8"))).size());
+  }
+
+  @Test
+  public void readsEmptyElements() throws IOException {
+    // an empty trade id is passed over for the next one, as if absent
+    String document = new String(createMultiTradeDocument(1), "UTF8").replace(">LCH0</tradeId>", "/>");
+    TradeIterator trades = createFpmlParser().openTrades(new ByteArrayInputStream(document.getBytes("UTF8")));
+    Assert.assertEquals("UNKNOWN", trades.next().getTradeId());
+    Assert.assertFalse(trades.hasNext());
+
+    // an empty value that has to be decoded is reported as such
+    document = new String(createMultiTradeDocument(1), "UTF8").replace("<tradeDate>2011-06-13</tradeDate>", "<tradeDate/>");
+    trades = createFpmlParser().openTrades(new ByteArrayInputStream(document.getBytes("UTF8")));
+    try {
+      trades.next();
+      Assert.fail("Expected empty trade date to be reported");
+    } catch(PricerException e) {
+      // expected
+    } finally {
+      trades.close();
+    }
+  }
 }
@@ -0,0 +1,103 @@
+package com.twock.swappricer.test.fpml;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import com.twock.swappricer.CurveContainer;
+import com.twock.swappricer.fpml.*;
+import com.twock.swappricer.fpml.book.TradeBook;
+import com.twock.swappricer.fpml.book.TradeBookBuilder;
+import com.twock.swappricer.fpml.model.StreamSchedule;
+import com.twock.swappricer.fpml.model.SwapStream;
+import com.twock.swappricer.fpml.model.enumeration.DayCountFractionEnum;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class LegCompilerTest extends PricingFixture {
+  @Test
+  public void compiledStreamsValueAsBefore() throws IOException {
+    List<SwapStream> streams = FpmlParserTest.createFpmlParser().parse(LegCompilerTest.class.getResourceAsStream("/LCH00000513426.xml"));
+    SwapStreamDateCalculator swapStreamDateCalculator = new SwapStreamDateCalculator();
+    ScheduleCache scheduleCache = new ScheduleCache(swapStreamDateCalculator, allCalendars, 10);
+    LegCompiler legCompiler = new LegCompiler(swapStreamDateCalculator, scheduleCache);
+    SwapPaymentCalculator swapPaymentCalculator = new SwapPaymentCalculator(loadCurves(0));
+
+    SwapStream fixedStream = streams.get(0);
+    CompiledLeg fixed = legCompiler.compile(fixedStream);
+    Assert.assertTrue(fixed.isFixed());
+    StreamSchedule schedule = scheduleCache.getSchedule(fixedStream);
+    double[] dayCountFractions = swapStreamDateCalculator.getDayCountFractions(schedule.getAdjustedDates(), fixedStream.getDayCountFraction(), fixedStream.getCalculationPeriodFrequency(), false, false);
+    Assert.assertArrayEquals(dayCountFractions, fixed.getDayCountFractions(), 0);
+    Assert.assertEquals(fixedStream.getNotionalAmount() * fixedStream.getFixedRate() * dayCountFractions[3], fixed.getFixedAmounts()[3], 1e-9);
+    Assert.assertEquals(swapPaymentCalculator.valueFixedSide(fixedStream.getNotionalAmount(), fixedStream.getFixedRate(), dayCountFractions, schedule.getPaymentDates(), fixedStream.getNotionalCurrency()),
+      swapPaymentCalculator.value(fixed), 1e-9);
+    Assert.assertEquals(167468.93, swapPaymentCalculator.value(fixed), 0.01);
+
+    SwapStream floatingStream = streams.get(1);
+    CompiledLeg floating = legCompiler.compile(floatingStream);
+    Assert.assertFalse(floating.isFixed());
+    Assert.assertNull(floating.getFixedAmounts());
+    schedule = scheduleCache.getSchedule(floatingStream);
+    dayCountFractions = swapStreamDateCalculator.getDayCountFractions(schedule.getAdjustedDates(), floatingStream.getDayCountFraction(), floatingStream.getCalculationPeriodFrequency(), false, false);
+    Assert.assertEquals(swapPaymentCalculator.valueFloatingSide(floatingStream, schedule.getAdjustedDates(), schedule.getPaymentDates(), schedule.getFixingDates(), dayCountFractions),
+      swapPaymentCalculator.value(floating), 1e-9);
+  }
+
+  @Test
+  public void compilesIcmaLegs() throws IOException {
+    // ACT/ACT.ICMA needs to know whether the first and last periods are stubs
+    byte[] document = new String(FpmlParserTest.createMultiTradeDocument(2), "UTF8").replace("<dayCountFraction>30/360</dayCountFraction>", "<dayCountFraction>ACT/ACT.ICMA</dayCountFraction>").getBytes("UTF8");
+    List<SwapStream> streams = FpmlParserTest.createFpmlParser().parse(new ByteArrayInputStream(document));
+    SwapStream fixedStream = streams.get(0);
+    Assert.assertEquals(DayCountFractionEnum.ACT_ACT_ICMA, fixedStream.getDayCountFraction());
+    SwapStreamDateCalculator swapStreamDateCalculator = new SwapStreamDateCalculator();
+    ScheduleCache scheduleCache = new ScheduleCache(swapStreamDateCalculator, allCalendars, 10);
+    CompiledLeg fixed = new LegCompiler(swapStreamDateCalculator, scheduleCache).compile(fixedStream);
+    double[] dayCountFractions = swapStreamDateCalculator.getDayCountFractions(scheduleCache.getSchedule(fixedStream).getAdjustedDates(), DayCountFractionEnum.ACT_ACT_ICMA, fixedStream.getCalculationPeriodFrequency(), false, false);
+    Assert.assertArrayEquals(dayCountFractions, fixed.getDayCountFractions(), 0);
+
+    TradeBookBuilder builder = new TradeBookBuilder();
+    FpmlParserTest.createFpmlParser().parseTrades(new ByteArrayInputStream(document), builder);
+    PortfolioPricer pricer = new PortfolioPricer(FpmlParserTest.createFpmlParser(), swapStreamDateCalculator, new SwapPaymentCalculator(loadCurves(0)), allCalendars, executor);
+    CompiledBook compiled = pricer.compile(builder.build());
+    Assert.assertArrayEquals(dayCountFractions, compiled.getLeg(0).getDayCountFractions(), 0);
+    assertSameValues(pricer.priceTrades(new ByteArrayInputStream(document)), pricer.priceBook(compiled));
+  }
+
+  @Test
+  public void compiledBookRevaluedAgainstReloadedCurves() throws IOException {
+    TradeBookBuilder builder = new TradeBookBuilder();
+    FpmlParserTest.createFpmlParser().parseTrades(new ByteArrayInputStream(FpmlParserTest.createMultiTradeDocument(3)), builder);
+    TradeBook book = builder.build();
+    CurveContainer curves = loadCurves(0);
+    SwapStreamDateCalculator swapStreamDateCalculator = new SwapStreamDateCalculator();
+    PortfolioPricer pricer = new PortfolioPricer(FpmlParserTest.createFpmlParser(), swapStreamDateCalculator, new SwapPaymentCalculator(curves), allCalendars, executor);
+    CompiledBook compiled = pricer.compile(book);
+    Assert.assertEquals(book.size(), compiled.size());
+    Assert.assertEquals(3, compiled.getTradeCount());
+    PortfolioResults before = pricer.priceBook(compiled);
+    assertSameValues(pricer.priceBook(book), before);
+
+    // reload the curves shifted up by a basis point, and the same compiled book must value against them
+    curves.loadCurvesFromTsv(new StringReader(shiftedCurves(0.0001)));
+    PortfolioResults after = pricer.priceBook(compiled);
+    PortfolioPricer shiftedPricer = new PortfolioPricer(FpmlParserTest.createFpmlParser(), swapStreamDateCalculator, new SwapPaymentCalculator(loadCurves(0.0001)), allCalendars, executor);
+    assertSameValues(shiftedPricer.priceBook(book), after);
+    Assert.assertTrue(after.getPresentValue(0) < before.getPresentValue(0));
+  }
+
+  private static void assertSameValues(PortfolioResults expected, PortfolioResults actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    for(int i = 0; i < expected.size(); i++) {
+      Assert.assertEquals(expected.getTradeId(i), actual.getTradeId(i));
+      Assert.assertEquals(expected.getLeg(i), actual.getLeg(i));
+      Assert.assertEquals(expected.getCurrency(i), actual.getCurrency(i));
+      Assert.assertEquals(expected.getPresentValue(i), actual.getPresentValue(i), 1e-9);
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package com.twock.swappricer.test.fpml;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.Set;
+
+import com.twock.swappricer.CurveContainer;
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.fpml.*;
+import com.twock.swappricer.fpml.book.TradeBookBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class LivePortfolioTest extends PricingFixture {
+  private static final String FORWARD_CURVE = "EUR_EURIBOR_6M_EOD";
+  private static final String DISCOUNT_CURVE = "EUR_EONIA_EOD";
+  private static final int TRADE_COUNT = 4;
+  private CurveContainer curves;
+  private PortfolioPricer pricer;
+  private CompiledBook book;
+
+  @Before
+  public void setUp() throws IOException {
+    curves = loadCurves(0);
+    pricer = new PortfolioPricer(FpmlParserTest.createFpmlParser(), new SwapStreamDateCalculator(), new SwapPaymentCalculator(curves), allCalendars, executor);
+    TradeBookBuilder builder = new TradeBookBuilder();
+    FpmlParserTest.createFpmlParser().parseTrades(new ByteArrayInputStream(FpmlParserTest.createMultiTradeDocument(TRADE_COUNT)), builder);
+    book = pricer.compile(builder.build());
+  }
+
+  @Test
+  public void indexesLegsByCurve() {
+    LivePortfolio live = pricer.createLivePortfolio(book);
+    Assert.assertEquals(TRADE_COUNT, live.getDependentLegCount(FORWARD_CURVE));
+    Assert.assertEquals(TRADE_COUNT * 2, live.getDependentLegCount(DISCOUNT_CURVE));
+    Assert.assertEquals(0, live.getDependentLegCount("EUR_EURIBOR_3M_EOD"));
+    Assert.assertEquals(2, live.getCurveNames().size());
+    assertTotals(live, pricer.priceBook(book));
+  }
+
+  @Test
+  public void revaluesOnlyLegsOfUpdatedCurve() throws IOException {
+    LivePortfolio live = pricer.createLivePortfolio(book);
+    PortfolioResults before = live.toResults();
+    Set<String> updated = curves.updateCurvesFromTsv(new StringReader(shiftedCurve(FORWARD_CURVE, 0.0001)));
+    Assert.assertEquals(Collections.singleton(FORWARD_CURVE), updated);
+    Assert.assertEquals(TRADE_COUNT, live.curvesUpdated(updated));
+
+    PortfolioResults expected = pricer.priceBook(book);
+    PortfolioResults after = live.toResults();
+    for(int leg = 0; leg < book.size(); leg++) {
+      Assert.assertEquals(expected.getPresentValue(leg), after.getPresentValue(leg), 1e-9);
+      if(book.getLeg(leg).isFixed()) {
+        Assert.assertEquals(before.getPresentValue(leg), after.getPresentValue(leg), 0);
+      } else {
+        Assert.assertTrue(before.getPresentValue(leg) != after.getPresentValue(leg));
+      }
+    }
+    assertTotals(live, expected);
+    Assert.assertEquals(0, live.curvesUpdated("NO_SUCH_CURVE"));
+  }
+
+  @Test
+  public void totalsRecoverFromUnpriceableLegs() throws IOException {
+    LivePortfolio live = pricer.createLivePortfolio(book);
+    // a forward curve whose discount factors underflow to zero projects NaN forward rates
+    curves.updateCurvesFromTsv(new StringReader(shiftedCurve(FORWARD_CURVE, 1e300)));
+    Assert.assertEquals(TRADE_COUNT, live.curvesUpdated(FORWARD_CURVE));
+    for(int leg = 0; leg < book.size(); leg++) {
+      Assert.assertEquals(book.getLeg(leg).isFixed(), !Double.isNaN(live.getPresentValue(leg)));
+    }
+    for(int trade = 0; trade < book.getTradeCount(); trade++) {
+      Assert.assertFalse(Double.isNaN(live.getTradePresentValue(trade)));
+    }
+    Assert.assertFalse(Double.isNaN(live.getCurrencyPresentValue("EUR")));
+
+    curves.updateCurvesFromTsv(new StringReader(shiftedCurve(FORWARD_CURVE, 0)));
+    Assert.assertEquals(TRADE_COUNT, live.curvesUpdated(FORWARD_CURVE));
+    assertTotals(live, pricer.priceBook(book));
+  }
+
+  @Test
+  public void totalsDoNotDriftOverUpdates() throws IOException {
+    LivePortfolio live = pricer.createLivePortfolio(book);
+    for(int i = 0; i < 20; i++) {
+      curves.updateCurvesFromTsv(new StringReader(shiftedCurve(FORWARD_CURVE, i % 2 == 0 ? 0.0123 : 0)));
+      live.curvesUpdated(FORWARD_CURVE);
+    }
+    // summed in leg order from the current values, not built up from the changes in each update
+    double total = 0;
+    for(int leg = 0; leg < book.size(); leg++) {
+      total += live.getPresentValue(leg);
+    }
+    Assert.assertEquals(total, live.getCurrencyPresentValue("EUR"), 0);
+  }
+
+  @Test(expected = PricerException.class)
+  public void rejectsNullCurrency() {
+    pricer.createLivePortfolio(book).getCurrencyPresentValue(null);
+  }
+
+  private void assertTotals(LivePortfolio live, PortfolioResults expected) {
+    double[] tradeTotals = new double[book.getTradeCount()];
+    double total = 0;
+    for(int leg = 0; leg < book.size(); leg++) {
+      Assert.assertEquals(expected.getPresentValue(leg), live.getPresentValue(leg), 1e-9);
+      tradeTotals[book.getTradeIndex(leg)] += expected.getPresentValue(leg);
+      total += expected.getPresentValue(leg);
+    }
+    for(int trade = 0; trade < tradeTotals.length; trade++) {
+      Assert.assertEquals(tradeTotals[trade], live.getTradePresentValue(trade), 1e-6);
+    }
+    Assert.assertEquals(total, live.getCurrencyPresentValue("EUR"), 1e-6);
+    Assert.assertEquals(0, live.getCurrencyPresentValue("GBP"), 0);
+  }
+}
@@ -0,0 +1,163 @@
+package com.twock.swappricer.test.fpml;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+import com.twock.swappricer.CurveSensitivities;
+import com.twock.swappricer.fpml.FpmlIngestPipeline;
+import com.twock.swappricer.fpml.PortfolioPricer;
+import com.twock.swappricer.fpml.PortfolioResults;
+import com.twock.swappricer.fpml.SwapPaymentCalculator;
+import com.twock.swappricer.fpml.SwapStreamDateCalculator;
+import com.twock.swappricer.fpml.book.TradeBook;
+import com.twock.swappricer.fpml.book.TradeBookBuilder;
+import com.twock.swappricer.fpml.store.TradeStore;
+import com.twock.swappricer.fpml.store.TradeStoreWriter;
+import com.twock.swappricer.test.CurveContainerTest;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.*;
+
+/**
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class PortfolioPricerTest extends PricingFixture {
+  private static final int TRADE_COUNT = 20;
+  private static File directory;
+  private PortfolioPricer pricer;
+
+  @BeforeClass
+  public static void setUpClass() throws IOException {
+    directory = File.createTempFile("portfolio", "");
+    if(!directory.delete() || !directory.mkdir()) {
+      throw new IOException("Failed to create directory " + directory);
+    }
+    byte[] trade = IOUtils.toByteArray(PortfolioPricerTest.class.getResourceAsStream("/LCH00000513426.xml"));
+    for(int i = 0; i < TRADE_COUNT; i++) {
+      FileUtils.writeByteArrayToFile(new File(directory, String.format("trade%02d.xml", i)), trade);
+    }
+  }
+
+  @AfterClass
+  public static void tearDownClass() throws IOException {
+    FileUtils.deleteDirectory(directory);
+  }
+
+  @Before
+  public void setUp() {
+    SwapStreamDateCalculator swapStreamDateCalculator = new SwapStreamDateCalculator();
+    pricer = new PortfolioPricer(FpmlParserTest.createFpmlParser(), swapStreamDateCalculator, new SwapPaymentCalculator(CurveContainerTest.getCurveContainer()), allCalendars, executor);
+  }
+
+  @Test
+  public void pricesDirectory() {
+    PortfolioResults results = pricer.priceDirectory(directory);
+    Assert.assertEquals(TRADE_COUNT, results.getTradeCount());
+    Assert.assertEquals(TRADE_COUNT * 2, results.size());
+    for(int i = 0; i < TRADE_COUNT; i++) {
+      Assert.assertEquals(String.format("trade%02d", i), results.getTradeId(i * 2));
+      Assert.assertEquals(String.format("trade%02d", i), results.getTradeId(i * 2 + 1));
+      Assert.assertEquals(0, results.getLeg(i * 2));
+      Assert.assertEquals(1, results.getLeg(i * 2 + 1));
+      Assert.assertEquals("EUR", results.getCurrency(i * 2));
+      Assert.assertEquals(167468.93, results.getPresentValue(i * 2), 0.01);
+      // the first period fixed at the 1.75% EURIBOR of 09/06/2011, the rest projected from the curves
+      Assert.assertEquals(71510.39, results.getPresentValue(i * 2 + 1), 0.01);
+    }
+    Assert.assertTrue(results.getTradesPerSecond() > 0);
+    // concurrent workers may each miss before the first schedule is cached
+    Assert.assertEquals(TRADE_COUNT * 2, pricer.getScheduleCache().getHitCount() + pricer.getScheduleCache().getMissCount());
+    Assert.assertEquals(2, pricer.getScheduleCache().size());
+  }
+
+  @Test
+  public void pricesStream() {
+    PortfolioResults results = pricer.price("LCH00000513426", PortfolioPricerTest.class.getResourceAsStream("/LCH00000513426.xml"));
+    Assert.assertEquals(1, results.getTradeCount());
+    Assert.assertEquals(2, results.size());
+    Assert.assertEquals("LCH00000513426", results.getTradeId(0));
+    Assert.assertEquals(167468.93, results.getPresentValue(0), 0.01);
+    Assert.assertEquals(71510.39, results.getPresentValue(1), 0.01);
+  }
+
+  @Test
+  public void pricesMultiTradeDocument() throws IOException {
+    PortfolioResults results = pricer.priceTrades(new ByteArrayInputStream(FpmlParserTest.createMultiTradeDocument(TRADE_COUNT)));
+    Assert.assertEquals(TRADE_COUNT, results.getTradeCount());
+    Assert.assertEquals(TRADE_COUNT * 2, results.size());
+    for(int i = 0; i < TRADE_COUNT; i++) {
+      Assert.assertEquals("LCH" + i, results.getTradeId(i * 2));
+      Assert.assertEquals(167468.93, results.getPresentValue(i * 2), 0.01);
+    }
+  }
+
+  @Test
+  public void pricesTradeStore() throws IOException {
+    File storeFile = new File(directory, "trades.store");
+    TradeStoreWriter writer = new TradeStoreWriter(storeFile);
+    FpmlParserTest.createFpmlParser().parseTrades(new ByteArrayInputStream(FpmlParserTest.createMultiTradeDocument(TRADE_COUNT)), writer);
+    writer.close();
+    PortfolioResults results = pricer.priceTrades(TradeStore.open(storeFile));
+    Assert.assertEquals(TRADE_COUNT, results.getTradeCount());
+    Assert.assertEquals(TRADE_COUNT * 2, results.size());
+    for(int i = 0; i < TRADE_COUNT; i++) {
+      Assert.assertEquals("LCH" + i, results.getTradeId(i * 2));
+      Assert.assertEquals(167468.93, results.getPresentValue(i * 2), 0.01);
+    }
+  }
+
+  @Test
+  public void pricesTradeBook() throws IOException {
+    byte[] document = FpmlParserTest.createMultiTradeDocument(TRADE_COUNT);
+    TradeBookBuilder builder = new TradeBookBuilder(4);
+    FpmlParserTest.createFpmlParser().parseTrades(new ByteArrayInputStream(document), builder);
+    TradeBook book = builder.build();
+    Assert.assertEquals(2, book.getScheduleCount());
+    PortfolioResults results = pricer.priceBook(book);
+    PortfolioResults expected = pricer.priceTrades(new ByteArrayInputStream(document));
+    Assert.assertEquals(TRADE_COUNT, results.getTradeCount());
+    Assert.assertEquals(expected.size(), results.size());
+    for(int i = 0; i < expected.size(); i++) {
+      Assert.assertEquals(expected.getTradeId(i), results.getTradeId(i));
+      Assert.assertEquals(expected.getLeg(i), results.getLeg(i));
+      Assert.assertEquals(expected.getCurrency(i), results.getCurrency(i));
+      Assert.assertEquals(expected.getPresentValue(i), results.getPresentValue(i), 1e-9);
+    }
+    Assert.assertEquals(167468.93, results.getPresentValue(0), 0.01);
+    Assert.assertEquals(71510.39, results.getPresentValue(1), 0.01);
+  }
+
+  @Test
+  public void bookSensitivitiesAddUpOverTrades() throws IOException {
+    CurveSensitivities single = pricer.priceBookSensitivities(buildBook(1));
+    CurveSensitivities total = pricer.priceBookSensitivities(buildBook(TRADE_COUNT));
+    Assert.assertTrue(single.size() > 0);
+    Assert.assertEquals(single.size(), total.size());
+    for(int i = 0; i < single.size(); i++) {
+      double[] expected = single.getSensitivities(i);
+      double[] actual = total.getSensitivities(single.getCurveName(i));
+      Assert.assertEquals(expected.length, actual.length);
+      for(int pillar = 0; pillar < expected.length; pillar++) {
+        Assert.assertEquals(expected[pillar] * TRADE_COUNT, actual[pillar], 1e-6);
+      }
+    }
+  }
+
+  private static TradeBook buildBook(int tradeCount) throws IOException {
+    TradeBookBuilder builder = new TradeBookBuilder();
+    FpmlParserTest.createFpmlParser().parseTrades(new ByteArrayInputStream(FpmlParserTest.createMultiTradeDocument(tradeCount)), builder);
+    return builder.build();
+  }
+
+  @Test
+  public void pricesDirectoryThroughPipeline() {
+    PortfolioResults results = pricer.priceDirectory(directory, new FpmlIngestPipeline(FpmlParserTest.createFpmlParser(), 2, 4));
+    Assert.assertEquals(TRADE_COUNT, results.getTradeCount());
+    Assert.assertEquals(TRADE_COUNT * 2, results.size());
+    for(int i = 0; i < results.size(); i += 2) {
+      Assert.assertEquals("LCH00000513426", results.getTradeId(i));
+      Assert.assertEquals(167468.93, results.getPresentValue(i), 0.01);
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package com.twock.swappricer.test.fpml;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.twock.swappricer.CurveContainer;
+import com.twock.swappricer.DateUtil;
+import com.twock.swappricer.HolidayCalendarContainer;
+import com.twock.swappricer.ValuationCurve;
+import com.twock.swappricer.test.CurveContainerTest;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+
+/**
+ * Base for tests that price trades: loads the holiday calendars once, gives each test an executor, and builds curve
+ * containers from the test curves with their zero rates shifted.
+ *
+ * @author Chris Pearson (chris@twock.com)
+ */
+public abstract class PricingFixture {
+  static final String CURVES = "/DMPAUC_EUR00100a - VM Yield Curve - Zero Rates Day 1.TXT";
+  static final String HISTORIC_INDEX_RATES = "/static/historicIndexRates.tsv";
+  protected static HolidayCalendarContainer allCalendars;
+  protected ExecutorService executor;
+
+  @BeforeClass
+  public static void loadCalendars() throws IOException {
+    allCalendars = new HolidayCalendarContainer();
+    allCalendars.loadFromTsv(new InputStreamReader(PricingFixture.class.getResourceAsStream("/calendars.tsv"), "UTF8"));
+  }
+
+  @Before
+  public void startExecutor() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @After
+  public void stopExecutor() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * @return the test mappings and historic fixings, with the test curves shifted by the given amount
+   */
+  static CurveContainer loadCurves(double shift) throws IOException {
+    return loadCurves(shiftedCurves(shift));
+  }
+
+  /**
+   * @param curves zero curves in the format of the test curve file
+   * @return the test mappings and historic fixings with the given curves
+   */
+  static CurveContainer loadCurves(String curves) {
+    return new CurveContainer(new InputStreamReader(PricingFixture.class.getResourceAsStream("/static/curveMappings.csv")), new StringReader(curves),
+      new InputStreamReader(PricingFixture.class.getResourceAsStream(HISTORIC_INDEX_RATES)));
+  }
+
+  /**
+   * @return the test curves with every zero rate shifted by the given amount, and discount factors to match
+   */
+  static String shiftedCurves(double shift) throws IOException {
+    Map<String, double[]> shifts = new HashMap<String, double[]>();
+    for(String curveName : CurveContainerTest.getCurveContainer().getSnapshot().getCurveNames()) {
+      shifts.put(curveName, parallelShift(curveName, shift));
+    }
+    return shiftedCurves(shifts, null);
+  }
+
+  /**
+   * @return only the given test curve, with every zero rate shifted by the given amount and discount factors to match
+   */
+  static String shiftedCurve(String curveName, double shift) throws IOException {
+    return shiftedCurves(Collections.singletonMap(curveName, parallelShift(curveName, shift)), Collections.singleton(curveName));
+  }
+
+  /**
+   * @return the given shift for each pillar of a test curve
+   */
+  static double[] parallelShift(String curveName, double shift) {
+    double[] result = new double[CurveContainerTest.getCurveContainer().getCurve(curveName).getZeroRates().length];
+    Arrays.fill(result, shift);
+    return result;
+  }
+
+  /**
+   * Shift the zero rates of the test curves.  The discount factor loaded for each pillar is multiplied by
+   * <code>exp(-shift * years)</code>, with years from the curve date on the same basis as {@link ValuationCurve}, so it
+   * moves as a discount factor interpolated from the shifted zero rates does.
+   *
+   * @param shifts shift to each zero rate, indexed as {@link ValuationCurve#getZeroRates()} and keyed on curve name,
+   * curves not in the map are unchanged
+   * @param curveNames the only curves to include, null for all of them
+   * @return the test curves in the format of the test curve file
+   */
+  static String shiftedCurves(Map<String, double[]> shifts, Collection<String> curveNames) throws IOException {
+    CurveContainer base = CurveContainerTest.getCurveContainer();
+    List<String> lines = IOUtils.readLines(PricingFixture.class.getResourceAsStream(CURVES), "UTF8");
+    StringBuilder result = new StringBuilder(lines.get(0)).append('\n');
+    for(String line : lines.subList(1, lines.size())) {
+      String[] fields = line.split("\t");
+      if(curveNames != null && !curveNames.contains(fields[0])) {
+        continue;
+      }
+      double[] curveShifts = shifts.get(fields[0]);
+      if(curveShifts != null) {
+        ValuationCurve curve = base.getCurve(fields[0]);
+        String[] date = fields[2].substring(0, 10).split("/");
+        int maturityDate = DateUtil.dateToDayCount(Integer.parseInt(date[2]), Integer.parseInt(date[1]), Integer.parseInt(date[0]));
+        double shift = curveShifts[Arrays.binarySearch(curve.getMaturityDates(), maturityDate)];
+        double years = (maturityDate - curve.getCurveDate().getDayCount()) / 365.0;
+        fields[4] = Double.toString(Double.parseDouble(fields[4]) + shift);
+        fields[5] = Double.toString(Double.parseDouble(fields[5]) * Math.exp(-shift * years));
+      }
+      for(int i = 0; i < fields.length; i++) {
+        result.append(i == 0 ? "" : "\t").append(fields[i]);
+      }
+      result.append('\n');
+    }
+    return result.toString();
+  }
+}
@@ -0,0 +1,113 @@
+package com.twock.swappricer.test.fpml;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.twock.swappricer.CurveContainer;
+import com.twock.swappricer.CurveScenarios;
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.fpml.*;
+import com.twock.swappricer.fpml.book.TradeBook;
+import com.twock.swappricer.fpml.book.TradeBookBuilder;
+import com.twock.swappricer.test.CurveContainerTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class ScenarioEngineTest extends PricingFixture {
+  private static final String FORWARD_CURVE = "EUR_EURIBOR_6M_EOD";
+  private static final String DISCOUNT_CURVE = "EUR_EONIA_EOD";
+  private static final int PATTERNS = 3;
+  @Test
+  public void matchesRepricingWithShiftedCurves() throws IOException {
+    CurveContainer base = CurveContainerTest.getCurveContainer();
+    TradeBook book = buildBook(5);
+    // more scenarios than fit in one block, repeating a few shift patterns
+    int scenarioCount = ScenarioEngine.SCENARIO_BLOCK_SIZE + 44;
+    CurveScenarios scenarios = new CurveScenarios(scenarioCount);
+    double[][] forwardPatterns = shiftPatterns(base.getCurve(FORWARD_CURVE).getZeroRates().length, 0.0002);
+    double[][] discountPatterns = shiftPatterns(base.getCurve(DISCOUNT_CURVE).getZeroRates().length, -0.0003);
+    scenarios.setShifts(FORWARD_CURVE, repeat(forwardPatterns, scenarioCount));
+    scenarios.setShifts(DISCOUNT_CURVE, repeat(discountPatterns, scenarioCount));
+
+    SwapStreamDateCalculator swapStreamDateCalculator = new SwapStreamDateCalculator();
+    PortfolioPricer basePricer = new PortfolioPricer(FpmlParserTest.createFpmlParser(), swapStreamDateCalculator, new SwapPaymentCalculator(base), allCalendars, executor);
+    ScenarioEngine engine = new ScenarioEngine(swapStreamDateCalculator, new SwapPaymentCalculator(base), basePricer.getScheduleCache(), executor);
+    ScenarioResults results = engine.run(book, scenarios);
+    Assert.assertEquals(5, results.getTradeCount());
+    Assert.assertEquals(scenarioCount, results.getScenarioCount());
+
+    double[] baseValues = tradeValues(basePricer.priceBook(book), book.getTradeCount());
+    for(int pattern = 0; pattern < PATTERNS; pattern++) {
+      Map<String, double[]> shifts = new HashMap<String, double[]>();
+      shifts.put(FORWARD_CURVE, forwardPatterns[pattern]);
+      shifts.put(DISCOUNT_CURVE, discountPatterns[pattern]);
+      CurveContainer shifted = loadCurves(shiftedCurves(shifts, null));
+      PortfolioPricer shiftedPricer = new PortfolioPricer(FpmlParserTest.createFpmlParser(), swapStreamDateCalculator, new SwapPaymentCalculator(shifted), allCalendars, executor);
+      double[] shiftedValues = tradeValues(shiftedPricer.priceBook(book), book.getTradeCount());
+      for(int trade = 0; trade < book.getTradeCount(); trade++) {
+        Assert.assertEquals(baseValues[trade], results.getBasePresentValue(trade), 1e-6);
+        for(int scenario = pattern; scenario < scenarioCount; scenario += PATTERNS) {
+          Assert.assertEquals("trade " + trade + " scenario " + scenario, shiftedValues[trade] - baseValues[trade], results.getProfitAndLoss(trade, scenario), 1e-6);
+        }
+      }
+    }
+    Assert.assertEquals(0, results.getProfitAndLoss(0, 0), 0);
+    Assert.assertTrue(results.getProfitAndLoss(0, 1) != 0);
+    double[] portfolio = results.getPortfolioProfitAndLoss();
+    Assert.assertEquals(results.getProfitAndLoss(0, 2) * 5, portfolio[2], 1e-6);
+    Assert.assertArrayEquals(results.getProfitAndLossVector(1), results.getProfitAndLossVector(4), 0);
+  }
+
+  @Test(expected = PricerException.class)
+  public void rejectsShiftsForWrongPillarCount() throws IOException {
+    CurveScenarios scenarios = new CurveScenarios(2);
+    scenarios.setShifts(DISCOUNT_CURVE, new double[]{0.0001, 0.0001});
+    SwapStreamDateCalculator swapStreamDateCalculator = new SwapStreamDateCalculator();
+    SwapPaymentCalculator swapPaymentCalculator = new SwapPaymentCalculator(CurveContainerTest.getCurveContainer());
+    new ScenarioEngine(swapStreamDateCalculator, swapPaymentCalculator, new ScheduleCache(swapStreamDateCalculator, allCalendars, 100), executor).run(buildBook(1), scenarios);
+  }
+
+  /**
+   * @return no shift, a parallel shift, and a shift varying by pillar
+   */
+  private static double[][] shiftPatterns(int pillars, double size) {
+    double[][] result = new double[PATTERNS][pillars];
+    Arrays.fill(result[1], size);
+    for(int pillar = 0; pillar < pillars; pillar++) {
+      result[2][pillar] = size * ((pillar % 5) - 2) / 2;
+    }
+    return result;
+  }
+
+  private static double[][] repeat(double[][] patterns, int scenarioCount) {
+    double[][] result = new double[scenarioCount][];
+    for(int scenario = 0; scenario < scenarioCount; scenario++) {
+      result[scenario] = patterns[scenario % patterns.length];
+    }
+    return result;
+  }
+
+  private static double[] tradeValues(PortfolioResults results, int tradeCount) {
+    double[] result = new double[tradeCount];
+    int trade = -1;
+    for(int row = 0; row < results.size(); row++) {
+      if(results.getLeg(row) == 0) {
+        trade++;
+      }
+      result[trade] += results.getPresentValue(row);
+    }
+    return result;
+  }
+
+  private static TradeBook buildBook(int tradeCount) throws IOException {
+    TradeBookBuilder builder = new TradeBookBuilder();
+    FpmlParserTest.createFpmlParser().parseTrades(new ByteArrayInputStream(FpmlParserTest.createMultiTradeDocument(tradeCount)), builder);
+    return builder.build();
+  }
+}
@@ -0,0 +1,120 @@
+package com.twock.swappricer.test.fpml;
+
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+
+import com.twock.swappricer.HolidayCalendarContainer;
+import com.twock.swappricer.fpml.FpmlParser;
+import com.twock.swappricer.fpml.ScheduleCache;
+import com.twock.swappricer.fpml.SwapStreamDateCalculator;
+import com.twock.swappricer.fpml.model.DateWithDayCount;
+import com.twock.swappricer.fpml.model.PaymentDates;
+import com.twock.swappricer.fpml.model.StreamSchedule;
+import com.twock.swappricer.fpml.model.SwapStream;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class ScheduleCacheTest {
+  private static SwapStreamDateCalculator calculator;
+  private static HolidayCalendarContainer allCalendars;
+  private static List<SwapStream> streams;
+
+  @BeforeClass
+  public static void setUp() throws UnsupportedEncodingException {
+    calculator = new SwapStreamDateCalculator();
+    FpmlParser fpmlParser = FpmlParserTest.createFpmlParser();
+    streams = fpmlParser.parse(FpmlParserTest.class.getResourceAsStream("/LCH00000513426.xml"));
+    allCalendars = new HolidayCalendarContainer();
+    allCalendars.loadFromTsv(new InputStreamReader(ScheduleCacheTest.class.getResourceAsStream("/calendars.tsv"), "UTF8"));
+  }
+
+  @Test
+  public void schedulesMatchCalculator() {
+    ScheduleCache cache = new ScheduleCache(calculator, allCalendars, 10);
+    for(SwapStream stream : streams) {
+      StreamSchedule schedule = cache.getSchedule(stream);
+      List<DateWithDayCount> adjusted = calculator.calculateAdjustedPeriodDates(stream, allCalendars);
+      Assert.assertArrayEquals(calculator.calculateUnadjustedPeriodDayCounts(stream), schedule.getUnadjustedDates());
+      Assert.assertArrayEquals(DateWithDayCount.toDayCounts(adjusted), schedule.getAdjustedDates());
+      Assert.assertArrayEquals(DateWithDayCount.toDayCounts(calculator.calculatePaymentDates(adjusted, stream.getPaymentDates(), allCalendars)), schedule.getPaymentDates());
+      if(stream.getResetDates() == null) {
+        Assert.assertNull(schedule.getFixingDates());
+      } else {
+        Assert.assertArrayEquals(DateWithDayCount.toDayCounts(calculator.calculateFixingDates(adjusted, stream.getResetDates(), allCalendars)), schedule.getFixingDates());
+      }
+    }
+  }
+
+  @Test
+  public void countsHitsMissesAndEvictions() {
+    ScheduleCache cache = new ScheduleCache(calculator, allCalendars, 1);
+    SwapStream fixed = streams.get(0);
+    SwapStream floating = streams.get(1);
+    StreamSchedule schedule = cache.getSchedule(fixed);
+    Assert.assertSame(schedule, cache.getSchedule(fixed));
+    Assert.assertEquals(1, cache.getHitCount());
+    Assert.assertEquals(1, cache.getMissCount());
+    Assert.assertEquals(0, cache.getEvictionCount());
+    cache.getSchedule(floating);
+    Assert.assertEquals(2, cache.getMissCount());
+    Assert.assertEquals(1, cache.getEvictionCount());
+    Assert.assertEquals(1, cache.size());
+    Assert.assertNotSame(schedule, cache.getSchedule(fixed));
+    Assert.assertEquals(3, cache.getMissCount());
+    Assert.assertEquals(2, cache.getEvictionCount());
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedInBatches() {
+    ScheduleCache cache = new ScheduleCache(calculator, allCalendars, 8);
+    SwapStream[] distinct = new SwapStream[9];
+    for(int i = 0; i < distinct.length; i++) {
+      distinct[i] = withPaymentFrequencyMultiplier(streams.get(0), i + 1);
+    }
+    for(int i = 0; i < 8; i++) {
+      cache.getSchedule(distinct[i]);
+    }
+    cache.getSchedule(distinct[0]);
+    Assert.assertEquals(0, cache.getEvictionCount());
+    // over the maximum, so evicted down to seven, the two least recently used being the second and third
+    cache.getSchedule(distinct[8]);
+    Assert.assertEquals(2, cache.getEvictionCount());
+    Assert.assertEquals(7, cache.size());
+    long misses = cache.getMissCount();
+    cache.getSchedule(distinct[0]);
+    cache.getSchedule(distinct[3]);
+    cache.getSchedule(distinct[8]);
+    Assert.assertEquals(misses, cache.getMissCount());
+    cache.getSchedule(distinct[1]);
+    Assert.assertEquals(misses + 1, cache.getMissCount());
+  }
+
+  @Test
+  public void keysStreamsDifferingOnlyInPaymentFrequency() {
+    SwapStream stream = streams.get(0);
+    SwapStream otherFrequency = withPaymentFrequencyMultiplier(stream, stream.getPaymentDates().getPaymentFrequencyPeriodMultiplier() + 1);
+    Assert.assertFalse(ScheduleCache.scheduleKey(stream).equals(ScheduleCache.scheduleKey(otherFrequency)));
+
+    ScheduleCache cache = new ScheduleCache(calculator, allCalendars, 10);
+    StreamSchedule schedule = cache.getSchedule(stream);
+    Assert.assertNotSame(schedule, cache.getSchedule(otherFrequency));
+    Assert.assertEquals(2, cache.getMissCount());
+    Assert.assertEquals(2, cache.size());
+    Assert.assertSame(schedule, cache.getSchedule(stream));
+  }
+
+  /**
+   * @return a copy of the stream paid at a different frequency, so with a different schedule key
+   */
+  private static SwapStream withPaymentFrequencyMultiplier(SwapStream stream, int multiplier) {
+    PaymentDates paymentDates = stream.getPaymentDates();
+    return new SwapStream(stream.getEffectiveDate(), stream.getTerminationDate(), stream.getCalculationPeriodDatesAdjustments(), stream.getCalculationPeriodFrequency(), stream.getFirstRegularPeriodStartDate(), stream.getLastRegularPeriodEndDate(),
+      new PaymentDates(multiplier, paymentDates.getPaymentFrequencyPeriod(), paymentDates.getPayRelativeTo(), paymentDates.getPaymentDaysOffset(), paymentDates.getPaymentDatesAdjustments()),
+      stream.getResetDates(), stream.getNotionalAmount(), stream.getNotionalCurrency(), stream.getDayCountFraction(), stream.getCompoundingMethod(), stream.getFixedRate(), stream.getFloatingRateIndex(), stream.getIndexTenorPeriodMultiplier(), stream.getIndexTenorPeriod(), stream.getSpread(), stream.getInitialRate());
+  }
+}
@@ -2,17 +2,23 @@ package com.twock.swappricer.test.fpml;
 
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.SortedMap;
+import java.util.TreeMap;
 
 import com.twock.swappricer.CurveContainer;
+import com.twock.swappricer.CurveSensitivities;
+import com.twock.swappricer.FixingSeries;
 import com.twock.swappricer.HolidayCalendarContainer;
+import com.twock.swappricer.PricerException;
 import com.twock.swappricer.ValuationCurve;
 import com.twock.swappricer.fpml.FpmlParser;
 import com.twock.swappricer.fpml.SwapPaymentCalculator;
 import com.twock.swappricer.fpml.SwapStreamDateCalculator;
 import com.twock.swappricer.fpml.model.DateWithDayCount;
 import com.twock.swappricer.fpml.model.SwapStream;
+import com.twock.swappricer.fpml.model.enumeration.CompoundingMethodEnum;
 import com.twock.swappricer.test.CurveContainerTest;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -91,4 +97,165 @@ public class SwapPaymentCalculatorTest {
     }
     // todo estimate forward rates for any periods
   }
+
+  @Test
+  public void testFloatingSideProjection() {
+    DateWithDayCount curveDate = new DateWithDayCount(2011, 11, 4);
+    int d = curveDate.getDayCount();
+    ValuationCurve forwardCurve = new ValuationCurve("FWD", curveDate, new int[]{d + 30, d + 400}, new double[]{0.02, 0.02}, new double[]{Math.exp(-0.02 * 30 / 365.0), Math.exp(-0.02 * 400 / 365.0)});
+    ValuationCurve discountCurve = new ValuationCurve("DISC", curveDate, new int[]{d + 1, d + 800}, new double[]{0.01, 0.01}, new double[]{Math.exp(-0.01 / 365.0), Math.exp(-0.01 * 800 / 365.0)});
+    int[] adjustedDates = {d - 60, d + 120, d + 300};
+    int[] fixingDates = {d - 62, d + 118};
+    int[] paymentDates = {d + 120, d + 300};
+    double[] dayCountFractions = {0.5, 0.5};
+    SortedMap<Integer, Double> historicFixings = new TreeMap<Integer, Double>();
+    historicFixings.put(d - 62, 1.5);
+
+    double forwardRate = (Math.exp(0.02 * 180 / 365.0) - 1) / 0.5;
+    Assert.assertEquals(forwardRate, forwardCurve.getForwardRate(d + 120, d + 300, 0.5), 1e-12);
+    double expected = 1000000 * (0.015 + 0.001) * 0.5 * Math.exp(-0.01 * 120 / 365.0) + 1000000 * (forwardRate + 0.001) * 0.5 * Math.exp(-0.01 * 300 / 365.0);
+    Assert.assertEquals(expected, swapPaymentCalculator.valueFloatingSide(1000000, 0.001, null, CompoundingMethodEnum.FLAT, adjustedDates, paymentDates, fixingDates, dayCountFractions, FixingSeries.fromSortedMap(historicFixings), forwardCurve, discountCurve), 0.000001);
+
+    // an initial rate takes precedence over the historic fixing
+    expected += 1000000 * (0.03 - 0.015) * 0.5 * Math.exp(-0.01 * 120 / 365.0);
+    Assert.assertEquals(expected, swapPaymentCalculator.valueFloatingSide(1000000, 0.001, 0.03, CompoundingMethodEnum.FLAT, adjustedDates, paymentDates, fixingDates, dayCountFractions, null, forwardCurve, discountCurve), 0.000001);
+
+    try {
+      swapPaymentCalculator.valueFloatingSide(1000000, 0.001, null, CompoundingMethodEnum.FLAT, adjustedDates, paymentDates, fixingDates, dayCountFractions, new FixingSeries(new int[0], new double[0]), forwardCurve, discountCurve);
+      Assert.fail("Expected missing fixing to be reported");
+    } catch(PricerException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void sensitivitiesMatchBumpAndReprice() {
+    DateWithDayCount curveDate = new DateWithDayCount(2011, 11, 4);
+    int d = curveDate.getDayCount();
+    int[] forwardPillars = {30, 95, 190, 370, 740};
+    double[] forwardRates = {0.012, 0.015, 0.017, 0.021, 0.026};
+    int[] discountPillars = {1, 120, 300, 800};
+    double[] discountRates = {0.008, 0.01, 0.013, 0.018};
+    // quarterly periods paid semi-annually, so compounding applies, with a historic fixing for the first
+    int[] adjustedDates = {d - 30, d + 61, d + 152, d + 243, d + 334, d + 425, d + 516};
+    int[] fixingDates = {d - 32, d + 59, d + 150, d + 241, d + 332, d + 423};
+    int[] paymentDates = {d + 152, d + 152, d + 334, d + 334, d + 516, d + 516};
+    double[] dayCountFractions = {0.25, 0.25, 0.25, 0.25, 0.25, 0.25};
+    FixingSeries historicFixings = new FixingSeries(new int[]{d - 32}, new double[]{1.4});
+    for(CompoundingMethodEnum compoundingMethod : new CompoundingMethodEnum[]{null, CompoundingMethodEnum.FLAT, CompoundingMethodEnum.STRAIGHT, CompoundingMethodEnum.SPREAD_EXCLUSIVE}) {
+      ValuationCurve forwardCurve = curve("FWD", curveDate, forwardPillars, forwardRates);
+      ValuationCurve discountCurve = curve("DISC", curveDate, discountPillars, discountRates);
+      double[] forwardSensitivities = new double[forwardRates.length];
+      double[] discountSensitivities = new double[discountRates.length];
+      double value = swapPaymentCalculator.valueFloatingSide(1000000, 0.002, null, compoundingMethod, adjustedDates, paymentDates, fixingDates, dayCountFractions, historicFixings, forwardCurve, discountCurve, forwardSensitivities, discountSensitivities);
+      Assert.assertEquals(swapPaymentCalculator.valueFloatingSide(1000000, 0.002, null, compoundingMethod, adjustedDates, paymentDates, fixingDates, dayCountFractions, historicFixings, forwardCurve, discountCurve), value, 1e-9);
+      for(int pillar = 0; pillar < forwardRates.length; pillar++) {
+        double up = swapPaymentCalculator.valueFloatingSide(1000000, 0.002, null, compoundingMethod, adjustedDates, paymentDates, fixingDates, dayCountFractions, historicFixings, curve("FWD", curveDate, forwardPillars, bump(forwardRates, pillar, 1e-6)), discountCurve);
+        double down = swapPaymentCalculator.valueFloatingSide(1000000, 0.002, null, compoundingMethod, adjustedDates, paymentDates, fixingDates, dayCountFractions, historicFixings, curve("FWD", curveDate, forwardPillars, bump(forwardRates, pillar, -1e-6)), discountCurve);
+        Assert.assertEquals(compoundingMethod + " forward pillar " + pillar, (up - down) / 2e-6, forwardSensitivities[pillar], 0.01);
+      }
+      for(int pillar = 0; pillar < discountRates.length; pillar++) {
+        double up = swapPaymentCalculator.valueFloatingSide(1000000, 0.002, null, compoundingMethod, adjustedDates, paymentDates, fixingDates, dayCountFractions, historicFixings, forwardCurve, curve("DISC", curveDate, discountPillars, bump(discountRates, pillar, 1e-6)));
+        double down = swapPaymentCalculator.valueFloatingSide(1000000, 0.002, null, compoundingMethod, adjustedDates, paymentDates, fixingDates, dayCountFractions, historicFixings, forwardCurve, curve("DISC", curveDate, discountPillars, bump(discountRates, pillar, -1e-6)));
+        Assert.assertEquals(compoundingMethod + " discount pillar " + pillar, (up - down) / 2e-6, discountSensitivities[pillar], 0.01);
+      }
+    }
+
+    ValuationCurve discountCurve = curve("DISC", curveDate, discountPillars, discountRates);
+    CurveSensitivities sensitivities = new CurveSensitivities();
+    swapPaymentCalculator.valueFixedSide(1000000, 0.02, dayCountFractions, paymentDates, discountCurve, sensitivities);
+    Assert.assertEquals(1, sensitivities.size());
+    for(int pillar = 0; pillar < discountRates.length; pillar++) {
+      double up = swapPaymentCalculator.valueFixedSide(1000000, 0.02, dayCountFractions, paymentDates, curve("DISC", curveDate, discountPillars, bump(discountRates, pillar, CurveSensitivities.ONE_BASIS_POINT)));
+      double down = swapPaymentCalculator.valueFixedSide(1000000, 0.02, dayCountFractions, paymentDates, curve("DISC", curveDate, discountPillars, bump(discountRates, pillar, -CurveSensitivities.ONE_BASIS_POINT)));
+      Assert.assertEquals("fixed pillar " + pillar, (up - down) / 2, sensitivities.getPv01("DISC")[pillar], 0.0001);
+    }
+  }
+
+  @Test
+  public void sensitivitiesMatchBumpOfLoadedCurves() {
+    SwapStream fixedStream = streams.get(0);
+    SwapStream floatingStream = streams.get(1);
+    String currency = floatingStream.getNotionalCurrency();
+    ValuationCurve discountCurve = curveContainer.getCurve(curveContainer.getDiscountCurve(null, null, null, currency));
+    ValuationCurve forwardCurve = curveContainer.getCurve(curveContainer.getForwardCurve(floatingStream.getFloatingRateIndex(), floatingStream.getIndexTenorPeriodMultiplier(), floatingStream.getIndexTenorPeriod(), currency));
+    FixingSeries historicFixings = curveContainer.getHistoricFixings(floatingStream.getFloatingRateIndex(), floatingStream.getIndexTenorPeriodMultiplier(), floatingStream.getIndexTenorPeriod());
+
+    // fixed flows paid on the discount curve's own pillar dates, where the discount factor is the one loaded
+    int[] pillarDates = Arrays.copyOfRange(discountCurve.getMaturityDates(), 1, 12);
+    double[] pillarDayCountFractions = new double[pillarDates.length];
+    Arrays.fill(pillarDayCountFractions, 0.25);
+    double[] fixedSensitivities = new double[discountCurve.getZeroRates().length];
+    swapPaymentCalculator.valueFixedSide(1000000, 0.02, pillarDayCountFractions, pillarDates, discountCurve, fixedSensitivities);
+    for(int pillar = 0; pillar < fixedSensitivities.length; pillar++) {
+      double up = swapPaymentCalculator.valueFixedSide(1000000, 0.02, pillarDayCountFractions, pillarDates, bumpPillar(discountCurve, pillar, 1e-6));
+      double down = swapPaymentCalculator.valueFixedSide(1000000, 0.02, pillarDayCountFractions, pillarDates, bumpPillar(discountCurve, pillar, -1e-6));
+      Assert.assertEquals("pillar dated fixed pillar " + pillar, (up - down) / 2e-6, fixedSensitivities[pillar], 0.01);
+    }
+
+    // the sample trade's fixed leg
+    List<DateWithDayCount> fixedPeriodDates = swapStreamDateCalculator.calculateAdjustedPeriodDates(fixedStream, allCalendars);
+    int[] fixedPaymentDates = DateWithDayCount.toDayCounts(swapStreamDateCalculator.calculatePaymentDates(fixedPeriodDates, fixedStream.getPaymentDates(), allCalendars));
+    double[] fixedDayCountFractions = swapStreamDateCalculator.getDayCountFractions(fixedPeriodDates, fixedStream.getDayCountFraction(), fixedStream.getCalculationPeriodFrequency(), null, null);
+    Arrays.fill(fixedSensitivities, 0);
+    swapPaymentCalculator.valueFixedSide(fixedStream.getNotionalAmount(), fixedStream.getFixedRate(), fixedDayCountFractions, fixedPaymentDates, discountCurve, fixedSensitivities);
+    for(int pillar = 0; pillar < fixedSensitivities.length; pillar++) {
+      double up = swapPaymentCalculator.valueFixedSide(fixedStream.getNotionalAmount(), fixedStream.getFixedRate(), fixedDayCountFractions, fixedPaymentDates, bumpPillar(discountCurve, pillar, 1e-6));
+      double down = swapPaymentCalculator.valueFixedSide(fixedStream.getNotionalAmount(), fixedStream.getFixedRate(), fixedDayCountFractions, fixedPaymentDates, bumpPillar(discountCurve, pillar, -1e-6));
+      Assert.assertEquals("fixed pillar " + pillar, (up - down) / 2e-6, fixedSensitivities[pillar], 0.01);
+    }
+
+    // the sample trade's floating leg
+    List<DateWithDayCount> periodDates = swapStreamDateCalculator.calculateAdjustedPeriodDates(floatingStream, allCalendars);
+    int[] adjustedDates = DateWithDayCount.toDayCounts(periodDates);
+    int[] paymentDates = DateWithDayCount.toDayCounts(swapStreamDateCalculator.calculatePaymentDates(periodDates, floatingStream.getPaymentDates(), allCalendars));
+    int[] fixingDates = DateWithDayCount.toDayCounts(swapStreamDateCalculator.calculateFixingDates(periodDates, floatingStream.getResetDates(), allCalendars));
+    double[] dayCountFractions = swapStreamDateCalculator.getDayCountFractions(periodDates, floatingStream.getDayCountFraction(), floatingStream.getCalculationPeriodFrequency(), null, null);
+    double notional = floatingStream.getNotionalAmount();
+    double spread = floatingStream.getSpread() == null ? 0 : floatingStream.getSpread();
+    CompoundingMethodEnum compoundingMethod = floatingStream.getCompoundingMethod();
+    double[] forwardSensitivities = new double[forwardCurve.getZeroRates().length];
+    double[] discountSensitivities = new double[discountCurve.getZeroRates().length];
+    swapPaymentCalculator.valueFloatingSide(notional, spread, floatingStream.getInitialRate(), compoundingMethod, adjustedDates, paymentDates, fixingDates, dayCountFractions, historicFixings, forwardCurve, discountCurve, forwardSensitivities, discountSensitivities);
+    for(int pillar = 0; pillar < forwardSensitivities.length; pillar++) {
+      double up = swapPaymentCalculator.valueFloatingSide(notional, spread, floatingStream.getInitialRate(), compoundingMethod, adjustedDates, paymentDates, fixingDates, dayCountFractions, historicFixings, bumpPillar(forwardCurve, pillar, 1e-6), discountCurve);
+      double down = swapPaymentCalculator.valueFloatingSide(notional, spread, floatingStream.getInitialRate(), compoundingMethod, adjustedDates, paymentDates, fixingDates, dayCountFractions, historicFixings, bumpPillar(forwardCurve, pillar, -1e-6), discountCurve);
+      Assert.assertEquals("forward pillar " + pillar, (up - down) / 2e-6, forwardSensitivities[pillar], 0.01);
+    }
+    for(int pillar = 0; pillar < discountSensitivities.length; pillar++) {
+      double up = swapPaymentCalculator.valueFloatingSide(notional, spread, floatingStream.getInitialRate(), compoundingMethod, adjustedDates, paymentDates, fixingDates, dayCountFractions, historicFixings, forwardCurve, bumpPillar(discountCurve, pillar, 1e-6));
+      double down = swapPaymentCalculator.valueFloatingSide(notional, spread, floatingStream.getInitialRate(), compoundingMethod, adjustedDates, paymentDates, fixingDates, dayCountFractions, historicFixings, forwardCurve, bumpPillar(discountCurve, pillar, -1e-6));
+      Assert.assertEquals("discount pillar " + pillar, (up - down) / 2e-6, discountSensitivities[pillar], 0.01);
+    }
+  }
+
+  /**
+   * @return the curve with one zero rate shifted, and the discount factor loaded for that pillar moved to match as
+   *         {@link ValuationCurve#discountFactorAdjoint} assumes
+   */
+  private static ValuationCurve bumpPillar(ValuationCurve curve, int pillar, double shift) {
+    double years = (curve.getMaturityDates()[pillar] - curve.getCurveDate().getDayCount()) / 365.0;
+    double[] discountFactors = curve.getDiscountFactors().clone();
+    discountFactors[pillar] *= Math.exp(-shift * years);
+    return new ValuationCurve(curve.getCurveName(), curve.getCurveDate(), curve.getMaturityDates(), bump(curve.getZeroRates(), pillar, shift), discountFactors);
+  }
+
+  /**
+   * @return a curve with the given zero rates, and discount factors consistent with them
+   */
+  private static ValuationCurve curve(String name, DateWithDayCount curveDate, int[] pillarDays, double[] zeroRates) {
+    int[] maturityDates = new int[pillarDays.length];
+    double[] discountFactors = new double[pillarDays.length];
+    for(int i = 0; i < pillarDays.length; i++) {
+      maturityDates[i] = curveDate.getDayCount() + pillarDays[i];
+      discountFactors[i] = Math.exp(-zeroRates[i] * pillarDays[i] / 365.0);
+    }
+    return new ValuationCurve(name, curveDate, maturityDates, zeroRates, discountFactors);
+  }
+
+  private static double[] bump(double[] values, int index, double amount) {
+    double[] result = values.clone();
+    result[index] += amount;
+    return result;
+  }
 }
@@ -380,6 +380,18 @@ public class SwapStreamDateCalculatorTest {
     ), adjustedSide2Dates);
   }
 
+  @Test
+  public void primitiveScheduleMatchesDates() {
+    List<SwapStream> streams = fpmlParser.parse(SwapStreamDateCalculatorTest.class.getResourceAsStream("/LCH00000513426.xml"));
+    for(SwapStream stream : streams) {
+      List<DateWithDayCount> periodDates = calculator.calculateAdjustedPeriodDates(stream, allCalendars);
+      int[] periodDayCounts = calculator.calculateAdjustedPeriodDayCounts(stream, allCalendars);
+      Assert.assertArrayEquals(DateWithDayCount.toDayCounts(periodDates), periodDayCounts);
+      Assert.assertArrayEquals(DateWithDayCount.toDayCounts(calculator.calculatePaymentDates(periodDates, stream.getPaymentDates(), allCalendars)), calculator.calculatePaymentDayCounts(periodDayCounts, stream.getPaymentDates(), allCalendars));
+      Assert.assertArrayEquals(calculator.getDayCountFractions(periodDates, stream.getDayCountFraction(), stream.getCalculationPeriodFrequency(), false, false), calculator.getDayCountFractions(periodDayCounts, stream.getDayCountFraction(), stream.getCalculationPeriodFrequency(), false, false), DCF_DELTA);
+    }
+  }
+
   @Test
   public void shiftNoBusinessDay() {
     Assert.assertEquals(new DateWithDayCount(2012, 1, 13), calculator.shift(new DateWithDayCount(2012, 1, 13), 0, PeriodEnum.D, DayTypeEnum.BUSINESS, BusinessDayConventionEnum.NO_ADJUST, london));
@@ -0,0 +1,73 @@
+package com.twock.swappricer.test.fpml;
+
+import com.twock.swappricer.DateUtil;
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.fpml.TextDecoder;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class TextDecoderTest {
+  @Test
+  public void parseInt() {
+    Assert.assertEquals(6, parseInt("6"));
+    Assert.assertEquals(-2, parseInt("-2"));
+    Assert.assertEquals(12, parseInt(" +12\n"));
+    Assert.assertEquals(Integer.MAX_VALUE, parseInt("2147483647"));
+    Assert.assertEquals(Integer.MIN_VALUE, parseInt("-2147483648"));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void parseIntOverflow() {
+    parseInt("2147483648");
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void parseIntInvalid() {
+    parseInt("1M");
+  }
+
+  @Test
+  public void parseDoubleMatchesJdk() {
+    String[] values = {"0", "-0.0", "1", "0.1", "0.0125", "-0.00125", "42500000.00", "1.23456789012345", "3.1E-3",
+      "1e22", "1.7976931348623157E308", "4.9E-324", "0.30000000000000004", "123456789012345678901234", ".5", "5.",
+      "  2.5\t"};
+    for(String value : values) {
+      Assert.assertEquals(value, Double.doubleToLongBits(Double.parseDouble(value)), Double.doubleToLongBits(parseDouble(value)));
+    }
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void parseDoubleInvalid() {
+    parseDouble("1.2.3");
+  }
+
+  @Test
+  public void parseDayCount() {
+    char[] text = "<x>2011-06-09Z</x>".toCharArray();
+    Assert.assertEquals(DateUtil.dateToDayCount(2011, 6, 9), TextDecoder.parseDayCount(text, 3, 11));
+    Assert.assertEquals(DateUtil.dateToDayCount(1999, 12, 31), parseDayCount("\n 1999-12-31 "));
+  }
+
+  @Test(expected = PricerException.class)
+  public void parseDayCountInvalid() {
+    parseDayCount("2011-13-01");
+  }
+
+  private static int parseInt(String value) {
+    // surround with other characters to check only the given range is read
+    char[] text = ("9" + value + "9").toCharArray();
+    return TextDecoder.parseInt(text, 1, value.length());
+  }
+
+  private static double parseDouble(String value) {
+    char[] text = ("9" + value + "9").toCharArray();
+    return TextDecoder.parseDouble(text, 1, value.length());
+  }
+
+  private static int parseDayCount(String value) {
+    return TextDecoder.parseDayCount(value.toCharArray(), 0, value.length());
+  }
+}
@@ -0,0 +1,105 @@
+package com.twock.swappricer.test.fpml.book;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.fpml.TradeHandler;
+import com.twock.swappricer.fpml.book.TradeBook;
+import com.twock.swappricer.fpml.book.TradeBookBuilder;
+import com.twock.swappricer.fpml.book.TradeBookColumn;
+import com.twock.swappricer.fpml.model.SwapStream;
+import com.twock.swappricer.fpml.model.Trade;
+import com.twock.swappricer.test.fpml.FpmlParserTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class TradeBookTest {
+  @Test
+  public void roundTripParsedTrades() throws IOException {
+    final List<Trade> parsed = new ArrayList<Trade>();
+    // starts too small for the trades, so the columns have to grow
+    final TradeBookBuilder builder = new TradeBookBuilder(3);
+    FpmlParserTest.createFpmlParser().parseTrades(new ByteArrayInputStream(FpmlParserTest.createMultiTradeDocument(5)), new TradeHandler() {
+      @Override
+      public void handle(Trade trade) {
+        parsed.add(trade);
+        builder.handle(trade);
+      }
+    });
+    TradeBook book = builder.build();
+    Assert.assertEquals(5, book.getTradeCount());
+    Assert.assertEquals(10, book.size());
+    for(int leg = 0; leg < book.size(); leg++) {
+      Trade trade = parsed.get(leg / 2);
+      Assert.assertEquals(leg / 2, book.getTradeIndex(leg));
+      Assert.assertEquals(trade.getTradeId(), book.getTradeId(book.getTradeIndex(leg)));
+      Assert.assertEquals(leg % 2, book.getInt(TradeBookColumn.LEG, leg));
+      Assert.assertEquals(trade.getSwapStreams().get(leg % 2).toString(), book.toSwapStream(leg).toString());
+    }
+    // every trade is the same, so each leg shares its schedule with the same leg of the other trades
+    Assert.assertEquals(2, book.getScheduleCount());
+    Assert.assertEquals(TradeBook.LegType.FIXED, book.getLegType(0));
+    Assert.assertEquals(TradeBook.LegType.FLOATING, book.getLegType(1));
+    ByteBuffer schedules = book.getColumn(TradeBookColumn.SCHEDULE);
+    Assert.assertEquals(40, schedules.remaining());
+    for(int leg = 0; leg < book.size(); leg++) {
+      Assert.assertEquals(book.getSchedule(leg % 2), schedules.getInt(leg * 4));
+    }
+  }
+
+  @Test
+  public void roundTripNulls() {
+    SwapStream empty = new SwapStream(null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null);
+    Trade trade = new Trade(null, null, Arrays.asList(empty, empty));
+    TradeBookBuilder builder = new TradeBookBuilder();
+    builder.add(trade);
+    builder.add(new Trade("EMPTY", null, new ArrayList<SwapStream>()));
+    TradeBook book = builder.build();
+    Assert.assertEquals(2, book.getTradeCount());
+    Assert.assertEquals(2, book.size());
+    Assert.assertEquals(empty.toString(), book.toSwapStream(1).toString());
+    Assert.assertEquals(TradeBook.LegType.OTHER, book.getLegType(0));
+    Assert.assertEquals(TradeBook.NO_SCHEDULE, book.getSchedule(0));
+    Assert.assertTrue(Double.isNaN(book.getDouble(TradeBookColumn.NOTIONAL, 0)));
+    Assert.assertEquals("EMPTY", book.getTradeId(1));
+  }
+
+  @Test
+  public void failedTradeLeavesNoLegs() {
+    SwapStream empty = new SwapStream(null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null);
+    SwapStream unencodable = new SwapStream(null, null, null, null, null, null, null, null, null, null, null, null, null, null, Integer.MIN_VALUE, null, null, null);
+    TradeBookBuilder builder = new TradeBookBuilder();
+    try {
+      builder.add(new Trade("BAD", null, Arrays.asList(empty, unencodable)));
+      Assert.fail("Expected the second stream to fail");
+    } catch(PricerException e) {
+      // expected
+    }
+    builder.add(new Trade("GOOD", null, Arrays.asList(empty)));
+    TradeBook book = builder.build();
+    Assert.assertEquals(1, book.getTradeCount());
+    Assert.assertEquals(1, book.size());
+    Assert.assertEquals(0, book.getTradeIndex(0));
+    Assert.assertEquals("GOOD", book.getTradeId(0));
+  }
+
+  @Test(expected = PricerException.class)
+  public void legOutOfRange() {
+    new TradeBookBuilder().build().getInt(TradeBookColumn.EFFECTIVE_DATE, 0);
+  }
+
+  @Test(expected = PricerException.class)
+  public void wrongColumnWidth() {
+    TradeBookBuilder builder = new TradeBookBuilder();
+    builder.add(new Trade("T", null, Arrays.asList(new SwapStream(null, null, null, null, null, null, null, null, 1.0, null, null, null, null, null, null, null, null, null))));
+    builder.build().getInt(TradeBookColumn.NOTIONAL, 0);
+  }
+}
@@ -0,0 +1,50 @@
+package com.twock.swappricer.test.fpml.model.enumeration;
+
+import com.twock.swappricer.fpml.model.enumeration.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class EnumLookupTest {
+  @Test
+  public void everyValueFound() {
+    checkAll(BusinessDayConventionEnum.values(), BusinessDayConventionEnum.LOOKUP);
+    checkAll(CompoundingMethodEnum.values(), CompoundingMethodEnum.LOOKUP);
+    checkAll(DayCountFractionEnum.values(), DayCountFractionEnum.LOOKUP);
+    checkAll(DayTypeEnum.values(), DayTypeEnum.LOOKUP);
+    checkAll(PayRelativeToEnum.values(), PayRelativeToEnum.LOOKUP);
+    checkAll(PeriodEnum.values(), PeriodEnum.LOOKUP);
+    checkAll(ResetRelativeToEnum.values(), ResetRelativeToEnum.LOOKUP);
+    checkAll(RollConventionEnum.values(), RollConventionEnum.LOOKUP);
+  }
+
+  @Test
+  public void fromValue() {
+    Assert.assertEquals(DayCountFractionEnum.ACT_360, DayCountFractionEnum.fromValue("ACT/360"));
+    Assert.assertEquals(BusinessDayConventionEnum.NO_ADJUST, BusinessDayConventionEnum.fromValue("NONE"));
+    Assert.assertEquals(RollConventionEnum.DAY9, RollConventionEnum.fromValue("9"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fromValueUnknown() {
+    DayCountFractionEnum.fromValue("ACT/361");
+  }
+
+  @Test
+  public void unknownValues() {
+    Assert.assertNull(PeriodEnum.LOOKUP.get("X"));
+    Assert.assertNull(PeriodEnum.LOOKUP.get(""));
+    Assert.assertNull(PeriodEnum.LOOKUP.get(null));
+    Assert.assertNull(DayTypeEnum.LOOKUP.get("BusinessX"));
+  }
+
+  private static <E extends Enum<E> & FpmlEnum> void checkAll(E[] values, EnumLookup<E> lookup) {
+    for(E value : values) {
+      char[] text = (" " + value.value() + " ").toCharArray();
+      Assert.assertSame(value, lookup.get(text, 1, text.length - 2));
+      Assert.assertSame(value, lookup.get(value.value()));
+    }
+  }
+}
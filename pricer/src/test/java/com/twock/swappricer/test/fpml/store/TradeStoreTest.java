@@ -0,0 +1,96 @@
+package com.twock.swappricer.test.fpml.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.twock.swappricer.PricerException;
+import com.twock.swappricer.fpml.TradeHandler;
+import com.twock.swappricer.fpml.model.SwapStream;
+import com.twock.swappricer.fpml.model.Trade;
+import com.twock.swappricer.fpml.store.TradeStore;
+import com.twock.swappricer.fpml.store.TradeStoreWriter;
+import com.twock.swappricer.test.fpml.FpmlParserTest;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Chris Pearson (chris@twock.com)
+ */
+public class TradeStoreTest {
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = File.createTempFile("trades", ".store");
+  }
+
+  @After
+  public void tearDown() {
+    FileUtils.deleteQuietly(file);
+  }
+
+  @Test
+  public void roundTripParsedTrades() throws IOException {
+    final List<Trade> parsed = new ArrayList<Trade>();
+    final TradeStoreWriter writer = new TradeStoreWriter(file);
+    FpmlParserTest.createFpmlParser().parseTrades(new ByteArrayInputStream(FpmlParserTest.createMultiTradeDocument(5)), new TradeHandler() {
+      @Override
+      public void handle(Trade trade) {
+        parsed.add(trade);
+        writer.handle(trade);
+      }
+    });
+    writer.close();
+    Assert.assertEquals(5, writer.getTradeCount());
+
+    TradeStore store = TradeStore.open(file);
+    Assert.assertEquals(5, store.size());
+    for(int i = 0; i < parsed.size(); i++) {
+      Assert.assertEquals("LCH" + i, store.getTradeId(i));
+      Assert.assertEquals(parsed.get(i).toString(), store.getTrade(i).toString());
+    }
+    final List<String> tradeIds = new ArrayList<String>();
+    Assert.assertEquals(5, store.readTrades(new TradeHandler() {
+      @Override
+      public void handle(Trade trade) {
+        tradeIds.add(trade.getTradeId());
+      }
+    }));
+    Assert.assertEquals(Arrays.asList("LCH0", "LCH1", "LCH2", "LCH3", "LCH4"), tradeIds);
+  }
+
+  @Test
+  public void roundTripNulls() {
+    SwapStream empty = new SwapStream(null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null);
+    Trade trade = new Trade(null, null, Arrays.asList(empty, empty));
+    TradeStoreWriter writer = new TradeStoreWriter(file);
+    writer.write(trade);
+    writer.write(new Trade("EMPTY", null, new ArrayList<SwapStream>()));
+    writer.close();
+
+    TradeStore store = TradeStore.open(file);
+    Assert.assertEquals(2, store.size());
+    Assert.assertEquals(trade.toString(), store.getTrade(0).toString());
+    Assert.assertEquals("EMPTY", store.getTradeId(1));
+    Assert.assertTrue(store.getTrade(1).getSwapStreams().isEmpty());
+  }
+
+  @Test(expected = PricerException.class)
+  public void tradeOutOfRange() {
+    new TradeStoreWriter(file).close();
+    TradeStore.open(file).getTrade(0);
+  }
+
+  @Test(expected = PricerException.class)
+  public void notATradeStore() throws IOException {
+    FileUtils.writeStringToFile(file, "<FpML/> and some other text");
+    TradeStore.open(file);
+  }
+}